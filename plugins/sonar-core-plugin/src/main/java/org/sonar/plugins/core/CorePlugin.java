@@ -28,7 +28,6 @@ import org.sonar.batch.components.PastSnapshotFinder;
 import org.sonar.batch.debt.IssueChangelogDebtCalculator;
 import org.sonar.batch.issue.ignore.IssueExclusionsConfiguration;
 import org.sonar.core.timemachine.Periods;
-import org.sonar.plugins.core.batch.IndexProjectPostJob;
 import org.sonar.plugins.core.charts.DistributionAreaChart;
 import org.sonar.plugins.core.charts.DistributionBarChart;
 import org.sonar.plugins.core.charts.XradarChart;
@@ -138,6 +137,18 @@ import java.util.List;
     name = "Report Results Export File",
     type = PropertyType.STRING,
     global = false, project = false),
+  @Property(
+    key = "sonar.report.export.newIssuesOnly",
+    defaultValue = "false",
+    name = "Export Only New Issues",
+    type = PropertyType.BOOLEAN,
+    global = false, project = false),
+  @Property(
+    key = "sonar.report.export.changedFilesOnly",
+    defaultValue = "false",
+    name = "Export Only Issues Of Changed Files",
+    type = PropertyType.BOOLEAN,
+    global = false, project = false),
 
   // SERVER-SIDE TECHNICAL PROPERTIES
 
@@ -317,7 +328,6 @@ public final class CorePlugin extends SonarPlugin {
       NoSonarFilter.class,
       DirectoriesDecorator.class,
       FilesDecorator.class,
-      IndexProjectPostJob.class,
       ManualMeasureDecorator.class,
       FileHashSensor.class,
 
@@ -325,6 +335,7 @@ public final class CorePlugin extends SonarPlugin {
       TendencyDecorator.class,
       VariationDecorator.class,
       TimeMachineConfigurationPersister.class,
+      FileLineDataCache.class,
       NewCoverageFileAnalyzer.class,
       NewItCoverageFileAnalyzer.class,
       NewOverallCoverageFileAnalyzer.class,
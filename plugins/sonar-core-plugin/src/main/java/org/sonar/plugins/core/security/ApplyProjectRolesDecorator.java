@@ -21,6 +21,7 @@ package org.sonar.plugins.core.security;
 
 import com.google.common.collect.ImmutableSet;
 import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.AppliesTo;
 import org.sonar.api.batch.Decorator;
 import org.sonar.api.batch.DecoratorContext;
 import org.sonar.core.DryRunIncompatible;
@@ -31,6 +32,7 @@ import org.sonar.api.security.ResourcePermissions;
 
 import java.util.Set;
 
+@AppliesTo(qualifiers = {Qualifiers.PROJECT, Qualifiers.VIEW, Qualifiers.SUBVIEW})
 @DryRunIncompatible
 public class ApplyProjectRolesDecorator implements Decorator {
 
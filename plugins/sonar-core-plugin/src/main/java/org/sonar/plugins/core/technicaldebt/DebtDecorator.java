@@ -25,7 +25,6 @@ import com.google.common.collect.ImmutableList;
 import org.sonar.api.CoreProperties;
 import org.sonar.api.PropertyType;
 import org.sonar.api.batch.*;
-import org.sonar.api.batch.rule.Rule;
 import org.sonar.api.batch.rule.Rules;
 import org.sonar.api.component.ResourcePerspectives;
 import org.sonar.api.config.PropertyDefinition;
@@ -41,16 +40,12 @@ import org.sonar.api.rules.RuleFinder;
 import org.sonar.api.technicaldebt.batch.Characteristic;
 import org.sonar.api.technicaldebt.batch.TechnicalDebtModel;
 
-import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 
 import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
 
 import static com.google.common.collect.Lists.newArrayList;
-import static com.google.common.collect.Maps.newHashMap;
 
 /**
  * Decorator that computes the technical debt metric
@@ -67,6 +62,15 @@ public final class DebtDecorator implements Decorator {
    */
   private final RuleFinder ruleFinder;
 
+  private RuleCharacteristicIndex index;
+
+  // debt of the resource being decorated, by rule index and by characteristic index. Arrays are reused between resources.
+  private long[] ruleDebts;
+  private boolean[] ruleHasDebt;
+  private int[] rulesWithDebt;
+  private int rulesWithDebtCount;
+  private long[] characteristicDebts;
+
   public DebtDecorator(ResourcePerspectives perspectives, TechnicalDebtModel model, Rules rules, RuleFinder ruleFinder) {
     this.perspectives = perspectives;
     this.model = model;
@@ -92,64 +96,78 @@ public final class DebtDecorator implements Decorator {
   }
 
   private void saveMeasures(DecoratorContext context, List<Issue> issues) {
-    Long total = 0L;
-    SumMap<RuleKey> ruleDebts = new SumMap<RuleKey>();
-    SumMap<Characteristic> characteristicDebts = new SumMap<Characteristic>();
+    initIndex();
+    resetDebts();
+    long total = 0L;
 
     // Aggregate rules debt from current issues (and populate current characteristic debt)
     for (Issue issue : issues) {
       Long debt = ((DefaultIssue) issue).debtInMinutes();
-      total += computeDebt(debt, issue.ruleKey(), ruleDebts, characteristicDebts);
+      total += computeDebt(debt, issue.ruleKey());
     }
 
     // Aggregate rules debt from children (and populate children characteristics debt)
     for (Measure measure : context.getChildrenMeasures(MeasuresFilters.rules(CoreMetrics.TECHNICAL_DEBT))) {
       Long debt = measure.getValue().longValue();
       RuleMeasure ruleMeasure = (RuleMeasure) measure;
-      total += computeDebt(debt, ruleMeasure.getRule().ruleKey(), ruleDebts, characteristicDebts);
+      total += computeDebt(debt, ruleMeasure.getRule().ruleKey());
+    }
+
+    context.saveMeasure(CoreMetrics.TECHNICAL_DEBT, (double) total);
+    saveOnRule(context);
+    for (int i = 0; i < index.characteristicCount(); i++) {
+      saveCharacteristicMeasure(context, index.characteristic(i), (double) characteristicDebts[i], false);
     }
+  }
 
-    context.saveMeasure(CoreMetrics.TECHNICAL_DEBT, total.doubleValue());
-    saveOnRule(context, ruleDebts);
-    for (Characteristic characteristic : model.characteristics()) {
-      Long debt = characteristicDebts.get(characteristic);
-      saveCharacteristicMeasure(context, characteristic, debt != null ? debt.doubleValue() : 0d, false);
+  private void initIndex() {
+    if (index == null) {
+      index = new RuleCharacteristicIndex(model, rules, ruleFinder);
+      ruleDebts = new long[index.ruleCount()];
+      ruleHasDebt = new boolean[index.ruleCount()];
+      rulesWithDebt = new int[index.ruleCount()];
+      characteristicDebts = new long[index.characteristicCount()];
     }
   }
 
-  private Long computeDebt(@Nullable Long debt, RuleKey ruleKey, SumMap<RuleKey> ruleDebts, SumMap<Characteristic> characteristicDebts) {
+  private long computeDebt(@Nullable Long debt, RuleKey ruleKey) {
     if (debt != null) {
-      Rule rule = rules.find(ruleKey);
-      if (rule != null) {
-        String characteristicKey = rule.debtSubCharacteristic();
-        if (characteristicKey != null) {
-          Characteristic characteristic = model.characteristicByKey(characteristicKey);
-          if (characteristic != null) {
-            ruleDebts.add(ruleKey, debt);
-            characteristicDebts.add(characteristic, debt);
-            propagateTechnicalDebtInParents(characteristic.parent(), debt, characteristicDebts);
-            return debt;
-          }
+      int ruleIndex = index.ruleIndex(ruleKey);
+      if (ruleIndex >= 0) {
+        if (!ruleHasDebt[ruleIndex]) {
+          ruleHasDebt[ruleIndex] = true;
+          rulesWithDebt[rulesWithDebtCount] = ruleIndex;
+          rulesWithDebtCount++;
+        }
+        ruleDebts[ruleIndex] += debt;
+        for (int characteristicIndex : index.characteristicPath(ruleIndex)) {
+          characteristicDebts[characteristicIndex] += debt;
         }
+        return debt;
       }
     }
     return 0L;
   }
 
-  private void propagateTechnicalDebtInParents(@Nullable Characteristic characteristic, long value, SumMap<Characteristic> characteristicDebts) {
-    if (characteristic != null) {
-      characteristicDebts.add(characteristic, value);
-      propagateTechnicalDebtInParents(characteristic.parent(), value, characteristicDebts);
+  private void saveOnRule(DecoratorContext context) {
+    boolean inMemory = ResourceUtils.isEntity(context.getResource());
+    for (int i = 0; i < rulesWithDebtCount; i++) {
+      int ruleIndex = rulesWithDebt[i];
+      org.sonar.api.rules.Rule oldRule = index.deprecatedRule(ruleIndex);
+      if (oldRule != null) {
+        saveRuleMeasure(context, oldRule, (double) ruleDebts[ruleIndex], inMemory);
+      }
     }
   }
 
-  private void saveOnRule(DecoratorContext context, SumMap<RuleKey> ruleDebts) {
-    for (Map.Entry<RuleKey, Long> entry : ruleDebts.entrySet()) {
-      org.sonar.api.rules.Rule oldRule = ruleFinder.findByKey(entry.getKey());
-      if (oldRule != null) {
-        saveRuleMeasure(context, oldRule, entry.getValue().doubleValue(), ResourceUtils.isEntity(context.getResource()));
-      }
+  private void resetDebts() {
+    for (int i = 0; i < rulesWithDebtCount; i++) {
+      int ruleIndex = rulesWithDebt[i];
+      ruleDebts[ruleIndex] = 0L;
+      ruleHasDebt[ruleIndex] = false;
     }
+    rulesWithDebtCount = 0;
+    Arrays.fill(characteristicDebts, 0L);
   }
 
   @VisibleForTesting
@@ -196,28 +214,4 @@ public final class DebtDecorator implements Decorator {
         .build()
     );
   }
-
-  private static class SumMap<E> {
-    private Map<E, Long> sumByKeys;
-
-    public SumMap() {
-      sumByKeys = newHashMap();
-    }
-
-    public void add(@Nullable E key, Long value) {
-      if (key != null) {
-        Long currentValue = sumByKeys.get(key);
-        sumByKeys.put(key, currentValue != null ? currentValue + value : value);
-      }
-    }
-
-    @CheckForNull
-    public Long get(E key) {
-      return sumByKeys.get(key);
-    }
-
-    public Set<Map.Entry<E, Long>> entrySet() {
-      return sumByKeys.entrySet();
-    }
-  }
 }
@@ -0,0 +1,135 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.core.technicaldebt;
+
+import org.sonar.api.batch.rule.Rule;
+import org.sonar.api.batch.rule.Rules;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.rules.RuleFinder;
+import org.sonar.api.technicaldebt.batch.Characteristic;
+import org.sonar.api.technicaldebt.batch.TechnicalDebtModel;
+
+import javax.annotation.CheckForNull;
+
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Maps.newHashMap;
+
+/**
+ * Rules and characteristics of the technical debt model, given dense indices so that debt can be aggregated
+ * in arrays. For each rule having a debt sub-characteristic, the path of characteristics (the sub-characteristic
+ * then its parents) is computed once per analysis.
+ *
+ * @since 4.3
+ */
+class RuleCharacteristicIndex {
+
+  private final List<Characteristic> characteristics;
+  private final Map<RuleKey, Integer> indexByRuleKey = newHashMap();
+  private final List<RuleKey> ruleKeys = newArrayList();
+  private final List<int[]> characteristicPaths = newArrayList();
+
+  private final RuleFinder ruleFinder;
+  private org.sonar.api.rules.Rule[] deprecatedRules;
+  private boolean[] deprecatedRulesLoaded;
+
+  RuleCharacteristicIndex(TechnicalDebtModel model, Rules rules, RuleFinder ruleFinder) {
+    this.ruleFinder = ruleFinder;
+    this.characteristics = newArrayList();
+    Map<Characteristic, Integer> indexByCharacteristic = newHashMap();
+    for (Characteristic characteristic : model.characteristics()) {
+      indexByCharacteristic.put(characteristic, characteristics.size());
+      characteristics.add(characteristic);
+    }
+
+    for (Rule rule : rules.findAll()) {
+      String characteristicKey = rule.debtSubCharacteristic();
+      Characteristic characteristic = characteristicKey != null ? model.characteristicByKey(characteristicKey) : null;
+      if (characteristic != null) {
+        indexByRuleKey.put(rule.key(), ruleKeys.size());
+        ruleKeys.add(rule.key());
+        characteristicPaths.add(characteristicPath(characteristic, indexByCharacteristic));
+      }
+    }
+    deprecatedRules = new org.sonar.api.rules.Rule[ruleKeys.size()];
+    deprecatedRulesLoaded = new boolean[ruleKeys.size()];
+  }
+
+  private static int[] characteristicPath(Characteristic characteristic, Map<Characteristic, Integer> indexByCharacteristic) {
+    List<Integer> path = newArrayList();
+    for (Characteristic c = characteristic; c != null; c = c.parent()) {
+      Integer index = indexByCharacteristic.get(c);
+      // characteristics that are not part of the model are ignored, as their measures are not saved
+      if (index != null) {
+        path.add(index);
+      }
+    }
+    int[] result = new int[path.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = path.get(i);
+    }
+    return result;
+  }
+
+  int ruleCount() {
+    return ruleKeys.size();
+  }
+
+  int characteristicCount() {
+    return characteristics.size();
+  }
+
+  /**
+   * @return the index of the rule, or -1 if the rule does not exist or has no debt characteristic
+   */
+  int ruleIndex(RuleKey ruleKey) {
+    Integer index = indexByRuleKey.get(ruleKey);
+    return index != null ? index : -1;
+  }
+
+  RuleKey ruleKey(int ruleIndex) {
+    return ruleKeys.get(ruleIndex);
+  }
+
+  /**
+   * @return the indices of the sub-characteristic of the rule then of its parents
+   */
+  int[] characteristicPath(int ruleIndex) {
+    return characteristicPaths.get(ruleIndex);
+  }
+
+  Characteristic characteristic(int characteristicIndex) {
+    return characteristics.get(characteristicIndex);
+  }
+
+  /**
+   * The deprecated rule, required to persist rule measures, is loaded only once.
+   */
+  @CheckForNull
+  org.sonar.api.rules.Rule deprecatedRule(int ruleIndex) {
+    if (!deprecatedRulesLoaded[ruleIndex]) {
+      deprecatedRules[ruleIndex] = ruleFinder.findByKey(ruleKeys.get(ruleIndex));
+      deprecatedRulesLoaded[ruleIndex] = true;
+    }
+    return deprecatedRules[ruleIndex];
+  }
+}
@@ -20,8 +20,6 @@
 package org.sonar.plugins.core.timemachine;
 
 import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
-import org.apache.commons.lang.ObjectUtils;
 import org.sonar.api.batch.*;
 import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.measures.Measure;
@@ -30,34 +28,38 @@ import org.sonar.api.resources.Project;
 import org.sonar.api.resources.Qualifiers;
 import org.sonar.api.resources.Resource;
 import org.sonar.api.resources.Scopes;
-import org.sonar.api.utils.KeyValueFormat;
 import org.sonar.batch.components.Period;
 import org.sonar.batch.components.TimeMachineConfiguration;
 import org.sonar.core.DryRunIncompatible;
 
+import javax.annotation.Nullable;
+
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
-import java.util.Map;
 
 /**
  * @since 2.7
  */
+@AppliesTo(scopes = Scopes.FILE)
 @DryRunIncompatible
 @DependedUpon(DecoratorBarriers.END_OF_TIME_MACHINE)
 public abstract class AbstractNewCoverageFileAnalyzer implements Decorator {
 
   private List<PeriodStruct> structs;
+  private final FileLineDataCache lineDataCache;
 
-  public AbstractNewCoverageFileAnalyzer(TimeMachineConfiguration timeMachineConfiguration) {
+  public AbstractNewCoverageFileAnalyzer(TimeMachineConfiguration timeMachineConfiguration, FileLineDataCache lineDataCache) {
     structs = Lists.newArrayList();
     for (Period period : timeMachineConfiguration.periods()) {
       structs.add(new PeriodStruct(period.getIndex(), period.getDate()));
     }
+    this.lineDataCache = lineDataCache;
   }
 
-  AbstractNewCoverageFileAnalyzer(List<PeriodStruct> structs) {
+  AbstractNewCoverageFileAnalyzer(List<PeriodStruct> structs, FileLineDataCache lineDataCache) {
     this.structs = structs;
+    this.lineDataCache = lineDataCache;
   }
 
   public abstract Metric getCoverageLineHitsDataMetric();
@@ -107,25 +109,26 @@ public abstract class AbstractNewCoverageFileAnalyzer implements Decorator {
   }
 
   private boolean parse(DecoratorContext context) {
-    Measure lastCommits = context.getMeasure(CoreMetrics.SCM_LAST_COMMIT_DATETIMES_BY_LINE);
-    Measure hitsByLineMeasure = context.getMeasure(getCoverageLineHitsDataMetric());
+    FileLineData lineData = lineDataCache.get(context);
+    int[] hitsByLine = lineData.getIntsByLine(getCoverageLineHitsDataMetric());
+    // shared by the analyzers of unit tests, integration tests and overall coverage
+    long[] datesByLine = hitsByLine != null ? lineData.getDateTimesByLine(CoreMetrics.SCM_LAST_COMMIT_DATETIMES_BY_LINE) : null;
 
-    if (lastCommits != null && lastCommits.hasData() && hitsByLineMeasure != null && hitsByLineMeasure.hasData()) {
-      Map<Integer, Date> datesByLine = KeyValueFormat.parseIntDateTime(lastCommits.getData());
-      Map<Integer, Integer> hitsByLine = parseCountByLine(hitsByLineMeasure);
-      Map<Integer, Integer> conditionsByLine = parseCountByLine(context.getMeasure(getConditionsByLineMetric()));
-      Map<Integer, Integer> coveredConditionsByLine = parseCountByLine(context.getMeasure(getCoveredConditionsByLineMetric()));
+    if (datesByLine != null && hitsByLine != null) {
+      int[] conditionsByLine = lineData.getIntsByLine(getConditionsByLineMetric());
+      int[] coveredConditionsByLine = lineData.getIntsByLine(getCoveredConditionsByLineMetric());
 
       reset();
 
-      for (Map.Entry<Integer, Integer> entry : hitsByLine.entrySet()) {
-        int lineId = entry.getKey();
-        int hits = entry.getValue();
-        int conditions = (Integer) ObjectUtils.defaultIfNull(conditionsByLine.get(lineId), 0);
-        int coveredConditions = (Integer) ObjectUtils.defaultIfNull(coveredConditionsByLine.get(lineId), 0);
-        Date date = datesByLine.get(lineId);
-        for (PeriodStruct struct : structs) {
-          struct.analyze(date, hits, conditions, coveredConditions);
+      for (int lineId = 0; lineId < hitsByLine.length; lineId++) {
+        int hits = hitsByLine[lineId];
+        if (hits != FileLineData.NO_VALUE) {
+          int conditions = countAt(conditionsByLine, lineId);
+          int coveredConditions = countAt(coveredConditionsByLine, lineId);
+          long date = lineId < datesByLine.length ? datesByLine[lineId] : FileLineData.NO_DATE;
+          for (PeriodStruct struct : structs) {
+            struct.analyze(date, hits, conditions, coveredConditions);
+          }
         }
       }
 
@@ -134,6 +137,13 @@ public abstract class AbstractNewCoverageFileAnalyzer implements Decorator {
     return false;
   }
 
+  private static int countAt(@Nullable int[] countByLine, int lineId) {
+    if (countByLine == null || lineId >= countByLine.length || countByLine[lineId] == FileLineData.NO_VALUE) {
+      return 0;
+    }
+    return countByLine[lineId];
+  }
+
   private void reset() {
     for (PeriodStruct struct : structs) {
       struct.reset();
@@ -161,88 +171,72 @@ public abstract class AbstractNewCoverageFileAnalyzer implements Decorator {
     context.saveMeasure(newUncoveredConditions);
   }
 
-  private Map<Integer, Integer> parseCountByLine(Measure measure) {
-    if (measure != null && measure.hasData()) {
-      return KeyValueFormat.parseIntInt(measure.getData());
-    }
-    return Maps.newHashMap();
-  }
-
   public static final class PeriodStruct {
     int index;
     Date date;
-    Integer newLines;
-    Integer newCoveredLines;
-    Integer newConditions;
-    Integer newCoveredConditions;
-
-    PeriodStruct(int index, Date date) {
+    // timestamp of date, or FileLineData.NO_DATE to consider all lines as new
+    long time;
+    boolean hasNewCode;
+    int newLines;
+    int newCoveredLines;
+    int newConditions;
+    int newCoveredConditions;
+
+    PeriodStruct(int index, @Nullable Date date) {
       this.index = index;
       this.date = date;
+      this.time = date != null ? date.getTime() : FileLineData.NO_DATE;
     }
 
     void reset() {
-      newLines = null;
-      newCoveredLines = null;
-      newConditions = null;
-      newCoveredConditions = null;
+      hasNewCode = false;
+      newLines = 0;
+      newCoveredLines = 0;
+      newConditions = 0;
+      newCoveredConditions = 0;
     }
 
-    void analyze(Date lineDate, int hits, int conditions, int coveredConditions) {
-      if (lineDate == null) {
-        // TODO warning
-
-      } else if (date == null || lineDate.after(date)) {
-        // TODO test if string comparison is faster or not
+    void analyze(long lineTime, int hits, int conditions, int coveredConditions) {
+      // lines without date are ignored
+      if (lineTime != FileLineData.NO_DATE && lineTime > time) {
         addLine(hits > 0);
         addConditions(conditions, coveredConditions);
       }
     }
 
     void addLine(boolean covered) {
-      if (newLines == null) {
-        newLines = 0;
-      }
-      newLines += 1;
+      hasNewCode = true;
+      newLines++;
       if (covered) {
-        if (newCoveredLines == null) {
-          newCoveredLines = 0;
-        }
-        newCoveredLines += 1;
+        newCoveredLines++;
       }
     }
 
     void addConditions(int count, int countCovered) {
-      if (newConditions == null) {
-        newConditions = 0;
-      }
       newConditions += count;
       if (count > 0) {
-        if (newCoveredConditions == null) {
-          newCoveredConditions = 0;
-        }
         newCoveredConditions += countCovered;
       }
     }
 
     boolean hasNewCode() {
-      return newLines != null;
+      return hasNewCode;
     }
 
     public int getNewLines() {
-      return newLines != null ? newLines : 0;
+      return newLines;
     }
 
     public int getNewCoveredLines() {
-      return newCoveredLines != null ? newCoveredLines : 0;
+      return newCoveredLines;
     }
 
     public int getNewConditions() {
-      return newConditions != null ? newConditions : 0;
+      return newConditions;
     }
 
     public int getNewCoveredConditions() {
-      return newCoveredConditions != null ? newCoveredConditions : 0;
+      return newCoveredConditions;
     }
   }
 }
@@ -0,0 +1,288 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.core.timemachine;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Maps;
+import org.sonar.api.batch.DecoratorContext;
+import org.sonar.api.measures.Measure;
+import org.sonar.api.measures.Metric;
+import org.sonar.api.utils.DateUtils;
+
+import javax.annotation.CheckForNull;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * Line-level data of a file, parsed from the measures in {@link org.sonar.api.utils.KeyValueFormat} into primitive
+ * arrays indexed by line. Measures are parsed directly from their string data, without intermediate strings,
+ * and only once even if requested by several decorators.
+ *
+ * @since 4.3
+ */
+class FileLineData {
+
+  /**
+   * Value of the lines that are not part of the measure
+   */
+  static final int NO_VALUE = Integer.MIN_VALUE;
+
+  /**
+   * Timestamp of the lines without date
+   */
+  static final long NO_DATE = Long.MIN_VALUE;
+
+  private static final char PAIR_SEPARATOR = ';';
+  private static final char FIELD_SEPARATOR = '=';
+
+  // length of "2014-01-31T23:59:59+0100"
+  private static final int DATETIME_LENGTH = 24;
+
+  // older dates could be in the Julian calendar, as supported by SimpleDateFormat
+  private static final int MIN_FAST_YEAR = 1900;
+
+  private final DecoratorContext context;
+  private final Map<Metric, Parsed> parsedByMetric = Maps.newHashMap();
+
+  FileLineData(DecoratorContext context) {
+    this.context = context;
+  }
+
+  DecoratorContext getContext() {
+    return context;
+  }
+
+  /**
+   * @return values by line, {@link #NO_VALUE} for the lines that are not defined, or null if the measure does not exist
+   */
+  @CheckForNull
+  int[] getIntsByLine(Metric metric) {
+    Parsed parsed = parse(metric, false);
+    return parsed != null ? parsed.ints : null;
+  }
+
+  /**
+   * @return timestamps by line, {@link #NO_DATE} for the lines that are not defined, or null if the measure does not exist
+   */
+  @CheckForNull
+  long[] getDateTimesByLine(Metric metric) {
+    Parsed parsed = parse(metric, true);
+    return parsed != null ? parsed.longs : null;
+  }
+
+  @CheckForNull
+  private Parsed parse(Metric metric, boolean dateTimes) {
+    Measure measure = context.getMeasure(metric);
+    if (measure == null || !measure.hasData()) {
+      return null;
+    }
+    String data = measure.getData();
+    Parsed parsed = parsedByMetric.get(metric);
+    // the data instance is compared in case the measure would have been updated in the meantime
+    if (parsed == null || parsed.data != data) {
+      parsed = new Parsed(data);
+      if (dateTimes) {
+        parsed.longs = parseDateTimesByLine(data);
+      } else {
+        parsed.ints = parseIntsByLine(data);
+      }
+      parsedByMetric.put(metric, parsed);
+    }
+    return parsed;
+  }
+
+  private static final class Parsed {
+    private final String data;
+    private int[] ints;
+    private long[] longs;
+
+    private Parsed(String data) {
+      this.data = data;
+    }
+  }
+
+  /**
+   * Same as {@link org.sonar.api.utils.KeyValueFormat#parseIntInt(String)}. Invalid numbers are parsed as 0 and
+   * blank values as {@link #NO_VALUE}.
+   */
+  @VisibleForTesting
+  static int[] parseIntsByLine(String data) {
+    int[] result = new int[0];
+    int size = 0;
+    int length = data.length();
+    int start = 0;
+    while (start < length) {
+      int end = indexOf(data, PAIR_SEPARATOR, start, length);
+      int separator = indexOf(data, FIELD_SEPARATOR, start, end);
+      if (separator > start) {
+        int line = parseInt(data, start, separator);
+        if (line >= 0) {
+          size = Math.max(size, line + 1);
+          result = ensureCapacity(result, size);
+          result[line] = separator + 1 < end ? parseInt(data, separator + 1, end) : NO_VALUE;
+        }
+      }
+      start = end + 1;
+    }
+    return size == result.length ? result : Arrays.copyOf(result, size);
+  }
+
+  /**
+   * Same as {@link org.sonar.api.utils.KeyValueFormat#parseIntDateTime(String)}. Dates that can't be parsed are
+   * {@link #NO_DATE}.
+   */
+  @VisibleForTesting
+  static long[] parseDateTimesByLine(String data) {
+    long[] result = new long[0];
+    int size = 0;
+    int length = data.length();
+    int start = 0;
+    while (start < length) {
+      int end = indexOf(data, PAIR_SEPARATOR, start, length);
+      int separator = indexOf(data, FIELD_SEPARATOR, start, end);
+      if (separator > start) {
+        int line = parseInt(data, start, separator);
+        if (line >= 0) {
+          size = Math.max(size, line + 1);
+          result = ensureCapacity(result, size);
+          result[line] = parseDateTime(data, Math.min(separator + 1, end), end);
+        }
+      }
+      start = end + 1;
+    }
+    return size == result.length ? result : Arrays.copyOf(result, size);
+  }
+
+  private static int indexOf(String s, char c, int from, int to) {
+    for (int i = from; i < to; i++) {
+      if (s.charAt(i) == c) {
+        return i;
+      }
+    }
+    return to;
+  }
+
+  /**
+   * Same behavior as {@link org.apache.commons.lang.math.NumberUtils#toInt(String)} : 0 if the number is not valid
+   */
+  private static int parseInt(String s, int from, int to) {
+    boolean negative = s.charAt(from) == '-';
+    int i = negative || s.charAt(from) == '+' ? from + 1 : from;
+    if (i == to || to - i > 10) {
+      return 0;
+    }
+    long result = 0L;
+    for (; i < to; i++) {
+      int digit = s.charAt(i) - '0';
+      if (digit < 0 || digit > 9) {
+        return 0;
+      }
+      result = result * 10 + digit;
+    }
+    result = negative ? -result : result;
+    return result < Integer.MIN_VALUE || result > Integer.MAX_VALUE ? 0 : (int) result;
+  }
+
+  private static int[] ensureCapacity(int[] array, int capacity) {
+    if (capacity <= array.length) {
+      return array;
+    }
+    int[] result = Arrays.copyOf(array, Math.max(capacity, array.length * 2));
+    Arrays.fill(result, array.length, result.length, NO_VALUE);
+    return result;
+  }
+
+  private static long[] ensureCapacity(long[] array, int capacity) {
+    if (capacity <= array.length) {
+      return array;
+    }
+    long[] result = Arrays.copyOf(array, Math.max(capacity, array.length * 2));
+    Arrays.fill(result, array.length, result.length, NO_DATE);
+    return result;
+  }
+
+  /**
+   * Fast path for the format {@link DateUtils#DATETIME_FORMAT}, for example "2014-01-31T23:59:59+0100". Other values
+   * are delegated to {@link DateUtils#parseDateTimeQuietly(String)}.
+   */
+  @VisibleForTesting
+  static long parseDateTime(String s, int from, int to) {
+    if (to - from == DATETIME_LENGTH && s.charAt(from + 4) == '-' && s.charAt(from + 7) == '-' && s.charAt(from + 10) == 'T'
+      && s.charAt(from + 13) == ':' && s.charAt(from + 16) == ':' && (s.charAt(from + 19) == '+' || s.charAt(from + 19) == '-')) {
+      int year = digits(s, from, 4);
+      int month = digits(s, from + 5, 2);
+      int day = digits(s, from + 8, 2);
+      int hour = digits(s, from + 11, 2);
+      int minute = digits(s, from + 14, 2);
+      int second = digits(s, from + 17, 2);
+      int offsetHours = digits(s, from + 20, 2);
+      int offsetMinutes = digits(s, from + 22, 2);
+      if (year >= MIN_FAST_YEAR && month >= 1 && month <= 12 && day >= 1 && day <= daysInMonth(year, month)
+        && hour >= 0 && hour <= 23 && minute >= 0 && minute <= 59 && second >= 0 && second <= 59
+        && offsetHours >= 0 && offsetHours <= 23 && offsetMinutes >= 0 && offsetMinutes <= 59) {
+        long offsetSeconds = offsetHours * 3600L + offsetMinutes * 60L;
+        if (s.charAt(from + 19) == '-') {
+          offsetSeconds = -offsetSeconds;
+        }
+        long seconds = daysFromEpoch(year, month, day) * 86400L + hour * 3600L + minute * 60L + second - offsetSeconds;
+        return seconds * 1000L;
+      }
+    }
+    Date date = DateUtils.parseDateTimeQuietly(s.substring(from, to));
+    return date != null ? date.getTime() : NO_DATE;
+  }
+
+  /**
+   * @return the positive number, or -1 if one of the characters is not a digit
+   */
+  private static int digits(String s, int from, int count) {
+    int result = 0;
+    for (int i = from; i < from + count; i++) {
+      int digit = s.charAt(i) - '0';
+      if (digit < 0 || digit > 9) {
+        return -1;
+      }
+      result = result * 10 + digit;
+    }
+    return result;
+  }
+
+  private static int daysInMonth(int year, int month) {
+    if (month == 2) {
+      boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+      return leap ? 29 : 28;
+    }
+    return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+  }
+
+  /**
+   * Number of days since 1970-01-01 in the proleptic Gregorian calendar
+   */
+  private static long daysFromEpoch(int year, int month, int day) {
+    int y = month <= 2 ? year - 1 : year;
+    long era = (y >= 0 ? y : y - 399) / 400;
+    long yearOfEra = y - era * 400;
+    long dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+    long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+    return era * 146097 + dayOfEra - 719468;
+  }
+}
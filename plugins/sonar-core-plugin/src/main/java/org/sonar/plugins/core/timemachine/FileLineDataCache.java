@@ -0,0 +1,44 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.core.timemachine;
+
+import org.sonar.api.BatchExtension;
+import org.sonar.api.batch.DecoratorContext;
+
+/**
+ * Keeps the line data of the file being decorated, so that the analyzers of new coverage on unit tests,
+ * integration tests and overall tests share the parsing of the SCM measures.
+ *
+ * @since 4.3
+ */
+public class FileLineDataCache implements BatchExtension {
+
+  private FileLineData current;
+
+  /**
+   * All the decorators of a resource are given the same context
+   */
+  FileLineData get(DecoratorContext context) {
+    if (current == null || current.getContext() != context) {
+      current = new FileLineData(context);
+    }
+    return current;
+  }
+}
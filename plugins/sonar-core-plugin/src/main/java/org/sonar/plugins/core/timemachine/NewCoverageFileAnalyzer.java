@@ -27,12 +27,12 @@ import java.util.List;
 
 public class NewCoverageFileAnalyzer extends AbstractNewCoverageFileAnalyzer {
 
-  public NewCoverageFileAnalyzer(TimeMachineConfiguration timeMachineConfiguration) {
-    super(timeMachineConfiguration);
+  public NewCoverageFileAnalyzer(TimeMachineConfiguration timeMachineConfiguration, FileLineDataCache lineDataCache) {
+    super(timeMachineConfiguration, lineDataCache);
   }
 
   NewCoverageFileAnalyzer(List<PeriodStruct> structs) {
-    super(structs);
+    super(structs, new FileLineDataCache());
   }
 
   @Override
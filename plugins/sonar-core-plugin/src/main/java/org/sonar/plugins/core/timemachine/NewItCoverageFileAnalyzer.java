@@ -25,8 +25,8 @@ import org.sonar.batch.components.TimeMachineConfiguration;
 
 public class NewItCoverageFileAnalyzer extends AbstractNewCoverageFileAnalyzer {
 
-  public NewItCoverageFileAnalyzer(TimeMachineConfiguration timeMachineConfiguration) {
-    super(timeMachineConfiguration);
+  public NewItCoverageFileAnalyzer(TimeMachineConfiguration timeMachineConfiguration, FileLineDataCache lineDataCache) {
+    super(timeMachineConfiguration, lineDataCache);
   }
 
   @Override
@@ -44,11 +44,9 @@ public class TendencyAnalyser {
     double sumXY = 0.0;
     double sumXPower2 = 0.0;
     int nbrPoints = 0;
-    boolean nullValuesYList = true;
     int i = 0;
     for (Double p : values) {
       if (p != null) {
-        nullValuesYList = false;
         //SumY calculation
         sumY += p;
         // sumYPower2 calculation
@@ -64,8 +62,24 @@ public class TendencyAnalyser {
       }
       i++;
     }
+    return analyse(nbrPoints, sumX, sumY, sumXY, sumXPower2, sumYPower2);
+  }
+
+  public Integer analyseLevel(int nbrPoints, double sumX, double sumY, double sumXY, double sumXPower2, double sumYPower2) {
+    TendencyAnalyser.SlopeData slopeData = analyse(nbrPoints, sumX, sumY, sumXY, sumXPower2, sumYPower2);
+    if (slopeData != null) {
+      return slopeData.getLevel();
+    }
+    return null;
+  }
+
+  /**
+   * Same as {@link #analyse(java.util.List)}, from the sums already computed on the non-null values. The value
+   * at index i of the list has the abscissa i + 1.
+   */
+  public SlopeData analyse(int nbrPoints, double sumX, double sumY, double sumXY, double sumXPower2, double sumYPower2) {
     // no tendency if null values or only 1 value
-    if (nullValuesYList || nbrPoints == 1) {
+    if (nbrPoints <= 1) {
       return null;
     }
     double n0 = (nbrPoints * sumXY) - (sumX * sumY);
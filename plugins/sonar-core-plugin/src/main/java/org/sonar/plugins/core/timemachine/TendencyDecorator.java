@@ -19,95 +19,86 @@
  */
 package org.sonar.plugins.core.timemachine;
 
-import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.ListMultimap;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.time.DateUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.sonar.api.batch.*;
+import org.sonar.api.database.DatabaseSession;
+import org.sonar.api.database.model.MeasureModel;
+import org.sonar.api.database.model.ResourceModel;
+import org.sonar.api.database.model.Snapshot;
 import org.sonar.api.measures.Measure;
 import org.sonar.api.measures.Metric;
 import org.sonar.api.measures.MetricFinder;
 import org.sonar.api.resources.Project;
+import org.sonar.api.resources.Qualifiers;
 import org.sonar.api.resources.Resource;
 import org.sonar.api.resources.Scopes;
 import org.sonar.batch.components.PeriodsDefinition;
 import org.sonar.core.DryRunIncompatible;
 
+import javax.persistence.Query;
+
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
+@AppliesTo(scopes = {Scopes.PROJECT, Scopes.DIRECTORY})
 @DryRunIncompatible
 @DependedUpon(DecoratorBarriers.END_OF_TIME_MACHINE)
 public class TendencyDecorator implements Decorator {
 
   public static final String PROP_DAYS_DESCRIPTION = "Number of days the tendency should be calculated on.";
 
-  private TimeMachine timeMachine;
-  private TimeMachineQuery query;
-  private TendencyAnalyser analyser;
-  private List<Metric> metrics;
+  private static final Logger LOG = LoggerFactory.getLogger(TendencyDecorator.class);
+
+  // JPA results are fully loaded in memory, so the history of the module is loaded by chunks of resources and metrics.
+  // The number of resources also stays below the limit of 1000 elements of IN clauses on Oracle.
+  private static final int RESOURCES_PER_QUERY = 100;
+  private static final int METRICS_PER_QUERY = 50;
+
+  private final DatabaseSession session;
+  private final TendencyAnalyser analyser;
+  private final List<Metric> metrics;
 
-  public TendencyDecorator(TimeMachine timeMachine, MetricFinder metricFinder) {
-    this.timeMachine = timeMachine;
-    this.analyser = new TendencyAnalyser();
-    this.metrics = Lists.newLinkedList();
-    for (Metric metric : metricFinder.findAll()) {
+  private Project historyModule;
+  private TendencyHistory history;
+
+  public TendencyDecorator(DatabaseSession session, MetricFinder metricFinder) {
+    this(session, metricFinder.findAll(), new TendencyAnalyser());
+  }
+
+  @VisibleForTesting
+  TendencyDecorator(DatabaseSession session, Collection<Metric> allMetrics, TendencyAnalyser analyser) {
+    this.session = session;
+    this.analyser = analyser;
+    this.metrics = Lists.newArrayList();
+    for (Metric metric : allMetrics) {
       if (metric.isNumericType()) {
         metrics.add(metric);
       }
     }
   }
 
-  TendencyDecorator(TimeMachine timeMachine, TimeMachineQuery query, TendencyAnalyser analyser) {
-    this.timeMachine = timeMachine;
-    this.query = query;
-    this.analyser = analyser;
-  }
-
   @DependsUpon
   public List<Metric> dependsUponMetrics() {
     return metrics;
   }
 
-  protected TimeMachineQuery initQuery(Project project) {
-    int days = PeriodsDefinition.CORE_TENDENCY_DEPTH_DEFAULT_VALUE;
-
-    // resource is set after
-    query = new TimeMachineQuery(null)
-      .setFrom(DateUtils.addDays(project.getAnalysisDate(), -days))
-      .setToCurrentAnalysis(true)
-      .setMetrics(metrics);
-    return query;
-  }
-
-  protected TimeMachineQuery resetQuery(Project project, Resource resource) {
-    if (query == null) {
-      initQuery(project);
-    }
-    query.setResource(resource);
-    return query;
-  }
-
   public boolean shouldExecuteOnProject(Project project) {
     return true;
   }
 
   public void decorate(Resource resource, DecoratorContext context) {
     if (shouldDecorateResource(resource)) {
-      resetQuery(context.getProject(), resource);
-      List<Object[]> fields = timeMachine.getMeasuresFields(query);
-      ListMultimap<Metric, Double> valuesPerMetric = ArrayListMultimap.create();
-      for (Object[] field : fields) {
-        valuesPerMetric.put((Metric) field[1], (Double) field[2]);
-      }
-
-      for (Metric metric : query.getMetrics()) {
+      TendencyHistory moduleHistory = getHistory(context.getProject());
+      for (Metric metric : metrics) {
         Measure measure = context.getMeasure(metric);
         if (measure != null) {
-          List<Double> values = valuesPerMetric.get(metric);
-          values.add(measure.getValue());
-
-          measure.setTendency(analyser.analyseLevel(valuesPerMetric.get(metric)));
+          measure.setTendency(moduleHistory.analyseLevel(resource.getId(), metric.getId(), measure.getValue(), analyser));
           context.saveMeasure(measure);
         }
       }
@@ -117,4 +108,84 @@ public class TendencyDecorator implements Decorator {
   private boolean shouldDecorateResource(Resource resource) {
     return StringUtils.equals(Scopes.PROJECT, resource.getScope()) || StringUtils.equals(Scopes.DIRECTORY, resource.getScope());
   }
+
+  private TendencyHistory getHistory(Project module) {
+    if (history == null || historyModule != module) {
+      history = loadHistory(module);
+      historyModule = module;
+    }
+    return history;
+  }
+
+  /**
+   * Past measures of the module and of its directories are loaded in a few queries, instead of one query per resource.
+   * The rows of each query are reduced to sums before the next query is executed.
+   */
+  @VisibleForTesting
+  TendencyHistory loadHistory(Project module) {
+    TendencyHistory result = new TendencyHistory();
+    if (module.getId() == null || metrics.isEmpty()) {
+      return result;
+    }
+    long start = System.currentTimeMillis();
+    Date to = module.getAnalysisDate();
+    Date from = DateUtils.addDays(to, -PeriodsDefinition.CORE_TENDENCY_DEPTH_DEFAULT_VALUE);
+    List<List<Integer>> metricIdsChunks = Lists.newArrayList();
+    for (List<Metric> metricsChunk : Lists.partition(metrics, METRICS_PER_QUERY)) {
+      List<Integer> metricIds = Lists.newArrayList();
+      for (Metric metric : metricsChunk) {
+        metricIds.add(metric.getId());
+      }
+      metricIdsChunks.add(metricIds);
+    }
+    int queries = 1;
+    for (List<Integer> resourceIds : Lists.partition(selectResourceIds(module.getId()), RESOURCES_PER_QUERY)) {
+      for (List<Integer> metricIds : metricIdsChunks) {
+        for (Object[] row : selectPastMeasures(resourceIds, metricIds, from, to)) {
+          result.add((Integer) row[0], (Integer) row[1], (Double) row[2]);
+        }
+        queries++;
+      }
+    }
+    LOG.debug(String.format("Tendency history of %d resources loaded in %d ms with %d queries",
+      result.getResourceCount(), System.currentTimeMillis() - start, queries));
+    return result;
+  }
+
+  /**
+   * The module and its directories, which reference the module as root
+   */
+  private List<Integer> selectResourceIds(int moduleId) {
+    StringBuilder sb = new StringBuilder();
+    sb.append("SELECT r.id FROM ")
+      .append(ResourceModel.class.getSimpleName())
+      .append(" r WHERE r.id=:moduleId OR (r.rootId=:moduleId AND r.scope=:directoryScope)")
+      .append(" ORDER BY r.id");
+    Query query = session.createQuery(sb.toString())
+      .setParameter("moduleId", moduleId)
+      .setParameter("directoryScope", Scopes.DIRECTORY);
+    return query.getResultList();
+  }
+
+  private List<Object[]> selectPastMeasures(List<Integer> resourceIds, List<Integer> metricIds, Date from, Date to) {
+    StringBuilder sb = new StringBuilder();
+    sb.append("SELECT s.resourceId, m.metricId, m.value FROM ")
+      .append(MeasureModel.class.getSimpleName())
+      .append(" m, ")
+      .append(Snapshot.class.getSimpleName())
+      .append(" s WHERE m.snapshotId=s.id AND s.status=:status AND s.qualifier<>:lib")
+      .append(" AND s.createdAt>=:from AND s.createdAt<=:to")
+      .append(" AND m.characteristicId IS NULL AND m.personId IS NULL AND m.ruleId IS NULL AND m.rulePriority IS NULL")
+      .append(" AND m.metricId IN (:metricIds)")
+      .append(" AND s.resourceId IN (:resourceIds)")
+      .append(" ORDER BY s.resourceId, s.createdAt");
+    Query query = session.createQuery(sb.toString())
+      .setParameter("status", Snapshot.STATUS_PROCESSED)
+      .setParameter("lib", Qualifiers.LIBRARY)
+      .setParameter("from", from)
+      .setParameter("to", to)
+      .setParameter("metricIds", metricIds)
+      .setParameter("resourceIds", resourceIds);
+    return query.getResultList();
+  }
 }
@@ -0,0 +1,133 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.core.timemachine;
+
+import com.google.common.collect.Maps;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Past values of the numeric measures of the resources of a module, reduced to the sums required by
+ * {@link TendencyAnalyser}. Values must be added in chronological order. For each metric, sums are stored
+ * in primitive arrays indexed by resource.
+ *
+ * @since 4.3
+ */
+class TendencyHistory {
+
+  private final Map<Integer, Integer> slotByResourceId = Maps.newHashMap();
+  private final Map<Integer, MetricSums> sumsByMetricId = Maps.newHashMap();
+
+  void add(int resourceId, int metricId, @Nullable Double value) {
+    Integer slot = slotByResourceId.get(resourceId);
+    if (slot == null) {
+      slot = slotByResourceId.size();
+      slotByResourceId.put(resourceId, slot);
+    }
+    MetricSums sums = sumsByMetricId.get(metricId);
+    if (sums == null) {
+      sums = new MetricSums();
+      sumsByMetricId.put(metricId, sums);
+    }
+    sums.add(slot, value);
+  }
+
+  int getResourceCount() {
+    return slotByResourceId.size();
+  }
+
+  /**
+   * @param resourceId null if the resource has never been persisted, so it has no history
+   * @param currentValue the value of the current analysis, which is the last one
+   */
+  @CheckForNull
+  Integer analyseLevel(@Nullable Integer resourceId, int metricId, @Nullable Double currentValue, TendencyAnalyser analyser) {
+    Integer slot = resourceId != null ? slotByResourceId.get(resourceId) : null;
+    MetricSums sums = sumsByMetricId.get(metricId);
+    int positions = 0;
+    int points = 0;
+    double sumX = 0.0;
+    double sumY = 0.0;
+    double sumXY = 0.0;
+    double sumXPower2 = 0.0;
+    double sumYPower2 = 0.0;
+    if (slot != null && sums != null && slot < sums.positions.length) {
+      positions = sums.positions[slot];
+      points = sums.points[slot];
+      sumX = sums.sumX[slot];
+      sumY = sums.sumY[slot];
+      sumXY = sums.sumXY[slot];
+      sumXPower2 = sums.sumXPower2[slot];
+      sumYPower2 = sums.sumYPower2[slot];
+    }
+    if (currentValue != null) {
+      double x = positions + 1.0;
+      points++;
+      sumX += x;
+      sumY += currentValue;
+      sumXY += currentValue * x;
+      sumXPower2 += x * x;
+      sumYPower2 += currentValue * currentValue;
+    }
+    return analyser.analyseLevel(points, sumX, sumY, sumXY, sumXPower2, sumYPower2);
+  }
+
+  private static final class MetricSums {
+    // number of values, including null ones, which define the abscissa of the next value
+    private int[] positions = new int[0];
+    private int[] points = new int[0];
+    private double[] sumX = new double[0];
+    private double[] sumY = new double[0];
+    private double[] sumXY = new double[0];
+    private double[] sumXPower2 = new double[0];
+    private double[] sumYPower2 = new double[0];
+
+    private void add(int slot, @Nullable Double value) {
+      ensureCapacity(slot + 1);
+      positions[slot]++;
+      if (value != null) {
+        double x = positions[slot];
+        points[slot]++;
+        sumX[slot] += x;
+        sumY[slot] += value;
+        sumXY[slot] += value * x;
+        sumXPower2[slot] += x * x;
+        sumYPower2[slot] += value * value;
+      }
+    }
+
+    private void ensureCapacity(int capacity) {
+      if (capacity > positions.length) {
+        int newLength = Math.max(capacity, positions.length * 2);
+        positions = Arrays.copyOf(positions, newLength);
+        points = Arrays.copyOf(points, newLength);
+        sumX = Arrays.copyOf(sumX, newLength);
+        sumY = Arrays.copyOf(sumY, newLength);
+        sumXY = Arrays.copyOf(sumXY, newLength);
+        sumXPower2 = Arrays.copyOf(sumXPower2, newLength);
+        sumYPower2 = Arrays.copyOf(sumYPower2, newLength);
+      }
+    }
+  }
+}
@@ -228,6 +228,36 @@ public class DebtDecoratorTest {
     verify(context).saveMeasure(argThat(new IsCharacteristicMeasure(CoreMetrics.TECHNICAL_DEBT, modularity, 10d * ONE_DAY_IN_MINUTES)));
   }
 
+  @Test
+  public void reset_debt_and_load_deprecated_rules_once_between_resources() throws Exception {
+    Issue issue = createIssue("rule1", "repo1").setDebt(Duration.create(ONE_DAY_IN_MINUTES));
+    when(issuable.issues()).thenReturn(newArrayList(issue));
+    decorator.decorate(resource, context);
+
+    Resource otherResource = mock(Resource.class);
+    DecoratorContext otherContext = mock(DecoratorContext.class);
+    Issuable otherIssuable = mock(Issuable.class);
+    when(perspectives.as(Issuable.class, otherResource)).thenReturn(otherIssuable);
+    when(otherIssuable.issues()).thenReturn(newArrayList((Issue) createIssue("rule1", "repo1").setDebt(Duration.create(2 * ONE_DAY_IN_MINUTES))));
+    decorator.decorate(otherResource, otherContext);
+
+    verify(otherContext).saveMeasure(CoreMetrics.TECHNICAL_DEBT, 2d * ONE_DAY_IN_MINUTES);
+    verify(otherContext).saveMeasure(argThat(new IsRuleMeasure(CoreMetrics.TECHNICAL_DEBT, ruleKey1, 2d * ONE_DAY_IN_MINUTES)));
+    verify(otherContext).saveMeasure(argThat(new IsCharacteristicMeasure(CoreMetrics.TECHNICAL_DEBT, efficiency, 2d * ONE_DAY_IN_MINUTES)));
+    verify(ruleFinder, times(1)).findByKey(ruleKey1);
+  }
+
+  @Test
+  public void ignore_debt_of_rules_without_characteristic() throws Exception {
+    Issue issue = createIssue("unknown", "repo1").setDebt(Duration.create(ONE_DAY_IN_MINUTES));
+    when(issuable.issues()).thenReturn(newArrayList(issue));
+
+    decorator.decorate(resource, context);
+
+    verify(context).saveMeasure(CoreMetrics.TECHNICAL_DEBT, 0.0);
+    verify(ruleFinder, never()).findByKey(any(RuleKey.class));
+  }
+
   @Test
   public void always_save_technical_debt_for_positive_values() throws Exception {
     // for a project
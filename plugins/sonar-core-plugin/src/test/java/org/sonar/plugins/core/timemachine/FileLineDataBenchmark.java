@@ -0,0 +1,94 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.core.timemachine;
+
+import org.sonar.api.utils.KeyValueFormat;
+import org.sonar.test.Benchmark;
+
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * Compares the parsing of line measures by {@link KeyValueFormat} and by {@link FileLineData} on a file of
+ * 10'000 lines. Not executed by the build, run it manually :
+ * <pre>java -cp ... org.sonar.plugins.core.timemachine.FileLineDataBenchmark</pre>
+ */
+public class FileLineDataBenchmark {
+
+  private static final int LINES = 10000;
+  private static final int WARMUP_ITERATIONS = 200;
+  private static final int ITERATIONS = 200;
+
+  // the three analyzers of new coverage parse the same SCM data
+  private static final int ANALYZERS = 3;
+
+  private final String hits;
+  private final String conditions;
+  private final String dates;
+  private long checksum = 0L;
+
+  FileLineDataBenchmark() {
+    StringBuilder hitsBuilder = new StringBuilder();
+    StringBuilder conditionsBuilder = new StringBuilder();
+    StringBuilder datesBuilder = new StringBuilder();
+    for (int line = 1; line <= LINES; line++) {
+      hitsBuilder.append(line).append('=').append(line % 7).append(';');
+      if (line % 5 == 0) {
+        conditionsBuilder.append(line).append('=').append(2).append(';');
+      }
+      datesBuilder.append(line).append('=').append(String.format("20%02d-%02d-%02dT12:%02d:00+0100", line % 14, 1 + line % 12, 1 + line % 28, line % 60)).append(';');
+    }
+    hits = hitsBuilder.toString();
+    conditions = conditionsBuilder.toString();
+    dates = datesBuilder.toString();
+  }
+
+  void parseWithKeyValueFormat() {
+    for (int i = 0; i < ANALYZERS; i++) {
+      Map<Integer, Integer> hitsByLine = KeyValueFormat.parseIntInt(hits);
+      Map<Integer, Integer> conditionsByLine = KeyValueFormat.parseIntInt(conditions);
+      Map<Integer, Date> datesByLine = KeyValueFormat.parseIntDateTime(dates);
+      checksum += hitsByLine.size() + conditionsByLine.size() + datesByLine.size();
+    }
+  }
+
+  void parseWithFileLineData() {
+    long[] datesByLine = FileLineData.parseDateTimesByLine(dates);
+    for (int i = 0; i < ANALYZERS; i++) {
+      int[] hitsByLine = FileLineData.parseIntsByLine(hits);
+      int[] conditionsByLine = FileLineData.parseIntsByLine(conditions);
+      checksum += hitsByLine.length + conditionsByLine.length + datesByLine.length;
+    }
+  }
+
+  public static void main(String[] args) {
+    final FileLineDataBenchmark benchmark = new FileLineDataBenchmark();
+    new Benchmark(WARMUP_ITERATIONS, ITERATIONS).run("KeyValueFormat", new Runnable() {
+      public void run() {
+        benchmark.parseWithKeyValueFormat();
+      }
+    }).run("FileLineData", new Runnable() {
+      public void run() {
+        benchmark.parseWithFileLineData();
+      }
+    });
+    System.out.println("checksum: " + benchmark.checksum);
+  }
+}
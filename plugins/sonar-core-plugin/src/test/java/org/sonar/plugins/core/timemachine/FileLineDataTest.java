@@ -0,0 +1,88 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.core.timemachine;
+
+import org.junit.Test;
+import org.sonar.api.batch.DecoratorContext;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.measures.Measure;
+import org.sonar.api.utils.DateUtils;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class FileLineDataTest {
+
+  static final int NO = FileLineData.NO_VALUE;
+
+  @Test
+  public void parse_ints_by_line() {
+    assertThat(FileLineData.parseIntsByLine("")).isEmpty();
+    assertThat(FileLineData.parseIntsByLine("1=10;3=0;2=-4")).isEqualTo(new int[] {NO, 10, -4, 0});
+    // same behavior as KeyValueFormat : invalid numbers are zero
+    assertThat(FileLineData.parseIntsByLine("1=foo;;2=;3=99999999999")).isEqualTo(new int[] {NO, 0, NO, 0});
+  }
+
+  @Test
+  public void parse_date_times_by_line() {
+    long[] dates = FileLineData.parseDateTimesByLine("1=2008-05-18T00:00:00+0000;3=2014-02-28T23:59:59-0130;4=foo");
+
+    assertThat(dates).hasSize(5);
+    assertThat(dates[0]).isEqualTo(FileLineData.NO_DATE);
+    assertThat(dates[1]).isEqualTo(DateUtils.parseDateTime("2008-05-18T00:00:00+0000").getTime());
+    assertThat(dates[2]).isEqualTo(FileLineData.NO_DATE);
+    assertThat(dates[3]).isEqualTo(DateUtils.parseDateTime("2014-02-28T23:59:59-0130").getTime());
+    assertThat(dates[4]).isEqualTo(FileLineData.NO_DATE);
+  }
+
+  @Test
+  public void parse_date_time_like_date_utils() {
+    String[] dates = {"1970-01-01T00:00:00+0000", "1969-12-31T23:59:59+0000", "2000-02-29T12:30:00+0200", "2100-03-01T00:00:00-1200",
+      "1600-01-01T00:00:00+0000", "2013-12-31T23:59:59+0100"};
+    for (String date : dates) {
+      assertThat(FileLineData.parseDateTime(date, 0, date.length())).as(date).isEqualTo(DateUtils.parseDateTime(date).getTime());
+    }
+    // not valid for the fast path, so delegated to DateUtils
+    String lenient = "2013-02-30T00:00:00+0000";
+    assertThat(FileLineData.parseDateTime(lenient, 0, lenient.length())).isEqualTo(DateUtils.parseDateTime(lenient).getTime());
+  }
+
+  @Test
+  public void parse_measures_once() {
+    Measure scm = new Measure(CoreMetrics.SCM_LAST_COMMIT_DATETIMES_BY_LINE, "1=2008-05-18T00:00:00+0000");
+    DecoratorContext context = mock(DecoratorContext.class);
+    when(context.getMeasure(CoreMetrics.SCM_LAST_COMMIT_DATETIMES_BY_LINE)).thenReturn(scm);
+    FileLineDataCache cache = new FileLineDataCache();
+
+    long[] dates = cache.get(context).getDateTimesByLine(CoreMetrics.SCM_LAST_COMMIT_DATETIMES_BY_LINE);
+    assertThat(cache.get(context).getDateTimesByLine(CoreMetrics.SCM_LAST_COMMIT_DATETIMES_BY_LINE)).isSameAs(dates);
+
+    // data of measure has changed
+    scm.setData("2=2008-05-18T00:00:00+0000");
+    assertThat(cache.get(context).getDateTimesByLine(CoreMetrics.SCM_LAST_COMMIT_DATETIMES_BY_LINE)).hasSize(3);
+
+    // another resource
+    DecoratorContext otherContext = mock(DecoratorContext.class);
+    assertThat(cache.get(otherContext)).isNotSameAs(cache.get(context));
+    assertThat(cache.get(otherContext).getDateTimesByLine(CoreMetrics.SCM_LAST_COMMIT_DATETIMES_BY_LINE)).isNull();
+    assertThat(cache.get(otherContext).getIntsByLine(CoreMetrics.COVERAGE_LINE_HITS_DATA)).isNull();
+  }
+}
@@ -125,4 +125,15 @@ public class TendencyAnalyserTest {
 
     assertThat(slopeData1.getSlope()).isNotEqualTo(slopeData2.getSlope());
   }
+
+  @Test
+  public void testAnalyseFromSums() {
+    // values 10.0, null, 9.9 have the abscissas 1 and 3
+    TendencyAnalyser.SlopeData fromSums = new TendencyAnalyser().analyse(2, 4.0, 19.9, 10.0 + 3 * 9.9, 10.0, 10.0 * 10.0 + 9.9 * 9.9);
+    TendencyAnalyser.SlopeData fromValues = analyse(10.0, null, 9.9);
+
+    assertThat(fromSums.getSlope()).isEqualTo(fromValues.getSlope());
+    assertThat(fromSums.getLevel()).isEqualTo(fromValues.getLevel());
+    assertThat(new TendencyAnalyser().analyseLevel(1, 1.0, 10.0, 10.0, 1.0, 100.0)).isNull();
+  }
 }
@@ -19,93 +19,125 @@
  */
 package org.sonar.plugins.core.timemachine;
 
+import org.junit.Before;
 import org.junit.Test;
 import org.sonar.api.batch.DecoratorContext;
-import org.sonar.api.batch.TimeMachine;
-import org.sonar.api.batch.TimeMachineQuery;
 import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.measures.Measure;
+import org.sonar.api.measures.Metric;
 import org.sonar.api.measures.MetricFinder;
 import org.sonar.api.resources.Directory;
 import org.sonar.api.resources.Project;
+import org.sonar.api.utils.DateUtils;
+import org.sonar.jpa.test.AbstractDbUnitTestCase;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.Arrays;
-import java.util.Date;
 
-import static org.hamcrest.CoreMatchers.is;
-import static org.hamcrest.MatcherAssert.assertThat;
-import static org.junit.matchers.JUnitMatchers.hasItems;
-import static org.mockito.Matchers.anyList;
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
-public class TendencyDecoratorTest {
+public class TendencyDecoratorTest extends AbstractDbUnitTestCase {
 
-  @Test
-  public void initQuery() throws ParseException {
-    Project project = mock(Project.class);
-    when(project.getAnalysisDate()).thenReturn(date("2009-12-25"));
+  Metric ncloc = new Metric.Builder("ncloc", "Lines of code", Metric.ValueType.INT).create().setId(1);
+  Metric coverage = new Metric.Builder("coverage", "Coverage", Metric.ValueType.PERCENT).create().setId(2);
+  TendencyAnalyser analyser = new TendencyAnalyser();
+  Project project;
+
+  @Before
+  public void before() {
+    project = new Project("project");
+    project.setId(1);
+    project.setAnalysisDate(DateUtils.parseDate("2009-12-25"));
+  }
 
+  @Test
+  public void depends_upon_numeric_metrics() {
     MetricFinder metricFinder = mock(MetricFinder.class);
     when(metricFinder.findAll()).thenReturn(Arrays.asList(CoreMetrics.LINES, CoreMetrics.COVERAGE, CoreMetrics.COVERAGE_LINE_HITS_DATA, CoreMetrics.PROFILE));
 
-    TendencyDecorator decorator = new TendencyDecorator(null, metricFinder);
+    TendencyDecorator decorator = new TendencyDecorator(getSession(), metricFinder);
 
-    TimeMachineQuery query = decorator.initQuery(project);
-    assertThat(query.getMetrics().size(), is(2));
-    assertThat(query.getMetrics(), hasItems(CoreMetrics.LINES, CoreMetrics.COVERAGE));
-    assertThat(query.getFrom(), is(date("2009-11-25")));
-    assertThat(query.isToCurrentAnalysis(), is(true));
+    assertThat(decorator.dependsUponMetrics()).containsOnly(CoreMetrics.LINES, CoreMetrics.COVERAGE);
   }
 
   @Test
-  public void includeCurrentMeasures() throws ParseException {
-    TendencyAnalyser analyser = mock(TendencyAnalyser.class);
-    TimeMachineQuery query = new TimeMachineQuery(null).setMetrics(CoreMetrics.LINES, CoreMetrics.COVERAGE);
-    TimeMachine timeMachine = mock(TimeMachine.class);
-
-    when(timeMachine.getMeasuresFields(query)).thenReturn(Arrays.<Object[]>asList(
-      new Object[] {date("2009-12-01"), CoreMetrics.LINES, 1200.0},
-      new Object[] {date("2009-12-01"), CoreMetrics.COVERAGE, 80.5},
-      new Object[] {date("2009-12-02"), CoreMetrics.LINES, 1300.0},
-      new Object[] {date("2009-12-02"), CoreMetrics.COVERAGE, 79.6},
-      new Object[] {date("2009-12-15"), CoreMetrics.LINES, 1150.0}
-      ));
+  public void include_current_measures() {
+    setupData("shared");
+    Measure nclocMeasure = new Measure(ncloc, 1400.0);
+    Measure coverageMeasure = new Measure(coverage, 90.0);
+    DecoratorContext context = mockContext(nclocMeasure, coverageMeasure);
+
+    TendencyDecorator decorator = new TendencyDecorator(getSession(), Arrays.asList(ncloc, coverage), analyser);
+    decorator.decorate(project, context);
+
+    assertThat(nclocMeasure.getTendency()).isEqualTo(analyser.analyseLevel(Arrays.asList(1200.0, 1300.0, 1150.0, 1400.0)));
+    assertThat(coverageMeasure.getTendency()).isEqualTo(analyser.analyseLevel(Arrays.asList(80.5, 79.6, 90.0)));
+    verify(context).saveMeasure(nclocMeasure);
+    verify(context).saveMeasure(coverageMeasure);
+  }
 
-    DecoratorContext context = mock(DecoratorContext.class);
-    when(context.getMeasure(CoreMetrics.LINES)).thenReturn(new Measure(CoreMetrics.LINES, 1400.0));
-    when(context.getMeasure(CoreMetrics.COVERAGE)).thenReturn(new Measure(CoreMetrics.LINES, 90.0));
+  @Test
+  public void load_history_of_module_once() {
+    setupData("shared");
+    TendencyDecorator decorator = new TendencyDecorator(getSession(), Arrays.asList(ncloc, coverage), analyser);
+
+    TendencyHistory history = decorator.loadHistory(project);
 
-    TendencyDecorator decorator = new TendencyDecorator(timeMachine, query, analyser);
-    decorator.decorate(new Directory("org/foo"), context);
+    // project and directory, but not file
+    assertThat(history.getResourceCount()).isEqualTo(2);
+    assertThat(history.analyseLevel(2, ncloc.getId(), 40.0, analyser)).isEqualTo(analyser.analyseLevel(Arrays.asList(20.0, 30.0, 40.0)));
+    assertThat(history.analyseLevel(2, coverage.getId(), 70.0, analyser)).isEqualTo(analyser.analyseLevel(Arrays.asList(75.0, 70.0)));
+  }
 
-    verify(analyser).analyseLevel(Arrays.asList(1200.0, 1300.0, 1150.0, 1400.0));
-    verify(analyser).analyseLevel(Arrays.asList(80.5, 79.6, 90.0));
+  @Test
+  public void decorate_directories() {
+    setupData("shared");
+    Measure nclocMeasure = new Measure(ncloc, 40.0);
+    DecoratorContext context = mockContext(nclocMeasure);
+    Directory directory = new Directory("org/foo");
+    directory.setId(2);
+
+    TendencyDecorator decorator = new TendencyDecorator(getSession(), Arrays.asList(ncloc, coverage), analyser);
+    decorator.decorate(directory, context);
+
+    assertThat(nclocMeasure.getTendency()).isEqualTo(analyser.analyseLevel(Arrays.asList(20.0, 30.0, 40.0)));
+    verify(context).saveMeasure(nclocMeasure);
   }
 
   @Test
-  public void noTendencyIfNoCurrentMeasures() throws ParseException {
-    TendencyAnalyser analyser = mock(TendencyAnalyser.class);
-    TimeMachineQuery query = new TimeMachineQuery(null).setMetrics(CoreMetrics.LINES, CoreMetrics.COVERAGE);
-    TimeMachine timeMachine = mock(TimeMachine.class);
+  public void no_tendency_if_no_current_measures() {
+    setupData("shared");
+    DecoratorContext context = mockContext();
 
-    when(timeMachine.getMeasuresFields(query)).thenReturn(Arrays.<Object[]>asList(
-      new Object[] {date("2009-12-01"), CoreMetrics.LINES, 1200.0},
-      new Object[] {date("2009-12-02"), CoreMetrics.LINES, 1300.0}
-      ));
+    TendencyDecorator decorator = new TendencyDecorator(getSession(), Arrays.asList(ncloc, coverage), analyser);
+    decorator.decorate(project, context);
 
-    DecoratorContext context = mock(DecoratorContext.class);
-    TendencyDecorator decorator = new TendencyDecorator(timeMachine, query, analyser);
-    decorator.decorate(new Directory("org/foo"), context);
+    verify(context, never()).saveMeasure(any(Measure.class));
+  }
 
-    verify(analyser, never()).analyseLevel(anyList());
+  @Test
+  public void no_history_on_first_analysis() {
+    project.setId(null);
+    Measure nclocMeasure = new Measure(ncloc, 1400.0);
+    DecoratorContext context = mockContext(nclocMeasure);
+
+    TendencyDecorator decorator = new TendencyDecorator(getSession(), Arrays.asList(ncloc, coverage), analyser);
+    decorator.decorate(project, context);
+
+    assertThat(nclocMeasure.getTendency()).isNull();
+    verify(context).saveMeasure(nclocMeasure);
   }
 
-  private Date date(String date) throws ParseException {
-    return new SimpleDateFormat("yyyy-MM-dd").parse(date);
+  private DecoratorContext mockContext(Measure... measures) {
+    DecoratorContext context = mock(DecoratorContext.class);
+    when(context.getProject()).thenReturn(project);
+    for (Measure measure : measures) {
+      when(context.getMeasure(measure.getMetric())).thenReturn(measure);
+    }
+    return context;
   }
 }
@@ -21,27 +21,32 @@ package org.sonar.plugins.design.batch;
 
 import org.sonar.api.design.Dependency;
 import org.sonar.api.resources.Resource;
+import org.sonar.api.utils.SonarException;
 import org.sonar.graph.Dsm;
 import org.sonar.graph.DsmCell;
 
+import java.io.IOException;
+
 public final class DsmSerializer {
 
-  private Dsm dsm;
-  private StringBuilder json;
+  private static final String EMPTY_CELL = "{}";
+  private static final int INITIAL_CAPACITY = 1024;
+
+  private final Dsm<Resource> dsm;
+  private final Appendable json;
 
-  private DsmSerializer(Dsm<Resource> dsm) {
+  private DsmSerializer(Dsm<Resource> dsm, Appendable json) {
     this.dsm = dsm;
-    this.json = new StringBuilder();
+    this.json = json;
   }
 
-  private String serialize() {
+  private void serialize() throws IOException {
     json.append('[');
     serializeRows();
     json.append(']');
-    return json.toString();
   }
 
-  private void serializeRows() {
+  private void serializeRows() throws IOException {
     for (int y = 0; y < dsm.getDimension(); y++) {
       if (y > 0) {
         json.append(',');
@@ -50,43 +55,77 @@ public final class DsmSerializer {
     }
   }
 
-  private void serializeRow(int y) {
-    Resource resource = (Resource) dsm.getVertex(y);
+  private void serializeRow(int y) throws IOException {
+    Resource resource = dsm.getVertex(y);
 
     json.append("{");
     if (resource != null) {
       json.append("\"i\":");
-      json.append(resource.getId());
+      json.append(String.valueOf(resource.getId()));
       json.append(",\"n\":\"");
       json.append(resource.getName());
       json.append("\",\"q\":\"");
       json.append(resource.getQualifier());
       json.append("\",\"v\":[");
-      for (int x = 0; x < dsm.getDimension(); x++) {
-        if (x > 0) {
-          json.append(',');
-        }
-        serializeCell(y, x);
-      }
+      serializeCells(y);
       json.append("]");
     }
     json.append("}");
   }
 
-  private void serializeCell(int y, int x) {
-    DsmCell cell = dsm.getCell(x, y);
+  /**
+   * Only non-empty cells are read from the DSM, the gaps between them are written as empty objects.
+   */
+  private void serializeCells(int y) throws IOException {
+    int x = 0;
+    for (int nonEmptyX : dsm.getNonEmptyCellIndices(y)) {
+      for (; x < nonEmptyX; x++) {
+        appendEmptyCell(x);
+      }
+      if (x > 0) {
+        json.append(',');
+      }
+      serializeCell(dsm.getCell(x, y));
+      x++;
+    }
+    for (; x < dsm.getDimension(); x++) {
+      appendEmptyCell(x);
+    }
+  }
+
+  private void appendEmptyCell(int x) throws IOException {
+    if (x > 0) {
+      json.append(',');
+    }
+    json.append(EMPTY_CELL);
+  }
+
+  private void serializeCell(DsmCell cell) throws IOException {
     json.append('{');
     if (cell.getEdge() != null && cell.getWeight() > 0) {
       Dependency dep = (Dependency) cell.getEdge();
       json.append("\"i\":");
-      json.append(dep.getId());
+      json.append(String.valueOf(dep.getId()));
       json.append(",\"w\":");
-      json.append(cell.getWeight());
+      json.append(String.valueOf(cell.getWeight()));
     }
     json.append('}');
   }
 
   public static String serialize(Dsm<Resource> dsm) {
-    return new DsmSerializer(dsm).serialize();
+    StringBuilder json = new StringBuilder(INITIAL_CAPACITY);
+    serialize(dsm, json);
+    return json.toString();
+  }
+
+  /**
+   * Streams the JSON representation of the DSM to the given output, for example a {@link java.io.Writer}.
+   */
+  public static void serialize(Dsm<Resource> dsm, Appendable output) {
+    try {
+      new DsmSerializer(dsm, output).serialize();
+    } catch (IOException e) {
+      throw new SonarException("Unable to serialize DSM", e);
+    }
   }
 }
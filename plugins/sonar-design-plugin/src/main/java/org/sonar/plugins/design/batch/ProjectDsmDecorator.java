@@ -20,15 +20,18 @@
 package org.sonar.plugins.design.batch;
 
 import com.google.common.collect.Lists;
+import org.sonar.api.batch.AppliesTo;
 import org.sonar.api.batch.Decorator;
 import org.sonar.api.batch.DecoratorContext;
 import org.sonar.api.batch.SonarIndex;
+import org.sonar.api.design.Dependency;
 import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.measures.Measure;
 import org.sonar.api.measures.PersistenceMode;
 import org.sonar.api.resources.Project;
 import org.sonar.api.resources.Resource;
 import org.sonar.api.resources.ResourceUtils;
+import org.sonar.api.resources.Scopes;
 import org.sonar.graph.*;
 
 import java.util.Collection;
@@ -39,6 +42,7 @@ import java.util.Set;
  * For performance reasons, this decorator is currently limited to matrix between modules.
  * Squid is optimized for cycle detections (better hashCode and equals methods of SourceCode classes than Resource).
  */
+@AppliesTo(scopes = Scopes.PROJECT)
 public class ProjectDsmDecorator implements Decorator {
 
   // hack as long as DecoratorContext does not implement SonarIndex
@@ -70,17 +74,35 @@ public class ProjectDsmDecorator implements Decorator {
   }
 
   private Dsm<Resource> getDsm(Collection<Resource> subProjects) {
-    CycleDetector<Resource> cycleDetector = new CycleDetector<Resource>(index, subProjects);
+    IndexedDirectedGraph<Resource, Dependency> graph = getDependencyGraph(subProjects);
+    CycleDetector<Resource> cycleDetector = new CycleDetector<Resource>(graph, subProjects);
     Set<Cycle> cycles = cycleDetector.getCycles();
 
     MinimumFeedbackEdgeSetSolver solver = new MinimumFeedbackEdgeSetSolver(cycles);
     Set<Edge> feedbackEdges = solver.getEdges();
 
-    Dsm<Resource> dsm = new Dsm<Resource>(index, subProjects, feedbackEdges);
+    Dsm<Resource> dsm = new Dsm<Resource>(graph, subProjects, feedbackEdges);
     DsmTopologicalSorter.sort(dsm);
     return dsm;
   }
 
+  /**
+   * Dependencies between sub-projects only. The index also contains the dependencies of all files and packages,
+   * which are not browsed by cycle detection and by the DSM once copied into this smaller graph.
+   */
+  private IndexedDirectedGraph<Resource, Dependency> getDependencyGraph(Collection<Resource> subProjects) {
+    IndexedDirectedGraph<Resource, Dependency> graph = new IndexedDirectedGraph<Resource, Dependency>();
+    graph.addVertices(subProjects);
+    for (Resource subProject : subProjects) {
+      for (Dependency dependency : index.getOutgoingEdges(subProject)) {
+        if (graph.indexOf(dependency.getTo()) >= 0 && !graph.hasEdge(subProject, dependency.getTo())) {
+          graph.addEdge(dependency);
+        }
+      }
+    }
+    return graph;
+  }
+
   /**
    * sub-projects, including all descendants but not only direct children
    */
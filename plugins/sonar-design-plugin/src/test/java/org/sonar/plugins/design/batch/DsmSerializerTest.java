@@ -30,6 +30,7 @@ import org.sonar.graph.DsmManualSorter;
 import org.sonar.graph.Edge;
 
 import java.io.IOException;
+import java.io.StringWriter;
 
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
@@ -57,4 +58,24 @@ public class DsmSerializerTest {
     String json = IOUtils.toString(getClass().getResourceAsStream("/org/sonar/plugins/design/batch/DsmSerializerTest/dsm.json")).trim();
     assertThat(DsmSerializer.serialize(dsm), is(json));
   }
+
+  @Test
+  public void serializeToWriter() throws IOException {
+    Resource foo = Directory.create("src/org/foo", "org/foo").setId(7);
+    Resource bar = Directory.create("src/org/bar", "org/bar").setId(8);
+    Resource baz = Directory.create("src/org/baz", "org/baz").setId(9);
+
+    DirectedGraph<Resource, Dependency> graph = new DirectedGraph<Resource, Dependency>();
+    graph.addEdge(new Dependency(foo, baz).setId(30l).setWeight(1));
+    graph.addEdge(new Dependency(bar, baz).setId(31l).setWeight(3));
+
+    Dsm<Resource> dsm = new Dsm<Resource>(graph);
+    DsmManualSorter.sort(dsm, foo, bar, baz);
+    StringWriter writer = new StringWriter();
+    DsmSerializer.serialize(dsm, writer);
+
+    assertThat(writer.toString(), is("[{\"i\":7,\"n\":\"src/org/foo\",\"q\":\"DIR\",\"v\":[{},{},{}]}," +
+      "{\"i\":8,\"n\":\"src/org/bar\",\"q\":\"DIR\",\"v\":[{},{},{}]}," +
+      "{\"i\":9,\"n\":\"src/org/baz\",\"q\":\"DIR\",\"v\":[{\"i\":30,\"w\":1},{\"i\":31,\"w\":3},{}]}]"));
+  }
 }
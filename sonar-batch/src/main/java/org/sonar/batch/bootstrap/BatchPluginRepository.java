@@ -74,16 +74,21 @@ public class BatchPluginRepository implements PluginRepository {
 
   void doStart(List<RemotePlugin> remotePlugins) {
     PluginFilter filter = new PluginFilter(settings, analysisMode);
-    metadataByKey = Maps.newHashMap();
+    List<RemotePlugin> acceptedPlugins = Lists.newArrayList();
     for (RemotePlugin remote : remotePlugins) {
       if (filter.accepts(remote.getKey())) {
-        File pluginFile = pluginDownloader.downloadPlugin(remote);
-        PluginMetadata metadata = pluginInstaller.installToCache(pluginFile, remote.isCore());
-        if (StringUtils.isBlank(metadata.getBasePlugin()) || filter.accepts(metadata.getBasePlugin())) {
-          metadataByKey.put(metadata.getKey(), metadata);
-        } else {
-          LOG.debug("Excluded plugin: " + metadata.getKey());
-        }
+        acceptedPlugins.add(remote);
+      }
+    }
+    List<File> pluginFiles = pluginDownloader.downloadPlugins(acceptedPlugins);
+
+    metadataByKey = Maps.newHashMap();
+    for (int i = 0; i < acceptedPlugins.size(); i++) {
+      PluginMetadata metadata = pluginInstaller.installToCache(pluginFiles.get(i), acceptedPlugins.get(i).isCore());
+      if (StringUtils.isBlank(metadata.getBasePlugin()) || filter.accepts(metadata.getBasePlugin())) {
+        metadataByKey.put(metadata.getKey(), metadata);
+      } else {
+        LOG.debug("Excluded plugin: " + metadata.getKey());
       }
     }
     classLoaders = new PluginClassloaders(Thread.currentThread().getContextClassLoader());
@@ -20,6 +20,7 @@
 package org.sonar.batch.bootstrap;
 
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.commons.lang.CharUtils;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
@@ -32,12 +33,21 @@ import org.sonar.home.cache.FileCache;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class PluginDownloader implements BatchComponent {
 
   private static final Logger LOG = LoggerFactory.getLogger(PluginDownloader.class);
 
+  // maximum number of plugins downloaded at the same time
+  static final int MAX_CONCURRENT_DOWNLOADS = 4;
+
   private ServerClient server;
   private FileCache fileCache;
 
@@ -67,6 +77,61 @@ public class PluginDownloader implements BatchComponent {
     }
   }
 
+  /**
+   * Resolves the JAR files of the given plugins. Plugins that are already in the user cache are resolved without
+   * any request to server, the missing ones are downloaded concurrently.
+   *
+   * @return the JAR files, in the same order than the given plugins
+   * @since 4.3
+   */
+  public List<File> downloadPlugins(List<RemotePlugin> remotes) {
+    File[] files = new File[remotes.size()];
+    List<Integer> missing = Lists.newArrayList();
+    for (int i = 0; i < remotes.size(); i++) {
+      RemotePluginFile file = remotes.get(i).file();
+      files[i] = fileCache.get(file.getFilename(), file.getHash());
+      if (files[i] == null) {
+        missing.add(i);
+      }
+    }
+    if (missing.size() == 1) {
+      int index = missing.get(0);
+      files[index] = downloadPlugin(remotes.get(index));
+    } else if (!missing.isEmpty()) {
+      downloadConcurrently(remotes, missing, files);
+    }
+    return Arrays.asList(files);
+  }
+
+  private void downloadConcurrently(List<RemotePlugin> remotes, List<Integer> missing, File[] files) {
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(MAX_CONCURRENT_DOWNLOADS, missing.size()),
+      new ThreadFactoryBuilder().setNameFormat("plugin-download-%d").setDaemon(true).build());
+    try {
+      List<Future<File>> futures = Lists.newArrayList();
+      for (Integer index : missing) {
+        final RemotePlugin remote = remotes.get(index);
+        futures.add(executor.submit(new Callable<File>() {
+          public File call() {
+            return downloadPlugin(remote);
+          }
+        }));
+      }
+      for (int i = 0; i < missing.size(); i++) {
+        files[missing.get(i)] = futures.get(i).get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SonarException("Interrupted while downloading plugins", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof SonarException) {
+        throw (SonarException) e.getCause();
+      }
+      throw new SonarException("Fail to download plugins", e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
   public List<RemotePlugin> downloadPluginIndex() {
     String url = "/deploy/plugins/index.txt";
     try {
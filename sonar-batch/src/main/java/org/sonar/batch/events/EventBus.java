@@ -19,21 +19,75 @@
  */
 package org.sonar.batch.events;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
+import org.apache.commons.lang.SystemUtils;
+import org.picocontainer.Startable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.CoreProperties;
 import org.sonar.api.batch.events.EventHandler;
+import org.sonar.api.config.Settings;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Dispatches {@link BatchEvent}s. Eases decoupling by allowing objects to interact without having direct dependencies upon one another, and
  * without requiring event sources to deal with maintaining handler lists.
+ * <p/>
+ * Handlers are registered once for all, so the list of handlers of each event type is computed when the bus is created.
+ * When profiling is enabled (see {@link CoreProperties#PROFILING_LOG_PROPERTY}), the number of events and the dispatch
+ * time are recorded per event type and logged when the bus is stopped.
  */
-public class EventBus {
+public class EventBus implements Startable {
 
-  private EventHandler[] registeredHandlers;
+  private static final Logger LOG = LoggerFactory.getLogger(EventBus.class);
+
+  private final EventHandler[] registeredHandlers;
+  private final Map<Class, Dispatch> dispatchByType = new HashMap<Class, Dispatch>();
+  private final boolean profiling;
 
   public EventBus(EventHandler[] handlers) {
+    this(handlers, false);
+  }
+
+  public EventBus(EventHandler[] handlers, Settings settings) {
+    this(handlers, settings.getBoolean(CoreProperties.PROFILING_LOG_PROPERTY));
+  }
+
+  @VisibleForTesting
+  EventBus(EventHandler[] handlers, boolean profiling) {
     this.registeredHandlers = handlers;
+    this.profiling = profiling;
+    for (EventHandler handler : handlers) {
+      registerHandlerTypes(handler.getClass());
+    }
+  }
+
+  private void registerHandlerTypes(Class<?> handlerClass) {
+    for (Class<?> aClass = handlerClass; aClass != null; aClass = aClass.getSuperclass()) {
+      for (Class<?> anInterface : aClass.getInterfaces()) {
+        if (EventHandler.class.isAssignableFrom(anInterface) && !dispatchByType.containsKey(anInterface)) {
+          dispatchByType.put(anInterface, new Dispatch(getDispatchList(anInterface)));
+          registerHandlerTypes(anInterface);
+        }
+      }
+    }
+  }
+
+  @Override
+  public void start() {
+    // handlers are registered in constructor
+  }
+
+  @Override
+  public void stop() {
+    if (profiling) {
+      LOG.info(getProfilingMessage());
+    }
   }
 
   /**
@@ -44,20 +98,70 @@ public class EventBus {
   }
 
   private void doFireEvent(BatchEvent event) {
-    List<EventHandler> handlers = getDispatchList(event.getType());
+    Dispatch dispatch = getDispatch(event.getType());
+    if (profiling) {
+      long start = System.nanoTime();
+      dispatch(event, dispatch.handlers);
+      dispatch.events++;
+      dispatch.durationInNanos += System.nanoTime() - start;
+    } else {
+      dispatch(event, dispatch.handlers);
+    }
+  }
+
+  private static void dispatch(BatchEvent event, EventHandler[] handlers) {
     for (EventHandler handler : handlers) {
       event.dispatch(handler);
     }
   }
 
-  private List<EventHandler> getDispatchList(Class<? extends EventHandler> handlerType) {
+  private Dispatch getDispatch(Class handlerType) {
+    Dispatch dispatch = dispatchByType.get(handlerType);
+    if (dispatch == null) {
+      // type that is not implemented by the registered handlers
+      dispatch = new Dispatch(getDispatchList(handlerType));
+      dispatchByType.put(handlerType, dispatch);
+    }
+    return dispatch;
+  }
+
+  private EventHandler[] getDispatchList(Class<?> handlerType) {
     List<EventHandler> result = Lists.newArrayList();
     for (EventHandler handler : registeredHandlers) {
       if (handlerType.isAssignableFrom(handler.getClass())) {
         result.add(handler);
       }
     }
-    return result;
+    return result.toArray(new EventHandler[result.size()]);
+  }
+
+  @VisibleForTesting
+  long getEventCount(Class<? extends EventHandler> handlerType) {
+    Dispatch dispatch = dispatchByType.get(handlerType);
+    return dispatch != null ? dispatch.events : 0L;
   }
 
+  @VisibleForTesting
+  String getProfilingMessage() {
+    StringBuilder sb = new StringBuilder("Events dispatched:").append(SystemUtils.LINE_SEPARATOR);
+    for (Map.Entry<Class, Dispatch> entry : dispatchByType.entrySet()) {
+      Dispatch dispatch = entry.getValue();
+      if (dispatch.events > 0) {
+        sb.append("\t").append(entry.getKey().getSimpleName()).append(": ").append(dispatch.events).append(" events to ")
+          .append(dispatch.handlers.length).append(" handlers, ").append(TimeUnit.NANOSECONDS.toMillis(dispatch.durationInNanos)).append("ms")
+          .append(SystemUtils.LINE_SEPARATOR);
+      }
+    }
+    return sb.toString();
+  }
+
+  private static final class Dispatch {
+    private final EventHandler[] handlers;
+    private long events = 0L;
+    private long durationInNanos = 0L;
+
+    private Dispatch(EventHandler[] handlers) {
+      this.handlers = handlers;
+    }
+  }
 }
@@ -19,9 +19,11 @@
  */
 package org.sonar.batch.phases;
 
-import org.sonar.core.measure.MeasurementFilters;
-
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.sonar.api.BatchComponent;
 import org.sonar.api.batch.BatchExtensionDictionnary;
 import org.sonar.api.batch.Decorator;
@@ -34,17 +36,22 @@ import org.sonar.api.utils.SonarException;
 import org.sonar.batch.DecoratorsSelector;
 import org.sonar.batch.DefaultDecoratorContext;
 import org.sonar.batch.events.EventBus;
+import org.sonar.core.measure.MeasurementFilters;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public class DecoratorsExecutor implements BatchComponent {
 
+  private static final Logger LOG = LoggerFactory.getLogger(DecoratorsExecutor.class);
+
   private DecoratorsSelector decoratorsSelector;
   private SonarIndex index;
   private EventBus eventBus;
   private Project project;
   private MeasurementFilters measurementFilters;
+  private final Map<String, DecoratorsPlan> plans = Maps.newLinkedHashMap();
 
   public DecoratorsExecutor(BatchExtensionDictionnary batchExtDictionnary,
       Project project, SonarIndex index, EventBus eventBus, MeasurementFilters measurementFilters) {
@@ -57,9 +64,11 @@ public class DecoratorsExecutor implements BatchComponent {
 
   public void execute() {
     Collection<Decorator> decorators = decoratorsSelector.select(project);
+    plans.clear();
     eventBus.fireEvent(new DecoratorsPhaseEvent(Lists.newArrayList(decorators), true));
     decorateResource(project, decorators, true);
     eventBus.fireEvent(new DecoratorsPhaseEvent(Lists.newArrayList(decorators), false));
+    logPlans();
   }
 
   DecoratorContext decorateResource(Resource resource, Collection<Decorator> decorators, boolean executeDecorators) {
@@ -72,13 +81,40 @@ public class DecoratorsExecutor implements BatchComponent {
 
     DefaultDecoratorContext context = new DefaultDecoratorContext(resource, index, childrenContexts, measurementFilters);
     if (executeDecorators) {
-      for (Decorator decorator : decorators) {
-        executeDecorator(decorator, context, resource);
+      DecoratorsPlan plan = getPlan(resource, decorators);
+      plan.addResource();
+      for (int i = 0; i < plan.size(); i++) {
+        long start = System.nanoTime();
+        executeDecorator(plan.get(i), context, resource);
+        plan.addExecution(i, System.nanoTime() - start);
       }
     }
     return context;
   }
 
+  /**
+   * Decorators that do not apply to the scope or qualifier of the resource, see {@link org.sonar.api.batch.AppliesTo},
+   * are excluded once for all resources of the same kind.
+   */
+  @VisibleForTesting
+  DecoratorsPlan getPlan(Resource resource, Collection<Decorator> decorators) {
+    String key = DecoratorsPlan.key(resource);
+    DecoratorsPlan plan = plans.get(key);
+    if (plan == null) {
+      plan = DecoratorsPlan.create(resource, decorators);
+      plans.put(key, plan);
+    }
+    return plan;
+  }
+
+  private void logPlans() {
+    if (LOG.isDebugEnabled()) {
+      for (DecoratorsPlan plan : plans.values()) {
+        LOG.debug(plan.getMessage());
+      }
+    }
+  }
+
   void executeDecorator(Decorator decorator, DefaultDecoratorContext context, Resource resource) {
     try {
       eventBus.fireEvent(new DecoratorExecutionEvent(decorator, true));
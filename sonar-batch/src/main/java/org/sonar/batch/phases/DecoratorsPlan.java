@@ -0,0 +1,130 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.batch.phases;
+
+import org.apache.commons.lang.ArrayUtils;
+import org.apache.commons.lang.SystemUtils;
+import org.sonar.api.batch.AppliesTo;
+import org.sonar.api.batch.Decorator;
+import org.sonar.api.resources.Resource;
+import org.sonar.api.utils.AnnotationUtils;
+
+import javax.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ordered list of the decorators to be executed on the resources of a given scope and qualifier,
+ * with the number of calls and the time spent in each of them.
+ *
+ * @since 4.3
+ */
+final class DecoratorsPlan {
+
+  private final String scope;
+  private final String qualifier;
+  private final Decorator[] decorators;
+  private final long[] calls;
+  private final long[] durationsInNanos;
+  private final int skippedDecorators;
+  private long resources = 0L;
+
+  private DecoratorsPlan(@Nullable String scope, @Nullable String qualifier, List<Decorator> decorators, int skippedDecorators) {
+    this.scope = scope;
+    this.qualifier = qualifier;
+    this.decorators = decorators.toArray(new Decorator[decorators.size()]);
+    this.calls = new long[this.decorators.length];
+    this.durationsInNanos = new long[this.decorators.length];
+    this.skippedDecorators = skippedDecorators;
+  }
+
+  static DecoratorsPlan create(Resource resource, Collection<Decorator> decorators) {
+    List<Decorator> selected = new ArrayList<Decorator>(decorators.size());
+    for (Decorator decorator : decorators) {
+      if (appliesTo(decorator, resource.getScope(), resource.getQualifier())) {
+        selected.add(decorator);
+      }
+    }
+    return new DecoratorsPlan(resource.getScope(), resource.getQualifier(), selected, decorators.size() - selected.size());
+  }
+
+  static String key(Resource resource) {
+    return resource.getScope() + "/" + resource.getQualifier();
+  }
+
+  static boolean appliesTo(Decorator decorator, @Nullable String scope, @Nullable String qualifier) {
+    AppliesTo appliesTo = AnnotationUtils.getAnnotation(decorator, AppliesTo.class);
+    if (appliesTo == null) {
+      return true;
+    }
+    return matches(appliesTo.scopes(), scope) && matches(appliesTo.qualifiers(), qualifier);
+  }
+
+  private static boolean matches(String[] expected, @Nullable String value) {
+    return expected.length == 0 || ArrayUtils.contains(expected, value);
+  }
+
+  int size() {
+    return decorators.length;
+  }
+
+  Decorator get(int index) {
+    return decorators[index];
+  }
+
+  void addResource() {
+    resources++;
+  }
+
+  long getResources() {
+    return resources;
+  }
+
+  void addExecution(int index, long durationInNanos) {
+    calls[index]++;
+    durationsInNanos[index] += durationInNanos;
+  }
+
+  long getCalls(int index) {
+    return calls[index];
+  }
+
+  /**
+   * Number of decorator invocations that have been avoided because decorators do not apply to this kind of resource
+   */
+  long getSkippedCalls() {
+    return resources * skippedDecorators;
+  }
+
+  String getMessage() {
+    StringBuilder sb = new StringBuilder("Decorators on ").append(resources).append(" resources of qualifier ").append(qualifier)
+      .append(" (scope ").append(scope).append("): ").append(decorators.length).append(" applicable, ")
+      .append(getSkippedCalls()).append(" calls skipped").append(SystemUtils.LINE_SEPARATOR);
+    for (int i = 0; i < decorators.length; i++) {
+      sb.append("\t").append(decorators[i].toString()).append(": ").append(calls[i]).append(" calls, ")
+        .append(TimeUnit.NANOSECONDS.toMillis(durationsInNanos[i])).append("ms")
+        .append(SystemUtils.LINE_SEPARATOR);
+    }
+    return sb.toString();
+  }
+}
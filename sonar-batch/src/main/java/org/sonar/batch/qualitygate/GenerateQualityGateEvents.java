@@ -27,11 +27,13 @@ import org.sonar.api.measures.Metric.Level;
 import org.sonar.api.notifications.Notification;
 import org.sonar.api.notifications.NotificationManager;
 import org.sonar.api.resources.Project;
+import org.sonar.api.resources.Qualifiers;
 import org.sonar.api.resources.Resource;
 import org.sonar.api.resources.ResourceUtils;
 
 import java.util.List;
 
+@AppliesTo(qualifiers = Qualifiers.PROJECT)
 public class GenerateQualityGateEvents implements Decorator {
 
   private final QualityGate qualityGate;
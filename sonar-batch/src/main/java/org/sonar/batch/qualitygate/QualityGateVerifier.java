@@ -30,6 +30,7 @@ import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.measures.Measure;
 import org.sonar.api.measures.Metric;
 import org.sonar.api.resources.Project;
+import org.sonar.api.resources.Qualifiers;
 import org.sonar.api.resources.Resource;
 import org.sonar.api.resources.ResourceUtils;
 import org.sonar.api.utils.Duration;
@@ -39,6 +40,7 @@ import org.sonar.core.timemachine.Periods;
 
 import java.util.*;
 
+@AppliesTo(qualifiers = Qualifiers.PROJECT)
 public class QualityGateVerifier implements Decorator {
 
   private static final String VARIATION_METRIC_PREFIX = "new_";
@@ -20,6 +20,7 @@
 package org.sonar.batch.scan.report;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Charsets;
 import com.google.common.io.Closeables;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
@@ -28,6 +29,7 @@ import org.sonar.api.BatchComponent;
 import org.sonar.api.batch.fs.FileSystem;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.rule.Rules;
 import org.sonar.api.config.Settings;
 import org.sonar.api.issue.internal.DefaultIssue;
 import org.sonar.api.platform.Server;
@@ -45,24 +47,41 @@ import org.sonar.batch.events.EventBus;
 import org.sonar.batch.issue.IssueCache;
 import org.sonar.batch.scan.filesystem.InputFileCache;
 
+import javax.annotation.CheckForNull;
+
 import java.io.*;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.zip.GZIPOutputStream;
 
 import static com.google.common.collect.Sets.newHashSet;
 
 /**
+ * Issues are written while iterating the issue cache, so the report is never loaded in memory. Only the keys of
+ * the rules and the logins of the users referenced by the exported issues are kept until the end of the document,
+ * so that each rule and each user is loaded once. The report is gzipped if the export path ends with ".gz".
+ *
  * @since 3.6
  */
 
 public class JsonReport implements BatchComponent {
 
   private static final Logger LOG = LoggerFactory.getLogger(JsonReport.class);
+
+  public static final String EXPORT_PATH_KEY = "sonar.report.export.path";
+  public static final String NEW_ISSUES_ONLY_KEY = "sonar.report.export.newIssuesOnly";
+  public static final String CHANGED_FILES_ONLY_KEY = "sonar.report.export.changedFilesOnly";
+
+  private static final String GZIP_SUFFIX = ".gz";
+  private static final int BUFFER_SIZE = 64 * 1024;
+
   private final Settings settings;
   private final FileSystem fileSystem;
   private final Server server;
   private final RuleFinder ruleFinder;
+  private final Rules rules;
   private final IssueCache issueCache;
   private final EventBus eventBus;
   private final AnalysisMode analysisMode;
@@ -70,12 +89,13 @@ public class JsonReport implements BatchComponent {
   private final InputFileCache fileCache;
   private final Project rootModule;
 
-  public JsonReport(Settings settings, FileSystem fileSystem, Server server, RuleFinder ruleFinder, IssueCache issueCache,
+  public JsonReport(Settings settings, FileSystem fileSystem, Server server, RuleFinder ruleFinder, Rules rules, IssueCache issueCache,
                     EventBus eventBus, AnalysisMode analysisMode, UserFinder userFinder, Project rootModule, InputFileCache fileCache) {
     this.settings = settings;
     this.fileSystem = fileSystem;
     this.server = server;
     this.ruleFinder = ruleFinder;
+    this.rules = rules;
     this.issueCache = issueCache;
     this.eventBus = eventBus;
     this.analysisMode = analysisMode;
@@ -93,12 +113,16 @@ public class JsonReport implements BatchComponent {
   }
 
   private void exportResults() {
-    File exportFile = new File(fileSystem.workDir(), settings.getString("sonar.report.export.path"));
+    File exportFile = new File(fileSystem.workDir(), settings.getString(EXPORT_PATH_KEY));
 
     LOG.info("Export results to " + exportFile.getAbsolutePath());
     Writer output = null;
     try {
-      output = new BufferedWriter(new FileWriter(exportFile));
+      OutputStream stream = new FileOutputStream(exportFile);
+      if (exportFile.getName().endsWith(GZIP_SUFFIX)) {
+        stream = new GZIPOutputStream(stream, BUFFER_SIZE);
+      }
+      output = new BufferedWriter(new OutputStreamWriter(stream, Charsets.UTF_8), BUFFER_SIZE);
       writeJson(output);
 
     } catch (IOException e) {
@@ -117,11 +141,11 @@ public class JsonReport implements BatchComponent {
 
       Set<RuleKey> ruleKeys = newHashSet();
       Set<String> userLogins = newHashSet();
-      writeJsonIssues(json, ruleKeys, userLogins);
-      writeJsonComponents(json);
+      boolean changedFilesOnly = settings.getBoolean(CHANGED_FILES_ONLY_KEY);
+      writeJsonIssues(json, ruleKeys, userLogins, changedFilesOnly);
+      writeJsonComponents(json, changedFilesOnly);
       writeJsonRules(json, ruleKeys);
-      List<User> users = userFinder.findByLogins(new ArrayList<String>(userLogins));
-      writeUsers(json, users);
+      writeUsers(json, userLogins);
       json.endObject().close();
 
     } catch (IOException e) {
@@ -129,10 +153,13 @@ public class JsonReport implements BatchComponent {
     }
   }
 
-  private void writeJsonIssues(JsonWriter json, Set<RuleKey> ruleKeys, Set<String> logins) throws IOException {
+  private void writeJsonIssues(JsonWriter json, Set<RuleKey> ruleKeys, Set<String> logins, boolean changedFilesOnly) throws IOException {
+    boolean newIssuesOnly = settings.getBoolean(NEW_ISSUES_ONLY_KEY);
+    Set<String> unchangedFileKeys = changedFilesOnly ? unchangedFileKeys() : Collections.<String>emptySet();
     json.name("issues").beginArray();
     for (DefaultIssue issue : getIssues()) {
-      if (issue.resolution() == null) {
+      if (issue.resolution() == null && (!newIssuesOnly || issue.isNew())
+        && !unchangedFileKeys.contains(issue.componentKey())) {
         json
           .beginObject()
           .prop("key", issue.key())
@@ -163,12 +190,29 @@ public class JsonReport implements BatchComponent {
     json.endArray();
   }
 
-  private void writeJsonComponents(JsonWriter json) throws IOException {
+  /**
+   * Issues on modules are kept when the report is limited to changed files, so only the issues of the
+   * files known as unchanged are excluded.
+   */
+  private Set<String> unchangedFileKeys() {
+    Set<String> keys = newHashSet();
+    for (InputFile inputFile : fileCache.all()) {
+      if (inputFile.status() == InputFile.Status.SAME) {
+        keys.add(((DefaultInputFile) inputFile).key());
+      }
+    }
+    return keys;
+  }
+
+  private void writeJsonComponents(JsonWriter json, boolean changedFilesOnly) throws IOException {
     json.name("components").beginArray();
     // Dump modules
     writeJsonModuleComponents(json, rootModule);
     // TODO we need to dump directories
     for (InputFile inputFile : fileCache.all()) {
+      if (changedFilesOnly && inputFile.status() == InputFile.Status.SAME) {
+        continue;
+      }
       String key = ((DefaultInputFile) inputFile).key();
       json
         .beginObject()
@@ -206,8 +250,10 @@ public class JsonReport implements BatchComponent {
     json.endArray();
   }
 
-  private void writeUsers(JsonWriter json, List<User> users) throws IOException {
+  private void writeUsers(JsonWriter json, Set<String> logins) throws IOException {
     json.name("users").beginArray();
+    // users are loaded in a single request, which is partitioned by the DAO when there are a lot of logins
+    List<User> users = logins.isEmpty() ? Collections.<User>emptyList() : userFinder.findByLogins(new ArrayList<String>(logins));
     for (User user : users) {
       json
         .beginObject()
@@ -218,9 +264,18 @@ public class JsonReport implements BatchComponent {
     json.endArray();
   }
 
+  /**
+   * Rules are read from the {@link Rules} loaded once per analysis. Only the rules that are not part of it,
+   * for example manual rules, are requested to {@link RuleFinder}.
+   */
+  @CheckForNull
   private String getRuleName(RuleKey ruleKey) {
-    Rule rule = ruleFinder.findByKey(ruleKey);
-    return rule != null ? rule.getName() : null;
+    org.sonar.api.batch.rule.Rule rule = rules.find(ruleKey);
+    if (rule != null) {
+      return rule.name();
+    }
+    Rule deprecatedRule = ruleFinder.findByKey(ruleKey);
+    return deprecatedRule != null ? deprecatedRule.getName() : null;
   }
 
   @VisibleForTesting
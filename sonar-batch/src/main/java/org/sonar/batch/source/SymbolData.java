@@ -24,14 +24,12 @@ import com.google.common.collect.Multimap;
 import org.sonar.api.source.Symbol;
 import org.sonar.api.source.Symbolizable;
 import org.sonar.batch.index.Data;
+import org.sonar.core.source.HighlightingDataFormat;
 
 import java.util.Collection;
 
 public class SymbolData implements Data {
 
-  private static final String FIELD_SEPARATOR = ",";
-  private static final String SYMBOL_SEPARATOR = ";";
-
   private final Symbolizable.SymbolTable symbolTable;
 
   public SymbolData(Symbolizable.SymbolTable symbolTable) {
@@ -40,23 +38,24 @@ public class SymbolData implements Data {
 
   @Override
   public String writeString() {
-    StringBuilder sb = new StringBuilder();
-
-    Multimap<Symbol, Integer> referencesBySymbol = ((DefaultSymbolTable)symbolTable).getReferencesBySymbol();
+    Multimap<Symbol, Integer> referencesBySymbol = ((DefaultSymbolTable) symbolTable).getReferencesBySymbol();
 
-    for (Symbol symbol : ((DefaultSymbolTable)symbolTable).getReferencesBySymbol().keySet()) {
-
-      sb.append(symbol.getDeclarationStartOffset())
-        .append(FIELD_SEPARATOR)
-        .append(symbol.getDeclarationEndOffset());
+    int[][] symbols = new int[referencesBySymbol.keySet().size()][];
+    int index = 0;
+    for (Symbol symbol : referencesBySymbol.keySet()) {
       Collection<Integer> symbolReferences = referencesBySymbol.get(symbol);
+      int[] fields = new int[2 + symbolReferences.size()];
+      fields[0] = symbol.getDeclarationStartOffset();
+      fields[1] = symbol.getDeclarationEndOffset();
+      int field = 2;
       for (Integer symbolReference : symbolReferences) {
-        sb.append(FIELD_SEPARATOR).append(symbolReference);
+        fields[field] = symbolReference;
+        field++;
       }
-      sb.append(SYMBOL_SEPARATOR);
+      symbols[index] = fields;
+      index++;
     }
-
-    return sb.toString();
+    return HighlightingDataFormat.writeSymbols(symbols);
   }
 
   @Override
@@ -20,14 +20,12 @@
 package org.sonar.batch.source;
 
 import org.sonar.batch.index.Data;
+import org.sonar.core.source.HighlightingDataFormat;
 
 import java.util.List;
 
 public class SyntaxHighlightingData implements Data {
 
-  private static final String FIELD_SEPARATOR = ",";
-  private static final String RULE_SEPARATOR = ";";
-
   private List<SyntaxHighlightingRule> syntaxHighlightingRuleSet;
 
   public SyntaxHighlightingData(List<SyntaxHighlightingRule> syntaxHighlightingRuleSet) {
@@ -36,19 +34,18 @@ public class SyntaxHighlightingData implements Data {
 
   @Override
   public String writeString() {
-    StringBuilder sb = new StringBuilder();
-    List<SyntaxHighlightingRule> orderedRules = syntaxHighlightingRuleSet;
-
-    for (SyntaxHighlightingRule highlightingRule : orderedRules) {
-      sb.append(highlightingRule.getStartPosition())
-        .append(FIELD_SEPARATOR)
-        .append(highlightingRule.getEndPosition())
-        .append(FIELD_SEPARATOR)
-        .append(highlightingRule.getTextType())
-        .append(RULE_SEPARATOR);
+    int size = syntaxHighlightingRuleSet.size();
+    int[] startOffsets = new int[size];
+    int[] endOffsets = new int[size];
+    String[] textTypes = new String[size];
+    int index = 0;
+    for (SyntaxHighlightingRule highlightingRule : syntaxHighlightingRuleSet) {
+      startOffsets[index] = highlightingRule.getStartPosition();
+      endOffsets[index] = highlightingRule.getEndPosition();
+      textTypes[index] = highlightingRule.getTextType();
+      index++;
     }
-
-    return sb.toString();
+    return HighlightingDataFormat.writeSyntaxHighlighting(startOffsets, endOffsets, textTypes);
   }
 
   @Override
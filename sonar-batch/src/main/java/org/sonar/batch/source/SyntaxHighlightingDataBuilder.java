@@ -20,27 +20,26 @@
 package org.sonar.batch.source;
 
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.base.Predicate;
-import com.google.common.collect.Collections2;
-import com.google.common.collect.Ordering;
 import org.slf4j.LoggerFactory;
 
-import javax.annotation.Nullable;
-import java.util.Collection;
+import java.util.Arrays;
 import java.util.List;
 
 import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Lists.newArrayListWithCapacity;
 
 /**
+ * Rules are kept in sorted arrays of sizes 1, 2, 4, 8... (one per bit of the number of rules), which are merged
+ * when a rule is registered. As rules can be nested but can not overlap, conflicts are detected in each array with
+ * binary searches and with a segment tree of the end offsets. Registering a rule costs O(log(n)^2), whatever the order
+ * of registration, and the sorted rules are obtained by merging the arrays.
+ *
  * @since 3.6
  */
 public class SyntaxHighlightingDataBuilder {
 
-  private List<SyntaxHighlightingRule> syntaxHighlightingRuleSet;
-
-  public SyntaxHighlightingDataBuilder() {
-    syntaxHighlightingRuleSet = newArrayList();
-  }
+  // the element at index i contains 2^i rules, or is null. Older rules are in bigger arrays.
+  private final List<SortedRules> levels = newArrayList();
 
   public SyntaxHighlightingDataBuilder registerHighlightingRule(int startOffset, int endOffset, String typeOfText) {
     if (ruleConflictsWithExistingRules(startOffset, endOffset)) {
@@ -49,9 +48,18 @@ public class SyntaxHighlightingDataBuilder {
       LoggerFactory.getLogger(SyntaxHighlightingDataBuilder.class).error(errorMsg);
       throw new UnsupportedOperationException(errorMsg);
     }
-    SyntaxHighlightingRule syntaxHighlightingRule = SyntaxHighlightingRule.create(startOffset, endOffset,
-      typeOfText);
-    this.syntaxHighlightingRuleSet.add(syntaxHighlightingRule);
+    SortedRules carry = new SortedRules(new int[] {startOffset}, new int[] {endOffset}, new String[] {typeOfText});
+    int level = 0;
+    while (level < levels.size() && levels.get(level) != null) {
+      carry = SortedRules.merge(levels.get(level), carry);
+      levels.set(level, null);
+      level++;
+    }
+    if (level == levels.size()) {
+      levels.add(carry);
+    } else {
+      levels.set(level, carry);
+    }
     return this;
   }
 
@@ -59,47 +67,166 @@ public class SyntaxHighlightingDataBuilder {
     return new SyntaxHighlightingData(getSortedRules());
   }
 
-  private boolean ruleConflictsWithExistingRules(final int startOffset, final int endOffset) {
-    Collection<SyntaxHighlightingRule> conflictingRules = Collections2
-      .filter(syntaxHighlightingRuleSet, new Predicate<SyntaxHighlightingRule>() {
-        @Override
-        public boolean apply(@Nullable SyntaxHighlightingRule syntaxHighlightingRule) {
+  private boolean ruleConflictsWithExistingRules(int startOffset, int endOffset) {
+    for (SortedRules rules : levels) {
+      if (rules != null && rules.conflictsWith(startOffset, endOffset)) {
+        return true;
+      }
+    }
+    return false;
+  }
 
-          if (syntaxHighlightingRule != null) {
-            boolean overlapsStartBoundary = startOffset < syntaxHighlightingRule.getStartPosition()
-              && endOffset >= syntaxHighlightingRule.getStartPosition() + 1
-              && endOffset < syntaxHighlightingRule.getEndPosition();
+  @VisibleForTesting
+  protected List<SyntaxHighlightingRule> getSortedRules() {
+    SortedRules all = null;
+    for (SortedRules rules : levels) {
+      if (rules != null) {
+        all = all == null ? rules : SortedRules.merge(rules, all);
+      }
+    }
+    if (all == null) {
+      return newArrayList();
+    }
+    List<SyntaxHighlightingRule> result = newArrayListWithCapacity(all.starts.length);
+    for (int i = 0; i < all.starts.length; i++) {
+      result.add(SyntaxHighlightingRule.create(all.starts[i], all.ends[i], all.types[i]));
+    }
+    return result;
+  }
+
+  /**
+   * Immutable rules sorted by start then end offset
+   */
+  private static final class SortedRules {
+    private final int[] starts;
+    private final int[] ends;
+    private final String[] types;
 
-            boolean overlapsEndBoundary = startOffset > syntaxHighlightingRule.getStartPosition()
-              && startOffset < syntaxHighlightingRule.getEndPosition()
-              && endOffset > syntaxHighlightingRule.getEndPosition();
+    // segment tree of the maximum end offsets. Leaves are at indices [capacity, 2 * capacity)
+    private final int capacity;
+    private final int[] maxEnds;
 
-            return overlapsStartBoundary || overlapsEndBoundary;
-          }
-          return false;
+    private SortedRules(int[] starts, int[] ends, String[] types) {
+      this.starts = starts;
+      this.ends = ends;
+      this.types = types;
+      this.capacity = Integer.highestOneBit(Math.max(1, starts.length * 2 - 1));
+      this.maxEnds = new int[2 * capacity];
+      System.arraycopy(ends, 0, maxEnds, capacity, ends.length);
+      Arrays.fill(maxEnds, capacity + ends.length, 2 * capacity, Integer.MIN_VALUE);
+      for (int node = capacity - 1; node > 0; node--) {
+        maxEnds[node] = Math.max(maxEnds[2 * node], maxEnds[2 * node + 1]);
+      }
+    }
+
+    /**
+     * Rules with the same offsets are kept in order of registration
+     */
+    private static SortedRules merge(SortedRules older, SortedRules newer) {
+      int size = older.starts.length + newer.starts.length;
+      int[] starts = new int[size];
+      int[] ends = new int[size];
+      String[] types = new String[size];
+      int o = 0;
+      int n = 0;
+      for (int i = 0; i < size; i++) {
+        boolean takeOlder = n == newer.starts.length || (o < older.starts.length
+          && (older.starts[o] < newer.starts[n] || (older.starts[o] == newer.starts[n] && older.ends[o] <= newer.ends[n])));
+        SortedRules from = takeOlder ? older : newer;
+        int index = takeOlder ? o++ : n++;
+        starts[i] = from.starts[index];
+        ends[i] = from.ends[index];
+        types[i] = from.types[index];
+      }
+      return new SortedRules(starts, ends, types);
+    }
+
+    private boolean conflictsWith(int startOffset, int endOffset) {
+      return overlapsStartBoundary(startOffset, endOffset) || overlapsEndBoundary(startOffset, endOffset);
+    }
+
+    /**
+     * Is there a rule that contains the start offset and that ends before the end offset ? The rules that contain
+     * the start offset are nested, so only the innermost one, which ends first, is checked.
+     */
+    private boolean overlapsStartBoundary(int startOffset, int endOffset) {
+      int innermost = lastIndexOfEndGreaterThan(1, 0, capacity, firstIndexOfStart(startOffset, false), startOffset);
+      if (innermost < 0) {
+        return false;
+      }
+      // rules with the same start offset are sorted by end offset
+      int low = firstIndexOfStart(starts[innermost], false);
+      int high = innermost;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (ends[mid] <= startOffset) {
+          low = mid + 1;
+        } else {
+          high = mid;
         }
-      });
-    return !conflictingRules.isEmpty();
-  }
+      }
+      return ends[low] < endOffset;
+    }
 
-  @VisibleForTesting
-  protected List<SyntaxHighlightingRule> getSortedRules() {
-    Ordering<SyntaxHighlightingRule> ruleOrdering = new Ordering<SyntaxHighlightingRule>() {
-      @Override
-      public int compare(@Nullable SyntaxHighlightingRule left,
-                         @Nullable SyntaxHighlightingRule right) {
-        int result;
-        if (left != null && right != null) {
-          result = left.getStartPosition() - right.getStartPosition();
-          if (result == 0) {
-            result = left.getEndPosition() - right.getEndPosition();
-          }
-          return result;
+    /**
+     * Is there a rule that starts within the new rule and that ends after it ?
+     */
+    private boolean overlapsEndBoundary(int startOffset, int endOffset) {
+      int from = firstIndexOfStart(startOffset, true);
+      int to = firstIndexOfStart(endOffset, false);
+      return from < to && maxEnd(from, to) > endOffset;
+    }
+
+    /**
+     * @return the index of the first rule that starts at or after the given offset, or strictly after it if {@code strict} is true
+     */
+    private int firstIndexOfStart(int offset, boolean strict) {
+      int low = 0;
+      int high = starts.length;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (starts[mid] < offset || (strict && starts[mid] == offset)) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low;
+    }
+
+    /**
+     * @return the maximum end offset of the rules at indices [from, to)
+     */
+    private int maxEnd(int from, int to) {
+      int result = Integer.MIN_VALUE;
+      int low = from + capacity;
+      int high = to + capacity;
+      while (low < high) {
+        if ((low & 1) == 1) {
+          result = Math.max(result, maxEnds[low++]);
         }
-        return left != null ? 1 : -1;
+        if ((high & 1) == 1) {
+          result = Math.max(result, maxEnds[--high]);
+        }
+        low >>= 1;
+        high >>= 1;
       }
-    };
+      return result;
+    }
 
-    return ruleOrdering.immutableSortedCopy(syntaxHighlightingRuleSet);
+    /**
+     * @return the greatest index lower than {@code to} of a rule that ends after the given offset, else -1
+     */
+    private int lastIndexOfEndGreaterThan(int node, int nodeFrom, int nodeTo, int to, int offset) {
+      if (nodeFrom >= to || maxEnds[node] <= offset) {
+        return -1;
+      }
+      if (nodeTo - nodeFrom == 1) {
+        return nodeFrom;
+      }
+      int mid = (nodeFrom + nodeTo) >>> 1;
+      int result = lastIndexOfEndGreaterThan(2 * node + 1, mid, nodeTo, to, offset);
+      return result >= 0 ? result : lastIndexOfEndGreaterThan(2 * node, nodeFrom, mid, to, offset);
+    }
   }
 }
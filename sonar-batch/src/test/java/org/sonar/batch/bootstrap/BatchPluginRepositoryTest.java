@@ -69,7 +69,7 @@ public class BatchPluginRepositoryTest {
     RemotePlugin checkstyle = new RemotePlugin("checkstyle", true);
 
     PluginDownloader downloader = mock(PluginDownloader.class);
-    when(downloader.downloadPlugin(checkstyle)).thenReturn(fileFromCache("sonar-checkstyle-plugin-2.8.jar"));
+    when(downloader.downloadPlugins(Arrays.asList(checkstyle))).thenReturn(Arrays.asList(fileFromCache("sonar-checkstyle-plugin-2.8.jar")));
 
     repository = new BatchPluginRepository(downloader, new Settings(), mode, new BatchPluginJarInstaller(cache));
 
@@ -87,8 +87,8 @@ public class BatchPluginRepositoryTest {
     RemotePlugin checkstyleExt = new RemotePlugin("checkstyleextensions", false);
 
     PluginDownloader downloader = mock(PluginDownloader.class);
-    when(downloader.downloadPlugin(checkstyle)).thenReturn(fileFromCache("sonar-checkstyle-plugin-2.8.jar"));
-    when(downloader.downloadPlugin(checkstyleExt)).thenReturn(fileFromCache("sonar-checkstyle-extensions-plugin-0.1-SNAPSHOT.jar"));
+    when(downloader.downloadPlugins(Arrays.asList(checkstyle, checkstyleExt))).thenReturn(Arrays.asList(
+      fileFromCache("sonar-checkstyle-plugin-2.8.jar"), fileFromCache("sonar-checkstyle-extensions-plugin-0.1-SNAPSHOT.jar")));
 
     repository = new BatchPluginRepository(downloader, new Settings(), mode, new BatchPluginJarInstaller(cache));
 
@@ -107,8 +107,9 @@ public class BatchPluginRepositoryTest {
     RemotePlugin checkstyleExt = new RemotePlugin("checkstyleextensions", false);
 
     PluginDownloader downloader = mock(PluginDownloader.class);
-    when(downloader.downloadPlugin(checkstyle)).thenReturn(fileFromCache("sonar-checkstyle-plugin-2.8.jar"));
-    when(downloader.downloadPlugin(checkstyleExt)).thenReturn(fileFromCache("sonar-checkstyle-extensions-plugin-0.1-SNAPSHOT.jar"));
+    // checkstyle is excluded, so only the extension is downloaded
+    when(downloader.downloadPlugins(Arrays.asList(checkstyleExt))).thenReturn(Arrays.asList(
+      fileFromCache("sonar-checkstyle-extensions-plugin-0.1-SNAPSHOT.jar")));
 
     Settings settings = new Settings();
     settings.setProperty(CoreProperties.BATCH_EXCLUDE_PLUGINS, "checkstyle");
@@ -28,6 +28,7 @@ import org.sonar.core.plugins.RemotePlugin;
 import org.sonar.home.cache.FileCache;
 
 import java.io.File;
+import java.util.Arrays;
 import java.util.List;
 
 import static org.fest.assertions.Assertions.assertThat;
@@ -35,6 +36,9 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 public class PluginDownloaderTest {
@@ -77,6 +81,55 @@ public class PluginDownloaderTest {
     assertThat(file).isEqualTo(pluginJar);
   }
 
+  @Test
+  public void should_download_only_plugins_missing_from_cache() throws Exception {
+    FileCache cache = mock(FileCache.class);
+    File checkstyleJar = temp.newFile();
+    File pmdJar = temp.newFile();
+    File findbugsJar = temp.newFile();
+    when(cache.get("checkstyle-plugin.jar", "fakemd5_1")).thenReturn(checkstyleJar);
+    when(cache.get(eq("pmd-plugin.jar"), eq("fakemd5_2"), any(FileCache.Downloader.class))).thenReturn(pmdJar);
+    when(cache.get(eq("findbugs-plugin.jar"), eq("fakemd5_3"), any(FileCache.Downloader.class))).thenReturn(findbugsJar);
+    ServerClient server = mock(ServerClient.class);
+    PluginDownloader downloader = new PluginDownloader(cache, server);
+
+    RemotePlugin checkstyle = new RemotePlugin("checkstyle", true).setFile("checkstyle-plugin.jar", "fakemd5_1");
+    RemotePlugin pmd = new RemotePlugin("pmd", true).setFile("pmd-plugin.jar", "fakemd5_2");
+    RemotePlugin findbugs = new RemotePlugin("findbugs", true).setFile("findbugs-plugin.jar", "fakemd5_3");
+    List<File> files = downloader.downloadPlugins(Arrays.asList(checkstyle, pmd, findbugs));
+
+    assertThat(files).containsExactly(checkstyleJar, pmdJar, findbugsJar);
+    verify(cache, never()).get(eq("checkstyle-plugin.jar"), eq("fakemd5_1"), any(FileCache.Downloader.class));
+  }
+
+  @Test
+  public void should_not_request_server_if_all_plugins_are_cached() throws Exception {
+    FileCache cache = mock(FileCache.class);
+    File checkstyleJar = temp.newFile();
+    when(cache.get("checkstyle-plugin.jar", "fakemd5_1")).thenReturn(checkstyleJar);
+    ServerClient server = mock(ServerClient.class);
+
+    RemotePlugin checkstyle = new RemotePlugin("checkstyle", true).setFile("checkstyle-plugin.jar", "fakemd5_1");
+    List<File> files = new PluginDownloader(cache, server).downloadPlugins(Arrays.asList(checkstyle));
+
+    assertThat(files).containsExactly(checkstyleJar);
+    verifyZeroInteractions(server);
+  }
+
+  @Test
+  public void should_fail_if_a_concurrent_download_fails() throws Exception {
+    thrown.expect(SonarException.class);
+    thrown.expectMessage("Fail to download plugin: findbugs");
+
+    FileCache cache = mock(FileCache.class);
+    when(cache.get(eq("pmd-plugin.jar"), eq("fakemd5_2"), any(FileCache.Downloader.class))).thenReturn(temp.newFile());
+    when(cache.get(eq("findbugs-plugin.jar"), eq("fakemd5_3"), any(FileCache.Downloader.class))).thenThrow(new IllegalStateException("INVALID HASH"));
+
+    RemotePlugin pmd = new RemotePlugin("pmd", true).setFile("pmd-plugin.jar", "fakemd5_2");
+    RemotePlugin findbugs = new RemotePlugin("findbugs", true).setFile("findbugs-plugin.jar", "fakemd5_3");
+    new PluginDownloader(cache, mock(ServerClient.class)).downloadPlugins(Arrays.asList(pmd, findbugs));
+  }
+
   @Test
   public void should_fail_to_get_plugin_index() throws Exception {
     thrown.expect(SonarException.class);
@@ -21,8 +21,10 @@ package org.sonar.batch.events;
 
 import org.sonar.api.batch.events.EventHandler;
 
+import static org.fest.assertions.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 
 import org.junit.Test;
 
@@ -43,6 +45,58 @@ public class EventBusTest {
     verify(secondHandler).onEvent(secondEvent);
   }
 
+  @Test
+  public void shouldNotifyHandlersImplementingSeveralTypes() {
+    BothHandler handler = mock(BothHandler.class);
+    FirstHandler firstHandler = mock(FirstHandler.class);
+    EventBus eventBus = new EventBus(new EventHandler[] {handler, firstHandler});
+
+    FirstEvent firstEvent = new FirstEvent();
+    eventBus.fireEvent(firstEvent);
+    SecondEvent secondEvent = new SecondEvent();
+    eventBus.fireEvent(secondEvent);
+
+    verify(handler).onEvent(firstEvent);
+    verify(handler).onEvent(secondEvent);
+    verify(firstHandler).onEvent(firstEvent);
+  }
+
+  @Test
+  public void shouldIgnoreEventWithoutHandlers() {
+    FirstHandler firstHandler = mock(FirstHandler.class);
+    EventBus eventBus = new EventBus(new EventHandler[] {firstHandler});
+
+    eventBus.fireEvent(new SecondEvent());
+
+    verifyZeroInteractions(firstHandler);
+  }
+
+  @Test
+  public void shouldProfileEvents() {
+    EventBus eventBus = new EventBus(new EventHandler[] {mock(FirstHandler.class)}, true);
+
+    eventBus.fireEvent(new FirstEvent());
+    eventBus.fireEvent(new FirstEvent());
+    eventBus.fireEvent(new SecondEvent());
+
+    assertThat(eventBus.getEventCount(FirstHandler.class)).isEqualTo(2L);
+    assertThat(eventBus.getEventCount(SecondHandler.class)).isEqualTo(1L);
+    assertThat(eventBus.getProfilingMessage()).contains("FirstHandler: 2 events to 1 handlers");
+    assertThat(eventBus.getProfilingMessage()).contains("SecondHandler: 1 events to 0 handlers");
+  }
+
+  @Test
+  public void shouldNotProfileByDefault() {
+    EventBus eventBus = new EventBus(new EventHandler[] {mock(FirstHandler.class)});
+
+    eventBus.fireEvent(new FirstEvent());
+
+    assertThat(eventBus.getEventCount(FirstHandler.class)).isEqualTo(0L);
+  }
+
+  interface BothHandler extends FirstHandler, SecondHandler {
+  }
+
   interface FirstHandler extends EventHandler {
     void onEvent(FirstEvent event);
   }
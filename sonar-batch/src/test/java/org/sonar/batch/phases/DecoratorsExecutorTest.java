@@ -20,6 +20,7 @@
 package org.sonar.batch.phases;
 
 import org.junit.Test;
+import org.sonar.api.batch.AppliesTo;
 import org.sonar.api.batch.BatchExtensionDictionnary;
 import org.sonar.api.batch.Decorator;
 import org.sonar.api.batch.DecoratorContext;
@@ -27,19 +28,30 @@ import org.sonar.api.batch.SonarIndex;
 import org.sonar.api.resources.File;
 import org.sonar.api.resources.Project;
 import org.sonar.api.resources.Resource;
+import org.sonar.api.resources.Scopes;
 import org.sonar.api.utils.SonarException;
 import org.sonar.batch.DefaultDecoratorContext;
 import org.sonar.batch.events.EventBus;
 import org.sonar.core.measure.MeasurementFilters;
 
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsSame.sameInstance;
 import static org.hamcrest.number.OrderingComparisons.greaterThanOrEqualTo;
 import static org.hamcrest.number.OrderingComparisons.lessThan;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 import static org.junit.matchers.JUnitMatchers.containsString;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 public class DecoratorsExecutorTest {
 
@@ -77,6 +89,77 @@ public class DecoratorsExecutorTest {
     }
   }
 
+  @Test
+  public void should_skip_decorators_which_do_not_apply_to_resource() {
+    FileDecorator fileDecorator = spy(new FileDecorator());
+    Decorator1 decorator1 = spy(new Decorator1());
+    EventBus eventBus = mock(EventBus.class);
+    DecoratorsExecutor executor = new DecoratorsExecutor(mock(BatchExtensionDictionnary.class), new Project("key"), mock(SonarIndex.class),
+      eventBus, mock(MeasurementFilters.class));
+    List<Decorator> decorators = Arrays.<Decorator>asList(fileDecorator, decorator1);
+
+    Project project = new Project("key");
+    executor.decorateResource(project, decorators, true);
+
+    verify(fileDecorator, never()).decorate(any(Resource.class), any(DecoratorContext.class));
+    verify(decorator1).decorate(eq(project), any(DecoratorContext.class));
+    // start and end of decorator1 only
+    verify(eventBus, times(2)).fireEvent(any(DecoratorExecutionEvent.class));
+
+    File file = File.create("src/org/foo/Bar.java", "org/foo/Bar.java", null, false);
+    executor.decorateResource(file, decorators, true);
+    verify(fileDecorator).decorate(eq(file), any(DecoratorContext.class));
+    verify(decorator1).decorate(eq(file), any(DecoratorContext.class));
+  }
+
+  @Test
+  public void should_compute_plan_once_per_qualifier() {
+    DecoratorsExecutor executor = new DecoratorsExecutor(mock(BatchExtensionDictionnary.class), new Project("key"), mock(SonarIndex.class),
+      mock(EventBus.class), mock(MeasurementFilters.class));
+    List<Decorator> decorators = Arrays.<Decorator>asList(new FileDecorator(), new Decorator1(), new Decorator2());
+
+    DecoratorsPlan projectPlan = executor.getPlan(new Project("key"), decorators);
+    assertThat(projectPlan.size(), is(2));
+    assertThat(projectPlan.get(0), is((Decorator) decorators.get(1)));
+    assertThat(projectPlan.get(1), is((Decorator) decorators.get(2)));
+
+    DecoratorsPlan filePlan = executor.getPlan(File.create("src/org/foo/Bar.java", "org/foo/Bar.java", null, false), decorators);
+    assertThat(filePlan.size(), is(3));
+    assertThat(executor.getPlan(File.create("src/org/foo/Other.java", "org/foo/Other.java", null, false), decorators), sameInstance(filePlan));
+  }
+
+  @Test
+  public void should_report_calls_per_qualifier() {
+    DecoratorsExecutor executor = new DecoratorsExecutor(mock(BatchExtensionDictionnary.class), new Project("key"), mock(SonarIndex.class),
+      mock(EventBus.class), mock(MeasurementFilters.class));
+    List<Decorator> decorators = Arrays.<Decorator>asList(new FileDecorator(), new Decorator1());
+
+    Project project = new Project("key");
+    executor.decorateResource(project, decorators, true);
+    executor.decorateResource(project, decorators, true);
+
+    DecoratorsPlan plan = executor.getPlan(project, decorators);
+    assertThat(plan.getResources(), is(2L));
+    assertThat(plan.getCalls(0), is(2L));
+    assertThat(plan.getSkippedCalls(), is(2L));
+    assertThat(plan.getMessage(), containsString("Decorator1: 2 calls"));
+  }
+
+  @AppliesTo(scopes = Scopes.FILE)
+  static class FileDecorator implements Decorator {
+    public void decorate(Resource resource, DecoratorContext context) {
+    }
+
+    public boolean shouldExecuteOnProject(Project project) {
+      return true;
+    }
+
+    @Override
+    public String toString() {
+      return "FileDecorator";
+    }
+  }
+
   static class Decorator1 implements Decorator {
     public void decorate(Resource resource, DecoratorContext context) {
     }
@@ -84,6 +167,11 @@ public class DecoratorsExecutorTest {
     public boolean shouldExecuteOnProject(Project project) {
       return true;
     }
+
+    @Override
+    public String toString() {
+      return "Decorator1";
+    }
   }
 
   static class Decorator2 implements Decorator {
@@ -0,0 +1,108 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.batch.phases;
+
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Graph;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.tg.TinkerGraph;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.sonar.api.component.Component;
+import org.sonar.api.component.Perspective;
+import org.sonar.core.component.ComponentVertex;
+import org.sonar.core.component.GraphPerspectiveBuilder;
+import org.sonar.core.component.GraphPerspectiveLoader;
+import org.sonar.core.component.ResourceComponent;
+import org.sonar.core.component.ScanGraph;
+import org.sonar.core.graph.BeanVertex;
+import org.sonar.core.graph.EdgePath;
+import org.sonar.core.graph.binary.BinaryGraphFormat;
+import org.sonar.core.graph.binary.BinaryGraphReader;
+import org.sonar.core.graph.jdbc.GraphDto;
+import org.sonar.core.graph.jdbc.GraphDtoMapper;
+import org.sonar.core.persistence.BatchSession;
+import org.sonar.core.persistence.MyBatis;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class GraphPersisterTest {
+
+  private static final String PERSPECTIVE_KEY = "fake";
+
+  @Test
+  public void persist_graphs_in_binary_format() {
+    ScanGraph graph = ScanGraph.create();
+    ResourceComponent file = mock(ResourceComponent.class);
+    when(file.key()).thenReturn("org.foo.Bar");
+    when(file.snapshotId()).thenReturn(123L);
+    when(file.resourceId()).thenReturn(456L);
+    ComponentVertex component = graph.addComponent(file);
+    Vertex perspective = graph.getUnderlyingGraph().addVertex(null);
+    perspective.setProperty("name", "foo");
+    graph.getUnderlyingGraph().addEdge(null, component.element(), perspective, PERSPECTIVE_KEY);
+
+    MyBatis myBatis = mock(MyBatis.class);
+    BatchSession session = mock(BatchSession.class);
+    GraphDtoMapper mapper = mock(GraphDtoMapper.class);
+    when(myBatis.openBatchSession()).thenReturn(session);
+    when(session.getMapper(GraphDtoMapper.class)).thenReturn(mapper);
+    GraphPerspectiveBuilder builder = new GraphPerspectiveBuilder<FakePerspective>(graph, FakePerspective.class,
+      EdgePath.create(Direction.OUT, PERSPECTIVE_KEY), new FakePerspectiveLoader()) {
+    };
+
+    new GraphPersister(myBatis, graph, new GraphPerspectiveBuilder[] {builder}).persist();
+
+    ArgumentCaptor<GraphDto> dto = ArgumentCaptor.forClass(GraphDto.class);
+    verify(mapper).insert(dto.capture());
+    verify(session).commit();
+    assertThat(dto.getValue().getFormat()).isEqualTo(BinaryGraphFormat.FORMAT);
+    assertThat(dto.getValue().getVersion()).isEqualTo(BinaryGraphFormat.VERSION);
+    assertThat(dto.getValue().getPerspective()).isEqualTo(PERSPECTIVE_KEY);
+    assertThat(dto.getValue().getSnapshotId()).isEqualTo(123L);
+    assertThat(dto.getValue().getResourceId()).isEqualTo(456L);
+
+    Graph storedGraph = new BinaryGraphReader().read(dto.getValue().getData(), new TinkerGraph());
+    Vertex storedComponent = storedGraph.getVertex(dto.getValue().getRootVertexId());
+    assertThat(storedComponent.getProperty("key")).isEqualTo("org.foo.Bar");
+    assertThat(storedComponent.getVertices(Direction.OUT, PERSPECTIVE_KEY).iterator().next().getProperty("name")).isEqualTo("foo");
+  }
+
+  static class FakePerspectiveLoader extends GraphPerspectiveLoader<FakePerspective> {
+    FakePerspectiveLoader() {
+      super(PERSPECTIVE_KEY, FakePerspective.class);
+    }
+
+    @Override
+    protected Class<? extends BeanVertex> getBeanClass() {
+      return FakePerspective.class;
+    }
+  }
+
+  public static class FakePerspective extends BeanVertex implements Perspective {
+    @Override
+    public Component component() {
+      return null;
+    }
+  }
+}
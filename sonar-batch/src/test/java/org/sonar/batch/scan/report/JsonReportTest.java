@@ -20,6 +20,7 @@
 package org.sonar.batch.scan.report;
 
 import com.google.common.collect.Lists;
+import org.apache.commons.io.IOUtils;
 import org.json.JSONException;
 import org.junit.Before;
 import org.junit.Test;
@@ -28,6 +29,8 @@ import org.skyscreamer.jsonassert.JSONAssert;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.internal.DefaultFileSystem;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.rule.Rules;
+import org.sonar.api.batch.rule.internal.RulesBuilder;
 import org.sonar.api.config.Settings;
 import org.sonar.api.issue.Issue;
 import org.sonar.api.issue.internal.DefaultIssue;
@@ -47,16 +50,21 @@ import org.sonar.core.user.DefaultUser;
 import org.sonar.test.TestUtils;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.StringWriter;
 import java.text.SimpleDateFormat;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.TimeZone;
+import java.util.zip.GZIPInputStream;
 
 import static org.fest.assertions.Assertions.assertThat;
 import static org.mockito.Matchers.anyListOf;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 public class JsonReportTest {
@@ -71,10 +79,13 @@ public class JsonReportTest {
   DefaultFileSystem fs = new DefaultFileSystem();
   Server server = mock(Server.class);
   RuleFinder ruleFinder = mock(RuleFinder.class);
+  Rules rules = mock(Rules.class);
   Settings settings = new Settings();
   IssueCache issueCache = mock(IssueCache.class);
   private AnalysisMode mode;
   private UserFinder userFinder;
+  private InputFileCache fileCache = mock(InputFileCache.class);
+  private InputFile changedFile;
 
   @Before
   public void before() {
@@ -87,14 +98,14 @@ public class JsonReportTest {
     DefaultInputFile inputFile = new DefaultInputFile("src/main/java/org/apache/struts/Action.java");
     inputFile.setKey("struts:src/main/java/org/apache/struts/Action.java");
     inputFile.setStatus(InputFile.Status.CHANGED);
-    InputFileCache fileCache = mock(InputFileCache.class);
+    changedFile = inputFile;
     when(fileCache.all()).thenReturn(Arrays.<InputFile>asList(inputFile));
     Project rootModule = new Project("struts");
     Project moduleA = new Project("struts-core");
     moduleA.setParent(rootModule).setPath("core");
     Project moduleB = new Project("struts-ui");
     moduleB.setParent(rootModule).setPath("ui");
-    jsonReport = new JsonReport(settings, fs, server, ruleFinder, issueCache, mock(EventBus.class),
+    jsonReport = new JsonReport(settings, fs, server, ruleFinder, rules, issueCache, mock(EventBus.class),
       mode, userFinder, rootModule, fileCache);
   }
 
@@ -177,4 +188,90 @@ public class JsonReportTest {
     assertThat(new File(workDir, "output.json")).exists();
   }
 
+  @Test
+  public void should_export_issues_to_gzipped_file() throws IOException {
+    File workDir = temporaryFolder.newFolder("sonar");
+    fs.setWorkDir(workDir);
+    when(jsonReport.getIssues()).thenReturn(Collections.<DefaultIssue>emptyList());
+
+    settings.setProperty("sonar.report.export.path", "output.json.gz");
+
+    jsonReport.execute();
+
+    GZIPInputStream input = new GZIPInputStream(new FileInputStream(new File(workDir, "output.json.gz")));
+    try {
+      assertThat(IOUtils.toString(input, "UTF-8")).contains("\"version\":\"3.6\"");
+    } finally {
+      input.close();
+    }
+  }
+
+  @Test
+  public void should_read_rule_names_from_loaded_rules() throws Exception {
+    RuleKey ruleKey = RuleKey.of("squid", "AvoidCycles");
+    RulesBuilder rulesBuilder = new RulesBuilder();
+    rulesBuilder.add(ruleKey).setName("Avoid Cycles");
+    Rules loadedRules = rulesBuilder.build();
+    when(rules.find(ruleKey)).thenReturn(loadedRules.find(ruleKey));
+    when(jsonReport.getIssues()).thenReturn(Lists.newArrayList(newIssue("200", "struts:src/main/java/org/apache/struts/Action.java", false)));
+
+    StringWriter writer = new StringWriter();
+    jsonReport.writeJson(writer);
+
+    assertThat(writer.toString()).contains("\"name\":\"Avoid Cycles\"");
+    verify(ruleFinder, never()).findByKey(ruleKey);
+  }
+
+  @Test
+  public void should_not_load_users_if_no_issue_is_assigned() throws Exception {
+    when(jsonReport.getIssues()).thenReturn(Lists.newArrayList(newIssue("200", "struts:src/main/java/org/apache/struts/Action.java", false)));
+
+    jsonReport.writeJson(new StringWriter());
+
+    verifyZeroInteractions(userFinder);
+  }
+
+  @Test
+  public void should_export_only_new_issues() throws Exception {
+    settings.setProperty("sonar.report.export.newIssuesOnly", true);
+    when(jsonReport.getIssues()).thenReturn(Lists.newArrayList(
+      newIssue("200", "struts:src/main/java/org/apache/struts/Action.java", false),
+      newIssue("201", "struts:src/main/java/org/apache/struts/Action.java", true)));
+
+    StringWriter writer = new StringWriter();
+    jsonReport.writeJson(writer);
+
+    assertThat(writer.toString()).contains("\"key\":\"201\"").doesNotContain("\"key\":\"200\"");
+  }
+
+  @Test
+  public void should_export_only_issues_of_changed_files() throws Exception {
+    DefaultInputFile unchangedFile = new DefaultInputFile("src/main/java/org/apache/struts/Form.java");
+    unchangedFile.setKey("struts:src/main/java/org/apache/struts/Form.java");
+    unchangedFile.setStatus(InputFile.Status.SAME);
+    when(fileCache.all()).thenReturn(Arrays.<InputFile>asList(changedFile, unchangedFile));
+    settings.setProperty("sonar.report.export.changedFilesOnly", true);
+    when(jsonReport.getIssues()).thenReturn(Lists.newArrayList(
+      newIssue("200", "struts:src/main/java/org/apache/struts/Action.java", false),
+      newIssue("201", "struts:src/main/java/org/apache/struts/Form.java", false),
+      newIssue("202", "struts", false)));
+
+    StringWriter writer = new StringWriter();
+    jsonReport.writeJson(writer);
+
+    String json = writer.toString();
+    assertThat(json).contains("\"key\":\"200\"").contains("\"key\":\"202\"").doesNotContain("\"key\":\"201\"");
+    assertThat(json).contains("Action.java").doesNotContain("Form.java");
+  }
+
+  private DefaultIssue newIssue(String key, String componentKey, boolean isNew) throws Exception {
+    return new DefaultIssue()
+      .setKey(key)
+      .setComponentKey(componentKey)
+      .setRuleKey(RuleKey.of("squid", "AvoidCycles"))
+      .setStatus(Issue.STATUS_OPEN)
+      .setCreationDate(SIMPLE_DATE_FORMAT.parse("2013-04-24"))
+      .setUpdateDate(SIMPLE_DATE_FORMAT.parse("2013-04-25"))
+      .setNew(isNew);
+  }
 }
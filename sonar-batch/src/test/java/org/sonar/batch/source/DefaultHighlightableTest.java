@@ -24,6 +24,7 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.sonar.api.component.Component;
 import org.sonar.batch.index.ComponentDataCache;
+import org.sonar.core.source.HighlightingDataFormat;
 import org.sonar.core.source.SnapshotDataTypes;
 
 import static org.fest.assertions.Assertions.assertThat;
@@ -55,6 +56,7 @@ public class DefaultHighlightableTest {
       .highlight(20, 30, "cppd")
       .done();
 
-    verify(cache).setStringData("myComponent", SnapshotDataTypes.SYNTAX_HIGHLIGHTING, "0,10,k;20,30,cppd;");
+    verify(cache).setStringData("myComponent", SnapshotDataTypes.SYNTAX_HIGHLIGHTING,
+      HighlightingDataFormat.writeSyntaxHighlighting(new int[] {0, 20}, new int[] {10, 30}, new String[] {"k", "cppd"}));
   }
 }
@@ -23,6 +23,7 @@ package org.sonar.batch.source;
 import org.junit.Test;
 import org.sonar.api.source.Symbol;
 import org.sonar.api.source.Symbolizable;
+import org.sonar.core.source.HighlightingDataFormat;
 
 import static org.fest.assertions.Assertions.assertThat;
 
@@ -43,7 +44,7 @@ public class SymbolDataTest {
     SymbolData dataRepository = new SymbolData(symbolTable);
     String serializedSymbolData = dataRepository.writeString();
 
-    assertThat(serializedSymbolData).isEqualTo("10,20,10,32;55,62,55,70;84,92,84,124;");
+    assertThat(toText(serializedSymbolData)).isEqualTo("10,20,10,32;55,62,55,70;84,92,84,124;");
   }
 
   @Test
@@ -55,6 +56,22 @@ public class SymbolDataTest {
     SymbolData dataRepository = new SymbolData(symbolTableBuilder.build());
     String serializedSymbolData = dataRepository.writeString();
 
-    assertThat(serializedSymbolData).isEqualTo("10,20,10;");
+    assertThat(toText(serializedSymbolData)).isEqualTo("10,20,10;");
+  }
+
+  private static String toText(String data) {
+    assertThat(HighlightingDataFormat.isCompact(data)).isTrue();
+    final StringBuilder text = new StringBuilder();
+    HighlightingDataFormat.readSymbols(data, new HighlightingDataFormat.SymbolHandler() {
+      @Override
+      public void onSymbol(int declarationStartOffset, int declarationEndOffset, int[] references) {
+        text.append(declarationStartOffset).append(',').append(declarationEndOffset);
+        for (int reference : references) {
+          text.append(',').append(reference);
+        }
+        text.append(';');
+      }
+    });
+    return text.toString();
   }
 }
@@ -0,0 +1,87 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.batch.source;
+
+import org.sonar.test.Benchmark;
+
+/**
+ * Registers the 100'000 highlighting rules of a big generated file : tokens registered in order, tokens nested in
+ * comment blocks, and tokens registered in reverse order. Not executed by the build, run it manually :
+ * <pre>java -cp ... org.sonar.batch.source.SyntaxHighlightingDataBuilderBenchmark</pre>
+ */
+public class SyntaxHighlightingDataBuilderBenchmark {
+
+  private static final int TOKENS = 100000;
+  private static final int TOKEN_LENGTH = 8;
+  private static final int TOKENS_PER_BLOCK = 50;
+  private static final int WARMUP_ITERATIONS = 10;
+  private static final int ITERATIONS = 20;
+
+  private long checksum = 0L;
+
+  void registerInOrder() {
+    SyntaxHighlightingDataBuilder builder = new SyntaxHighlightingDataBuilder();
+    for (int i = 0; i < TOKENS; i++) {
+      int start = i * (TOKEN_LENGTH + 1);
+      builder.registerHighlightingRule(start, start + TOKEN_LENGTH, i % 2 == 0 ? "k" : "s");
+    }
+    checksum += builder.build().writeString().length();
+  }
+
+  void registerNestedInBlocks() {
+    SyntaxHighlightingDataBuilder builder = new SyntaxHighlightingDataBuilder();
+    int blockLength = TOKENS_PER_BLOCK * (TOKEN_LENGTH + 1);
+    for (int i = 0; i < TOKENS; i++) {
+      int start = i * (TOKEN_LENGTH + 1);
+      if (i % TOKENS_PER_BLOCK == 0) {
+        builder.registerHighlightingRule(start, start + blockLength, "j");
+      }
+      builder.registerHighlightingRule(start, start + TOKEN_LENGTH, "h");
+    }
+    checksum += builder.build().writeString().length();
+  }
+
+  void registerInReverseOrder() {
+    SyntaxHighlightingDataBuilder builder = new SyntaxHighlightingDataBuilder();
+    for (int i = TOKENS - 1; i >= 0; i--) {
+      int start = i * (TOKEN_LENGTH + 1);
+      builder.registerHighlightingRule(start, start + TOKEN_LENGTH, "k");
+    }
+    checksum += builder.build().writeString().length();
+  }
+
+  public static void main(String[] args) {
+    final SyntaxHighlightingDataBuilderBenchmark benchmark = new SyntaxHighlightingDataBuilderBenchmark();
+    new Benchmark(WARMUP_ITERATIONS, ITERATIONS).run("in order", new Runnable() {
+      public void run() {
+        benchmark.registerInOrder();
+      }
+    }).run("nested", new Runnable() {
+      public void run() {
+        benchmark.registerNestedInBlocks();
+      }
+    }).run("reverse order", new Runnable() {
+      public void run() {
+        benchmark.registerInReverseOrder();
+      }
+    });
+    System.out.println("checksum: " + benchmark.checksum);
+  }
+}
@@ -70,4 +70,46 @@ public class SyntaxHighlightingDataBuilderTest {
     builder.registerHighlightingRule(0, 10, "k");
     builder.registerHighlightingRule(8, 15, "k");
   }
+
+  @Test
+  public void should_prevent_rules_overlapping_the_end_of_existing_rule() throws Exception {
+    throwable.expect(UnsupportedOperationException.class);
+
+    SyntaxHighlightingDataBuilder builder = new SyntaxHighlightingDataBuilder();
+    builder.registerHighlightingRule(0, 100, "cppd");
+    builder.registerHighlightingRule(10, 20, "k");
+    builder.registerHighlightingRule(30, 40, "k");
+    builder.registerHighlightingRule(35, 120, "s");
+  }
+
+  @Test
+  public void should_prevent_rules_overlapping_the_start_of_existing_rule() throws Exception {
+    throwable.expect(UnsupportedOperationException.class);
+
+    SyntaxHighlightingDataBuilder builder = new SyntaxHighlightingDataBuilder();
+    builder.registerHighlightingRule(50, 60, "k");
+    builder.registerHighlightingRule(40, 45, "k");
+    builder.registerHighlightingRule(0, 100, "cppd");
+    builder.registerHighlightingRule(42, 55, "s");
+  }
+
+  @Test
+  public void should_accept_nested_and_adjacent_rules_registered_in_any_order() throws Exception {
+    SyntaxHighlightingDataBuilder builder = new SyntaxHighlightingDataBuilder();
+    for (int i = 99; i >= 0; i--) {
+      builder.registerHighlightingRule(i * 10, i * 10 + 10, "k");
+    }
+    builder.registerHighlightingRule(0, 1000, "cppd");
+    builder.registerHighlightingRule(500, 510, "s");
+    builder.registerHighlightingRule(500, 505, "h");
+
+    List<SyntaxHighlightingRule> rules = builder.getSortedRules();
+    assertThat(rules).hasSize(103);
+    assertThat(rules.get(0).getEndPosition()).isEqualTo(10);
+    assertThat(rules.get(1).getEndPosition()).isEqualTo(1000);
+    assertThat(rules.get(51).getTextType()).isEqualTo("h");
+    assertThat(rules.get(52).getTextType()).isEqualTo("k");
+    assertThat(rules.get(53).getTextType()).isEqualTo("s");
+    assertThat(rules.get(102).getStartPosition()).isEqualTo(990);
+  }
 }
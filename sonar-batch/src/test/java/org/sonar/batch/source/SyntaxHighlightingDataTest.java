@@ -21,6 +21,7 @@ package org.sonar.batch.source;
 
 import com.google.common.collect.Lists;
 import org.junit.Test;
+import org.sonar.core.source.HighlightingDataFormat;
 
 import java.util.List;
 
@@ -41,6 +42,18 @@ public class SyntaxHighlightingDataTest {
     );
 
     String serializedRules = new SyntaxHighlightingData(orderedHighlightingRules).writeString();
-    assertThat(serializedRules).isEqualTo("0,10,cd;10,12,k;12,20,cd;24,38,k;24,65,cppd;42,50,k;");
+    assertThat(toText(serializedRules)).isEqualTo("0,10,cd;10,12,k;12,20,cd;24,38,k;24,65,cppd;42,50,k;");
+  }
+
+  private static String toText(String data) {
+    assertThat(HighlightingDataFormat.isCompact(data)).isTrue();
+    final StringBuilder text = new StringBuilder();
+    HighlightingDataFormat.readSyntaxHighlighting(data, new HighlightingDataFormat.SyntaxHighlightingHandler() {
+      @Override
+      public void onRule(int startOffset, int endOffset, String textType) {
+        text.append(startOffset).append(',').append(endOffset).append(',').append(textType).append(';');
+      }
+    });
+    return text.toString();
   }
 }
@@ -0,0 +1,120 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.colorizer;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Immutable deterministic automaton recognizing a set of keywords made of the characters [a-zA-Z0-9_]. Words are
+ * matched character by character while they are read, without building strings nor running regular expressions.
+ *
+ * @since 4.3
+ */
+final class KeywordTrie {
+
+  static final int NO_STATE = -1;
+
+  private static final int ALPHABET_SIZE = 63;
+
+  // transitions[state * ALPHABET_SIZE + symbol] is the next state, or NO_STATE
+  private final int[] transitions;
+  private final boolean[] accepting;
+
+  KeywordTrie(Collection<String> keywords) {
+    int[] table = new int[16 * ALPHABET_SIZE];
+    Arrays.fill(table, NO_STATE);
+    boolean[] accept = new boolean[16];
+    int states = 1;
+    for (String keyword : keywords) {
+      if (!isWord(keyword)) {
+        // can never be read as a single word
+        continue;
+      }
+      int state = 0;
+      for (int i = 0; i < keyword.length(); i++) {
+        int index = state * ALPHABET_SIZE + symbol(keyword.charAt(i));
+        if (table[index] == NO_STATE) {
+          if (states == accept.length) {
+            accept = Arrays.copyOf(accept, states * 2);
+            int oldLength = table.length;
+            table = Arrays.copyOf(table, oldLength * 2);
+            Arrays.fill(table, oldLength, table.length, NO_STATE);
+          }
+          table[index] = states;
+          states++;
+        }
+        state = table[index];
+      }
+      accept[state] = true;
+    }
+    this.transitions = Arrays.copyOf(table, states * ALPHABET_SIZE);
+    this.accepting = Arrays.copyOf(accept, states);
+  }
+
+  int start() {
+    return 0;
+  }
+
+  /**
+   * @param c a character of a word, see {@link #isWordPart(int)}
+   * @return the next state, or {@link #NO_STATE} if no keyword starts with the characters read so far
+   */
+  int next(int state, int c) {
+    return state == NO_STATE ? NO_STATE : transitions[state * ALPHABET_SIZE + symbol(c)];
+  }
+
+  boolean isKeyword(int state) {
+    return state != NO_STATE && accepting[state];
+  }
+
+  static boolean isWordStart(int c) {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+  }
+
+  static boolean isWordPart(int c) {
+    return isWordStart(c) || (c >= '0' && c <= '9');
+  }
+
+  private static boolean isWord(String s) {
+    if (s.isEmpty() || !isWordStart(s.charAt(0))) {
+      return false;
+    }
+    for (int i = 1; i < s.length(); i++) {
+      if (!isWordPart(s.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int symbol(int c) {
+    if (c >= 'a' && c <= 'z') {
+      return c - 'a';
+    }
+    if (c >= 'A' && c <= 'Z') {
+      return 26 + c - 'A';
+    }
+    if (c >= '0' && c <= '9') {
+      return 52 + c - '0';
+    }
+    return 62;
+  }
+}
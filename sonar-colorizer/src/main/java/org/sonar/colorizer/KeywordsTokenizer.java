@@ -28,14 +28,18 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
- * Detect case-sensitive keywords
+ * Detect case-sensitive keywords. Words of the default format [a-zA-Z_][a-zA-Z0-9_]* are matched by a precompiled
+ * {@link KeywordTrie}, which is shared by clones. Regular expressions, which are not thread-safe, are used only
+ * when a custom format of words is defined.
  */
 public class KeywordsTokenizer extends NotThreadSafeTokenizer {
 
   private final String tagBefore;
   private final String tagAfter;
   private boolean caseInsensitive = false;
-  private Matcher matcher;
+  private final String regex;
+  private final Matcher matcher;
+  private final KeywordTrie trie;
   private final StringBuilder tmpBuilder = new StringBuilder();
   private static final String DEFAULT_REGEX = "[a-zA-Z_][a-zA-Z0-9_]*+";
 
@@ -49,18 +53,35 @@ public class KeywordsTokenizer extends NotThreadSafeTokenizer {
     this.tagBefore = tagBefore;
     this.tagAfter = tagAfter;
     this.keywords = keywords;
-    this.matcher = Pattern.compile(regex).matcher("");
+    this.regex = regex;
+    this.matcher = DEFAULT_REGEX.equals(regex) ? null : Pattern.compile(regex).matcher("");
+    this.trie = new KeywordTrie(keywords);
   }
 
   public KeywordsTokenizer(String tagBefore, String tagAfter, String... keywords) {
     this.tagBefore = tagBefore;
     this.tagAfter = tagAfter;
     Collections.addAll(this.keywords, keywords);
-    this.matcher = Pattern.compile(DEFAULT_REGEX).matcher("");
+    this.regex = DEFAULT_REGEX;
+    this.matcher = null;
+    this.trie = new KeywordTrie(this.keywords);
+  }
+
+  private KeywordsTokenizer(KeywordsTokenizer other) {
+    this.tagBefore = other.tagBefore;
+    this.tagAfter = other.tagAfter;
+    this.keywords = other.keywords;
+    this.caseInsensitive = other.caseInsensitive;
+    this.regex = other.regex;
+    this.matcher = other.matcher == null ? null : Pattern.compile(other.regex).matcher("");
+    this.trie = other.trie;
   }
 
   @Override
   public boolean consume(CodeReader code, HtmlCodeBuilder codeBuilder) {
+    if (matcher == null) {
+      return consumeWord(code, codeBuilder);
+    }
     if (code.popTo(matcher, tmpBuilder) > 0) {
       if (isKeyword(tmpBuilder.toString())) {
         codeBuilder.appendWithoutTransforming(tagBefore);
@@ -75,6 +96,31 @@ public class KeywordsTokenizer extends NotThreadSafeTokenizer {
     return false;
   }
 
+  private boolean consumeWord(CodeReader code, HtmlCodeBuilder codeBuilder) {
+    if (!KeywordTrie.isWordStart(code.peek())) {
+      return false;
+    }
+    int state = trie.start();
+    int length = 0;
+    int c = code.peek();
+    while (KeywordTrie.isWordPart(c)) {
+      state = trie.next(state, caseInsensitive ? Character.toUpperCase(c) : c);
+      length++;
+      c = code.charAt(length);
+    }
+    boolean keyword = trie.isKeyword(state);
+    if (keyword) {
+      codeBuilder.appendWithoutTransforming(tagBefore);
+    }
+    for (int i = 0; i < length; i++) {
+      codeBuilder.append((char) code.pop());
+    }
+    if (keyword) {
+      codeBuilder.appendWithoutTransforming(tagAfter);
+    }
+    return true;
+  }
+
   private boolean isKeyword(String word) {
     if ( !caseInsensitive && keywords.contains(word)) {
       return true;
@@ -90,8 +136,6 @@ public class KeywordsTokenizer extends NotThreadSafeTokenizer {
 
   @Override
   public KeywordsTokenizer clone() {
-    KeywordsTokenizer clone = new KeywordsTokenizer(tagBefore, tagAfter, keywords, matcher.pattern().pattern());
-    clone.caseInsensitive = caseInsensitive;
-    return clone;
+    return new KeywordsTokenizer(this);
   }
 }
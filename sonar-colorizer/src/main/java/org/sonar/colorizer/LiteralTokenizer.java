@@ -49,33 +49,30 @@ public class LiteralTokenizer extends Tokenizer {
     }
   }
 
+  /**
+   * Stops after the closing delimiter, which is the first one that is not escaped by an odd number of backslashes.
+   */
   private static class EndCommentMatcher implements EndMatcher {
 
     private final int firstChar;
     private final CodeReader code;
-    private StringBuilder literalValue;
+    private int length = 0;
+    private int backslashes = 0;
 
     public EndCommentMatcher(int firstChar, CodeReader code) {
       this.firstChar = firstChar;
       this.code = code;
-      literalValue = new StringBuilder();
     }
 
     public boolean match(int endFlag) {
-      literalValue.append((char) endFlag);
-      return code.lastChar()==firstChar && evenNumberOfBackSlashBeforeDelimiter() && literalValue.length()>1;
-    }
-
-    private boolean evenNumberOfBackSlashBeforeDelimiter() {
-      int numberOfBackSlashChar = 0;
-      for (int index = literalValue.length() - 3; index >= 0; index--) {
-        if (literalValue.charAt(index) == '\\') {
-          numberOfBackSlashChar++;
-        } else {
-          break;
-        }
+      // last popped character, the opening delimiter being the first one
+      int lastChar = code.lastChar();
+      if (length > 0 && lastChar == firstChar && backslashes % 2 == 0) {
+        return true;
       }
-      return numberOfBackSlashChar % 2 == 0;
+      backslashes = length > 0 && lastChar == '\\' ? backslashes + 1 : 0;
+      length++;
+      return false;
     }
   }
 }
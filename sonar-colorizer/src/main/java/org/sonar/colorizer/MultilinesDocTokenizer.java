@@ -103,8 +103,9 @@ public class MultilinesDocTokenizer extends Tokenizer {
   }
 
   private boolean isCommentStartedOnPreviousLine(HtmlCodeBuilder codeBuilder) {
-    Boolean b = (Boolean) codeBuilder.getVariable(COMMENT_STARTED_ON_PREVIOUS_LINE, Boolean.FALSE);
-    return (b == Boolean.TRUE) && (this.equals(codeBuilder.getVariable(COMMENT_TOKENIZER)));
+    // called at each character, the tokenizer is checked first as it is registered only while its comment is pending
+    return this.equals(codeBuilder.getVariable(COMMENT_TOKENIZER))
+      && codeBuilder.getVariable(COMMENT_STARTED_ON_PREVIOUS_LINE, Boolean.FALSE) == Boolean.TRUE;
   }
 
   private void setCommentStartedOnPreviousLine(HtmlCodeBuilder codeBuilder, Boolean b) {
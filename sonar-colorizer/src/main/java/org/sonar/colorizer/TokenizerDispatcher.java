@@ -24,9 +24,14 @@ import org.sonar.channel.CodeReader;
 
 import java.util.List;
 
+/**
+ * Tries the tokenizers in order of priority at each position of the code. Instances can be shared between threads :
+ * the {@link NotThreadSafeTokenizer} are cloned for each call to {@link #colorize(CodeReader, HtmlCodeBuilder)}, and
+ * the clones are never shared.
+ */
 public class TokenizerDispatcher {
 
-  private Channel<HtmlCodeBuilder>[] tokenizers;
+  private final Channel<HtmlCodeBuilder>[] tokenizers;
 
   public TokenizerDispatcher(Channel<HtmlCodeBuilder>... tokenizers) {
     this.tokenizers = tokenizers;
@@ -43,10 +48,10 @@ public class TokenizerDispatcher {
   }
 
   public final void colorize(CodeReader code, HtmlCodeBuilder colorizedCode) {
-    cloneNotThreadSafeTokenizers();
+    Channel<HtmlCodeBuilder>[] clones = cloneNotThreadSafeTokenizers();
     nextChar:
     while (code.peek() != -1) {
-      for (Channel<HtmlCodeBuilder> codeTokenizer : tokenizers) {
+      for (Channel<HtmlCodeBuilder> codeTokenizer : clones) {
         if (codeTokenizer.consume(code, colorizedCode)) {
           continue nextChar;
         }
@@ -55,11 +60,13 @@ public class TokenizerDispatcher {
     }
   }
 
-  private void cloneNotThreadSafeTokenizers() {
-    for (int i = 0; i < tokenizers.length; i++) {
-      if (tokenizers[i] instanceof NotThreadSafeTokenizer) {
-        tokenizers[i] = ((NotThreadSafeTokenizer) tokenizers[i]).clone();
+  private Channel<HtmlCodeBuilder>[] cloneNotThreadSafeTokenizers() {
+    Channel<HtmlCodeBuilder>[] result = tokenizers.clone();
+    for (int i = 0; i < result.length; i++) {
+      if (result[i] instanceof NotThreadSafeTokenizer) {
+        result[i] = ((NotThreadSafeTokenizer) result[i]).clone();
       }
     }
+    return result;
   }
 }
@@ -0,0 +1,119 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.colorizer;
+
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Measures the colorization of the Java files of a directory, by default the sources of this module, by one thread
+ * then by several threads sharing the same {@link CodeColorizer}. Not executed by the build, run it manually :
+ * <pre>java -cp ... org.sonar.colorizer.CodeColorizerBenchmark [directory]</pre>
+ */
+public class CodeColorizerBenchmark {
+
+  private static final int WARMUP_ITERATIONS = 20;
+  private static final int ITERATIONS = 20;
+  private static final int THREADS = 4;
+
+  private final CodeColorizer colorizer = new CodeColorizer(CodeColorizer.Format.JAVA);
+  private final List<String> sources = Lists.newArrayList();
+  private long size = 0L;
+
+  CodeColorizerBenchmark(File dir) throws IOException {
+    load(dir);
+  }
+
+  private void load(File dir) throws IOException {
+    File[] files = dir.listFiles();
+    if (files == null) {
+      return;
+    }
+    for (File file : files) {
+      if (file.isDirectory()) {
+        load(file);
+      } else if (file.getName().endsWith(".java")) {
+        String source = Files.toString(file, Charset.forName("UTF-8"));
+        sources.add(source);
+        size += source.length();
+      }
+    }
+  }
+
+  long colorizeAll() {
+    long checksum = 0L;
+    for (String source : sources) {
+      checksum += colorizer.toHtml(new StringReader(source), HtmlOptions.ONLY_SYNTAX).length();
+    }
+    return checksum;
+  }
+
+  private void run(int threads) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      execute(executor, threads, WARMUP_ITERATIONS);
+      long start = System.nanoTime();
+      long checksum = execute(executor, threads, ITERATIONS);
+      long durationNs = System.nanoTime() - start;
+      double megabytes = (double) size * threads * ITERATIONS / 1024 / 1024;
+      System.out.println(String.format("%d thread(s): %8.2f ms/iteration %8.2f MB/s checksum %d", threads,
+        durationNs / 1000000.0 / ITERATIONS, megabytes / (durationNs / 1000000000.0), checksum));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private long execute(ExecutorService executor, int threads, final int iterations) throws Exception {
+    List<Future<Long>> results = Lists.newArrayList();
+    for (int i = 0; i < threads; i++) {
+      results.add(executor.submit(new Callable<Long>() {
+        public Long call() {
+          long checksum = 0L;
+          for (int j = 0; j < iterations; j++) {
+            checksum += colorizeAll();
+          }
+          return checksum;
+        }
+      }));
+    }
+    long checksum = 0L;
+    for (Future<Long> result : results) {
+      checksum += result.get();
+    }
+    return checksum;
+  }
+
+  public static void main(String[] args) throws Exception {
+    CodeColorizerBenchmark benchmark = new CodeColorizerBenchmark(new File(args.length > 0 ? args[0] : "src/main/java"));
+    System.out.println(benchmark.sources.size() + " files, " + benchmark.size + " chars");
+    benchmark.run(1);
+    benchmark.run(THREADS);
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.colorizer;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class KeywordTrieTest {
+
+  KeywordTrie trie = new KeywordTrie(Arrays.asList("do", "double", "_1", "not-a-word", ""));
+
+  @Test
+  public void should_recognize_keywords() {
+    assertThat(read("do")).isTrue();
+    assertThat(read("double")).isTrue();
+    assertThat(read("_1")).isTrue();
+  }
+
+  @Test
+  public void should_not_recognize_prefixes_nor_extensions() {
+    assertThat(read("d")).isFalse();
+    assertThat(read("doub")).isFalse();
+    assertThat(read("doubles")).isFalse();
+    assertThat(read("Do")).isFalse();
+    assertThat(read("_")).isFalse();
+  }
+
+  @Test
+  public void should_ignore_keywords_that_are_not_words() {
+    assertThat(read("not")).isFalse();
+    assertThat(trie.isKeyword(trie.start())).isFalse();
+  }
+
+  @Test
+  public void should_recognize_word_characters() {
+    assertThat(KeywordTrie.isWordStart('a')).isTrue();
+    assertThat(KeywordTrie.isWordStart('_')).isTrue();
+    assertThat(KeywordTrie.isWordStart('1')).isFalse();
+    assertThat(KeywordTrie.isWordPart('1')).isTrue();
+    assertThat(KeywordTrie.isWordPart('$')).isFalse();
+    assertThat(KeywordTrie.isWordPart(-1)).isFalse();
+  }
+
+  private boolean read(String word) {
+    int state = trie.start();
+    for (int i = 0; i < word.length(); i++) {
+      state = trie.next(state, word.charAt(i));
+    }
+    return trie.isKeyword(state);
+  }
+}
@@ -24,6 +24,9 @@ import static org.hamcrest.Matchers.not;
 import static org.junit.Assert.assertThat;
 import static org.sonar.colorizer.SyntaxHighlighterTestingHarness.highlight;
 
+import java.util.Arrays;
+import java.util.HashSet;
+
 import org.junit.Test;
 
 public class KeywordsTokenizerTest {
@@ -55,4 +58,17 @@ public class KeywordsTokenizerTest {
     assertThat(tokenizer, is(not(cloneTokenizer)));
     assertThat(highlight("public 1234", cloneTokenizer), is("<s>public</s> 1234"));
   }
+
+  @Test
+  public void testKeywordPrefixes() {
+    KeywordsTokenizer tokenizer = new KeywordsTokenizer("<s>", "</s>", "in", "int", "interface");
+    assertThat(highlight("i in int inte interface interfaces", tokenizer), is("i <s>in</s> <s>int</s> inte <s>interface</s> interfaces"));
+  }
+
+  @Test
+  public void testCustomRegexp() {
+    KeywordsTokenizer tokenizer = new KeywordsTokenizer("<s>", "</s>", new HashSet<String>(Arrays.asList("$foo")), "\\$[a-z]+");
+    assertThat(highlight("$foo foo $bar", tokenizer), is("<s>$foo</s> foo $bar"));
+    assertThat(highlight("$foo", tokenizer.clone()), is("<s>$foo</s>"));
+  }
 }
@@ -23,7 +23,14 @@ import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
 
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import com.google.common.collect.Lists;
 import org.junit.Test;
 import org.sonar.channel.Channel;
 import org.sonar.channel.CodeReader;
@@ -75,6 +82,53 @@ public class TokenizerDispatcherTest {
     colorization.colorize("source code");
   }
 
+  @Test
+  public void testCloneNotThreadSafeTokenizersOnEachCall() {
+    final AtomicInteger clones = new AtomicInteger();
+    NotThreadSafeTokenizer tokenizer = new NotThreadSafeTokenizer() {
+
+      @Override
+      public boolean consume(CodeReader code, HtmlCodeBuilder output) {
+        return false;
+      }
+
+      @Override
+      public NotThreadSafeTokenizer clone() {
+        clones.incrementAndGet();
+        return this;
+      }
+    };
+    TokenizerDispatcher colorization = newColorizer(tokenizer);
+    colorization.colorize("source code");
+    colorization.colorize("source code");
+    assertThat(clones.get(), is(2));
+  }
+
+  @Test
+  public void testConcurrentColorization() throws Exception {
+    final TokenizerDispatcher colorization = newColorizer(new KeywordsTokenizer("<k>", "</k>", "public"),
+        new RegexpTokenizer("<n>", "</n>", "[0-9]++"));
+    final StringBuilder code = new StringBuilder();
+    final StringBuilder expected = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      code.append("public ").append(i).append(" foo;");
+      expected.append("<k>public</k> <n>").append(i).append("</n> foo;");
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    List<Future<String>> results = Lists.newArrayList();
+    for (int i = 0; i < 20; i++) {
+      results.add(executor.submit(new Callable<String>() {
+        public String call() {
+          return colorization.colorize(code.toString());
+        }
+      }));
+    }
+    for (Future<String> result : results) {
+      assertThat(result.get(), is(expected.toString()));
+    }
+    executor.shutdown();
+  }
+
   private TokenizerDispatcher newColorizer(Channel<HtmlCodeBuilder>... tokenizers) {
     return new TokenizerDispatcher(Arrays.asList(tokenizers));
   }
@@ -0,0 +1,66 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.graph.binary;
+
+/**
+ * Compact binary serialization of graphs, stored in the table GRAPHS as an alternative to GraphSON. The format
+ * is identified by the columns "format" and "version", and by a header at the beginning of the data.
+ * <p/>
+ * Layout of version 1, in which all integers are variable-length (7 bits per byte) and signed values are
+ * zigzag-encoded :
+ * <ul>
+ *   <li>header : the bytes 'S', 'G' and the version</li>
+ *   <li>string table : number of strings, then length and UTF-8 bytes of each string. Other sections refer to
+ *   strings by their index in this table, so that labels and property keys are written once</li>
+ *   <li>vertices : number of vertices, column of ids, then columns of properties</li>
+ *   <li>edges : number of edges, column of ids, column of labels, column of indexes of out vertices, column of
+ *   indexes of in vertices, then columns of properties</li>
+ * </ul>
+ * Ids are written in their string form. Decimal ids are delta-encoded numbers, others refer to the string table.
+ * A column of properties is the key, then one value per element, starting with the type of value.
+ *
+ * @since 4.3
+ */
+public final class BinaryGraphFormat {
+
+  public static final String FORMAT = "binary";
+  public static final int VERSION = 1;
+
+  static final byte[] MAGIC = {'S', 'G'};
+
+  // types of property values
+  static final int ABSENT = 0;
+  static final int NULL = 1;
+  static final int TRUE = 2;
+  static final int FALSE = 3;
+  static final int INTEGER = 4;
+  static final int LONG = 5;
+  static final int FLOAT = 6;
+  static final int DOUBLE = 7;
+  static final int STRING = 8;
+  static final int LIST = 9;
+  static final int MAP = 10;
+  // list of integers, for example the lines of coverage blocks, stored as deltas
+  static final int INTEGER_LIST = 11;
+
+  private BinaryGraphFormat() {
+    // only constants
+  }
+}
@@ -0,0 +1,250 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.graph.binary;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Element;
+import com.tinkerpop.blueprints.Graph;
+import com.tinkerpop.blueprints.Vertex;
+import org.apache.commons.codec.binary.Base64;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+
+import static org.sonar.core.graph.binary.BinaryGraphFormat.*;
+
+/**
+ * Reads graphs written by {@link BinaryGraphWriter}. Ids of elements are given to the graph as strings.
+ *
+ * @since 4.3
+ */
+public class BinaryGraphReader {
+
+  /**
+   * @param data binary data encoded in Base64, as returned by {@link BinaryGraphWriter#write(Graph)}
+   */
+  public Graph read(String data, Graph toGraph) {
+    return read(new ByteArrayInputStream(Base64.decodeBase64(data)), toGraph);
+  }
+
+  /**
+   * The input stream is not closed.
+   */
+  public Graph read(InputStream input, Graph toGraph) {
+    try {
+      new Deserializer(new DataInputStream(new BufferedInputStream(input))).read(toGraph);
+      return toGraph;
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to read binary graph", e);
+    }
+  }
+
+  private static class Deserializer {
+    private final DataInputStream input;
+    private String[] strings;
+    private long previousNumericId = 0L;
+
+    Deserializer(DataInputStream input) {
+      this.input = input;
+    }
+
+    void read(Graph toGraph) throws IOException {
+      readHeader();
+      strings = new String[readCount()];
+      for (int i = 0; i < strings.length; i++) {
+        byte[] bytes = new byte[readCount()];
+        input.readFully(bytes);
+        strings[i] = new String(bytes, Charsets.UTF_8);
+      }
+
+      Vertex[] vertices = new Vertex[readCount()];
+      for (int i = 0; i < vertices.length; i++) {
+        vertices[i] = toGraph.addVertex(readId());
+      }
+      readProperties(vertices);
+
+      int edgeCount = readCount();
+      String[] ids = new String[edgeCount];
+      for (int i = 0; i < edgeCount; i++) {
+        ids[i] = readId();
+      }
+      String[] labels = new String[edgeCount];
+      for (int i = 0; i < edgeCount; i++) {
+        labels[i] = readString();
+      }
+      Vertex[] outVertices = new Vertex[edgeCount];
+      for (int i = 0; i < edgeCount; i++) {
+        outVertices[i] = vertices[readIndex(vertices.length)];
+      }
+      Edge[] edges = new Edge[edgeCount];
+      for (int i = 0; i < edgeCount; i++) {
+        edges[i] = toGraph.addEdge(ids[i], outVertices[i], vertices[readIndex(vertices.length)], labels[i]);
+      }
+      readProperties(edges);
+    }
+
+    private void readHeader() throws IOException {
+      byte[] magic = new byte[MAGIC.length];
+      input.readFully(magic);
+      if (magic[0] != MAGIC[0] || magic[1] != MAGIC[1]) {
+        throw new IllegalArgumentException("Data is not a binary graph");
+      }
+      int version = input.readUnsignedByte();
+      if (version != VERSION) {
+        throw new IllegalArgumentException("Unsupported version of binary graph: " + version);
+      }
+    }
+
+    private String readId() throws IOException {
+      long value = readUnsigned();
+      if ((value & 1L) == 0L) {
+        previousNumericId += unzigzag(value >>> 1);
+        return String.valueOf(previousNumericId);
+      }
+      return string(value >>> 1);
+    }
+
+    private void readProperties(Element[] elements) throws IOException {
+      int keys = readCount();
+      for (int k = 0; k < keys; k++) {
+        String key = readString();
+        for (Element element : elements) {
+          int type = input.readUnsignedByte();
+          if (type != ABSENT) {
+            element.setProperty(key, readValue(type));
+          }
+        }
+      }
+    }
+
+    private Object readValue(int type) throws IOException {
+      switch (type) {
+        case NULL:
+          return null;
+        case TRUE:
+          return Boolean.TRUE;
+        case FALSE:
+          return Boolean.FALSE;
+        case INTEGER:
+          return (int) unzigzag(readUnsigned());
+        case LONG:
+          return unzigzag(readUnsigned());
+        case FLOAT:
+          return input.readFloat();
+        case DOUBLE:
+          return input.readDouble();
+        case STRING:
+          return readString();
+        case LIST:
+          return readList();
+        case MAP:
+          return readMap();
+        case INTEGER_LIST:
+          return readIntegerList();
+        default:
+          throw new IllegalArgumentException("Unknown type of property value: " + type);
+      }
+    }
+
+    private List<Object> readList() throws IOException {
+      int size = readCount();
+      List<Object> list = Lists.newArrayListWithCapacity(size);
+      for (int i = 0; i < size; i++) {
+        list.add(readValue(input.readUnsignedByte()));
+      }
+      return list;
+    }
+
+    private List<Integer> readIntegerList() throws IOException {
+      int size = readCount();
+      List<Integer> list = Lists.newArrayListWithCapacity(size);
+      long value = 0L;
+      for (int i = 0; i < size; i++) {
+        value += unzigzag(readUnsigned());
+        list.add((int) value);
+      }
+      return list;
+    }
+
+    private Map<String, Object> readMap() throws IOException {
+      int size = readCount();
+      Map<String, Object> map = Maps.newHashMap();
+      for (int i = 0; i < size; i++) {
+        String key = readString();
+        map.put(key, readValue(input.readUnsignedByte()));
+      }
+      return map;
+    }
+
+    private String readString() throws IOException {
+      return string(readUnsigned());
+    }
+
+    private String string(long index) {
+      if (index >= strings.length) {
+        throw new IllegalArgumentException("Unknown string in binary graph: " + index);
+      }
+      return strings[(int) index];
+    }
+
+    private int readIndex(int size) throws IOException {
+      long index = readUnsigned();
+      if (index >= size) {
+        throw new IllegalArgumentException("Unknown vertex in binary graph: " + index);
+      }
+      return (int) index;
+    }
+
+    private int readCount() throws IOException {
+      long count = readUnsigned();
+      if (count > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException("Corrupted binary graph, invalid size: " + count);
+      }
+      return (int) count;
+    }
+
+    private long readUnsigned() throws IOException {
+      long value = 0L;
+      int shift = 0;
+      int b;
+      do {
+        if (shift > 63) {
+          throw new IllegalArgumentException("Corrupted binary graph, invalid number");
+        }
+        b = input.readUnsignedByte();
+        value |= (long) (b & 0x7F) << shift;
+        shift += 7;
+      } while ((b & 0x80) != 0);
+      return value;
+    }
+
+    private static long unzigzag(long value) {
+      return (value >>> 1) ^ -(value & 1L);
+    }
+  }
+}
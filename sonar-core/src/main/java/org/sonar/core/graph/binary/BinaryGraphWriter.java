@@ -0,0 +1,276 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.graph.binary;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Element;
+import com.tinkerpop.blueprints.Graph;
+import com.tinkerpop.blueprints.Vertex;
+import org.apache.commons.codec.binary.Base64;
+
+import javax.annotation.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Array;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.sonar.core.graph.binary.BinaryGraphFormat.*;
+
+/**
+ * Writes graphs in the format described by {@link BinaryGraphFormat}.
+ *
+ * @since 4.3
+ */
+public class BinaryGraphWriter {
+
+  // decimal ids up to 18 digits are lower than 2^60, so that their zigzag-encoded deltas fit in a long
+  private static final int MAX_NUMERIC_ID_LENGTH = 18;
+
+  /**
+   * @return the binary data encoded in Base64, to be stored in a text column
+   */
+  public String write(Graph graph) {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    write(graph, output);
+    return Base64.encodeBase64String(output.toByteArray());
+  }
+
+  /**
+   * The output stream is not closed.
+   */
+  public void write(Graph graph, OutputStream output) {
+    try {
+      new Serializer().write(graph, output);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to write binary graph", e);
+    }
+  }
+
+  /**
+   * Strings are registered while the body is written, so the string table is written after the header and
+   * before the body.
+   */
+  private static class Serializer {
+    private final Map<String, Integer> strings = Maps.newLinkedHashMap();
+    private final ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream();
+    private final DataOutputStream body = new DataOutputStream(bodyBytes);
+    private long previousNumericId = 0L;
+
+    void write(Graph graph, OutputStream output) throws IOException {
+      List<Vertex> vertices = Lists.newArrayList(graph.getVertices());
+      Map<Object, Integer> vertexIndexes = Maps.newHashMap();
+      writeUnsigned(body, vertices.size());
+      for (Vertex vertex : vertices) {
+        vertexIndexes.put(vertex.getId(), vertexIndexes.size());
+        writeId(vertex.getId());
+      }
+      writeProperties(vertices);
+
+      List<Edge> edges = Lists.newArrayList(graph.getEdges());
+      writeUnsigned(body, edges.size());
+      for (Edge edge : edges) {
+        writeId(edge.getId());
+      }
+      for (Edge edge : edges) {
+        writeUnsigned(body, stringIndex(edge.getLabel()));
+      }
+      for (Edge edge : edges) {
+        writeUnsigned(body, vertexIndex(vertexIndexes, edge, Direction.OUT));
+      }
+      for (Edge edge : edges) {
+        writeUnsigned(body, vertexIndex(vertexIndexes, edge, Direction.IN));
+      }
+      writeProperties(edges);
+      body.flush();
+
+      DataOutputStream data = new DataOutputStream(output);
+      data.write(MAGIC);
+      data.writeByte(VERSION);
+      writeUnsigned(data, strings.size());
+      for (String s : strings.keySet()) {
+        byte[] bytes = s.getBytes(Charsets.UTF_8);
+        writeUnsigned(data, bytes.length);
+        data.write(bytes);
+      }
+      bodyBytes.writeTo(data);
+      data.flush();
+    }
+
+    private static int vertexIndex(Map<Object, Integer> vertexIndexes, Edge edge, Direction direction) {
+      Integer index = vertexIndexes.get(edge.getVertex(direction).getId());
+      if (index == null) {
+        throw new IllegalStateException("Edge " + edge.getId() + " is linked to a vertex which is not in the graph");
+      }
+      return index;
+    }
+
+    private void writeId(@Nullable Object id) throws IOException {
+      String s = String.valueOf(id);
+      if (isNumeric(s)) {
+        long numericId = Long.parseLong(s);
+        writeUnsigned(body, zigzag(numericId - previousNumericId) << 1);
+        previousNumericId = numericId;
+      } else {
+        writeUnsigned(body, ((long) stringIndex(s) << 1) | 1L);
+      }
+    }
+
+    private static boolean isNumeric(String id) {
+      int length = id.length();
+      if (length == 0 || length > MAX_NUMERIC_ID_LENGTH || (length > 1 && id.charAt(0) == '0')) {
+        return false;
+      }
+      for (int i = 0; i < length; i++) {
+        char c = id.charAt(i);
+        if (c < '0' || c > '9') {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private void writeProperties(List<? extends Element> elements) throws IOException {
+      Set<String> keys = Sets.newLinkedHashSet();
+      for (Element element : elements) {
+        keys.addAll(element.getPropertyKeys());
+      }
+      writeUnsigned(body, keys.size());
+      for (String key : keys) {
+        writeUnsigned(body, stringIndex(key));
+        for (Element element : elements) {
+          if (element.getPropertyKeys().contains(key)) {
+            writeValue(key, element.getProperty(key));
+          } else {
+            body.writeByte(ABSENT);
+          }
+        }
+      }
+    }
+
+    private void writeValue(String key, @Nullable Object value) throws IOException {
+      if (value == null) {
+        body.writeByte(NULL);
+      } else if (value instanceof Boolean) {
+        body.writeByte((Boolean) value ? TRUE : FALSE);
+      } else if (value instanceof Integer) {
+        body.writeByte(INTEGER);
+        writeUnsigned(body, zigzag((Integer) value));
+      } else if (value instanceof Long) {
+        body.writeByte(LONG);
+        writeUnsigned(body, zigzag((Long) value));
+      } else if (value instanceof Float) {
+        body.writeByte(FLOAT);
+        body.writeFloat((Float) value);
+      } else if (value instanceof Double) {
+        body.writeByte(DOUBLE);
+        body.writeDouble((Double) value);
+      } else if (value instanceof String) {
+        body.writeByte(STRING);
+        writeUnsigned(body, stringIndex((String) value));
+      } else if (value instanceof List) {
+        writeList(key, (List) value);
+      } else if (value instanceof Map) {
+        writeMap(key, (Map<?, ?>) value);
+      } else if (value.getClass().isArray()) {
+        writeList(key, arrayToList(value));
+      } else {
+        throw new IllegalArgumentException("Type of property '" + key + "' is not supported: " + value.getClass().getName());
+      }
+    }
+
+    private void writeList(String key, List<?> list) throws IOException {
+      if (isIntegerList(list)) {
+        body.writeByte(INTEGER_LIST);
+        writeUnsigned(body, list.size());
+        long previous = 0L;
+        for (Object item : list) {
+          int i = (Integer) item;
+          writeUnsigned(body, zigzag(i - previous));
+          previous = i;
+        }
+      } else {
+        body.writeByte(LIST);
+        writeUnsigned(body, list.size());
+        for (Object item : list) {
+          writeValue(key, item);
+        }
+      }
+    }
+
+    private static boolean isIntegerList(List<?> list) {
+      for (Object item : list) {
+        if (!(item instanceof Integer)) {
+          return false;
+        }
+      }
+      return !list.isEmpty();
+    }
+
+    private void writeMap(String key, Map<?, ?> map) throws IOException {
+      body.writeByte(MAP);
+      writeUnsigned(body, map.size());
+      for (Map.Entry<?, ?> entry : map.entrySet()) {
+        writeUnsigned(body, stringIndex(String.valueOf(entry.getKey())));
+        writeValue(key, entry.getValue());
+      }
+    }
+
+    private static List<Object> arrayToList(Object array) {
+      int length = Array.getLength(array);
+      List<Object> list = Lists.newArrayListWithCapacity(length);
+      for (int i = 0; i < length; i++) {
+        list.add(Array.get(array, i));
+      }
+      return list;
+    }
+
+    private int stringIndex(String s) {
+      Integer index = strings.get(s);
+      if (index == null) {
+        index = strings.size();
+        strings.put(s, index);
+      }
+      return index;
+    }
+
+    private static long zigzag(long value) {
+      return (value << 1) ^ (value >> 63);
+    }
+
+    private static void writeUnsigned(DataOutputStream output, long value) throws IOException {
+      long remaining = value;
+      while ((remaining & ~0x7FL) != 0L) {
+        output.writeByte((int) ((remaining & 0x7F) | 0x80));
+        remaining >>>= 7;
+      }
+      output.writeByte((int) remaining);
+    }
+  }
+}
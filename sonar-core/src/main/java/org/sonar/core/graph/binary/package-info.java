@@ -17,28 +17,7 @@
  * along with this program; if not, write to the Free Software Foundation,
  * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
  */
-package org.sonar.plugins.core.batch;
+@ParametersAreNonnullByDefault
+package org.sonar.core.graph.binary;
 
-import org.sonar.core.DryRunIncompatible;
-import org.sonar.api.batch.PostJob;
-import org.sonar.api.batch.SensorContext;
-import org.sonar.api.resources.Project;
-import org.sonar.core.resource.ResourceIndexerDao;
-
-/**
- * @since 2.13
- */
-@DryRunIncompatible
-public class IndexProjectPostJob implements PostJob {
-  private ResourceIndexerDao indexer;
-
-  public IndexProjectPostJob(ResourceIndexerDao indexer) {
-    this.indexer = indexer;
-  }
-
-  public void executeOn(Project project, SensorContext context) {
-    if (project.getId() != null) {
-      indexer.indexProject(project.getId());
-    }
-  }
-}
+import javax.annotation.ParametersAreNonnullByDefault;
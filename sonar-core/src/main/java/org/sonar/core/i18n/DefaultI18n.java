@@ -20,7 +20,9 @@
 package org.sonar.core.i18n;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import org.apache.commons.io.IOUtils;
 import org.picocontainer.Startable;
 import org.slf4j.Logger;
@@ -41,6 +43,7 @@ import java.io.InputStream;
 import java.text.DateFormat;
 import java.text.MessageFormat;
 import java.util.*;
+import java.util.concurrent.ConcurrentMap;
 
 public class DefaultI18n implements I18n, ServerExtension, BatchExtension, Startable {
 
@@ -49,8 +52,8 @@ public class DefaultI18n implements I18n, ServerExtension, BatchExtension, Start
   public static final String BUNDLE_PACKAGE = "org.sonar.l10n.";
 
   private PluginRepository pluginRepository;
-  private I18nClassloader i18nClassloader;
-  private Map<String, String> propertyToBundles;
+  // null when stopped
+  private volatile Bundles bundles;
   private final ResourceBundle.Control control;
   private final System2 system2;
 
@@ -82,12 +85,11 @@ public class DefaultI18n implements I18n, ServerExtension, BatchExtension, Start
 
   @VisibleForTesting
   void doStart(I18nClassloader classloader) {
-    this.i18nClassloader = classloader;
-    propertyToBundles = Maps.newHashMap();
+    Map<String, String> propertyToBundles = Maps.newHashMap();
     for (PluginMetadata plugin : pluginRepository.getMetadata()) {
       try {
         String bundleKey = BUNDLE_PACKAGE + plugin.getKey();
-        ResourceBundle bundle = ResourceBundle.getBundle(bundleKey, Locale.ENGLISH, i18nClassloader, control);
+        ResourceBundle bundle = ResourceBundle.getBundle(bundleKey, Locale.ENGLISH, classloader, control);
         Enumeration<String> keys = bundle.getKeys();
         while (keys.hasMoreElements()) {
           String key = keys.nextElement();
@@ -97,31 +99,69 @@ public class DefaultI18n implements I18n, ServerExtension, BatchExtension, Start
         // ignore
       }
     }
+    // messages of the previous plugins, if any, are dropped
+    bundles = new Bundles(classloader, propertyToBundles);
     LOG.debug(String.format("Loaded %d properties from l10n bundles", propertyToBundles.size()));
   }
 
   @Override
   public void stop() {
-    i18nClassloader = null;
-    propertyToBundles = null;
+    bundles = null;
   }
 
   @CheckForNull
   public String message(Locale locale, String key, @Nullable String defaultValue, Object... parameters) {
-    String bundleKey = propertyToBundles.get(key);
-    String value = null;
-    if (bundleKey != null) {
+    LocaleMessages messages = messages(bundles, locale);
+    String value = messages.get(key);
+    if (value == null) {
+      return formatMessage(defaultValue, parameters);
+    }
+    if (parameters.length == 0) {
+      return value;
+    }
+    MessageFormat format = messages.getFormat(key);
+    if (format == null) {
+      return formatMessage(value, parameters);
+    }
+    // formats are not thread-safe, but cloning is cheaper than parsing the pattern again
+    return ((MessageFormat) format.clone()).format(parameters);
+  }
+
+  /**
+   * Messages of the given locale, loaded on first use. Lookups do not lock : tables are immutable and
+   * are built concurrently in the rare case of simultaneous first uses.
+   */
+  private LocaleMessages messages(Bundles current, Locale locale) {
+    LocaleMessages messages = current.messagesByLocale.get(locale);
+    if (messages == null) {
+      messages = loadMessages(current, locale);
+      LocaleMessages previous = current.messagesByLocale.putIfAbsent(locale, messages);
+      if (previous != null) {
+        messages = previous;
+      }
+    }
+    return messages;
+  }
+
+  private LocaleMessages loadMessages(Bundles current, Locale locale) {
+    Map<String, String> values = Maps.newHashMap();
+    for (String bundleKey : Sets.newHashSet(current.propertyToBundles.values())) {
       try {
-        ResourceBundle resourceBundle = ResourceBundle.getBundle(bundleKey, locale, i18nClassloader, control);
-        value = resourceBundle.getString(key);
-      } catch (MissingResourceException e1) {
+        ResourceBundle resourceBundle = ResourceBundle.getBundle(bundleKey, locale, current.classloader, control);
+        Enumeration<String> keys = resourceBundle.getKeys();
+        while (keys.hasMoreElements()) {
+          String key = keys.nextElement();
+          // a key defined by several plugins is read from the last one only
+          if (bundleKey.equals(current.propertyToBundles.get(key))) {
+            values.put(key, resourceBundle.getString(key));
+          }
+        }
+      } catch (MissingResourceException e) {
         // ignore
       }
     }
-    if (value == null) {
-      value = defaultValue;
-    }
-    return formatMessage(value, parameters);
+    LOG.debug(String.format("Loaded %d messages for locale %s", values.size(), locale));
+    return new LocaleMessages(values);
   }
 
   public String age(Locale locale, long durationInMillis) {
@@ -154,7 +194,8 @@ public class DefaultI18n implements I18n, ServerExtension, BatchExtension, Start
    */
   String messageFromFile(Locale locale, String filename, String relatedProperty) {
     String result = null;
-    String bundleBase = propertyToBundles.get(relatedProperty);
+    Bundles current = bundles;
+    String bundleBase = current.propertyToBundles.get(relatedProperty);
     if (bundleBase == null) {
       // this property has no translation
       return null;
@@ -165,7 +206,7 @@ public class DefaultI18n implements I18n, ServerExtension, BatchExtension, Start
       filePath += "_" + locale.getLanguage();
     }
     filePath += "/" + filename;
-    InputStream input = i18nClassloader.getResourceAsStream(filePath);
+    InputStream input = current.classloader.getResourceAsStream(filePath);
     if (input != null) {
       result = readInputStream(filePath, input);
     }
@@ -186,18 +227,71 @@ public class DefaultI18n implements I18n, ServerExtension, BatchExtension, Start
 
   @VisibleForTesting
   Set<String> getPropertyKeys() {
-    return propertyToBundles.keySet();
+    return bundles.propertyToBundles.keySet();
   }
 
   @CheckForNull
-  private String formatMessage(@Nullable String message, Object... parameters) {
+  private static String formatMessage(@Nullable String message, Object... parameters) {
     if (message == null || parameters.length == 0) {
       return message;
     }
-    return MessageFormat.format(message.replaceAll("'", "''"), parameters);
+    return MessageFormat.format(escapeQuotes(message), parameters);
+  }
+
+  private static String escapeQuotes(String message) {
+    return message.replaceAll("'", "''");
   }
 
   ClassLoader getBundleClassLoader() {
-    return i18nClassloader;
+    return bundles.classloader;
+  }
+
+  /**
+   * Bundles of the started plugins and the messages loaded from them. Published at once, so that lookups never
+   * see the classloader of some plugins and the keys of others.
+   */
+  private static final class Bundles {
+    private final I18nClassloader classloader;
+    private final Map<String, String> propertyToBundles;
+    private final ConcurrentMap<Locale, LocaleMessages> messagesByLocale = Maps.newConcurrentMap();
+
+    Bundles(I18nClassloader classloader, Map<String, String> propertyToBundles) {
+      this.classloader = classloader;
+      this.propertyToBundles = ImmutableMap.copyOf(propertyToBundles);
+    }
+  }
+
+  /**
+   * Immutable messages of a locale, including those inherited from the fallback locales. Patterns of messages
+   * with parameters are parsed once.
+   */
+  private static final class LocaleMessages {
+    private final Map<String, String> values;
+    private final Map<String, MessageFormat> formats;
+
+    LocaleMessages(Map<String, String> values) {
+      this.values = ImmutableMap.copyOf(values);
+      ImmutableMap.Builder<String, MessageFormat> formatsBuilder = ImmutableMap.builder();
+      for (Map.Entry<String, String> entry : values.entrySet()) {
+        if (entry.getValue().indexOf('{') >= 0) {
+          try {
+            formatsBuilder.put(entry.getKey(), new MessageFormat(escapeQuotes(entry.getValue())));
+          } catch (IllegalArgumentException e) {
+            // not a valid pattern. Error is raised only if parameters are given.
+          }
+        }
+      }
+      this.formats = formatsBuilder.build();
+    }
+
+    @CheckForNull
+    String get(String key) {
+      return values.get(key);
+    }
+
+    @CheckForNull
+    MessageFormat getFormat(String key) {
+      return formats.get(key);
+    }
   }
 }
@@ -20,7 +20,11 @@
 package org.sonar.core.issue.db;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.apache.ibatis.executor.BatchResult;
 import org.apache.ibatis.session.SqlSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.sonar.api.issue.Issue;
 import org.sonar.api.issue.IssueComment;
 import org.sonar.api.issue.internal.DefaultIssue;
@@ -31,9 +35,11 @@ import org.sonar.api.rules.RuleFinder;
 import org.sonar.core.persistence.BatchSession;
 import org.sonar.core.persistence.MyBatis;
 
+import java.sql.Statement;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Save issues into database. It is executed :
@@ -46,10 +52,19 @@ import java.util.List;
  */
 public abstract class IssueStorage {
 
+  private static final Logger LOG = LoggerFactory.getLogger(IssueStorage.class);
+
+  // Update counts are returned when statements are flushed. This size must be lower than BatchSession.MAX_BATCH_SIZE,
+  // otherwise statements are flushed by the automatic commit of the batch session and their update counts are lost.
+  static final int UPDATE_BATCH_SIZE = 200;
+
   private final MyBatis mybatis;
   private final RuleFinder ruleFinder;
   private final UpdateConflictResolver conflictResolver = new UpdateConflictResolver();
 
+  // false when the JDBC driver does not return the update counts of batched statements, for example Oracle 10g/11g
+  private volatile boolean batchUpdateCountsSupported = true;
+
   protected IssueStorage(MyBatis mybatis, RuleFinder ruleFinder) {
     this.mybatis = mybatis;
     this.ruleFinder = ruleFinder;
@@ -60,8 +75,6 @@ public abstract class IssueStorage {
   }
 
   public void save(Iterable<DefaultIssue> issues) {
-    // Batch session can not be used for updates. It does not return the number of updated rows,
-    // required for detecting conflicts.
     Date now = new Date();
     List<DefaultIssue> toBeUpdated = batchInsert(issues, now);
     update(toBeUpdated, now);
@@ -103,14 +116,114 @@ public abstract class IssueStorage {
 
   private void update(List<DefaultIssue> toBeUpdated, Date now) {
     if (!toBeUpdated.isEmpty()) {
-      SqlSession session = mybatis.openSession();
+      // Issues closed by scan or changed by end-user are always updated. Others are updated only if they have not been
+      // changed since being loaded by scan. The two kinds of statements are not mixed, so that each one is sent
+      // in a few JDBC batches.
+      List<IssueDto> unconditionalUpdates = Lists.newArrayList();
+      Map<IssueDto, DefaultIssue> conditionalUpdates = Maps.newLinkedHashMap();
+      for (DefaultIssue issue : toBeUpdated) {
+        IssueDto dto = IssueDto.toDtoForUpdate(issue, now);
+        if (Issue.STATUS_CLOSED.equals(issue.status()) || issue.selectedAt() == null) {
+          unconditionalUpdates.add(dto);
+        } else {
+          conditionalUpdates.put(dto, issue);
+        }
+      }
+
+      List<DefaultIssue> conflicts = Lists.newArrayList();
+      int batches = 0;
+      int unknownCounts = 0;
+      boolean batchedConditionalUpdates = batchUpdateCountsSupported;
+      SqlSession batchSession = mybatis.openBatchSession();
       try {
-        IssueMapper issueMapper = session.getMapper(IssueMapper.class);
-        IssueChangeMapper issueChangeMapper = session.getMapper(IssueChangeMapper.class);
+        IssueMapper issueMapper = batchSession.getMapper(IssueMapper.class);
+        if (batchedConditionalUpdates) {
+          for (List<IssueDto> dtos : Lists.partition(Lists.newArrayList(conditionalUpdates.keySet()), UPDATE_BATCH_SIZE)) {
+            for (IssueDto dto : dtos) {
+              issueMapper.updateIfBeforeSelectedDate(dto);
+            }
+            List<BatchResult> results = batchSession.flushStatements();
+            batches++;
+            unknownCounts = countUnknownUpdateCounts(results);
+            if (unknownCounts > 0) {
+              // Conditional updates are executed first, so nothing else is lost by the rollback
+              batchSession.rollback(true);
+              conflicts.clear();
+              batchedConditionalUpdates = false;
+              batchUpdateCountsSupported = false;
+              LOG.info("Update counts are not returned by the JDBC driver for batches. Issues that may have been changed " +
+                "by end-users are updated one by one.");
+              break;
+            }
+            collectConflicts(results, conditionalUpdates, conflicts);
+          }
+        }
+        for (List<IssueDto> dtos : Lists.partition(unconditionalUpdates, UPDATE_BATCH_SIZE)) {
+          for (IssueDto dto : dtos) {
+            issueMapper.update(dto);
+          }
+          batchSession.flushStatements();
+          batches++;
+        }
+
+        IssueChangeMapper issueChangeMapper = batchSession.getMapper(IssueChangeMapper.class);
         for (DefaultIssue issue : toBeUpdated) {
-          update(issueMapper, now, issue);
           insertChanges(issueChangeMapper, issue);
         }
+        batchSession.commit();
+      } finally {
+        MyBatis.closeQuietly(batchSession);
+      }
+      if (!batchedConditionalUpdates) {
+        updateOneByOne(conditionalUpdates, conflicts);
+      }
+      resolveConflicts(conflicts);
+      LOG.debug("{} issues updated in {} batches of at most {} statements, {} conflicts, {} statements with unknown update count",
+        toBeUpdated.size(), batches, UPDATE_BATCH_SIZE, conflicts.size(), unknownCounts);
+    }
+  }
+
+  private static int countUnknownUpdateCounts(List<BatchResult> results) {
+    int count = 0;
+    for (BatchResult result : results) {
+      for (int updateCount : result.getUpdateCounts()) {
+        if (updateCount == Statement.SUCCESS_NO_INFO) {
+          count++;
+        }
+      }
+    }
+    return count;
+  }
+
+  /**
+   * The issues that have not been updated because of a more recent change in database are conflicts.
+   */
+  private static void collectConflicts(List<BatchResult> results, Map<IssueDto, DefaultIssue> conditionalUpdates, List<DefaultIssue> conflicts) {
+    for (BatchResult result : results) {
+      List<Object> parameters = result.getParameterObjects();
+      int[] updateCounts = result.getUpdateCounts();
+      for (int i = 0; i < updateCounts.length; i++) {
+        DefaultIssue issue = conditionalUpdates.get(parameters.get(i));
+        if (issue != null && updateCounts[i] == 0) {
+          conflicts.add(issue);
+        }
+      }
+    }
+  }
+
+  /**
+   * Used when the JDBC driver does not return the number of rows updated by the statements of a batch
+   */
+  private void updateOneByOne(Map<IssueDto, DefaultIssue> conditionalUpdates, List<DefaultIssue> conflicts) {
+    if (!conditionalUpdates.isEmpty()) {
+      SqlSession session = mybatis.openSession();
+      try {
+        IssueMapper issueMapper = session.getMapper(IssueMapper.class);
+        for (Map.Entry<IssueDto, DefaultIssue> entry : conditionalUpdates.entrySet()) {
+          if (issueMapper.updateIfBeforeSelectedDate(entry.getKey()) == 0) {
+            conflicts.add(entry.getValue());
+          }
+        }
         session.commit();
       } finally {
         MyBatis.closeQuietly(session);
@@ -118,18 +231,19 @@ public abstract class IssueStorage {
     }
   }
 
-  private void update(IssueMapper issueMapper, Date now, DefaultIssue issue) {
-    IssueDto dto = IssueDto.toDtoForUpdate(issue, now);
-    if (Issue.STATUS_CLOSED.equals(issue.status()) || issue.selectedAt() == null) {
-      // Issue is closed by scan or changed by end-user
-      issueMapper.update(dto);
-
-    } else {
-      int count = issueMapper.updateIfBeforeSelectedDate(dto);
-      if (count == 0) {
-        // End-user and scan changed the issue at the same time.
-        // See https://jira.codehaus.org/browse/SONAR-4309
-        conflictResolver.resolve(issue, issueMapper);
+  private void resolveConflicts(List<DefaultIssue> conflicts) {
+    if (!conflicts.isEmpty()) {
+      SqlSession session = mybatis.openSession();
+      try {
+        IssueMapper issueMapper = session.getMapper(IssueMapper.class);
+        for (DefaultIssue issue : conflicts) {
+          // End-user and scan changed the issue at the same time.
+          // See https://jira.codehaus.org/browse/SONAR-4309
+          conflictResolver.resolve(issue, issueMapper);
+        }
+        session.commit();
+      } finally {
+        MyBatis.closeQuietly(session);
       }
     }
   }
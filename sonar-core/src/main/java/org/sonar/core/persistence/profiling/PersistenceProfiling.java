@@ -23,20 +23,57 @@ import org.apache.commons.dbcp.BasicDataSource;
 import org.sonar.api.config.Settings;
 import org.sonar.core.profiling.Profiling;
 
+import javax.sql.DataSource;
+
 /**
  * @since 4.2
  */
 public final class PersistenceProfiling {
 
+  /**
+   * Minimum duration in milliseconds of the SQL statements logged when profiling level is FULL. Default is 0, all
+   * the statements are logged.
+   * @since 4.3
+   */
+  public static final String SQL_LOG_THRESHOLD_PROPERTY = "sonar.log.profilingSqlThreshold";
+
+  /**
+   * Period in seconds between two logs of the SQL statistics. Default is 0, statistics are logged only when
+   * the datasource is closed or when {@link #logStatistics(DataSource)} is called.
+   * @since 4.3
+   */
+  public static final String SQL_SUMMARY_PERIOD_PROPERTY = "sonar.log.profilingSqlSummaryPeriod";
+
   private PersistenceProfiling() {
     // Static stuff only
   }
 
+  /**
+   * Statistics of SQL statements are aggregated as soon as profiling is enabled. Statements are logged
+   * individually only with the level FULL.
+   */
   public static BasicDataSource addProfilingIfNeeded(BasicDataSource datasource, Settings settings) {
     Profiling.Level level = Profiling.Level.fromConfigString(settings.getString(Profiling.CONFIG_PROFILING_LEVEL));
-    if (level == Profiling.Level.FULL) {
-      return new ProfilingDataSource(datasource);
+    if (level == Profiling.Level.NONE) {
+      return datasource;
+    }
+    long logThreshold = level == Profiling.Level.FULL ? settings.getLong(SQL_LOG_THRESHOLD_PROPERTY) : SqlProfiling.NOT_LOGGED;
+    ProfilingDataSource profilingDataSource = new ProfilingDataSource(datasource, new SqlProfiling(logThreshold));
+    long summaryPeriod = settings.getLong(SQL_SUMMARY_PERIOD_PROPERTY);
+    if (summaryPeriod > 0L) {
+      profilingDataSource.scheduleSummaries(summaryPeriod);
+    }
+    return profilingDataSource;
+  }
+
+  /**
+   * Logs the statistics of the SQL statements executed so far. Does nothing if profiling is disabled. Called
+   * from the system info page of the server.
+   * @since 4.3
+   */
+  public static void logStatistics(DataSource datasource) {
+    if (datasource instanceof ProfilingDataSource) {
+      ((ProfilingDataSource) datasource).getProfiling().logSummary();
     }
-    return datasource;
   }
 }
@@ -29,9 +29,11 @@ import java.sql.Statement;
 class ProfilingConnectionHandler implements InvocationHandler {
 
   private final Connection connection;
+  private final SqlProfiling profiling;
 
-  ProfilingConnectionHandler(Connection connection) {
+  ProfilingConnectionHandler(Connection connection, SqlProfiling profiling) {
     this.connection = connection;
+    this.profiling = profiling;
   }
 
   @Override
@@ -41,12 +43,12 @@ class ProfilingConnectionHandler implements InvocationHandler {
       PreparedStatement statement = (PreparedStatement) result;
       String sql = (String) args[0];
       return Proxy.newProxyInstance(ProfilingConnectionHandler.class.getClassLoader(), new Class[] { PreparedStatement.class },
-        new ProfilingPreparedStatementHandler(statement, sql));
+        new ProfilingPreparedStatementHandler(statement, sql, profiling));
 
     } else if ("createStatement".equals(method.getName())) {
       Statement statement = (Statement) result;
       return Proxy.newProxyInstance(ProfilingConnectionHandler.class.getClassLoader(), new Class[] { Statement.class },
-        new ProfilingStatementHandler(statement));
+        new ProfilingStatementHandler(statement, profiling));
 
     } else {
       return result;
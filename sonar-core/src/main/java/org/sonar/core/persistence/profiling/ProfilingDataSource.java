@@ -19,6 +19,7 @@
  */
 package org.sonar.core.persistence.profiling;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.commons.dbcp.BasicDataSource;
 
 import java.io.PrintWriter;
@@ -26,13 +27,35 @@ import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.Collection;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 class ProfilingDataSource extends BasicDataSource {
 
   private final BasicDataSource delegate;
+  private final SqlProfiling profiling;
+  private ScheduledExecutorService summaryExecutor;
 
-  public ProfilingDataSource(BasicDataSource delegate) {
+  public ProfilingDataSource(BasicDataSource delegate, SqlProfiling profiling) {
     this.delegate = delegate;
+    this.profiling = profiling;
+  }
+
+  SqlProfiling getProfiling() {
+    return profiling;
+  }
+
+  synchronized void scheduleSummaries(long periodInSeconds) {
+    if (summaryExecutor == null) {
+      summaryExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("sql-profiling-%d").setDaemon(true).build());
+      summaryExecutor.scheduleAtFixedRate(new Runnable() {
+        @Override
+        public void run() {
+          profiling.logSummary();
+        }
+      }, periodInSeconds, periodInSeconds, TimeUnit.SECONDS);
+    }
   }
 
   @Override
@@ -308,13 +331,13 @@ class ProfilingDataSource extends BasicDataSource {
   @Override
   public Connection getConnection() throws SQLException {
     return (Connection) Proxy.newProxyInstance(this.getClass().getClassLoader(), new Class[] { Connection.class },
-        new ProfilingConnectionHandler(delegate.getConnection()));
+        new ProfilingConnectionHandler(delegate.getConnection(), profiling));
   }
 
   @Override
   public Connection getConnection(String user, String pass) throws SQLException {
     return (Connection) Proxy.newProxyInstance(this.getClass().getClassLoader(), new Class[] { Connection.class },
-        new ProfilingConnectionHandler(delegate.getConnection(user, pass)));
+        new ProfilingConnectionHandler(delegate.getConnection(user, pass), profiling));
   }
 
   @Override
@@ -384,6 +407,11 @@ class ProfilingDataSource extends BasicDataSource {
 
   @Override
   public synchronized void close() throws SQLException {
+    if (summaryExecutor != null) {
+      summaryExecutor.shutdownNow();
+      summaryExecutor = null;
+    }
+    profiling.logSummary();
     delegate.close();
   }
 
@@ -19,59 +19,80 @@
  */
 package org.sonar.core.persistence.profiling;
 
-import com.google.common.collect.Lists;
 import org.apache.commons.lang.StringUtils;
-import org.sonar.core.profiling.StopWatch;
 
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.sql.PreparedStatement;
-import java.util.List;
+import java.util.Arrays;
 
 class ProfilingPreparedStatementHandler implements InvocationHandler {
 
   private static final String PARAM_PREFIX = "<";
   private static final String PARAM_SUFFIX = ">";
   private static final String PARAM_SEPARATOR = ", ";
-  private static final SqlProfiling PROFILING = new SqlProfiling();
+  private static final String UNSET_PARAM = "!";
 
   private final PreparedStatement statement;
-  private final List<Object> arguments;
   private final String sql;
+  private final SqlProfiling profiling;
 
-  ProfilingPreparedStatementHandler(PreparedStatement statement, String sql) {
+  // only kept when statements can be logged
+  private Object[] arguments;
+
+  ProfilingPreparedStatementHandler(PreparedStatement statement, String sql, SqlProfiling profiling) {
     this.statement = statement;
     this.sql = sql;
-    this.arguments = Lists.newArrayList();
-    for (int argCount = 0; argCount < StringUtils.countMatches(sql, "?"); argCount ++) {
-      arguments.add("!");
-    }
+    this.profiling = profiling;
   }
 
   @Override
   public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
     if (method.getName().startsWith("execute")) {
-      StopWatch watch = PROFILING.start();
+      long start = System.nanoTime();
       Object result = null;
       try {
         result = InvocationUtils.invokeQuietly(statement, method, args);
       } finally {
-        StringBuilder sqlBuilder = new StringBuilder().append(sql);
-        if (!arguments.isEmpty()) {
-          sqlBuilder.append(" - parameters are: ");
-          for (Object arg: arguments) {
-            sqlBuilder.append(PARAM_PREFIX).append(arg).append(PARAM_SUFFIX).append(PARAM_SEPARATOR);
-          }
+        long duration = profiling.stop(start, sql, result);
+        if (profiling.isLogged(duration)) {
+          profiling.log(duration, sqlWithArguments());
         }
-        PROFILING.stop(watch, StringUtils.removeEnd(sqlBuilder.toString(), PARAM_SEPARATOR));
       }
       return result;
-    } else if (method.getName().startsWith("set") && args.length > 1) {
-      arguments.set((Integer) args[0] - 1, args[1]);
+    } else if (method.getName().startsWith("set") && args != null && args.length > 1 && profiling.isLoggingEnabled()) {
+      setArgument((Integer) args[0] - 1, args[1]);
       return InvocationUtils.invokeQuietly(statement, method, args);
     } else {
       return InvocationUtils.invokeQuietly(statement, method, args);
     }
   }
 
+  private void setArgument(int index, Object value) {
+    if (arguments == null) {
+      arguments = new Object[Math.max(index + 1, 8)];
+      Arrays.fill(arguments, UNSET_PARAM);
+    } else if (index >= arguments.length) {
+      int previousLength = arguments.length;
+      arguments = Arrays.copyOf(arguments, Math.max(index + 1, previousLength * 2));
+      Arrays.fill(arguments, previousLength, arguments.length, UNSET_PARAM);
+    }
+    arguments[index] = value;
+  }
+
+  private String sqlWithArguments() {
+    int parameters = StringUtils.countMatches(sql, "?");
+    if (parameters == 0) {
+      return sql;
+    }
+    StringBuilder sqlBuilder = new StringBuilder().append(sql).append(" - parameters are: ");
+    for (int index = 0; index < parameters; index++) {
+      if (index > 0) {
+        sqlBuilder.append(PARAM_SEPARATOR);
+      }
+      Object argument = arguments != null && index < arguments.length ? arguments[index] : UNSET_PARAM;
+      sqlBuilder.append(PARAM_PREFIX).append(argument).append(PARAM_SUFFIX);
+    }
+    return sqlBuilder.toString();
+  }
 }
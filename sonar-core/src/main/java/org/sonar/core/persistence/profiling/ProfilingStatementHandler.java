@@ -19,31 +19,35 @@
  */
 package org.sonar.core.persistence.profiling;
 
-import org.sonar.core.profiling.StopWatch;
-
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.sql.Statement;
 
 class ProfilingStatementHandler implements InvocationHandler {
 
-  private static final SqlProfiling PROFILING = new SqlProfiling();
+  private static final String BATCH = "<batch>";
 
   private final Statement statement;
+  private final SqlProfiling profiling;
 
-  ProfilingStatementHandler(Statement statement) {
+  ProfilingStatementHandler(Statement statement, SqlProfiling profiling) {
     this.statement = statement;
+    this.profiling = profiling;
   }
 
   @Override
   public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
     if (method.getName().startsWith("execute")) {
-      StopWatch watch = PROFILING.start();
+      String sql = args != null && args.length > 0 ? (String) args[0] : BATCH;
+      long start = System.nanoTime();
       Object result = null;
       try {
         result = InvocationUtils.invokeQuietly(statement, method, args);
       } finally {
-        PROFILING.stop(watch, (String) args[0]);
+        long duration = profiling.stop(start, sql, result);
+        if (profiling.isLogged(duration)) {
+          profiling.log(duration, sql);
+        }
       }
       return result;
     } else {
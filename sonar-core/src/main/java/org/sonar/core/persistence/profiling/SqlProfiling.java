@@ -19,26 +19,75 @@
  */
 package org.sonar.core.persistence.profiling;
 
-import org.sonar.api.config.Settings;
-import org.sonar.core.profiling.Profiling;
-import org.sonar.core.profiling.Profiling.Level;
-import org.sonar.core.profiling.StopWatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aggregates statistics of all the executed statements. Statements slower than the threshold are also logged,
+ * with their parameters. Parameters are rendered only for the logged statements.
+ */
 class SqlProfiling {
 
-  private final Profiling profiling;
+  static final long NOT_LOGGED = -1L;
+  private static final int MAX_SUMMARY_STATEMENTS = 20;
+  private static final Logger LOG = LoggerFactory.getLogger("sql");
+
+  private final SqlStatistics statistics = new SqlStatistics();
+  private final long logThresholdNanos;
+
+  /**
+   * @param logThresholdMillis minimum duration of the statements to be logged, or a negative value to log none
+   */
+  SqlProfiling(long logThresholdMillis) {
+    this.logThresholdNanos = logThresholdMillis < 0L ? NOT_LOGGED : TimeUnit.MILLISECONDS.toNanos(logThresholdMillis);
+  }
+
+  boolean isLoggingEnabled() {
+    return logThresholdNanos != NOT_LOGGED;
+  }
+
+  boolean isLogged(long durationNanos) {
+    return isLoggingEnabled() && durationNanos >= logThresholdNanos;
+  }
+
+  /**
+   * @return the duration of the execution started at {@code startNanos}
+   */
+  long stop(long startNanos, String sql, @Nullable Object result) {
+    long durationNanos = System.nanoTime() - startNanos;
+    statistics.add(sql, durationNanos, countRows(result));
+    return durationNanos;
+  }
+
+  void log(long durationNanos, String sql) {
+    LOG.info("{}ms Executed SQL: {}", TimeUnit.NANOSECONDS.toMillis(durationNanos), sql.replaceAll("\\s+", " "));
+  }
 
-  SqlProfiling() {
-    Settings settings = new Settings();
-    settings.setProperty(Profiling.CONFIG_PROFILING_LEVEL, Profiling.Level.FULL.toString());
-    profiling = new Profiling(settings);
+  void logSummary() {
+    LOG.info(statistics.summary(MAX_SUMMARY_STATEMENTS));
   }
 
-  StopWatch start() {
-    return profiling.start("sql", Level.FULL);
+  SqlStatistics getStatistics() {
+    return statistics;
   }
 
-  void stop(StopWatch watch, String sql) {
-    watch.stop(String.format("Executed SQL: %s", sql.replaceAll("\\s+", " ")));
+  private static long countRows(@Nullable Object result) {
+    if (result instanceof Integer) {
+      return (Integer) result;
+    }
+    if (result instanceof int[]) {
+      long rows = 0L;
+      for (int count : (int[]) result) {
+        if (count > 0) {
+          rows += count;
+        }
+      }
+      return rows;
+    }
+    return 0L;
   }
 }
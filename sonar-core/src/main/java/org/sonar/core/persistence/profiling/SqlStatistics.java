@@ -0,0 +1,154 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.persistence.profiling;
+
+import com.google.common.collect.Lists;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executions of SQL statements aggregated by SQL text. Counters are updated without locking, so that
+ * statistics can be collected on production servers.
+ *
+ * @since 4.3
+ */
+class SqlStatistics {
+
+  // statements with inlined values could otherwise fill the memory
+  static final int MAX_STATEMENTS = 5000;
+  static final String OTHER_STATEMENTS = "<other statements>";
+
+  private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+  void add(String sql, long durationNanos, long rows) {
+    entry(sql).add(durationNanos, rows);
+  }
+
+  private Entry entry(String sql) {
+    Entry entry = entries.get(sql);
+    if (entry == null) {
+      String key = entries.size() < MAX_STATEMENTS ? sql : OTHER_STATEMENTS;
+      Entry newEntry = new Entry(key);
+      entry = entries.putIfAbsent(key, newEntry);
+      if (entry == null) {
+        entry = newEntry;
+      }
+    }
+    return entry;
+  }
+
+  /**
+   * @return a snapshot of the statistics, sorted by decreasing total duration
+   */
+  List<Entry> entries() {
+    List<Entry> result = Lists.newArrayList(entries.values());
+    Collections.sort(result, new Comparator<Entry>() {
+      @Override
+      public int compare(Entry e1, Entry e2) {
+        long t1 = e1.getTotalNanos();
+        long t2 = e2.getTotalNanos();
+        return t1 < t2 ? 1 : (t1 == t2 ? 0 : -1);
+      }
+    });
+    return result;
+  }
+
+  void clear() {
+    entries.clear();
+  }
+
+  String summary(int maxStatements) {
+    List<Entry> sorted = entries();
+    long executions = 0L;
+    long totalNanos = 0L;
+    for (Entry entry : sorted) {
+      executions += entry.getExecutions();
+      totalNanos += entry.getTotalNanos();
+    }
+    StringBuilder sb = new StringBuilder();
+    sb.append("SQL statistics: ").append(sorted.size()).append(" statements, ")
+      .append(executions).append(" executions, ").append(toMillis(totalNanos)).append("ms");
+    for (Entry entry : sorted.subList(0, Math.min(maxStatements, sorted.size()))) {
+      sb.append("\n  ").append(toMillis(entry.getTotalNanos())).append("ms total, ")
+        .append(entry.getExecutions()).append(" executions, ")
+        .append(toMillis(entry.getMaxNanos())).append("ms max, ")
+        .append(entry.getRows()).append(" rows: ")
+        .append(entry.getSql());
+    }
+    return sb.toString();
+  }
+
+  private static long toMillis(long nanos) {
+    return TimeUnit.NANOSECONDS.toMillis(nanos);
+  }
+
+  static final class Entry {
+    private final String sql;
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final AtomicLong rows = new AtomicLong();
+
+    private Entry(String sql) {
+      this.sql = sql;
+    }
+
+    private void add(long durationNanos, long rowCount) {
+      executions.incrementAndGet();
+      totalNanos.addAndGet(durationNanos);
+      if (rowCount > 0L) {
+        rows.addAndGet(rowCount);
+      }
+      long max = maxNanos.get();
+      while (durationNanos > max && !maxNanos.compareAndSet(max, durationNanos)) {
+        max = maxNanos.get();
+      }
+    }
+
+    String getSql() {
+      return sql;
+    }
+
+    long getExecutions() {
+      return executions.get();
+    }
+
+    long getTotalNanos() {
+      return totalNanos.get();
+    }
+
+    long getMaxNanos() {
+      return maxNanos.get();
+    }
+
+    /**
+     * Rows updated by INSERT, UPDATE and DELETE statements. Rows returned by queries are not counted.
+     */
+    long getRows() {
+      return rows.get();
+    }
+  }
+}
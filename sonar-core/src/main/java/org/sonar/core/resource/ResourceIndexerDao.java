@@ -27,6 +27,10 @@ import org.sonar.api.resources.Qualifiers;
 import org.sonar.api.resources.Scopes;
 import org.sonar.core.persistence.MyBatis;
 
+import javax.annotation.CheckForNull;
+
+import java.util.List;
+
 public class ResourceIndexerDao {
 
   private static final String SELECT_RESOURCES = "org.sonar.core.resource.ResourceIndexerMapper.selectResources";
@@ -39,6 +43,9 @@ public class ResourceIndexerDao {
   private static final String[] RENAMABLE_SCOPES = {Scopes.PROJECT};
   private static final String[] NOT_RENAMABLE_QUALIFIERS = {Qualifiers.FILE, Qualifiers.UNIT_TEST_FILE, Qualifiers.CLASS};
   private static final String[] NOT_RENAMABLE_SCOPES = {Scopes.FILE};
+  private static final String[] INDEXED_QUALIFIERS = {Qualifiers.PROJECT, Qualifiers.MODULE, Qualifiers.VIEW, Qualifiers.SUBVIEW,
+    Qualifiers.FILE, Qualifiers.UNIT_TEST_FILE, Qualifiers.CLASS};
+  private static final String[] INDEXED_SCOPES = {Scopes.PROJECT, Scopes.FILE};
 
   private final MyBatis mybatis;
 
@@ -48,7 +55,10 @@ public class ResourceIndexerDao {
 
   /**
    * This method is reentrant. It can be executed even if the project is already indexed.
+   *
+   * @deprecated since 4.3 the table RESOURCE_INDEX is not read anymore. Components are searched with the in-memory index of server.
    */
+  @Deprecated
   public ResourceIndexerDao indexProject(final int rootProjectId) {
     SqlSession session = mybatis.openBatchSession();
     try {
@@ -64,7 +74,10 @@ public class ResourceIndexerDao {
 
   /**
    * This method is reentrant. It can be executed even if some projects are already indexed.
+   *
+   * @deprecated since 4.3 the table RESOURCE_INDEX is not read anymore
    */
+  @Deprecated
   public ResourceIndexerDao indexProjects() {
     final SqlSession session = mybatis.openBatchSession();
     try {
@@ -99,7 +112,7 @@ public class ResourceIndexerDao {
     });
 
     // some resources can be renamed, so index must be regenerated
-    // -> delete existing rows and create them again
+    // -> delete existing rows and create them again, only if name has changed
     query = ResourceIndexerQuery.create()
       .setNonIndexedOnly(false)
       .setQualifiers(RENAMABLE_QUALIFIERS)
@@ -109,13 +122,65 @@ public class ResourceIndexerDao {
     session.select(SELECT_RESOURCES, query, new ResultHandler() {
       public void handleResult(ResultContext context) {
         ResourceDto resource = (ResourceDto) context.getResultObject();
-
-        mapper.deleteByResourceId(resource.getId());
-        doIndex(resource, mapper);
+        if (sanitizeIndex(resource.getId(), nameToKey(resource.getName()), mapper)) {
+          doIndex(resource, mapper);
+        }
       }
     });
   }
 
+  /**
+   * Enabled resources of the last analysis of a root project that can be searched by name, whether
+   * they are already indexed in the table RESOURCE_INDEX or not.
+   *
+   * @since 4.3
+   */
+  public List<ResourceDto> selectIndexableResources(long rootProjectId) {
+    ResourceIndexerQuery query = ResourceIndexerQuery.create()
+      .setNonIndexedOnly(false)
+      .setQualifiers(INDEXED_QUALIFIERS)
+      .setScopes(INDEXED_SCOPES)
+      .setRootProjectId((int) rootProjectId);
+    SqlSession session = mybatis.openSession();
+    try {
+      return session.selectList(SELECT_RESOURCES, query);
+    } finally {
+      MyBatis.closeQuietly(session);
+    }
+  }
+
+  /**
+   * The ids of the last snapshots of modules and sub-views, grouped by root project. The highest id changes
+   * each time a project or a view is analyzed again.
+   *
+   * @since 4.3
+   */
+  public List<SnapshotDto> selectRootProjectLastSnapshots() {
+    SqlSession session = mybatis.openSession();
+    try {
+      return session.getMapper(ResourceIndexerMapper.class).selectRootProjectLastSnapshots();
+    } finally {
+      MyBatis.closeQuietly(session);
+    }
+  }
+
+  /**
+   * @since 4.3
+   */
+  @CheckForNull
+  public ResourceDto selectResourceToIndex(long id) {
+    SqlSession session = mybatis.openSession();
+    try {
+      ResourceDto resource = session.getMapper(ResourceIndexerMapper.class).selectResourceToIndex(id);
+      if (resource != null && resource.getRootId() == null) {
+        resource.setRootId(resource.getId());
+      }
+      return resource;
+    } finally {
+      MyBatis.closeQuietly(session);
+    }
+  }
+
   void doIndex(ResourceDto resource, ResourceIndexerMapper mapper) {
     String key = nameToKey(resource.getName());
     if (key.length() >= MINIMUM_KEY_SIZE || key.length() == SINGLE_INDEX_SIZE) {
@@ -123,6 +188,10 @@ public class ResourceIndexerDao {
     }
   }
 
+  /**
+   * @deprecated since 4.3 the table RESOURCE_INDEX is not read anymore
+   */
+  @Deprecated
   public boolean indexResource(long id) {
     boolean indexed = false;
     SqlSession session = mybatis.openSession();
@@ -142,6 +211,10 @@ public class ResourceIndexerDao {
     }
   }
 
+  /**
+   * @deprecated since 4.3 the table RESOURCE_INDEX is not read anymore
+   */
+  @Deprecated
   public boolean indexResource(int id, String name, String qualifier, int rootId) {
     boolean indexed = false;
     SqlSession session = mybatis.openSession();
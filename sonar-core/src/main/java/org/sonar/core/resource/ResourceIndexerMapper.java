@@ -19,8 +19,12 @@
  */
 package org.sonar.core.resource;
 
+import java.util.List;
+
 public interface ResourceIndexerMapper {
 
+  List<SnapshotDto> selectRootProjectLastSnapshots();
+
   ResourceIndexDto selectMasterIndexByResourceId(long resourceId);
 
   ResourceDto selectResourceToIndex(long resourceId);
@@ -102,6 +102,14 @@ public class RuleDao implements BatchComponent, ServerComponent {
     }
   }
 
+  public List<RuleDto> selectByIds(Collection<Integer> ids, SqlSession session) {
+    List<RuleDto> dtos = newArrayList();
+    for (List<Integer> partition : Lists.partition(newArrayList(ids), 1000)) {
+      dtos.addAll(getMapper(session).selectByIds(partition));
+    }
+    return dtos;
+  }
+
   @CheckForNull
   public RuleDto selectByKey(RuleKey ruleKey, SqlSession session) {
     return getMapper(session).selectByKey(ruleKey);
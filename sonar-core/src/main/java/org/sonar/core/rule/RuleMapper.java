@@ -35,6 +35,8 @@ public interface RuleMapper {
 
   RuleDto selectById(Integer id);
 
+  List<RuleDto> selectByIds(@Param("ids") List<Integer> ids);
+
   RuleDto selectByKey(RuleKey ruleKey);
 
   RuleDto selectByName(String name);
@@ -0,0 +1,237 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.source;
+
+import com.google.common.base.Charsets;
+import org.apache.commons.codec.binary.Base64;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compact serialization of syntax and symbol highlighting, stored in the table SNAPSHOT_DATA. Offsets are
+ * delta-encoded as variable-length integers and the types of syntax highlighting are written once in a dictionary.
+ * The binary payload is encoded in Base64 so that it fits the text column, and is prefixed by {@link #MARKER}
+ * and the format version. Data stored by previous versions is the plain text "start,end,type;..." for syntax
+ * highlighting and "declarationStart,declarationEnd,reference1,reference2,...;..." for symbols, which never
+ * starts with {@link #MARKER}.
+ *
+ * @since 4.3
+ */
+public final class HighlightingDataFormat {
+
+  public static final char MARKER = '#';
+  public static final char VERSION = '1';
+
+  private HighlightingDataFormat() {
+    // only static methods
+  }
+
+  public interface SyntaxHighlightingHandler {
+    void onRule(int startOffset, int endOffset, String textType);
+  }
+
+  public interface SymbolHandler {
+    /**
+     * @param references the start offsets of the occurrences of the symbol, including its declaration
+     */
+    void onSymbol(int declarationStartOffset, int declarationEndOffset, int[] references);
+  }
+
+  /**
+   * @return true if the data has been written by this class, false if it has the legacy text format
+   */
+  public static boolean isCompact(String data) {
+    return data.length() >= 2 && data.charAt(0) == MARKER;
+  }
+
+  public static String writeSyntaxHighlighting(int[] startOffsets, int[] endOffsets, String[] textTypes) {
+    Map<String, Integer> indexByType = new LinkedHashMap<String, Integer>();
+    for (String textType : textTypes) {
+      if (!indexByType.containsKey(textType)) {
+        indexByType.put(textType, indexByType.size());
+      }
+    }
+    Output output = new Output(16 + 3 * startOffsets.length);
+    output.writeUnsigned(indexByType.size());
+    for (String textType : indexByType.keySet()) {
+      byte[] bytes = textType.getBytes(Charsets.UTF_8);
+      output.writeUnsigned(bytes.length);
+      output.write(bytes);
+    }
+    output.writeUnsigned(startOffsets.length);
+    int previousStartOffset = 0;
+    for (int i = 0; i < startOffsets.length; i++) {
+      output.writeSigned(startOffsets[i] - previousStartOffset);
+      output.writeUnsigned(endOffsets[i] - startOffsets[i]);
+      output.writeUnsigned(indexByType.get(textTypes[i]));
+      previousStartOffset = startOffsets[i];
+    }
+    return output.encode();
+  }
+
+  /**
+   * @param symbols for each symbol : start and end offsets of the declaration, then start offsets of the references
+   */
+  public static String writeSymbols(int[][] symbols) {
+    Output output = new Output(16 + 8 * symbols.length);
+    output.writeUnsigned(symbols.length);
+    int previousDeclarationStartOffset = 0;
+    for (int[] symbol : symbols) {
+      int declarationStartOffset = symbol[0];
+      output.writeSigned(declarationStartOffset - previousDeclarationStartOffset);
+      output.writeUnsigned(symbol[1] - declarationStartOffset);
+      output.writeUnsigned(symbol.length - 2);
+      int previousOffset = declarationStartOffset;
+      for (int i = 2; i < symbol.length; i++) {
+        output.writeSigned(symbol[i] - previousOffset);
+        previousOffset = symbol[i];
+      }
+      previousDeclarationStartOffset = declarationStartOffset;
+    }
+    return output.encode();
+  }
+
+  public static void readSyntaxHighlighting(String data, SyntaxHighlightingHandler handler) {
+    Input input = Input.decode(data);
+    String[] textTypes = new String[input.readUnsigned()];
+    for (int i = 0; i < textTypes.length; i++) {
+      textTypes[i] = input.readString(input.readUnsigned());
+    }
+    int rules = input.readUnsigned();
+    int startOffset = 0;
+    for (int i = 0; i < rules; i++) {
+      startOffset += input.readSigned();
+      int endOffset = startOffset + input.readUnsigned();
+      int typeIndex = input.readUnsigned();
+      if (typeIndex >= textTypes.length) {
+        throw new IllegalArgumentException("Unknown type of syntax highlighting: " + typeIndex);
+      }
+      handler.onRule(startOffset, endOffset, textTypes[typeIndex]);
+    }
+  }
+
+  public static void readSymbols(String data, SymbolHandler handler) {
+    Input input = Input.decode(data);
+    int symbols = input.readUnsigned();
+    int declarationStartOffset = 0;
+    for (int i = 0; i < symbols; i++) {
+      declarationStartOffset += input.readSigned();
+      int declarationEndOffset = declarationStartOffset + input.readUnsigned();
+      int[] references = new int[input.readUnsigned()];
+      int offset = declarationStartOffset;
+      for (int j = 0; j < references.length; j++) {
+        offset += input.readSigned();
+        references[j] = offset;
+      }
+      handler.onSymbol(declarationStartOffset, declarationEndOffset, references);
+    }
+  }
+
+  private static final class Output {
+    private byte[] bytes;
+    private int size = 0;
+
+    private Output(int capacity) {
+      bytes = new byte[capacity];
+    }
+
+    private void writeSigned(int value) {
+      // zigzag encoding : small negative values are written on few bytes too
+      writeUnsigned((value << 1) ^ (value >> 31));
+    }
+
+    private void writeUnsigned(int value) {
+      ensureCapacity(5);
+      int remaining = value;
+      while ((remaining & ~0x7F) != 0) {
+        bytes[size++] = (byte) ((remaining & 0x7F) | 0x80);
+        remaining >>>= 7;
+      }
+      bytes[size++] = (byte) remaining;
+    }
+
+    private void write(byte[] b) {
+      ensureCapacity(b.length);
+      System.arraycopy(b, 0, bytes, size, b.length);
+      size += b.length;
+    }
+
+    private void ensureCapacity(int length) {
+      if (size + length > bytes.length) {
+        bytes = Arrays.copyOf(bytes, Math.max(size + length, bytes.length * 2));
+      }
+    }
+
+    private String encode() {
+      return new StringBuilder().append(MARKER).append(VERSION)
+        .append(Base64.encodeBase64String(Arrays.copyOf(bytes, size))).toString();
+    }
+  }
+
+  private static final class Input {
+    private final byte[] bytes;
+    private int position = 0;
+
+    private Input(byte[] bytes) {
+      this.bytes = bytes;
+    }
+
+    private static Input decode(String data) {
+      if (!isCompact(data)) {
+        throw new IllegalArgumentException("Data is not in compact format: " + data);
+      }
+      if (data.charAt(1) != VERSION) {
+        throw new IllegalArgumentException("Unsupported version of compact format: " + data.charAt(1));
+      }
+      return new Input(Base64.decodeBase64(data.substring(2)));
+    }
+
+    private int readSigned() {
+      int value = readUnsigned();
+      return (value >>> 1) ^ -(value & 1);
+    }
+
+    private int readUnsigned() {
+      int value = 0;
+      int shift = 0;
+      byte b;
+      do {
+        if (position >= bytes.length || shift > 28) {
+          throw new IllegalArgumentException("Corrupted compact data at byte " + position);
+        }
+        b = bytes[position++];
+        value |= (b & 0x7F) << shift;
+        shift += 7;
+      } while ((b & 0x80) != 0);
+      return value;
+    }
+
+    private String readString(int length) {
+      if (length > bytes.length - position) {
+        throw new IllegalArgumentException("Corrupted compact data at byte " + position);
+      }
+      String s = new String(bytes, position, length, Charsets.UTF_8);
+      position += length;
+      return s;
+    }
+  }
+}
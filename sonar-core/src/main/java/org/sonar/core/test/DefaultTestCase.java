@@ -111,6 +111,9 @@ public class DefaultTestCase extends BeanVertex implements MutableTestCase {
       throw new CoverageAlreadyExistsException("The link between " + name() + " and " + testable.component().key() + " already exists");
     }
     beanGraph().getUnderlyingGraph().addEdge(null, element(), ((BeanVertex) testable).element(), COVERS).setProperty(LINES, lines);
+    if (testable instanceof DefaultTestable) {
+      ((DefaultTestable) testable).resetIndex();
+    }
     return this;
   }
 
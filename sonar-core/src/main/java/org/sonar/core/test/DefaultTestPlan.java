@@ -19,7 +19,7 @@
  */
 package org.sonar.core.test;
 
-import com.google.common.collect.Lists;
+import com.google.common.collect.ImmutableListMultimap;
 import com.tinkerpop.blueprints.Direction;
 import com.tinkerpop.blueprints.Vertex;
 import org.sonar.api.component.Component;
@@ -31,11 +31,12 @@ import org.sonar.core.graph.GraphUtil;
 
 import javax.annotation.CheckForNull;
 
-import java.util.List;
-
 public class DefaultTestPlan extends BeanVertex implements MutableTestPlan {
   private static final String TESTCASE = "testcase";
 
+  // lazily built, reset when a test case is added
+  private ImmutableListMultimap<String, MutableTestCase> testCasesIndex;
+
   public Component component() {
     Vertex component = GraphUtil.singleAdjacent(element(), Direction.IN, "testplan");
     return beanGraph().wrap(component, ComponentVertex.class);
@@ -43,18 +44,24 @@ public class DefaultTestPlan extends BeanVertex implements MutableTestPlan {
 
   @CheckForNull
   public Iterable<MutableTestCase> testCasesByName(String name) {
-    List<MutableTestCase> result = Lists.newArrayList();
-    for (MutableTestCase testCase : testCases()) {
-      if (name.equals(testCase.name())) {
-        result.add(testCase);
+    ImmutableListMultimap<String, MutableTestCase> index = testCasesIndex;
+    if (index == null) {
+      ImmutableListMultimap.Builder<String, MutableTestCase> builder = ImmutableListMultimap.builder();
+      for (MutableTestCase testCase : testCases()) {
+        if (testCase.name() != null) {
+          builder.put(testCase.name(), testCase);
+        }
       }
+      index = builder.build();
+      testCasesIndex = index;
     }
-    return result;
+    return index.get(name);
   }
 
   public MutableTestCase addTestCase(String name) {
     DefaultTestCase testCase = beanGraph().createAdjacentVertex(this, DefaultTestCase.class, TESTCASE);
     testCase.setName(name);
+    testCasesIndex = null;
     return testCase;
   }
 
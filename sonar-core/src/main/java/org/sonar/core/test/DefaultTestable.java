@@ -19,10 +19,9 @@
  */
 package org.sonar.core.test;
 
-import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSortedSet;
-import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
 import com.tinkerpop.blueprints.Direction;
 import com.tinkerpop.blueprints.Edge;
 import com.tinkerpop.blueprints.Vertex;
@@ -31,85 +30,172 @@ import org.sonar.api.test.CoverageBlock;
 import org.sonar.api.test.MutableTestable;
 import org.sonar.api.test.TestCase;
 import org.sonar.core.component.ComponentVertex;
+import org.sonar.core.graph.BeanGraph;
 import org.sonar.core.graph.BeanVertex;
 import org.sonar.core.graph.GraphUtil;
 
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.SortedSet;
 
 public class DefaultTestable extends BeanVertex implements MutableTestable {
 
   private static final String COVERS = "covers";
 
+  // lazily built from the coverage blocks, reset when a block is added
+  private Index index;
+
   public Component component() {
     Vertex component = GraphUtil.singleAdjacent(element(), Direction.IN, "testable");
     return beanGraph().wrap(component, ComponentVertex.class);
   }
 
   public List<TestCase> testCases() {
-    ImmutableList.Builder<TestCase> cases = ImmutableList.builder();
-    for (Edge coversEdge : coverEdges()) {
-      Vertex testable = coversEdge.getVertex(Direction.OUT);
-      cases.add(beanGraph().wrap(testable, DefaultTestCase.class));
-    }
-    return cases.build();
+    return index().testCases;
   }
 
-  public TestCase testCaseByName(final String name) {
-    return Iterables.find(testCases(), new Predicate<TestCase>() {
-      public boolean apply(TestCase input) {
-        return input.name().equals(name);
-      }
-    }, null);
+  @CheckForNull
+  public TestCase testCaseByName(String name) {
+    Index currentIndex = index();
+    Integer block = currentIndex.blocksByTestName.get(name);
+    return block == null ? null : currentIndex.testCases.get(block);
   }
 
-  public int countTestCasesOfLine(Integer line) {
-    int number = 0;
-    for (Edge edge : coverEdges()) {
-      if (Iterables.contains(lines(edge), line)) {
-        number++;
-      }
-    }
-    return number;
+  public int countTestCasesOfLine(@Nullable Integer line) {
+    return line == null ? 0 : index().countBlocksOfLine(line);
   }
 
   public List<TestCase> testCasesOfLine(int line) {
+    Index currentIndex = index();
     ImmutableList.Builder<TestCase> cases = ImmutableList.builder();
-    for (Edge edge : coverEdges()) {
-      if (lines(edge).contains(line)) {
-        Vertex vertexTestable = edge.getVertex(Direction.OUT);
-        DefaultTestCase testCase = beanGraph().wrap(vertexTestable, DefaultTestCase.class);
-        cases.add(testCase);
+    int lineIndex = Arrays.binarySearch(currentIndex.lines, line);
+    if (lineIndex >= 0) {
+      for (int i = currentIndex.lineOffsets[lineIndex]; i < currentIndex.lineOffsets[lineIndex + 1]; i++) {
+        cases.add(currentIndex.testCases.get(currentIndex.blocksByLine[i]));
       }
     }
     return cases.build();
   }
 
   public SortedSet<Integer> testedLines() {
-    ImmutableSortedSet.Builder<Integer> coveredLines = ImmutableSortedSet.naturalOrder();
-    for (Edge edge : coverEdges()) {
-      coveredLines.addAll(lines(edge));
-    }
-    return coveredLines.build();
+    return index().testedLines;
   }
 
-  public CoverageBlock coverageBlock(final TestCase testCase) {
-    return Iterables.find(getEdges(DefaultCoverageBlock.class, Direction.IN, COVERS), new Predicate<CoverageBlock>() {
-      public boolean apply(CoverageBlock input) {
-        return input.testCase().name().equals(testCase.name());
-      }
-    }, null);
+  @CheckForNull
+  public CoverageBlock coverageBlock(TestCase testCase) {
+    Index currentIndex = index();
+    Integer block = currentIndex.blocksByTestName.get(testCase.name());
+    return block == null ? null : beanGraph().wrap(currentIndex.edges.get(block), DefaultCoverageBlock.class);
   }
 
   public Iterable<CoverageBlock> coverageBlocks() {
     return (Iterable) getEdges(DefaultCoverageBlock.class, Direction.IN, COVERS);
   }
 
+  /**
+   * To be called when a coverage block is added to this testable
+   */
+  void resetIndex() {
+    index = null;
+  }
+
+  private Index index() {
+    Index result = index;
+    if (result == null) {
+      result = new Index(coverEdges(), beanGraph());
+      index = result;
+    }
+    return result;
+  }
+
   private Iterable<Edge> coverEdges() {
     return element().query().labels(COVERS).direction(Direction.IN).edges();
   }
 
-  private List<Integer> lines(Edge edge) {
-    return (List<Integer>) edge.getProperty("lines");
+  /**
+   * Immutable index of the coverage blocks, in the order of the graph. Blocks covering a line are stored
+   * contiguously in an array, so that finding the tests of a line does not iterate over all the blocks.
+   */
+  private static final class Index {
+    private final List<Edge> edges;
+    private final List<TestCase> testCases;
+    // first block of each test name, as names are not guaranteed to be unique
+    private final Map<String, Integer> blocksByTestName = Maps.newHashMap();
+    // sorted covered lines. Blocks covering lines[i] are blocksByLine[lineOffsets[i]] to blocksByLine[lineOffsets[i + 1] - 1]
+    private final int[] lines;
+    private final int[] lineOffsets;
+    private final int[] blocksByLine;
+    private final SortedSet<Integer> testedLines;
+
+    Index(Iterable<Edge> coverEdges, BeanGraph beanGraph) {
+      edges = ImmutableList.copyOf(coverEdges);
+      ImmutableList.Builder<TestCase> casesBuilder = ImmutableList.builder();
+      int pairCount = 0;
+      for (Edge edge : edges) {
+        pairCount += lines(edge).size();
+      }
+      // pairs (line, block) encoded as longs to be sorted by line, then by block
+      long[] pairs = new long[pairCount];
+      int pairIndex = 0;
+      for (int block = 0; block < edges.size(); block++) {
+        Edge edge = edges.get(block);
+        DefaultTestCase testCase = beanGraph.wrap(edge.getVertex(Direction.OUT), DefaultTestCase.class);
+        casesBuilder.add(testCase);
+        String name = testCase.name();
+        if (name != null && !blocksByTestName.containsKey(name)) {
+          blocksByTestName.put(name, block);
+        }
+        for (Integer line : lines(edge)) {
+          pairs[pairIndex] = ((long) line << 32) | block;
+          pairIndex++;
+        }
+      }
+      testCases = casesBuilder.build();
+      Arrays.sort(pairs);
+
+      int[] distinctLines = new int[pairs.length];
+      int[] offsets = new int[pairs.length + 1];
+      int[] blocks = new int[pairs.length];
+      int lineCount = 0;
+      int blockCount = 0;
+      for (int i = 0; i < pairs.length; i++) {
+        int line = (int) (pairs[i] >> 32);
+        int block = (int) pairs[i];
+        if (i > 0 && pairs[i] == pairs[i - 1]) {
+          // line listed twice in the same block
+          continue;
+        }
+        if (lineCount == 0 || distinctLines[lineCount - 1] != line) {
+          distinctLines[lineCount] = line;
+          offsets[lineCount] = blockCount;
+          lineCount++;
+        }
+        blocks[blockCount] = block;
+        blockCount++;
+      }
+      offsets[lineCount] = blockCount;
+      lines = Arrays.copyOf(distinctLines, lineCount);
+      lineOffsets = Arrays.copyOf(offsets, lineCount + 1);
+      blocksByLine = Arrays.copyOf(blocks, blockCount);
+
+      ImmutableSortedSet.Builder<Integer> linesBuilder = ImmutableSortedSet.naturalOrder();
+      for (int line : lines) {
+        linesBuilder.add(line);
+      }
+      testedLines = linesBuilder.build();
+    }
+
+    int countBlocksOfLine(int line) {
+      int lineIndex = Arrays.binarySearch(lines, line);
+      return lineIndex < 0 ? 0 : (lineOffsets[lineIndex + 1] - lineOffsets[lineIndex]);
+    }
+
+    private static List<Integer> lines(Edge edge) {
+      return (List<Integer>) edge.getProperty("lines");
+    }
   }
 }
@@ -0,0 +1,119 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.component;
+
+import com.tinkerpop.blueprints.Vertex;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonar.api.component.Component;
+import org.sonar.api.component.Perspective;
+import org.sonar.api.component.mock.MockSourceFile;
+import org.sonar.core.graph.BeanVertex;
+import org.sonar.core.graph.binary.BinaryGraphFormat;
+import org.sonar.core.graph.binary.BinaryGraphWriter;
+import org.sonar.core.graph.graphson.GraphsonMode;
+import org.sonar.core.graph.graphson.GraphsonWriter;
+import org.sonar.core.graph.jdbc.GraphDao;
+import org.sonar.core.graph.jdbc.GraphDto;
+
+import java.io.StringWriter;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SnapshotPerspectivesTest {
+
+  private static final String COMPONENT_KEY = "org.foo.Bar";
+
+  private GraphDao dao = mock(GraphDao.class);
+  private ScanGraph graph;
+  private String rootVertexId;
+  private SnapshotPerspectives perspectives;
+
+  @Before
+  public void before() {
+    graph = ScanGraph.create();
+    ComponentVertex component = graph.addComponent(MockSourceFile.createMain(COMPONENT_KEY));
+    Vertex perspective = graph.getUnderlyingGraph().addVertex(null);
+    perspective.setProperty("name", "foo");
+    graph.getUnderlyingGraph().addEdge(null, component.element(), perspective, FakePerspectiveLoader.PERSPECTIVE_KEY);
+    rootVertexId = component.element().getId().toString();
+
+    perspectives = new SnapshotPerspectives(dao, new GraphPerspectiveLoader[] {new FakePerspectiveLoader()});
+  }
+
+  @Test
+  public void load_binary_graph() {
+    when(dao.selectByComponent(FakePerspectiveLoader.PERSPECTIVE_KEY, COMPONENT_KEY)).thenReturn(new GraphDto()
+      .setFormat(BinaryGraphFormat.FORMAT)
+      .setVersion(BinaryGraphFormat.VERSION)
+      .setRootVertexId(rootVertexId)
+      .setData(new BinaryGraphWriter().write(graph.getUnderlyingGraph())));
+
+    FakePerspective perspective = perspectives.as(FakePerspective.class, COMPONENT_KEY);
+
+    assertThat(perspective.name()).isEqualTo("foo");
+  }
+
+  @Test
+  public void load_graphson_graph_of_previous_versions() {
+    StringWriter graphson = new StringWriter();
+    new GraphsonWriter().write(graph.getUnderlyingGraph(), graphson, GraphsonMode.EXTENDED);
+    when(dao.selectBySnapshot(FakePerspectiveLoader.PERSPECTIVE_KEY, 123L)).thenReturn(new GraphDto()
+      .setFormat("graphson")
+      .setVersion(1)
+      .setRootVertexId(rootVertexId)
+      .setData(graphson.toString()));
+
+    FakePerspective perspective = perspectives.as(FakePerspective.class, 123L);
+
+    assertThat(perspective.name()).isEqualTo("foo");
+  }
+
+  @Test
+  public void return_null_if_no_graph() {
+    assertThat(perspectives.as(FakePerspective.class, COMPONENT_KEY)).isNull();
+  }
+
+  static class FakePerspectiveLoader extends GraphPerspectiveLoader<FakePerspective> {
+    static final String PERSPECTIVE_KEY = "fake";
+
+    FakePerspectiveLoader() {
+      super(PERSPECTIVE_KEY, FakePerspective.class);
+    }
+
+    @Override
+    protected Class<? extends BeanVertex> getBeanClass() {
+      return FakePerspective.class;
+    }
+  }
+
+  public static class FakePerspective extends BeanVertex implements Perspective {
+    @Override
+    public Component component() {
+      return null;
+    }
+
+    public String name() {
+      return (String) getProperty("name");
+    }
+  }
+}
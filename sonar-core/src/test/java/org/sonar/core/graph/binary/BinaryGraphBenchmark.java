@@ -0,0 +1,114 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.graph.binary;
+
+import com.google.common.collect.Lists;
+import com.tinkerpop.blueprints.Graph;
+import com.tinkerpop.blueprints.impls.tg.TinkerGraph;
+import org.sonar.api.test.MutableTestCase;
+import org.sonar.api.test.TestCase;
+import org.sonar.core.graph.BeanGraph;
+import org.sonar.core.graph.graphson.GraphsonMode;
+import org.sonar.core.graph.graphson.GraphsonReader;
+import org.sonar.core.graph.graphson.GraphsonWriter;
+import org.sonar.core.test.DefaultTestPlan;
+import org.sonar.core.test.DefaultTestable;
+import org.sonar.test.Benchmark;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the size and the serialization time of GraphSON and of {@link BinaryGraphFormat} on a generated graph of
+ * tests : a test plan whose test cases cover blocks of lines of some testables, by default 2000 test cases. Not
+ * executed by the build, run it manually :
+ * <pre>java -cp ... org.sonar.core.graph.binary.BinaryGraphBenchmark [number of test cases]</pre>
+ */
+public class BinaryGraphBenchmark {
+
+  private static final int WARMUP_ITERATIONS = 10;
+  private static final int ITERATIONS = 10;
+  private static final int TESTABLES = 50;
+  private static final int LINES_PER_BLOCK = 40;
+
+  private final Graph graph;
+  private final String graphson;
+  private final String binary;
+  private long checksum = 0L;
+
+  BinaryGraphBenchmark(int testCases) {
+    Random random = new Random(42L);
+    BeanGraph beanGraph = BeanGraph.createInMemory();
+    DefaultTestPlan plan = beanGraph.createVertex(DefaultTestPlan.class);
+    List<DefaultTestable> testables = Lists.newArrayList();
+    for (int i = 0; i < TESTABLES; i++) {
+      testables.add(beanGraph.createVertex(DefaultTestable.class));
+    }
+    for (int i = 0; i < testCases; i++) {
+      MutableTestCase testCase = plan.addTestCase("test_case_" + i);
+      testCase.setStatus(TestCase.Status.OK).setDurationInMs((long) random.nextInt(1000));
+      List<Integer> lines = Lists.newArrayList();
+      int line = random.nextInt(500);
+      for (int l = 0; l < LINES_PER_BLOCK; l++) {
+        line += 1 + random.nextInt(3);
+        lines.add(line);
+      }
+      testCase.setCoverageBlock(testables.get(random.nextInt(TESTABLES)), lines);
+    }
+    graph = beanGraph.getUnderlyingGraph();
+    graphson = writeGraphson();
+    binary = new BinaryGraphWriter().write(graph);
+    System.out.println(String.format("%d test cases, GraphSON: %d chars, binary: %d chars", testCases, graphson.length(), binary.length()));
+  }
+
+  private String writeGraphson() {
+    StringWriter output = new StringWriter();
+    new GraphsonWriter().write(graph, output, GraphsonMode.EXTENDED);
+    return output.toString();
+  }
+
+  public static void main(String[] args) {
+    final BinaryGraphBenchmark benchmark = new BinaryGraphBenchmark(args.length > 0 ? Integer.parseInt(args[0]) : 2000);
+    new Benchmark(WARMUP_ITERATIONS, ITERATIONS).run("write GraphSON", new Runnable() {
+      public void run() {
+        benchmark.checksum += benchmark.writeGraphson().length();
+      }
+    }).run("write binary", new Runnable() {
+      public void run() {
+        benchmark.checksum += new BinaryGraphWriter().write(benchmark.graph).length();
+      }
+    }).run("read GraphSON", new Runnable() {
+      public void run() {
+        TinkerGraph graph = new TinkerGraph();
+        new GraphsonReader().read(new StringReader(benchmark.graphson), graph);
+        benchmark.checksum += graph.getVertex("0").getPropertyKeys().size();
+      }
+    }).run("read binary", new Runnable() {
+      public void run() {
+        TinkerGraph graph = new TinkerGraph();
+        new BinaryGraphReader().read(benchmark.binary, graph);
+        benchmark.checksum += graph.getVertex("0").getPropertyKeys().size();
+      }
+    });
+    System.out.println("checksum: " + benchmark.checksum);
+  }
+}
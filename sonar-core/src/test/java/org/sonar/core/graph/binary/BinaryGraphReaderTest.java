@@ -0,0 +1,217 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.graph.binary;
+
+import com.google.common.collect.ImmutableMap;
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Element;
+import com.tinkerpop.blueprints.Graph;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.tg.TinkerGraph;
+import com.tinkerpop.blueprints.impls.tg.TinkerGraphFactory;
+import org.junit.Test;
+import org.sonar.api.test.MutableTestCase;
+import org.sonar.core.graph.BeanGraph;
+import org.sonar.core.test.DefaultTestPlan;
+import org.sonar.core.test.DefaultTestable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.fest.assertions.Fail.fail;
+
+public class BinaryGraphReaderTest {
+
+  @Test
+  public void read_written_graph() {
+    Graph graph = TinkerGraphFactory.createTinkerGraph();
+
+    Graph copy = new BinaryGraphReader().read(new BinaryGraphWriter().write(graph), new TinkerGraph());
+
+    assertSameGraph(graph, copy);
+    Vertex marko = copy.getVertex("1");
+    assertThat(marko.getProperty("name")).isEqualTo("marko");
+    assertThat(marko.getProperty("age")).isEqualTo(29);
+    assertThat(copy.getEdge("7").getProperty("weight")).isEqualTo(0.5f);
+  }
+
+  @Test
+  public void read_from_stream() {
+    Graph graph = TinkerGraphFactory.createTinkerGraph();
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    new BinaryGraphWriter().write(graph, output);
+
+    Graph copy = new BinaryGraphReader().read(new ByteArrayInputStream(output.toByteArray()), new TinkerGraph());
+
+    assertSameGraph(graph, copy);
+  }
+
+  @Test
+  public void read_all_types_of_properties() {
+    TinkerGraph graph = new TinkerGraph();
+    Vertex vertex = graph.addVertex("1");
+    vertex.setProperty("int", -42);
+    vertex.setProperty("maxInt", Integer.MAX_VALUE);
+    vertex.setProperty("long", Long.MIN_VALUE);
+    vertex.setProperty("float", 3.14f);
+    vertex.setProperty("double", -0.4954959595959);
+    vertex.setProperty("true", true);
+    vertex.setProperty("false", false);
+    vertex.setProperty("string", "foo");
+    vertex.setProperty("unicode", "\u00e9t\u00e9 \u65e5\u672c");
+    vertex.setProperty("empty", "");
+    vertex.setProperty("lines", Arrays.asList(10, 2, Integer.MAX_VALUE, Integer.MIN_VALUE, 2));
+    vertex.setProperty("emptyList", Collections.emptyList());
+    vertex.setProperty("list", Arrays.asList("foo", 3L, null, Arrays.asList(1, 2)));
+    vertex.setProperty("map", ImmutableMap.of("key", "value", "number", 12L, "nested", ImmutableMap.of("one", 1)));
+    vertex.setProperty("array", new int[] {1, 2, 3});
+    Vertex other = graph.addVertex("2");
+    other.setProperty("string", "bar");
+    Edge edge = graph.addEdge("3", vertex, other, "label");
+    edge.setProperty("lines", Arrays.asList(1, 2, 3));
+
+    Graph copy = new BinaryGraphReader().read(new BinaryGraphWriter().write(graph), new TinkerGraph());
+
+    Vertex copyVertex = copy.getVertex("1");
+    assertThat(copyVertex.getPropertyKeys()).hasSize(15);
+    assertThat(copyVertex.getProperty("int")).isEqualTo(-42);
+    assertThat(copyVertex.getProperty("maxInt")).isEqualTo(Integer.MAX_VALUE);
+    assertThat(copyVertex.getProperty("long")).isEqualTo(Long.MIN_VALUE);
+    assertThat(copyVertex.getProperty("float")).isEqualTo(3.14f);
+    assertThat(copyVertex.getProperty("double")).isEqualTo(-0.4954959595959);
+    assertThat(copyVertex.getProperty("true")).isEqualTo(true);
+    assertThat(copyVertex.getProperty("false")).isEqualTo(false);
+    assertThat(copyVertex.getProperty("string")).isEqualTo("foo");
+    assertThat(copyVertex.getProperty("unicode")).isEqualTo("\u00e9t\u00e9 \u65e5\u672c");
+    assertThat(copyVertex.getProperty("empty")).isEqualTo("");
+    assertThat(copyVertex.getProperty("lines")).isEqualTo(Arrays.asList(10, 2, Integer.MAX_VALUE, Integer.MIN_VALUE, 2));
+    assertThat((List) copyVertex.getProperty("emptyList")).isEmpty();
+    assertThat(copyVertex.getProperty("list")).isEqualTo(Arrays.asList("foo", 3L, null, Arrays.asList(1, 2)));
+    Map map = (Map) copyVertex.getProperty("map");
+    assertThat(map.get("key")).isEqualTo("value");
+    assertThat(map.get("number")).isEqualTo(12L);
+    assertThat(map.get("nested")).isEqualTo(ImmutableMap.of("one", 1));
+    assertThat(copyVertex.getProperty("array")).isEqualTo(Arrays.asList(1, 2, 3));
+
+    assertThat(copy.getVertex("2").getPropertyKeys()).containsOnly("string");
+    assertThat(copy.getEdge("3").getProperty("lines")).isEqualTo(Arrays.asList(1, 2, 3));
+  }
+
+  @Test
+  public void read_non_numeric_ids() {
+    TinkerGraph graph = new TinkerGraph();
+    Vertex foo = graph.addVertex("foo");
+    Vertex zero = graph.addVertex("007");
+    Vertex negative = graph.addVertex("-5");
+    Vertex big = graph.addVertex("12345678901234567890");
+    graph.addEdge("0", foo, zero, "label");
+    graph.addEdge("edge", negative, big, "label");
+
+    Graph copy = new BinaryGraphReader().read(new BinaryGraphWriter().write(graph), new TinkerGraph());
+
+    assertSameGraph(graph, copy);
+  }
+
+  @Test
+  public void read_test_plan_graph() {
+    BeanGraph beanGraph = BeanGraph.createInMemory();
+    DefaultTestPlan plan = beanGraph.createVertex(DefaultTestPlan.class);
+    DefaultTestable testable = beanGraph.createVertex(DefaultTestable.class);
+    MutableTestCase test1 = plan.addTestCase("T1");
+    test1.setCoverageBlock(testable, Arrays.asList(10, 11, 12));
+    MutableTestCase test2 = plan.addTestCase("T2");
+    test2.setCoverageBlock(testable, Arrays.asList(12, 48));
+
+    Graph copy = new BinaryGraphReader().read(new BinaryGraphWriter().write(beanGraph.getUnderlyingGraph()), new TinkerGraph());
+
+    assertSameGraph(beanGraph.getUnderlyingGraph(), copy);
+    DefaultTestable copyTestable = new BeanGraph(copy).wrap(copy.getVertex(testable.element().getId()), DefaultTestable.class);
+    assertThat(copyTestable.testedLines()).containsOnly(10, 11, 12, 48);
+    assertThat(copyTestable.countTestCasesOfLine(12)).isEqualTo(2);
+    assertThat(copyTestable.testCaseByName("T2").name()).isEqualTo("T2");
+  }
+
+  @Test
+  public void fail_if_not_binary_graph() {
+    try {
+      new BinaryGraphReader().read(new ByteArrayInputStream("{\"mode\":\"EXTENDED\"}".getBytes()), new TinkerGraph());
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e).hasMessage("Data is not a binary graph");
+    }
+  }
+
+  @Test
+  public void fail_if_unsupported_version() {
+    try {
+      new BinaryGraphReader().read(new ByteArrayInputStream(new byte[] {'S', 'G', 2, 0, 0, 0}), new TinkerGraph());
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e).hasMessage("Unsupported version of binary graph: 2");
+    }
+  }
+
+  @Test
+  public void fail_if_truncated_data() {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    new BinaryGraphWriter().write(TinkerGraphFactory.createTinkerGraph(), output);
+    byte[] truncated = Arrays.copyOf(output.toByteArray(), output.size() - 1);
+
+    try {
+      new BinaryGraphReader().read(new ByteArrayInputStream(truncated), new TinkerGraph());
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessage("Fail to read binary graph");
+    }
+  }
+
+  private static void assertSameGraph(Graph expected, Graph actual) {
+    int vertices = 0;
+    for (Vertex vertex : expected.getVertices()) {
+      assertSameProperties(vertex, actual.getVertex(vertex.getId()));
+      vertices++;
+    }
+    int edges = 0;
+    for (Edge edge : expected.getEdges()) {
+      Edge copy = actual.getEdge(edge.getId());
+      assertSameProperties(edge, copy);
+      assertThat(copy.getLabel()).isEqualTo(edge.getLabel());
+      assertThat(copy.getVertex(Direction.OUT).getId()).isEqualTo(edge.getVertex(Direction.OUT).getId());
+      assertThat(copy.getVertex(Direction.IN).getId()).isEqualTo(edge.getVertex(Direction.IN).getId());
+      edges++;
+    }
+    assertThat(actual.getVertices()).hasSize(vertices);
+    assertThat(actual.getEdges()).hasSize(edges);
+  }
+
+  private static void assertSameProperties(Element expected, Element actual) {
+    assertThat(actual).isNotNull();
+    assertThat(actual.getPropertyKeys()).isEqualTo(expected.getPropertyKeys());
+    for (String key : expected.getPropertyKeys()) {
+      assertThat(actual.getProperty(key)).isEqualTo(expected.getProperty(key));
+    }
+  }
+}
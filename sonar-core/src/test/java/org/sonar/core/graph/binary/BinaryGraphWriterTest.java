@@ -0,0 +1,102 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.graph.binary;
+
+import com.google.common.collect.Sets;
+import com.tinkerpop.blueprints.Graph;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.tg.TinkerGraph;
+import com.tinkerpop.blueprints.impls.tg.TinkerGraphFactory;
+import org.junit.Test;
+import org.sonar.core.graph.graphson.GraphsonMode;
+import org.sonar.core.graph.graphson.GraphsonWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.util.Date;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class BinaryGraphWriterTest {
+
+  @Test
+  public void write_empty_graph() {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    new BinaryGraphWriter().write(new TinkerGraph(), output);
+
+    // header, no strings, no vertices and no vertex properties, no edges and no edge properties
+    assertThat(output.toByteArray()).isEqualTo(new byte[] {'S', 'G', 1, 0, 0, 0, 0, 0});
+  }
+
+  @Test
+  public void write_strings_once() {
+    TinkerGraph graph = new TinkerGraph();
+    Vertex vertex = graph.addVertex("1");
+    vertex.setProperty("name", "foo");
+    vertex.setProperty("other", "foo");
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    new BinaryGraphWriter().write(graph, output);
+
+    byte[] bytes = output.toByteArray();
+    String content = new String(bytes);
+    assertThat(content).startsWith("SG");
+    assertThat(content.indexOf("foo")).isEqualTo(content.lastIndexOf("foo"));
+    // numeric id is not in the string table
+    assertThat(content).doesNotContain("1");
+  }
+
+  @Test
+  public void be_smaller_than_graphson() {
+    Graph graph = TinkerGraphFactory.createTinkerGraph();
+    StringWriter graphson = new StringWriter();
+    new GraphsonWriter().write(graph, graphson, GraphsonMode.EXTENDED);
+
+    String binary = new BinaryGraphWriter().write(graph);
+
+    assertThat(binary.length()).isLessThan(graphson.toString().length() / 4);
+  }
+
+  @Test
+  public void fail_to_write_set_property() {
+    TinkerGraph graph = new TinkerGraph();
+    graph.addVertex("1").setProperty("set", Sets.newHashSet("foo"));
+
+    try {
+      new BinaryGraphWriter().write(graph);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e).hasMessage("Type of property 'set' is not supported: java.util.HashSet");
+    }
+  }
+
+  @Test
+  public void fail_to_write_unknown_type_instead_of_converting_to_string() {
+    TinkerGraph graph = new TinkerGraph();
+    graph.addVertex("1").setProperty("date", new Date());
+
+    try {
+      new BinaryGraphWriter().write(graph);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e).hasMessage("Type of property 'date' is not supported: java.util.Date");
+    }
+  }
+}
@@ -19,6 +19,7 @@
  */
 package org.sonar.core.i18n;
 
+import com.google.common.collect.Lists;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -34,8 +35,13 @@ import java.net.URLClassLoader;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.fest.assertions.Assertions.assertThat;
+import static org.fest.assertions.Fail.fail;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -132,6 +138,73 @@ public class DefaultI18nTest {
     assertThat(manager.message(Locale.ENGLISH, "with.parameters", null, "one", "two")).isEqualTo("First is one and second is two");
   }
 
+  @Test
+  public void format_message_with_quotes() {
+    assertThat(manager.message(Locale.ENGLISH, "with.quote", null, "two")).isEqualTo("It's two");
+    assertThat(manager.message(Locale.ENGLISH, "with.quote", null, "three")).isEqualTo("It's three");
+    // not formatted if no parameters
+    assertThat(manager.message(Locale.ENGLISH, "with.quote", null)).isEqualTo("It's {0}");
+  }
+
+  @Test
+  public void format_default_value() {
+    assertThat(manager.message(Locale.ENGLISH, "unknown", "Default {0}", "value")).isEqualTo("Default value");
+  }
+
+  @Test
+  public void invalid_pattern_is_accepted_if_no_parameters() {
+    assertThat(manager.message(Locale.ENGLISH, "with.invalid.pattern", null)).isEqualTo("Number of {items}");
+    try {
+      manager.message(Locale.ENGLISH, "with.invalid.pattern", null, "foo");
+      fail();
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void drop_messages_of_previous_plugins_on_restart() {
+    assertThat(manager.message(Locale.FRENCH, "by", null)).isEqualTo("Par");
+
+    // french pack is uninstalled
+    manager.doStart(new I18nClassloader(new ClassLoader[]{
+      newCoreClassloader(), newSqaleClassloader(), newCheckstyleClassloader()
+    }));
+
+    assertThat(manager.message(Locale.FRENCH, "by", null)).isEqualTo("By");
+    assertThat(manager.message(Locale.FRENCH, "checkstyle.rule1.name", null)).isEqualTo("Rule one");
+  }
+
+  @Test
+  public void get_messages_concurrently() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Boolean>> results = Lists.newArrayList();
+      for (int task = 0; task < 8; task++) {
+        final Locale locale = task % 2 == 0 ? Locale.FRENCH : Locale.ENGLISH;
+        final String expected = task % 2 == 0 ? "Par" : "By";
+        results.add(executor.submit(new Callable<Boolean>() {
+          @Override
+          public Boolean call() {
+            for (int i = 0; i < 1000; i++) {
+              String message = manager.message(locale, "with.parameters", null, i, "b");
+              if (!expected.equals(manager.message(locale, "by", null))
+                || !("First is " + i + " and second is b").equals(message)) {
+                return false;
+              }
+            }
+            return true;
+          }
+        }));
+      }
+      for (Future<Boolean> result : results) {
+        assertThat(result.get()).isTrue();
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
   @Test
   public void shouldUseDefaultLocaleIfMissingValueInLocalizedBundle() {
     assertThat(manager.message(Locale.FRENCH, "only.in.english", null)).isEqualTo("Missing in French bundle");
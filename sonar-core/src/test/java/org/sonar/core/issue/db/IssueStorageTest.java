@@ -19,7 +19,13 @@
  */
 package org.sonar.core.issue.db;
 
+import com.google.common.collect.Lists;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.session.SqlSession;
 import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.sonar.api.issue.Issue;
 import org.sonar.api.issue.internal.DefaultIssue;
 import org.sonar.api.issue.internal.DefaultIssueComment;
 import org.sonar.api.issue.internal.IssueChangeContext;
@@ -30,10 +36,21 @@ import org.sonar.api.rules.RuleQuery;
 import org.sonar.api.utils.DateUtils;
 import org.sonar.api.utils.Duration;
 import org.sonar.core.persistence.AbstractDaoTestCase;
+import org.sonar.core.persistence.BatchSession;
 import org.sonar.core.persistence.MyBatis;
 
+import java.sql.Statement;
 import java.util.Collection;
 import java.util.Date;
+import java.util.List;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class IssueStorageTest extends AbstractDaoTestCase {
 
@@ -147,6 +164,127 @@ public class IssueStorageTest extends AbstractDaoTestCase {
     checkTables("should_resolve_conflicts_on_updates", new String[]{"id", "created_at", "updated_at", "issue_change_creation_date"}, "issues");
   }
 
+  @Test
+  public void should_merge_only_conflicting_issues_of_batch() throws Exception {
+    MyBatis mybatis = mock(MyBatis.class);
+    IssueMapper batchMapper = mockBatchSession(mybatis).getMapper(IssueMapper.class);
+    SqlSession session = mock(SqlSession.class);
+    IssueMapper mapper = mock(IssueMapper.class);
+    when(mybatis.openSession()).thenReturn(session);
+    when(session.getMapper(IssueMapper.class)).thenReturn(mapper);
+
+    Date selectedAt = DateUtils.parseDate("2013-05-18");
+    new FakeSaver(mybatis, new FakeRuleFinder()).save(Lists.newArrayList(
+      new DefaultIssue().setKey("UPDATED").setNew(false).setChanged(true).setSelectedAt(selectedAt),
+      new DefaultIssue().setKey("CONFLICT").setNew(false).setChanged(true).setSelectedAt(selectedAt),
+      new DefaultIssue().setKey("CLOSED").setNew(false).setChanged(true).setSelectedAt(selectedAt).setStatus(Issue.STATUS_CLOSED)));
+
+    verify(batchMapper, times(2)).updateIfBeforeSelectedDate(any(IssueDto.class));
+    verify(batchMapper, times(1)).update(any(IssueDto.class));
+    verify(mapper).selectByKey("CONFLICT");
+    verify(mapper, times(1)).selectByKey(anyString());
+    verify(session).commit();
+  }
+
+  @Test
+  public void should_update_one_by_one_if_driver_does_not_return_update_counts() throws Exception {
+    MyBatis mybatis = mock(MyBatis.class);
+    BatchSession batchSession = mockBatchSession(mybatis);
+    IssueMapper batchMapper = batchSession.getMapper(IssueMapper.class);
+    SqlSession session = mock(SqlSession.class);
+    IssueMapper mapper = mock(IssueMapper.class);
+    when(mybatis.openSession()).thenReturn(session);
+    when(session.getMapper(IssueMapper.class)).thenReturn(mapper);
+    when(mapper.updateIfBeforeSelectedDate(any(IssueDto.class))).thenAnswer(new Answer<Integer>() {
+      @Override
+      public Integer answer(InvocationOnMock invocation) {
+        return "CONFLICT".equals(((IssueDto) invocation.getArguments()[0]).getKee()) ? 0 : 1;
+      }
+    });
+
+    Date selectedAt = DateUtils.parseDate("2013-05-18");
+    FakeSaver saver = new FakeSaver(mybatis, new FakeRuleFinder());
+    saver.save(Lists.newArrayList(
+      new DefaultIssue().setKey("NO_INFO").setNew(false).setChanged(true).setSelectedAt(selectedAt),
+      new DefaultIssue().setKey("CONFLICT").setNew(false).setChanged(true).setSelectedAt(selectedAt),
+      new DefaultIssue().setKey("CLOSED").setNew(false).setChanged(true).setSelectedAt(selectedAt).setStatus(Issue.STATUS_CLOSED)));
+
+    // batch of conditional updates is cancelled, then its statements are executed one by one
+    verify(batchSession).rollback(true);
+    verify(batchMapper, times(2)).updateIfBeforeSelectedDate(any(IssueDto.class));
+    verify(batchMapper, times(1)).update(any(IssueDto.class));
+    // inserts and updates share the mocked batch session
+    verify(batchSession, times(2)).commit();
+    verify(mapper, times(2)).updateIfBeforeSelectedDate(any(IssueDto.class));
+    verify(mapper).selectByKey("CONFLICT");
+    verify(mapper, times(1)).selectByKey(anyString());
+
+    // driver is known, batches are not tried again
+    saver.save(Lists.newArrayList(new DefaultIssue().setKey("NO_INFO").setNew(false).setChanged(true).setSelectedAt(selectedAt)));
+    verify(batchMapper, times(2)).updateIfBeforeSelectedDate(any(IssueDto.class));
+    verify(mapper, times(3)).updateIfBeforeSelectedDate(any(IssueDto.class));
+  }
+
+  @Test
+  public void should_send_updates_in_batches() throws Exception {
+    MyBatis mybatis = mock(MyBatis.class);
+    BatchSession batchSession = mockBatchSession(mybatis);
+    IssueMapper batchMapper = batchSession.getMapper(IssueMapper.class);
+
+    List<DefaultIssue> issues = Lists.newArrayList();
+    for (int i = 0; i < 2 * IssueStorage.UPDATE_BATCH_SIZE + 1; i++) {
+      issues.add(new DefaultIssue().setKey("ISSUE_" + i).setNew(false).setChanged(true).setSelectedAt(new Date()));
+    }
+    new FakeSaver(mybatis, new FakeRuleFinder()).save(issues);
+
+    verify(batchMapper, times(issues.size())).updateIfBeforeSelectedDate(any(IssueDto.class));
+    verify(batchSession, times(3)).flushStatements();
+    verify(mybatis, never()).openSession();
+  }
+
+  /**
+   * Statements of the batch session update one row, except issues with key "CONFLICT" (no rows) and "NO_INFO"
+   * (unknown number of rows)
+   */
+  private static BatchSession mockBatchSession(MyBatis mybatis) {
+    BatchSession batchSession = mock(BatchSession.class);
+    IssueMapper issueMapper = mock(IssueMapper.class);
+    when(mybatis.openBatchSession()).thenReturn(batchSession);
+    when(batchSession.getMapper(IssueMapper.class)).thenReturn(issueMapper);
+    when(batchSession.getMapper(IssueChangeMapper.class)).thenReturn(mock(IssueChangeMapper.class));
+
+    final List<IssueDto> pendingDtos = Lists.newArrayList();
+    when(issueMapper.updateIfBeforeSelectedDate(any(IssueDto.class))).thenAnswer(new Answer<Integer>() {
+      @Override
+      public Integer answer(InvocationOnMock invocation) {
+        pendingDtos.add((IssueDto) invocation.getArguments()[0]);
+        return 0;
+      }
+    });
+    when(batchSession.flushStatements()).thenAnswer(new Answer<List<BatchResult>>() {
+      @Override
+      public List<BatchResult> answer(InvocationOnMock invocation) {
+        BatchResult result = new BatchResult(null, "updateIfBeforeSelectedDate");
+        int[] updateCounts = new int[pendingDtos.size()];
+        for (int i = 0; i < pendingDtos.size(); i++) {
+          IssueDto dto = pendingDtos.get(i);
+          result.addParameterObject(dto);
+          if ("CONFLICT".equals(dto.getKee())) {
+            updateCounts[i] = 0;
+          } else if ("NO_INFO".equals(dto.getKee())) {
+            updateCounts[i] = Statement.SUCCESS_NO_INFO;
+          } else {
+            updateCounts[i] = 1;
+          }
+        }
+        result.setUpdateCounts(updateCounts);
+        pendingDtos.clear();
+        return Lists.newArrayList(result);
+      }
+    });
+    return batchSession;
+  }
+
   static class FakeSaver extends IssueStorage {
     protected FakeSaver(MyBatis mybatis, RuleFinder ruleFinder) {
       super(mybatis, ruleFinder);
@@ -25,6 +25,7 @@ import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.core.ContextBase;
 import ch.qos.logback.core.read.ListAppender;
 import org.apache.commons.dbcp.BasicDataSource;
+import org.junit.After;
 import org.junit.Test;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.config.Settings;
@@ -32,6 +33,7 @@ import org.sonar.core.profiling.Profiling;
 
 import java.io.ByteArrayInputStream;
 import java.sql.*;
+import java.util.List;
 
 import static org.fest.assertions.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
@@ -39,19 +41,25 @@ import static org.mockito.Mockito.when;
 
 public class PersistenceProfilingTest {
 
+  ListAppender<ILoggingEvent> appender;
+
+  @After
+  public void detachSqlAppender() {
+    if (appender != null) {
+      sqlLogger().detachAppender(appender);
+      appender.stop();
+    }
+  }
+
   @Test
-  public void should_be_transparent_when_profiling_less_than_full() {
+  public void should_be_transparent_when_profiling_is_disabled() {
     BasicDataSource datasource = mock(BasicDataSource.class);
     assertThat(PersistenceProfiling.addProfilingIfNeeded(datasource , new Settings())).isEqualTo(datasource);
   }
 
   @Test
   public void should_enable_profiling_when_profiling_is_full() throws Exception {
-    final Logger sqlLogger = (Logger) LoggerFactory.getLogger("sql");
-    ListAppender<ILoggingEvent> appender = new ListAppender<ILoggingEvent>();
-    appender.setContext(new ContextBase());
-    appender.start();
-    sqlLogger.addAppender(appender);
+    ListAppender<ILoggingEvent> appender = addSqlAppender();
 
     BasicDataSource originDataSource = mock(BasicDataSource.class);
 
@@ -99,5 +107,74 @@ public class PersistenceProfilingTest {
     assertThat(appender.list.get(0).getFormattedMessage()).contains(sqlWithParams).contains(" - parameters are: ").contains(Integer.toString(param1)).contains(param2);
     assertThat(appender.list.get(1).getLevel()).isEqualTo(Level.INFO);
     assertThat(appender.list.get(1).getFormattedMessage()).contains(sql);
+
+    List<SqlStatistics.Entry> statistics = ((ProfilingDataSource) resultDataSource).getProfiling().getStatistics().entries();
+    assertThat(statistics).hasSize(2);
+  }
+
+  @Test
+  public void should_only_aggregate_statistics_when_profiling_is_basic() throws Exception {
+    ListAppender<ILoggingEvent> appender = addSqlAppender();
+
+    BasicDataSource originDataSource = mock(BasicDataSource.class);
+    Connection connection = mock(Connection.class);
+    when(originDataSource.getConnection()).thenReturn(connection);
+    String sql = "update polop set col1=? where col2=?";
+    PreparedStatement preparedStatement = mock(PreparedStatement.class);
+    when(connection.prepareStatement(sql)).thenReturn(preparedStatement);
+    when(preparedStatement.executeUpdate()).thenReturn(3);
+
+    Settings settings = new Settings();
+    settings.setProperty(Profiling.CONFIG_PROFILING_LEVEL, Profiling.Level.BASIC.toString());
+    BasicDataSource resultDataSource = PersistenceProfiling.addProfilingIfNeeded(originDataSource, settings);
+
+    PreparedStatement preparedStatementProxy = resultDataSource.getConnection().prepareStatement(sql);
+    preparedStatementProxy.setInt(1, 42);
+    preparedStatementProxy.setString(2, "plouf");
+    preparedStatementProxy.executeUpdate();
+    preparedStatementProxy.executeUpdate();
+
+    assertThat(appender.list).isEmpty();
+    SqlStatistics.Entry entry = ((ProfilingDataSource) resultDataSource).getProfiling().getStatistics().entries().get(0);
+    assertThat(entry.getSql()).isEqualTo(sql);
+    assertThat(entry.getExecutions()).isEqualTo(2L);
+    assertThat(entry.getRows()).isEqualTo(6L);
+
+    PersistenceProfiling.logStatistics(resultDataSource);
+    assertThat(appender.list).hasSize(1);
+    assertThat(appender.list.get(0).getFormattedMessage()).startsWith("SQL statistics: 1 statements, 2 executions");
+  }
+
+  @Test
+  public void should_not_log_statements_faster_than_threshold() throws Exception {
+    ListAppender<ILoggingEvent> appender = addSqlAppender();
+
+    BasicDataSource originDataSource = mock(BasicDataSource.class);
+    Connection connection = mock(Connection.class);
+    when(originDataSource.getConnection()).thenReturn(connection);
+    Statement statement = mock(Statement.class);
+    when(connection.createStatement()).thenReturn(statement);
+
+    Settings settings = new Settings();
+    settings.setProperty(Profiling.CONFIG_PROFILING_LEVEL, Profiling.Level.FULL.toString());
+    settings.setProperty(PersistenceProfiling.SQL_LOG_THRESHOLD_PROPERTY, "60000");
+    BasicDataSource resultDataSource = PersistenceProfiling.addProfilingIfNeeded(originDataSource, settings);
+
+    resultDataSource.getConnection().createStatement().execute("select 'polop' from dual");
+
+    assertThat(appender.list).isEmpty();
+    assertThat(((ProfilingDataSource) resultDataSource).getProfiling().getStatistics().entries()).hasSize(1);
+  }
+
+  private ListAppender<ILoggingEvent> addSqlAppender() {
+    appender = new ListAppender<ILoggingEvent>();
+    appender.setContext(new ContextBase());
+    appender.start();
+    sqlLogger().addAppender(appender);
+    return appender;
+  }
+
+  private static Logger sqlLogger() {
+    return (Logger) LoggerFactory.getLogger("sql");
   }
 }
@@ -0,0 +1,98 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.persistence.profiling;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class SqlStatisticsTest {
+
+  SqlStatistics statistics = new SqlStatistics();
+
+  @Test
+  public void aggregate_executions_by_sql() {
+    statistics.add("select 1", millis(10), 0L);
+    statistics.add("update foo set bar=?", millis(5), 3L);
+    statistics.add("select 1", millis(30), 0L);
+    statistics.add("update foo set bar=?", millis(2), 1L);
+
+    List<SqlStatistics.Entry> entries = statistics.entries();
+    assertThat(entries).hasSize(2);
+
+    SqlStatistics.Entry select = entries.get(0);
+    assertThat(select.getSql()).isEqualTo("select 1");
+    assertThat(select.getExecutions()).isEqualTo(2L);
+    assertThat(select.getTotalNanos()).isEqualTo(millis(40));
+    assertThat(select.getMaxNanos()).isEqualTo(millis(30));
+    assertThat(select.getRows()).isEqualTo(0L);
+
+    SqlStatistics.Entry update = entries.get(1);
+    assertThat(update.getExecutions()).isEqualTo(2L);
+    assertThat(update.getMaxNanos()).isEqualTo(millis(5));
+    assertThat(update.getRows()).isEqualTo(4L);
+  }
+
+  @Test
+  public void limit_number_of_distinct_statements() {
+    for (int i = 0; i < SqlStatistics.MAX_STATEMENTS + 10; i++) {
+      statistics.add("select " + i, 1L, 0L);
+    }
+
+    List<SqlStatistics.Entry> entries = statistics.entries();
+    assertThat(entries).hasSize(SqlStatistics.MAX_STATEMENTS + 1);
+    long otherExecutions = 0L;
+    for (SqlStatistics.Entry entry : entries) {
+      if (SqlStatistics.OTHER_STATEMENTS.equals(entry.getSql())) {
+        otherExecutions = entry.getExecutions();
+      }
+    }
+    assertThat(otherExecutions).isEqualTo(10L);
+  }
+
+  @Test
+  public void summary_lists_slowest_statements_first() {
+    statistics.add("select 1", millis(10), 0L);
+    statistics.add("select 2", millis(20), 0L);
+    statistics.add("delete from foo", millis(1), 7L);
+
+    String summary = statistics.summary(2);
+
+    assertThat(summary).startsWith("SQL statistics: 3 statements, 3 executions, 31ms");
+    assertThat(summary).contains("20ms total, 1 executions, 20ms max, 0 rows: select 2");
+    assertThat(summary.indexOf("select 2")).isLessThan(summary.indexOf("select 1"));
+    assertThat(summary).doesNotContain("delete from foo");
+  }
+
+  @Test
+  public void clear() {
+    statistics.add("select 1", 1L, 0L);
+    statistics.clear();
+
+    assertThat(statistics.entries()).isEmpty();
+  }
+
+  private static long millis(long millis) {
+    return TimeUnit.MILLISECONDS.toNanos(millis);
+  }
+}
@@ -28,6 +28,7 @@ import org.sonar.core.persistence.AbstractDaoTestCase;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.List;
 
 import static org.hamcrest.number.OrderingComparisons.greaterThan;
 import static org.junit.Assert.assertThat;
@@ -152,4 +153,50 @@ public class ResourceIndexerDaoTest extends AbstractDaoTestCase {
 
     checkTables("shouldNotReindexUnchangedResource", new String[] {"id"}, "resource_index");
   }
+
+  @Test
+  public void shouldSelectIndexableResources() {
+    setupData("shouldIndexMultiModulesProject");
+
+    List<ResourceDto> resources = dao.selectIndexableResources(1L);
+
+    // package is excluded
+    assertThat(resources.size(), Is.is(3));
+    assertThat(resources.get(0).getId(), Is.is(1L));
+    assertThat(resources.get(0).getName(), Is.is("Struts"));
+    assertThat(resources.get(0).getRootId(), Is.is(1L));
+    assertThat(resources.get(1).getId(), Is.is(2L));
+    assertThat(resources.get(2).getId(), Is.is(4L));
+    assertThat(resources.get(2).getRootId(), Is.is(1L));
+  }
+
+  @Test
+  public void shouldSelectRootProjectLastSnapshots() {
+    setupData("selectRootProjectLastSnapshots");
+
+    List<SnapshotDto> snapshots = dao.selectRootProjectLastSnapshots();
+
+    assertThat(snapshots.size(), Is.is(2));
+    for (SnapshotDto snapshot : snapshots) {
+      if (snapshot.getRootProjectId() == 1L) {
+        assertThat(snapshot.getId(), Is.is(3L));
+      } else {
+        assertThat(snapshot.getRootProjectId(), Is.is(10L));
+        assertThat(snapshot.getId(), Is.is(5L));
+      }
+    }
+  }
+
+  @Test
+  public void shouldSelectResourceToIndex() {
+    setupData("shouldIndexMultiModulesProject");
+
+    ResourceDto project = dao.selectResourceToIndex(1L);
+    assertThat(project.getName(), Is.is("Struts"));
+    // root id is set on root projects
+    assertThat(project.getRootId(), Is.is(1L));
+
+    assertThat(dao.selectResourceToIndex(4L).getRootId(), Is.is(2L));
+    assertThat(dao.selectResourceToIndex(999L), Is.is((ResourceDto) null));
+  }
 }
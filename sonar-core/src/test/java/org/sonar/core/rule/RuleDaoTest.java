@@ -32,6 +32,7 @@ import org.sonar.api.utils.DateUtils;
 import org.sonar.check.Cardinality;
 import org.sonar.core.persistence.AbstractDaoTestCase;
 
+import java.util.Collections;
 import java.util.List;
 
 import static com.google.common.collect.Lists.newArrayList;
@@ -107,6 +108,20 @@ public class RuleDaoTest extends AbstractDaoTestCase {
     assertThat(ruleDto.getRepositoryKey()).isEqualTo("checkstyle");
   }
 
+  @Test
+  public void select_by_ids() throws Exception {
+    setupData("selectById");
+    SqlSession session = getMyBatis().openSession();
+    List<RuleDto> all = dao.selectByIds(newArrayList(1, 2, 3), session);
+    List<RuleDto> one = dao.selectByIds(newArrayList(2), session);
+    List<RuleDto> none = dao.selectByIds(Collections.<Integer>emptyList(), session);
+    session.close();
+
+    assertThat(all).onProperty("id").containsOnly(1, 2);
+    assertThat(one).onProperty("id").containsOnly(2);
+    assertThat(none).isEmpty();
+  }
+
   @Test
   public void select_by_rule_key() throws Exception {
     setupData("select_by_rule_key");
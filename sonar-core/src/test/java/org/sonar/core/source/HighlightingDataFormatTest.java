@@ -0,0 +1,125 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.source;
+
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.fest.assertions.Fail.fail;
+
+public class HighlightingDataFormatTest {
+
+  @Test
+  public void write_and_read_syntax_highlighting() {
+    String data = HighlightingDataFormat.writeSyntaxHighlighting(
+      new int[] {0, 10, 12, 24, 24, 2000000},
+      new int[] {10, 12, 20, 65, 38, 2000010},
+      new String[] {"cd", "k", "cd", "cppd", "k", "k"});
+
+    assertThat(HighlightingDataFormat.isCompact(data)).isTrue();
+    assertThat(data).startsWith("#1");
+    assertThat(readSyntaxHighlighting(data)).isEqualTo("0,10,cd;10,12,k;12,20,cd;24,65,cppd;24,38,k;2000000,2000010,k;");
+  }
+
+  @Test
+  public void write_and_read_unordered_syntax_highlighting() {
+    String data = HighlightingDataFormat.writeSyntaxHighlighting(new int[] {50, 0}, new int[] {60, 10}, new String[] {"a", "b"});
+
+    assertThat(readSyntaxHighlighting(data)).isEqualTo("50,60,a;0,10,b;");
+  }
+
+  @Test
+  public void write_and_read_symbols() {
+    String data = HighlightingDataFormat.writeSymbols(new int[][] {{10, 20, 10, 32}, {55, 62, 55, 70, 3}, {84, 92, 84}});
+
+    assertThat(HighlightingDataFormat.isCompact(data)).isTrue();
+    assertThat(readSymbols(data)).isEqualTo("10,20,10,32;55,62,55,70,3;84,92,84;");
+  }
+
+  @Test
+  public void write_and_read_empty_data() {
+    assertThat(readSyntaxHighlighting(HighlightingDataFormat.writeSyntaxHighlighting(new int[0], new int[0], new String[0]))).isEmpty();
+    assertThat(readSymbols(HighlightingDataFormat.writeSymbols(new int[0][]))).isEmpty();
+  }
+
+  @Test
+  public void compact_format_is_smaller_than_text() {
+    StringBuilder text = new StringBuilder();
+    int[] starts = new int[1000];
+    int[] ends = new int[1000];
+    String[] types = new String[1000];
+    for (int i = 0; i < 1000; i++) {
+      starts[i] = 100000 + i * 40;
+      ends[i] = starts[i] + 6;
+      types[i] = i % 2 == 0 ? "k" : "cppd";
+      text.append(starts[i]).append(',').append(ends[i]).append(',').append(types[i]).append(';');
+    }
+
+    assertThat(HighlightingDataFormat.writeSyntaxHighlighting(starts, ends, types).length()).isLessThan(text.length() / 3);
+  }
+
+  @Test
+  public void legacy_text_format_is_not_compact() {
+    assertThat(HighlightingDataFormat.isCompact("0,10,k;")).isFalse();
+    assertThat(HighlightingDataFormat.isCompact("")).isFalse();
+  }
+
+  @Test
+  public void fail_to_read_unsupported_version() {
+    try {
+      readSymbols("#9AAAA");
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e).hasMessage("Unsupported version of compact format: 9");
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void fail_to_read_truncated_data() {
+    String data = HighlightingDataFormat.writeSymbols(new int[][] {{10, 20, 10, 32}});
+    readSymbols(data.substring(0, data.length() - 4));
+  }
+
+  private static String readSyntaxHighlighting(String data) {
+    final StringBuilder text = new StringBuilder();
+    HighlightingDataFormat.readSyntaxHighlighting(data, new HighlightingDataFormat.SyntaxHighlightingHandler() {
+      @Override
+      public void onRule(int startOffset, int endOffset, String textType) {
+        text.append(startOffset).append(',').append(endOffset).append(',').append(textType).append(';');
+      }
+    });
+    return text.toString();
+  }
+
+  private static String readSymbols(String data) {
+    final StringBuilder text = new StringBuilder();
+    HighlightingDataFormat.readSymbols(data, new HighlightingDataFormat.SymbolHandler() {
+      @Override
+      public void onSymbol(int declarationStartOffset, int declarationEndOffset, int[] references) {
+        text.append(declarationStartOffset).append(',').append(declarationEndOffset);
+        for (int reference : references) {
+          text.append(',').append(reference);
+        }
+        text.append(';');
+      }
+    });
+    return text.toString();
+  }
+}
@@ -82,4 +82,20 @@ public class DefaultTestPlanTest {
 
     assertThat(plan.testCasesByName("T1")).hasSize(2);
   }
+
+  @Test
+  public void should_find_test_case_added_after_search() {
+    BeanGraph beanGraph = BeanGraph.createInMemory();
+
+    DefaultTestPlan plan = beanGraph.createVertex(DefaultTestPlan.class);
+    plan.addTestCase("T1");
+    assertThat(plan.testCasesByName("T1")).hasSize(1);
+    assertThat(plan.testCasesByName("T2")).isEmpty();
+
+    plan.addTestCase("T1");
+    plan.addTestCase("T2");
+
+    assertThat(plan.testCasesByName("T1")).hasSize(2);
+    assertThat(plan.testCasesByName("T2")).hasSize(1);
+  }
 }
@@ -112,4 +112,36 @@ public class DefaultTestableTest {
     assertThat(testable1.coverageBlock(testCase).testable()).isEqualTo(testable1);
     assertThat(testable2.coverageBlock(testCase)).isNull();
   }
+
+  @Test
+  public void should_update_lines_when_adding_coverage_block() {
+    BeanGraph beanGraph = BeanGraph.createInMemory();
+
+    DefaultTestable testable = beanGraph.createVertex(DefaultTestable.class);
+    DefaultTestCase testCase1 = beanGraph.createVertex(DefaultTestCase.class);
+    testCase1.setCoverageBlock(testable, Arrays.asList(10, 11));
+    assertThat(testable.testedLines()).containsOnly(10, 11);
+    assertThat(testable.countTestCasesOfLine(11)).isEqualTo(1);
+
+    DefaultTestCase testCase2 = beanGraph.createVertex(DefaultTestCase.class);
+    testCase2.setCoverageBlock(testable, Arrays.asList(11, 20));
+
+    assertThat(testable.testedLines()).containsOnly(10, 11, 20);
+    assertThat(testable.countTestCasesOfLine(11)).isEqualTo(2);
+    assertThat(testable.testCasesOfLine(20)).containsExactly(testCase2);
+    assertThat(testable.testCases()).containsOnly(testCase1, testCase2);
+  }
+
+  @Test
+  public void should_count_test_case_once_per_line() {
+    BeanGraph beanGraph = BeanGraph.createInMemory();
+
+    DefaultTestable testable = beanGraph.createVertex(DefaultTestable.class);
+    DefaultTestCase testCase = beanGraph.createVertex(DefaultTestCase.class);
+    testCase.setCoverageBlock(testable, Arrays.asList(10, 10, 11));
+
+    assertThat(testable.countTestCasesOfLine(10)).isEqualTo(1);
+    assertThat(testable.testCasesOfLine(10)).containsExactly(testCase);
+    assertThat(testable.countTestCasesOfLine(null)).isEqualTo(0);
+  }
 }
@@ -19,21 +19,43 @@
  */
 package org.sonar.graph;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 
+/**
+ * Dependency structure matrix. Only non-empty cells are stored, in compressed rows and columns indexed by the
+ * initial position of the vertices, so memory grows with the number of edges instead of the square of the
+ * number of vertices. Permutations only update the mapping between current and initial positions.
+ */
 public class Dsm<V> {
 
+  private static final DsmCell EMPTY_CELL = new DsmCell(null, false);
+
   private V[] vertices;
-  private DsmCell[][] cells;
   private int dimension;
   private DirectedGraphAccessor<V, ? extends Edge<V>> graph;
 
+  // current position -> initial index, and initial index -> current position
+  private int[] order;
+  private int[] positions;
+
+  // non-empty cells grouped by "from" vertex (initial indices), sorted by "to" vertex
+  private int[] outgoingOffsets;
+  private int[] outgoingTargets;
+  private DsmCell[] outgoingCells;
+
+  // non-empty cells grouped by "to" vertex (initial indices), sorted by "from" vertex
+  private int[] incomingOffsets;
+  private int[] incomingSources;
+  private DsmCell[] incomingCells;
+
   public Dsm(DirectedGraphAccessor<V, ? extends Edge<V>> graph, Collection<V> vertices, Set<Edge> feedbackEdges) {
     this.graph = graph;
     this.dimension = vertices.size();
-    this.cells = new DsmCell[dimension][dimension];
     initVertices(vertices);
     initCells(feedbackEdges);
   }
@@ -47,30 +69,98 @@ public class Dsm<V> {
   }
 
   private void initCells(Set<Edge> feedbackEdges) {
-    for (int x = 0; x < dimension; x++) {
-      for (int y = 0; y < dimension; y++) {
-        V from = vertices[x];
-        V to = vertices[y];
-
-        Edge<V> edge = graph.getEdge(from, to);
-        boolean isFeedbackEdge = edge != null && feedbackEdges.contains(edge);
-        DsmCell cell = new DsmCell(edge, isFeedbackEdge);
-        cells[x][y] = cell;
+    Map<V, Integer> indexByVertex = new HashMap<V, Integer>(dimension * 2);
+    for (int i = dimension - 1; i >= 0; i--) {
+      indexByVertex.put(vertices[i], i);
+    }
+
+    int count = 0;
+    int[] froms = new int[Math.max(16, dimension)];
+    int[] tos = new int[froms.length];
+    DsmCell[] cells = new DsmCell[froms.length];
+    for (int from = 0; from < dimension; from++) {
+      for (Edge<V> edge : graph.getOutgoingEdges(vertices[from])) {
+        Integer to = indexByVertex.get(edge.getTo());
+        if (to != null) {
+          if (count == froms.length) {
+            froms = Arrays.copyOf(froms, count * 2);
+            tos = Arrays.copyOf(tos, count * 2);
+            cells = Arrays.copyOf(cells, count * 2);
+          }
+          froms[count] = from;
+          tos[count] = to;
+          cells[count] = new DsmCell(edge, feedbackEdges.contains(edge));
+          count++;
+        }
       }
     }
+
+    int[] byFromThenTo = sortByKey(froms, sortByKey(tos, identity(count)));
+    outgoingOffsets = offsets(froms, count);
+    outgoingTargets = new int[count];
+    outgoingCells = new DsmCell[count];
+    for (int i = 0; i < count; i++) {
+      outgoingTargets[i] = tos[byFromThenTo[i]];
+      outgoingCells[i] = cells[byFromThenTo[i]];
+    }
+
+    int[] byToThenFrom = sortByKey(tos, sortByKey(froms, identity(count)));
+    incomingOffsets = offsets(tos, count);
+    incomingSources = new int[count];
+    incomingCells = new DsmCell[count];
+    for (int i = 0; i < count; i++) {
+      incomingSources[i] = froms[byToThenFrom[i]];
+      incomingCells[i] = cells[byToThenFrom[i]];
+    }
+  }
+
+  private static int[] identity(int size) {
+    int[] result = new int[size];
+    for (int i = 0; i < size; i++) {
+      result[i] = i;
+    }
+    return result;
+  }
+
+  /**
+   * Stable counting sort of the given item indices according to their key.
+   */
+  private int[] sortByKey(int[] keys, int[] items) {
+    int[] starts = offsets(keys, items.length);
+    int[] result = new int[items.length];
+    for (int item : items) {
+      result[starts[keys[item]]] = item;
+      starts[keys[item]]++;
+    }
+    return result;
+  }
+
+  private int[] offsets(int[] keys, int count) {
+    int[] offsets = new int[dimension + 1];
+    for (int i = 0; i < count; i++) {
+      offsets[keys[i] + 1]++;
+    }
+    for (int i = 0; i < dimension; i++) {
+      offsets[i + 1] += offsets[i];
+    }
+    return offsets;
   }
 
   private void initVertices(Collection<V> verticesCol) {
     this.vertices = (V[]) new Object[dimension];
+    this.order = new int[dimension];
+    this.positions = new int[dimension];
     int i = 0;
     for (V vertex : verticesCol) {
       vertices[i] = vertex;
+      order[i] = i;
+      positions[i] = i;
       i++;
     }
   }
 
   public V getVertex(int rowIndex) {
-    return vertices[rowIndex];
+    return vertices[order[rowIndex]];
   }
 
   public int getDimension() {
@@ -80,9 +170,12 @@ public class Dsm<V> {
   public void permute(int fromIndex, int toIndex) {
     if (fromIndex != toIndex) {
       checkIndicesBoudaries(fromIndex, toIndex);
-      permuteVertice(fromIndex, toIndex);
-      permuteColumns(fromIndex, toIndex);
-      permuteRows(fromIndex, toIndex);
+      int fromVertex = order[fromIndex];
+      int toVertex = order[toIndex];
+      order[fromIndex] = toVertex;
+      order[toIndex] = fromVertex;
+      positions[toVertex] = fromIndex;
+      positions[fromVertex] = toIndex;
     }
   }
 
@@ -90,7 +183,7 @@ public class Dsm<V> {
     for (int index : indices) {
       if (index < 0 || index >= dimension) {
         StringBuilder builder = new StringBuilder("DSM contains the following vertices : ");
-        for (V vertex : vertices) {
+        for (V vertex : getVertices()) {
           builder.append(vertex.toString()).append(" | ");
         }
         builder.append(". Trying to reach index ").append(index);
@@ -99,37 +192,12 @@ public class Dsm<V> {
     }
   }
 
-  private void permuteVertice(int fromIndex, int toIndex) {
-    V fromVertex = vertices[fromIndex];
-    V toVertex = vertices[toIndex];
-    vertices[fromIndex] = toVertex;
-    vertices[toIndex] = fromVertex;
-  }
-
-  private void permuteRows(int fromYIndex, int toYIndex) {
-    for (int x = 0; x < dimension; x++) {
-      permuteCells(x, fromYIndex, x, toYIndex);
-    }
-  }
-
-  private void permuteColumns(int fromXIndex, int toXIndex) {
-    for (int y = 0; y < dimension; y++) {
-      permuteCells(fromXIndex, y, toXIndex, y);
-    }
-  }
-
-  private void permuteCells(int fromXIndex, int fromYIndex, int toXIndex, int toYIndex) {
-    DsmCell fromCell = cells[fromXIndex][fromYIndex];
-    DsmCell toCell = cells[toXIndex][toYIndex];
-    cells[toXIndex][toYIndex] = fromCell;
-    cells[fromXIndex][fromYIndex] = toCell;
-  }
-
   public int getNumberOfIncomingEdges(int y, int from, int to) {
+    int vertex = order[y];
     int incomingEdges = 0;
-    for (int x = from; x <= to; x++) {
-      DsmCell cell = cells[x][y];
-      if (cell.getWeight() != 0 && !cell.isFeedbackEdge()) {
+    for (int i = incomingOffsets[vertex]; i < incomingOffsets[vertex + 1]; i++) {
+      int x = positions[incomingSources[i]];
+      if (x >= from && x <= to && isDependency(incomingCells[i])) {
         incomingEdges++;
       }
     }
@@ -137,23 +205,53 @@ public class Dsm<V> {
   }
 
   public int getNumberOfOutgoingEdges(int x, int from, int to) {
+    int vertex = order[x];
     int outgoingEdges = 0;
-    for (int y = from; y <= to; y++) {
-      DsmCell cell = cells[x][y];
-      if (cell.getWeight() != 0 && !cell.isFeedbackEdge()) {
+    for (int i = outgoingOffsets[vertex]; i < outgoingOffsets[vertex + 1]; i++) {
+      int y = positions[outgoingTargets[i]];
+      if (y >= from && y <= to && isDependency(outgoingCells[i])) {
         outgoingEdges++;
       }
     }
     return outgoingEdges;
   }
 
+  private static boolean isDependency(DsmCell cell) {
+    return cell.getWeight() != 0 && !cell.isFeedbackEdge();
+  }
+
   public DsmCell getCell(int x, int y) {
-    return cells[x][y];
+    int from = order[x];
+    int i = Arrays.binarySearch(outgoingTargets, outgoingOffsets[from], outgoingOffsets[from + 1], order[y]);
+    return i < 0 ? EMPTY_CELL : outgoingCells[i];
+  }
+
+  /**
+   * Allows to iterate over the non-empty cells of a row without scanning the whole dimension.
+   *
+   * @return the sorted indices x such that the cell (x, y) holds an edge of non-zero weight
+   * @since 4.3
+   */
+  public int[] getNonEmptyCellIndices(int y) {
+    int vertex = order[y];
+    int[] result = new int[incomingOffsets[vertex + 1] - incomingOffsets[vertex]];
+    int count = 0;
+    for (int i = incomingOffsets[vertex]; i < incomingOffsets[vertex + 1]; i++) {
+      if (incomingCells[i].getWeight() != 0) {
+        result[count] = positions[incomingSources[i]];
+        count++;
+      }
+    }
+    result = Arrays.copyOf(result, count);
+    Arrays.sort(result);
+    return result;
   }
 
   public V[] getVertices() {
-    V[] verticesCopy = (V[]) new Object[vertices.length];
-    System.arraycopy(vertices, 0, verticesCopy, 0, vertices.length);
+    V[] verticesCopy = (V[]) new Object[dimension];
+    for (int i = 0; i < dimension; i++) {
+      verticesCopy[i] = vertices[order[i]];
+    }
     return verticesCopy;
   }
 }
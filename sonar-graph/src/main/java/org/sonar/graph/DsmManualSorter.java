@@ -50,8 +50,9 @@ public final class DsmManualSorter<V> {
   }
 
   private int getCurrentIndex(V v) {
-    for (int currentIndex = 0; currentIndex < dsm.getVertices().length; currentIndex++) {
-      if (dsm.getVertices()[currentIndex].equals(v)) {
+    V[] vertices = dsm.getVertices();
+    for (int currentIndex = 0; currentIndex < vertices.length; currentIndex++) {
+      if (vertices[currentIndex].equals(v)) {
         return currentIndex;
       }
     }
@@ -0,0 +1,289 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.graph;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Memory-efficient alternative to {@link DirectedGraph}. Each vertex is given a dense int index when it is added,
+ * and edges are kept in per-vertex adjacency arrays instead of one hash map per vertex and per direction.
+ *
+ * @since 4.3
+ */
+public class IndexedDirectedGraph<V, E extends Edge<V>> implements DirectedGraphAccessor<V, E> {
+
+  private static final int[] EMPTY_INDICES = new int[0];
+  private static final Object[] EMPTY_EDGES = new Object[0];
+
+  private EdgeFactory<V, E> edgeFactory;
+  private final Map<V, Integer> indexByVertex = new HashMap<V, Integer>();
+  private final List<V> vertices = new ArrayList<V>();
+
+  private int[][] outgoingIndices = new int[16][];
+  private Object[][] outgoingEdges = new Object[16][];
+  private int[] outgoingSizes = new int[16];
+
+  private int[][] incomingIndices = new int[16][];
+  private Object[][] incomingEdges = new Object[16][];
+  private int[] incomingSizes = new int[16];
+
+  private int edgeCount = 0;
+
+  public IndexedDirectedGraph() {
+  }
+
+  public IndexedDirectedGraph(EdgeFactory<V, E> edgeFactory) {
+    this.edgeFactory = edgeFactory;
+  }
+
+  public static IndexedDirectedGraph<String, StringEdge> createStringIndexedDirectedGraph() {
+    return new IndexedDirectedGraph<String, StringEdge>(new StringEdgeFactory());
+  }
+
+  public IndexedDirectedGraph<V, E> addEdge(V from, V to) {
+    checkEdgeFactory();
+    return addEdge(edgeFactory.createEdge(from, to));
+  }
+
+  public IndexedDirectedGraph<V, E> addEdge(V from, V to, int weight) {
+    checkEdgeFactory();
+    return addEdge(edgeFactory.createEdge(from, to, weight));
+  }
+
+  private void checkEdgeFactory() {
+    if (edgeFactory == null) {
+      throw new IllegalStateException(
+        "EdgeFactory<V, E> has not been defined. Please use the 'public E addEdge(V from, V to, E edge)' method.");
+    }
+  }
+
+  public IndexedDirectedGraph<V, E> addEdge(E edge) {
+    int from = addVertex(edge.getFrom());
+    int to = addVertex(edge.getTo());
+    if (find(from, to) >= 0) {
+      throw new IllegalStateException("The graph already contains the edge : " + edge);
+    }
+    outgoingSizes[from] = append(outgoingIndices, outgoingEdges, outgoingSizes[from], from, to, edge);
+    incomingSizes[to] = append(incomingIndices, incomingEdges, incomingSizes[to], to, from, edge);
+    edgeCount++;
+    return this;
+  }
+
+  private static int append(int[][] indices, Object[][] edges, int size, int vertex, int otherVertex, Object edge) {
+    int[] vertexIndices = indices[vertex];
+    Object[] vertexEdges = edges[vertex];
+    if (size == vertexIndices.length) {
+      int newLength = Math.max(4, size * 2);
+      vertexIndices = Arrays.copyOf(vertexIndices, newLength);
+      vertexEdges = Arrays.copyOf(vertexEdges, newLength);
+      indices[vertex] = vertexIndices;
+      edges[vertex] = vertexEdges;
+    }
+    vertexIndices[size] = otherVertex;
+    vertexEdges[size] = edge;
+    return size + 1;
+  }
+
+  /**
+   * @return the index of the vertex, which is allocated if the vertex is not already part of the graph
+   */
+  public int addVertex(V vertex) {
+    Integer index = indexByVertex.get(vertex);
+    if (index != null) {
+      return index;
+    }
+    int newIndex = vertices.size();
+    ensureVertexCapacity(newIndex + 1);
+    vertices.add(vertex);
+    indexByVertex.put(vertex, newIndex);
+    outgoingIndices[newIndex] = EMPTY_INDICES;
+    outgoingEdges[newIndex] = EMPTY_EDGES;
+    incomingIndices[newIndex] = EMPTY_INDICES;
+    incomingEdges[newIndex] = EMPTY_EDGES;
+    return newIndex;
+  }
+
+  public void addVertices(Collection<V> vertices) {
+    for (V vertex : vertices) {
+      addVertex(vertex);
+    }
+  }
+
+  private void ensureVertexCapacity(int capacity) {
+    if (capacity > outgoingSizes.length) {
+      int newLength = Math.max(capacity, outgoingSizes.length * 2);
+      outgoingIndices = Arrays.copyOf(outgoingIndices, newLength);
+      outgoingEdges = Arrays.copyOf(outgoingEdges, newLength);
+      outgoingSizes = Arrays.copyOf(outgoingSizes, newLength);
+      incomingIndices = Arrays.copyOf(incomingIndices, newLength);
+      incomingEdges = Arrays.copyOf(incomingEdges, newLength);
+      incomingSizes = Arrays.copyOf(incomingSizes, newLength);
+    }
+  }
+
+  /**
+   * @return the index of the vertex, or -1 if the vertex is not part of the graph
+   */
+  public int indexOf(V vertex) {
+    Integer index = indexByVertex.get(vertex);
+    return index == null ? -1 : index;
+  }
+
+  public V getVertex(int index) {
+    return vertices.get(index);
+  }
+
+  public int getVertexCount() {
+    return vertices.size();
+  }
+
+  public int getEdgeCount() {
+    return edgeCount;
+  }
+
+  /**
+   * @return a copy of the indices of the vertices targeted by the outgoing edges of the given vertex
+   */
+  public int[] getOutgoingVertexIndices(int from) {
+    return Arrays.copyOf(outgoingIndices[from], outgoingSizes[from]);
+  }
+
+  /**
+   * @return a copy of the indices of the vertices at the source of the incoming edges of the given vertex
+   */
+  public int[] getIncomingVertexIndices(int to) {
+    return Arrays.copyOf(incomingIndices[to], incomingSizes[to]);
+  }
+
+  /**
+   * Searches the smallest of the two adjacency lists.
+   *
+   * @return the position of the edge in the outgoing edges of {@code from} if it exists, else -1
+   */
+  private int find(int from, int to) {
+    if (outgoingSizes[from] <= incomingSizes[to]) {
+      int[] targets = outgoingIndices[from];
+      for (int i = 0; i < outgoingSizes[from]; i++) {
+        if (targets[i] == to) {
+          return i;
+        }
+      }
+      return -1;
+    }
+    int[] sources = incomingIndices[to];
+    for (int i = 0; i < incomingSizes[to]; i++) {
+      if (sources[i] == from) {
+        return positionInOutgoingEdges(from, incomingEdges[to][i]);
+      }
+    }
+    return -1;
+  }
+
+  private int positionInOutgoingEdges(int from, Object edge) {
+    Object[] edges = outgoingEdges[from];
+    for (int i = 0; i < outgoingSizes[from]; i++) {
+      if (edges[i] == edge) {
+        return i;
+      }
+    }
+    throw new IllegalStateException("Incoherent graph: edge " + edge + " is not registered as outgoing edge");
+  }
+
+  public E getEdge(int from, int to) {
+    int position = find(from, to);
+    return position < 0 ? null : (E) outgoingEdges[from][position];
+  }
+
+  public E getEdge(V from, V to) {
+    int fromIndex = indexOf(from);
+    int toIndex = indexOf(to);
+    if (fromIndex < 0 || toIndex < 0) {
+      return null;
+    }
+    return getEdge(fromIndex, toIndex);
+  }
+
+  public boolean hasEdge(V from, V to) {
+    return getEdge(from, to) != null;
+  }
+
+  public Set<V> getVertices() {
+    return Collections.unmodifiableSet(indexByVertex.keySet());
+  }
+
+  public List<E> getEdges(Collection<V> vertices) {
+    List<E> result = new ArrayList<E>();
+    for (V vertex : vertices) {
+      result.addAll(getOutgoingEdges(vertex));
+    }
+    return result;
+  }
+
+  public Collection<E> getOutgoingEdges(V from) {
+    int index = indexOf(from);
+    if (index < 0) {
+      return Collections.emptyList();
+    }
+    return new EdgeList<E>(outgoingEdges[index], outgoingSizes[index]);
+  }
+
+  public Collection<E> getIncomingEdges(V to) {
+    int index = indexOf(to);
+    if (index < 0) {
+      return Collections.emptyList();
+    }
+    return new EdgeList<E>(incomingEdges[index], incomingSizes[index]);
+  }
+
+  /**
+   * Read-only view over the first {@code size} elements of an adjacency array. Edges are never
+   * removed, so the view stays valid even if the array is later replaced by a bigger one.
+   */
+  private static final class EdgeList<E> extends AbstractList<E> {
+    private final Object[] edges;
+    private final int size;
+
+    private EdgeList(Object[] edges, int size) {
+      this.edges = edges;
+      this.size = size;
+    }
+
+    @Override
+    public E get(int index) {
+      if (index < 0 || index >= size) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+      }
+      return (E) edges[index];
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+  }
+}
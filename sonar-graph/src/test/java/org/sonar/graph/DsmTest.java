@@ -26,6 +26,7 @@ import org.sonar.graph.DsmScanner;
 
 import static org.hamcrest.Matchers.equalTo;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
 
 public class DsmTest {
@@ -74,4 +75,29 @@ public class DsmTest {
     assertThat(dsm.getNumberOfIncomingEdges(0, 0, 4), equalTo(1));
     assertThat(dsm.getNumberOfIncomingEdges(4, 0, 4), equalTo(0));
   }
+
+  @Test
+  public void testGetNonEmptyCellIndices() {
+    assertThat(dsm.getNonEmptyCellIndices(0), equalTo(new int[] {1}));
+    assertThat(dsm.getNonEmptyCellIndices(3), equalTo(new int[] {1, 4}));
+    assertThat(dsm.getNonEmptyCellIndices(4).length, equalTo(0));
+
+    dsm.permute(0, 3);
+    assertThat(dsm.getNonEmptyCellIndices(0), equalTo(new int[] {1, 4}));
+    assertThat(dsm.getNonEmptyCellIndices(1), equalTo(new int[] {3}));
+  }
+
+  @Test
+  public void testGetCellOfEmptyCell() {
+    assertEquals(0, dsm.getCell(2, 2).getWeight());
+    assertNull(dsm.getCell(2, 2).getEdge());
+  }
+
+  @Test
+  public void testGetVerticesAfterPermutation() {
+    dsm.permute(1, 4);
+    assertEquals("E", dsm.getVertex(1));
+    assertEquals("B", dsm.getVertex(4));
+    assertEquals(7, dsm.getCell(4, 3).getWeight());
+  }
 }
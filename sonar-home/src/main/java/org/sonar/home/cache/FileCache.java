@@ -86,14 +86,19 @@ public class FileCache {
     File targetFile = new File(hashDir, filename);
     if (!targetFile.exists()) {
       File tempFile = newTempFile();
-      download(downloader, filename, tempFile);
-      String downloadedHash = hashes.of(tempFile);
-      if (!hash.equals(downloadedHash)) {
-        throw new IllegalStateException("INVALID HASH: File " + tempFile.getAbsolutePath() + " was expected to have hash " + hash
-          + " but was downloaded with hash " + downloadedHash);
+      try {
+        download(downloader, filename, tempFile);
+        String downloadedHash = hashes.of(tempFile);
+        if (!hash.equals(downloadedHash)) {
+          throw new IllegalStateException("INVALID HASH: File " + tempFile.getAbsolutePath() + " was expected to have hash " + hash
+            + " but was downloaded with hash " + downloadedHash);
+        }
+        mkdirQuietly(hashDir);
+        renameQuietly(tempFile, targetFile);
+      } finally {
+        // the file is not complete, or is still there because it was cached by another thread or process
+        FileUtils.deleteQuietly(tempFile);
       }
-      mkdirQuietly(hashDir);
-      renameQuietly(tempFile, targetFile);
     }
     return targetFile;
   }
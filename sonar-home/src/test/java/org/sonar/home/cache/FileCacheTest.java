@@ -32,6 +32,7 @@ import java.net.URISyntaxException;
 import java.util.concurrent.ExecutionException;
 
 import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -97,6 +98,27 @@ public class FileCacheTest {
     cache.get("sonar-foo-plugin-1.5.jar", "ABCDE", downloader);
   }
 
+  @Test
+  public void delete_temp_file_of_corrupted_download() throws IOException {
+    FileHashes hashes = mock(FileHashes.class);
+    File cacheDir = tempFolder.newFolder();
+    FileCache cache = new FileCache(cacheDir, log, hashes);
+    when(hashes.of(any(File.class))).thenReturn("VWXYZ");
+
+    FileCache.Downloader downloader = new FileCache.Downloader() {
+      public void download(String filename, File toFile) throws IOException {
+        FileUtils.write(toFile, "corrupted body");
+      }
+    };
+    try {
+      cache.get("sonar-foo-plugin-1.5.jar", "ABCDE", downloader);
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(new File(cacheDir, "_tmp").list()).isEmpty();
+      assertThat(cache.get("sonar-foo-plugin-1.5.jar", "ABCDE")).isNull();
+    }
+  }
+
   @Test
   public void concurrent_download() throws IOException {
     FileHashes hashes = mock(FileHashes.class);
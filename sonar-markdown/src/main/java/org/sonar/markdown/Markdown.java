@@ -22,12 +22,22 @@ package org.sonar.markdown;
 import org.sonar.channel.ChannelDispatcher;
 import org.sonar.channel.CodeReader;
 
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
 /**
  * Entry point of the Markdown library
  */
 public final class Markdown {
 
-  private ChannelDispatcher<MarkdownOutput> dispatcher;
+  /**
+   * Channels are not thread-safe (regexp matchers, state of lists), so dispatchers are borrowed from a bounded pool
+   * instead of being built on each conversion. Unlike thread-locals, the pool does not leak instances into the
+   * threads of the container, which would pin the classloader on redeploy.
+   */
+  private static final BlockingQueue<Markdown> POOL = new ArrayBlockingQueue<Markdown>(Runtime.getRuntime().availableProcessors() * 2);
+
+  private final ChannelDispatcher<MarkdownOutput> dispatcher;
 
   private Markdown() {
     dispatcher = ChannelDispatcher.builder()
@@ -50,6 +60,13 @@ public final class Markdown {
   }
 
   public static String convertToHtml(String input) {
-    return new Markdown().convert(input);
+    Markdown markdown = POOL.poll();
+    if (markdown == null) {
+      markdown = new Markdown();
+    }
+    // a dispatcher that failed may be left in an inconsistent state, so it is returned to the pool only on success
+    String html = markdown.convert(input);
+    POOL.offer(markdown);
+    return html;
   }
 }
@@ -0,0 +1,143 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.markdown;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread-safe Markdown renderer that keeps the least recently rendered HTML. The same texts (rule notes,
+ * issue comments) are usually rendered many times, so conversions are cached by input. The cache is bounded
+ * by the total number of characters of the inputs and of the rendered HTML.
+ *
+ * @since 4.3
+ */
+public class MarkdownRenderer {
+
+  public static final long DEFAULT_MAX_SIZE = 2L * 1024L * 1024L;
+
+  private final long maxSize;
+  private final LinkedHashMap<String, String> htmlByInput = new LinkedHashMap<String, String>(16, 0.75f, true);
+  private long size = 0L;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong renderNanos = new AtomicLong();
+
+  public MarkdownRenderer() {
+    this(DEFAULT_MAX_SIZE);
+  }
+
+  /**
+   * @param maxSize maximum number of cached characters, inputs and outputs included. Zero disables the cache.
+   */
+  public MarkdownRenderer(long maxSize) {
+    if (maxSize < 0L) {
+      throw new IllegalArgumentException("Max size of cache must be positive: " + maxSize);
+    }
+    this.maxSize = maxSize;
+  }
+
+  public String render(String input) {
+    String html;
+    synchronized (this) {
+      html = htmlByInput.get(input);
+    }
+    if (html != null) {
+      hits.incrementAndGet();
+      return html;
+    }
+    misses.incrementAndGet();
+    long start = System.nanoTime();
+    html = Markdown.convertToHtml(input);
+    renderNanos.addAndGet(System.nanoTime() - start);
+    put(input, html);
+    return html;
+  }
+
+  private synchronized void put(String input, String html) {
+    long entrySize = sizeOf(input, html);
+    if (entrySize > maxSize) {
+      return;
+    }
+    String previous = htmlByInput.put(input, html);
+    if (previous != null) {
+      size -= sizeOf(input, previous);
+    }
+    size += entrySize;
+    Iterator<Map.Entry<String, String>> lru = htmlByInput.entrySet().iterator();
+    while (size > maxSize && lru.hasNext()) {
+      Map.Entry<String, String> eldest = lru.next();
+      size -= sizeOf(eldest.getKey(), eldest.getValue());
+      lru.remove();
+    }
+  }
+
+  private static long sizeOf(String input, String html) {
+    return (long) input.length() + html.length();
+  }
+
+  public synchronized void clear() {
+    htmlByInput.clear();
+    size = 0L;
+  }
+
+  public synchronized int getCount() {
+    return htmlByInput.size();
+  }
+
+  /**
+   * Number of cached characters
+   */
+  public synchronized long getSize() {
+    return size;
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+  /**
+   * @return hits divided by the number of calls to {@link #render(String)}, 0.0 if never called
+   */
+  public double getHitRate() {
+    long h = hits.get();
+    long total = h + misses.get();
+    return total == 0L ? 0.0 : (double) h / total;
+  }
+
+  /**
+   * Time spent to convert the inputs that were not cached
+   */
+  public long getRenderMillis() {
+    return renderNanos.get() / 1000000L;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%d cached texts (%d chars), hit rate %.0f%%, %d ms of rendering",
+      getCount(), getSize(), getHitRate() * 100.0, getRenderMillis());
+  }
+}
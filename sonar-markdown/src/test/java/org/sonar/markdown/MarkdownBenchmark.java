@@ -0,0 +1,69 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.markdown;
+
+import org.sonar.test.Benchmark;
+
+/**
+ * Measures the rendering of short texts, as issue comments or rule notes, without and with the cache of
+ * {@link MarkdownRenderer}. Each iteration renders the 200 texts. Not executed by the build, run it manually :
+ * <pre>java -cp ... org.sonar.markdown.MarkdownBenchmark</pre>
+ */
+public class MarkdownBenchmark {
+
+  private static final int TEXTS = 200;
+  private static final int WARMUP_ITERATIONS = 20;
+  private static final int ITERATIONS = 50;
+
+  private final String[] texts = new String[TEXTS];
+  private long checksum = 0L;
+
+  MarkdownBenchmark() {
+    for (int i = 0; i < TEXTS; i++) {
+      texts[i] = "This issue #" + i + " is *not* a false-positive, see http://docs.codehaus.org/display/SONAR/Rule" + i + "\n"
+        + "* first, call ``close()``\n"
+        + "* then release the lock\n"
+        + "``java\nif (lock != null) {\n  lock.release();\n}\n``";
+    }
+  }
+
+  private void render(MarkdownRenderer renderer) {
+    for (String text : texts) {
+      checksum += renderer.render(text).length();
+    }
+  }
+
+  public static void main(String[] args) {
+    final MarkdownBenchmark benchmark = new MarkdownBenchmark();
+    final MarkdownRenderer noCache = new MarkdownRenderer(0L);
+    final MarkdownRenderer cache = new MarkdownRenderer();
+    new Benchmark(WARMUP_ITERATIONS, ITERATIONS).run("no cache", new Runnable() {
+      public void run() {
+        benchmark.render(noCache);
+      }
+    }).run("cache", new Runnable() {
+      public void run() {
+        benchmark.render(cache);
+      }
+    });
+    System.out.println("cache: " + cache);
+    System.out.println("checksum " + benchmark.checksum);
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.markdown;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.fest.assertions.Fail.fail;
+
+public class MarkdownRendererTest {
+
+  @Test
+  public void render_markdown() {
+    MarkdownRenderer renderer = new MarkdownRenderer();
+
+    assertThat(renderer.render("This is *important*")).isEqualTo("This is <em>important</em>");
+    assertThat(renderer.render("")).isEqualTo("");
+  }
+
+  @Test
+  public void cache_rendered_html() {
+    MarkdownRenderer renderer = new MarkdownRenderer();
+
+    String first = renderer.render("``code``");
+    String second = renderer.render("``code``");
+
+    assertThat(second).isEqualTo("<code>code</code>").isSameAs(first);
+    assertThat(renderer.getHits()).isEqualTo(1L);
+    assertThat(renderer.getMisses()).isEqualTo(1L);
+    assertThat(renderer.getHitRate()).isEqualTo(0.5);
+    assertThat(renderer.getCount()).isEqualTo(1);
+    assertThat(renderer.getSize()).isEqualTo(8L + 17L);
+  }
+
+  @Test
+  public void evict_least_recently_used() {
+    // room for two entries of 2 + 2 chars
+    MarkdownRenderer renderer = new MarkdownRenderer(8L);
+
+    renderer.render("aa");
+    renderer.render("bb");
+    renderer.render("aa");
+    renderer.render("cc");
+    assertThat(renderer.getCount()).isEqualTo(2);
+    assertThat(renderer.getSize()).isEqualTo(8L);
+
+    renderer.render("aa");
+    assertThat(renderer.getHits()).isEqualTo(2L);
+    renderer.render("bb");
+    assertThat(renderer.getMisses()).isEqualTo(4L);
+  }
+
+  @Test
+  public void do_not_cache_texts_bigger_than_cache() {
+    MarkdownRenderer renderer = new MarkdownRenderer(5L);
+
+    assertThat(renderer.render("foo")).isEqualTo("foo");
+    assertThat(renderer.getCount()).isEqualTo(0);
+    assertThat(renderer.getSize()).isEqualTo(0L);
+  }
+
+  @Test
+  public void clear() {
+    MarkdownRenderer renderer = new MarkdownRenderer();
+    renderer.render("foo");
+
+    renderer.clear();
+
+    assertThat(renderer.getCount()).isEqualTo(0);
+    assertThat(renderer.getSize()).isEqualTo(0L);
+  }
+
+  @Test
+  public void no_statistics_if_never_called() {
+    MarkdownRenderer renderer = new MarkdownRenderer();
+
+    assertThat(renderer.getHitRate()).isEqualTo(0.0);
+    assertThat(renderer.getRenderMillis()).isEqualTo(0L);
+    assertThat(renderer.toString()).isEqualTo("0 cached texts (0 chars), hit rate 0%, 0 ms of rendering");
+  }
+
+  @Test
+  public void fail_if_negative_size() {
+    try {
+      new MarkdownRenderer(-1L);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e).hasMessage("Max size of cache must be positive: -1");
+    }
+  }
+
+  @Test
+  public void render_concurrently() throws Exception {
+    // small cache, so that most of the conversions are not cached
+    final MarkdownRenderer renderer = new MarkdownRenderer(100L);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+      for (int task = 0; task < 8; task++) {
+        final int seed = task;
+        results.add(executor.submit(new Callable<Boolean>() {
+          @Override
+          public Boolean call() {
+            for (int i = 0; i < 500; i++) {
+              int n = (seed + i) % 20;
+              String html = renderer.render("* item " + n + "\n*other* ``code``");
+              if (!html.equals("<ul><li>item " + n + "</li>\n</ul><em>other</em> <code>code</code>")) {
+                return false;
+              }
+            }
+            return true;
+          }
+        }));
+      }
+      for (Future<Boolean> result : results) {
+        assertThat(result.get()).isTrue();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertThat(renderer.getHits() + renderer.getMisses()).isEqualTo(4000L);
+  }
+}
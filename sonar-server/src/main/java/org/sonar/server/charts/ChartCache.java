@@ -0,0 +1,192 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.charts;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Maps;
+import org.apache.commons.lang.StringUtils;
+import org.apache.ibatis.session.SqlSession;
+import org.sonar.api.ServerComponent;
+import org.sonar.core.persistence.MyBatis;
+import org.sonar.core.resource.ResourceDao;
+import org.sonar.core.resource.SnapshotDto;
+import org.sonar.server.plugins.CachedResource;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import javax.servlet.http.HttpServletRequest;
+
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Least recently used PNG images of charts. Deprecated charts are computed only from the request parameters, so the
+ * sorted parameters are used as key. Charts provided by plugins can also read the measures of the resource given
+ * by the parameter {@value #RESOURCE_PARAM}, so their key includes the id of its last analysis. The cache is bounded
+ * by the total size of images.
+ *
+ * @since 4.3
+ */
+public class ChartCache implements ServerComponent {
+
+  static final long DEFAULT_MAX_SIZE = 8L * 1024L * 1024L;
+
+  /**
+   * Id or key of the resource the chart is for
+   */
+  public static final String RESOURCE_PARAM = "resource";
+
+  private final MyBatis mybatis;
+  private final ResourceDao resourceDao;
+  private final long maxSize;
+  private final LinkedHashMap<String, CachedResource> images = new LinkedHashMap<String, CachedResource>(16, 0.75f, true);
+  private long size = 0L;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  public ChartCache(MyBatis mybatis, ResourceDao resourceDao) {
+    this(mybatis, resourceDao, DEFAULT_MAX_SIZE);
+  }
+
+  @VisibleForTesting
+  ChartCache(MyBatis mybatis, ResourceDao resourceDao, long maxSize) {
+    this.mybatis = mybatis;
+    this.resourceDao = resourceDao;
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Normalized key of request : parameters sorted by name, whatever their order in URL.
+   */
+  public static String key(HttpServletRequest request) {
+    SortedMap<String, String[]> params = Maps.newTreeMap();
+    Enumeration names = request.getParameterNames();
+    while (names.hasMoreElements()) {
+      String name = (String) names.nextElement();
+      params.put(name, request.getParameterValues(name));
+    }
+    StringBuilder key = new StringBuilder();
+    for (Map.Entry<String, String[]> param : params.entrySet()) {
+      key.append(param.getKey()).append('=').append(Arrays.toString(param.getValue())).append('&');
+    }
+    return key.toString();
+  }
+
+  /**
+   * Key of charts that depend on the measures stored in database, for example charts provided by plugins
+   *
+   * @param lastSnapshotId id of the last analysis of the resource the chart is for
+   */
+  public static String key(HttpServletRequest request, long lastSnapshotId) {
+    return key(request) + "snapshot=" + lastSnapshotId;
+  }
+
+  /**
+   * Key of charts provided by plugins : images of a resource expire when it is analysed again. Charts without
+   * resource, for example the ones of a given snapshot, depend only on their parameters.
+   */
+  public String lastAnalysisKey(HttpServletRequest request) {
+    Long lastSnapshotId = lastSnapshotId(request.getParameter(RESOURCE_PARAM));
+    return lastSnapshotId == null ? key(request) : key(request, lastSnapshotId);
+  }
+
+  @CheckForNull
+  private Long lastSnapshotId(@Nullable String resource) {
+    if (StringUtils.isBlank(resource)) {
+      return null;
+    }
+    SqlSession session = mybatis.openSession();
+    try {
+      SnapshotDto snapshot;
+      if (StringUtils.isNumeric(resource)) {
+        snapshot = resourceDao.getLastSnapshotByResourceId(Long.parseLong(resource), session);
+      } else {
+        snapshot = resourceDao.getLastSnapshot(resource, session);
+      }
+      return snapshot != null ? snapshot.getId() : null;
+    } finally {
+      MyBatis.closeQuietly(session);
+    }
+  }
+
+  @CheckForNull
+  public synchronized CachedResource get(String key) {
+    CachedResource image = images.get(key);
+    if (image == null) {
+      misses.incrementAndGet();
+    } else {
+      hits.incrementAndGet();
+    }
+    return image;
+  }
+
+  /**
+   * Keeps the image, unless it is bigger than the cache, and evicts the least recently used images
+   * if the maximum size is exceeded.
+   */
+  public synchronized CachedResource put(String key, byte[] png, long now) {
+    CachedResource image = CachedResource.of(png, "image/png", now);
+    if (png.length > maxSize) {
+      return image;
+    }
+    CachedResource previous = images.put(key, image);
+    if (previous != null) {
+      size -= previous.getLength();
+    }
+    size += png.length;
+    Iterator<CachedResource> lru = images.values().iterator();
+    while (size > maxSize && lru.hasNext()) {
+      size -= lru.next().getLength();
+      lru.remove();
+    }
+    return image;
+  }
+
+  public synchronized void clear() {
+    images.clear();
+    size = 0L;
+  }
+
+  public synchronized int getCount() {
+    return images.size();
+  }
+
+  public synchronized long getSize() {
+    return size;
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%d images (%d KB), %d hits, %d misses", getCount(), getSize() / 1024L, getHits(), getMisses());
+  }
+}
@@ -20,7 +20,6 @@
 package org.sonar.server.charts;
 
 import com.google.common.collect.Maps;
-import com.google.common.io.Closeables;
 import org.jfree.chart.encoders.KeypointPNGEncoderAdapter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -33,13 +32,16 @@ import org.sonar.server.charts.deprecated.DeprecatedChart;
 import org.sonar.server.charts.deprecated.PieChart;
 import org.sonar.server.charts.deprecated.SparkLinesChart;
 import org.sonar.server.platform.Platform;
+import org.sonar.server.plugins.CachedResource;
 
+import javax.annotation.CheckForNull;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.Enumeration;
@@ -52,27 +54,37 @@ public class ChartsServlet extends HttpServlet {
 
   @Override
   public void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
-    if (isDeprecatedChart(request)) {
-      deprecatedDoGet(request, response);
+    ChartCache cache = Platform.getInstance().getContainer().getComponentByType(ChartCache.class);
+    boolean deprecated = isDeprecatedChart(request);
+    String key = deprecated ? ChartCache.key(request) : cache.lastAnalysisKey(request);
+    CachedResource image = cache.get(key);
+    if (image == null) {
+      byte[] png = deprecated ? deprecatedGenerate(request) : generate(request);
+      if (png == null) {
+        return;
+      }
+      image = cache.put(key, png, System.currentTimeMillis());
+    }
+    // the "v" parameter of charts contains values, not a version
+    image.serve(request, response, false);
+  }
 
-    } else {
-      ChartFactory chartFactory = Platform.getInstance().getContainer().getComponentByType(ChartFactory.class);
-      Chart chart = chartFactory.getChart(request.getParameter("ck"));
-      if (chart != null) {
+  @CheckForNull
+  private byte[] generate(HttpServletRequest request) {
+    ChartFactory chartFactory = Platform.getInstance().getContainer().getComponentByType(ChartFactory.class);
+    Chart chart = chartFactory.getChart(request.getParameter("ck"));
+    if (chart != null) {
+      try {
         BufferedImage image = chart.generateImage(getParams(request));
-        OutputStream out = response.getOutputStream();
-        try {
-          response.setContentType("image/png");
-          exportAsPNG(image, out);
-
-        } catch (Exception e) {
-          LOG.error("Generating chart " + chart.getClass().getName(), e);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportAsPNG(image, out);
+        return out.toByteArray();
 
-        } finally {
-          out.close();
-        }
+      } catch (Exception e) {
+        LOG.error("Generating chart " + chart.getClass().getName(), e);
       }
     }
+    return null;
   }
 
   private ChartParameters getParams(HttpServletRequest request) {
@@ -109,7 +121,8 @@ public class ChartsServlet extends HttpServlet {
     return false;
   }
 
-  public void deprecatedDoGet(HttpServletRequest request, HttpServletResponse response) {
+  @CheckForNull
+  private byte[] deprecatedGenerate(HttpServletRequest request) {
     Map<String, String> params = Maps.newHashMap();
     params.put(BaseChartWeb.CHART_PARAM_TYPE, request.getParameter(BaseChartWeb.CHART_PARAM_TYPE));
     params.put(BaseChartWeb.CHART_PARAM_VALUES, request.getParameter(BaseChartWeb.CHART_PARAM_VALUES));
@@ -145,16 +158,14 @@ public class ChartsServlet extends HttpServlet {
     }
 
     if (chart != null) {
-      OutputStream out = null;
       try {
-        out = response.getOutputStream();
-        response.setContentType("image/png");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
         chart.exportChartAsPNG(out);
+        return out.toByteArray();
       } catch (Exception e) {
         LOG.error("Generating chart " + chart.getClass().getName(), e);
-      } finally {
-        Closeables.closeQuietly(out);
       }
     }
+    return null;
   }
 }
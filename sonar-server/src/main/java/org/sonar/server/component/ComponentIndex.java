@@ -0,0 +1,362 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.component;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.picocontainer.Startable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.ServerComponent;
+import org.sonar.api.platform.ServerFileSystem;
+import org.sonar.api.resources.Qualifiers;
+import org.sonar.api.utils.System2;
+import org.sonar.core.resource.ResourceDao;
+import org.sonar.core.resource.ResourceDto;
+import org.sonar.core.resource.ResourceIndexerDao;
+import org.sonar.core.resource.SnapshotDto;
+
+import javax.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Search of components by name. The index is loaded from the local disk at startup, then updated in background from
+ * the projects and views analyzed since the last update : a root project is indexed again only if the id of its
+ * last snapshot changed. Provisioned projects, which have no snapshots, are indexed when created and on rebuild.
+ * <p/>
+ * Searches do not lock : updates are applied to a copy of the index, which then replaces the searched one.
+ *
+ * @since 4.3
+ */
+public class ComponentIndex implements ServerComponent, Startable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ComponentIndex.class);
+
+  private static final String FILENAME = "component-index.dat";
+  private static final int FORMAT_VERSION = 1;
+
+  // delay between two checks of new analyses
+  static final long SYNC_PERIOD_MS = 10000L;
+
+  private final ResourceIndexerDao dao;
+  private final ResourceDao resourceDao;
+  private final File file;
+  private final System2 system;
+
+  // updates are serialized. They work on a copy of the index, that replaces the searched one when completed.
+  private final Object syncLock = new Object();
+  private ScheduledExecutorService executor;
+
+  private volatile State state = new State(new ComponentNameIndex(), Collections.<Long, Long>emptyMap());
+
+  private volatile long rebuildDurationMs = -1L;
+  private volatile long lastSyncDurationMs = -1L;
+  private final AtomicLong searchCount = new AtomicLong();
+  private final AtomicLong searchDurationNs = new AtomicLong();
+
+  public ComponentIndex(ResourceIndexerDao dao, ResourceDao resourceDao, ServerFileSystem fileSystem) {
+    this(dao, resourceDao, new File(new File(fileSystem.getHomeDir(), "data"), FILENAME), System2.INSTANCE);
+  }
+
+  @VisibleForTesting
+  ComponentIndex(ResourceIndexerDao dao, ResourceDao resourceDao, File file, System2 system) {
+    this.dao = dao;
+    this.resourceDao = resourceDao;
+    this.file = file;
+    this.system = system;
+  }
+
+  @Override
+  public void start() {
+    boolean loaded;
+    synchronized (syncLock) {
+      loaded = load();
+    }
+    if (loaded) {
+      sync();
+    } else {
+      rebuild();
+    }
+    executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "component-index");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    executor.scheduleWithFixedDelay(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          sync();
+        } catch (Exception e) {
+          LOG.error("Fail to update component index", e);
+        }
+      }
+    }, SYNC_PERIOD_MS, SYNC_PERIOD_MS, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void stop() {
+    if (executor != null) {
+      executor.shutdownNow();
+      try {
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    synchronized (syncLock) {
+      save(state);
+    }
+  }
+
+  /**
+   * Does not lock : the searched index is never modified.
+   *
+   * @param qualifiers restrict results to these qualifiers. All qualifiers are accepted if null or empty.
+   * @return the components matching the text, sorted by size of name.
+   */
+  public List<ComponentNameIndex.Hit> search(@Nullable String text, @Nullable Collection<String> qualifiers) {
+    long start = System.nanoTime();
+    List<ComponentNameIndex.Hit> hits = state.index.search(text, qualifiers);
+    searchDurationNs.addAndGet(System.nanoTime() - start);
+    searchCount.incrementAndGet();
+    return hits;
+  }
+
+  /**
+   * Index again all the projects and views
+   */
+  public void rebuild() {
+    synchronized (syncLock) {
+      long start = system.now();
+      ComponentNameIndex index = new ComponentNameIndex();
+      for (ResourceDto project : resourceDao.selectProvisionedProjects(Arrays.asList(Qualifiers.PROJECT))) {
+        index.add(project.getId(), project.getName(), project.getQualifier(), project.getId());
+      }
+      // all the analyzed projects are considered as changed
+      sync(new State(index, Collections.<Long, Long>emptyMap()));
+      rebuildDurationMs = system.now() - start;
+      LOG.info(String.format("Component index rebuilt in %d ms: %d components", rebuildDurationMs, state.index.size()));
+      save(state);
+    }
+  }
+
+  /**
+   * Used when a component is created or renamed outside of an analysis, for example a provisioned project
+   */
+  public void indexResource(long resourceId) {
+    synchronized (syncLock) {
+      ResourceDto resource = dao.selectResourceToIndex(resourceId);
+      State current = state;
+      ComponentNameIndex index = current.index.copy();
+      index.remove(resourceId);
+      if (resource != null) {
+        index.add(resource.getId(), resource.getName(), resource.getQualifier(), resource.getRootId());
+      }
+      state = new State(index, current.snapshotIdsByRootProject);
+    }
+  }
+
+  /**
+   * Used when a component and its descendants are deleted
+   */
+  public void removeResourceTree(long resourceId) {
+    synchronized (syncLock) {
+      State current = state;
+      ComponentNameIndex index = current.index.copy();
+      index.remove(resourceId);
+      index.removeRootProjects(Collections.singleton(resourceId));
+      Map<Long, Long> snapshotIds = Maps.newHashMap(current.snapshotIdsByRootProject);
+      snapshotIds.remove(resourceId);
+      state = new State(index, snapshotIds);
+    }
+  }
+
+  @VisibleForTesting
+  void sync() {
+    synchronized (syncLock) {
+      sync(state);
+    }
+  }
+
+  /**
+   * Indexes again the root projects analyzed or deleted since the given state, then publishes the result.
+   * Must be called with the lock on updates.
+   */
+  private void sync(State base) {
+    long start = system.now();
+    Map<Long, Long> snapshotIds = Maps.newHashMap();
+    for (SnapshotDto snapshot : dao.selectRootProjectLastSnapshots()) {
+      snapshotIds.put(snapshot.getRootProjectId(), snapshot.getId());
+    }
+    Set<Long> changedRootProjects = Sets.newHashSet();
+    for (Long rootProjectId : base.snapshotIdsByRootProject.keySet()) {
+      if (!snapshotIds.containsKey(rootProjectId)) {
+        // deleted
+        changedRootProjects.add(rootProjectId);
+      }
+    }
+    for (Map.Entry<Long, Long> entry : snapshotIds.entrySet()) {
+      if (!entry.getValue().equals(base.snapshotIdsByRootProject.get(entry.getKey()))) {
+        changedRootProjects.add(entry.getKey());
+      }
+    }
+    ComponentNameIndex index = base.index;
+    if (!changedRootProjects.isEmpty()) {
+      index = index.copy();
+      index.removeRootProjects(changedRootProjects);
+      for (Long rootProjectId : changedRootProjects) {
+        if (snapshotIds.containsKey(rootProjectId)) {
+          for (ResourceDto resource : dao.selectIndexableResources(rootProjectId)) {
+            index.add(resource.getId(), resource.getName(), resource.getQualifier(), resource.getRootId());
+          }
+        }
+      }
+    }
+    state = new State(index, snapshotIds);
+    lastSyncDurationMs = system.now() - start;
+    if (!changedRootProjects.isEmpty()) {
+      LOG.debug(String.format("%d projects indexed in %d ms", changedRootProjects.size(), lastSyncDurationMs));
+    }
+  }
+
+  private boolean load() {
+    if (!file.isFile()) {
+      return false;
+    }
+    long start = system.now();
+    DataInputStream input = null;
+    try {
+      input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      if (input.readInt() != FORMAT_VERSION) {
+        return false;
+      }
+      int count = input.readInt();
+      Map<Long, Long> snapshotIds = Maps.newHashMapWithExpectedSize(count);
+      for (int i = 0; i < count; i++) {
+        snapshotIds.put(input.readLong(), input.readLong());
+      }
+      ComponentNameIndex index = ComponentNameIndex.readFrom(input);
+      state = new State(index, snapshotIds);
+      LOG.info(String.format("Component index loaded in %d ms: %d components", system.now() - start, index.size()));
+      return true;
+
+    } catch (IOException e) {
+      LOG.warn("Fail to load component index from " + file + ". It will be rebuilt.", e);
+      return false;
+    } finally {
+      IOUtils.closeQuietly(input);
+    }
+  }
+
+  /**
+   * The file is written next to the target then renamed, so that a stop of server during write does not corrupt it.
+   */
+  private void save(State saved) {
+    File tempFile = new File(file.getParentFile(), file.getName() + ".tmp");
+    DataOutputStream output = null;
+    try {
+      FileUtils.forceMkdir(file.getParentFile());
+      output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+      output.writeInt(FORMAT_VERSION);
+      output.writeInt(saved.snapshotIdsByRootProject.size());
+      for (Map.Entry<Long, Long> entry : saved.snapshotIdsByRootProject.entrySet()) {
+        output.writeLong(entry.getKey());
+        output.writeLong(entry.getValue());
+      }
+      saved.index.writeTo(output);
+      output.close();
+      FileUtils.deleteQuietly(file);
+      FileUtils.moveFile(tempFile, file);
+
+    } catch (IOException e) {
+      LOG.warn("Fail to save component index to " + file, e);
+    } finally {
+      IOUtils.closeQuietly(output);
+      FileUtils.deleteQuietly(tempFile);
+    }
+  }
+
+  public int getComponentCount() {
+    return state.index.size();
+  }
+
+  public long getMemorySize() {
+    return state.index.getMemorySize();
+  }
+
+  /**
+   * @return duration of the last full indexation, or -1 if the index was loaded from disk
+   */
+  public long getRebuildDurationMs() {
+    return rebuildDurationMs;
+  }
+
+  public long getLastSyncDurationMs() {
+    return lastSyncDurationMs;
+  }
+
+  public long getSearchCount() {
+    return searchCount.get();
+  }
+
+  public double getAverageSearchDurationMs() {
+    long count = searchCount.get();
+    return count == 0L ? 0.0 : (searchDurationNs.get() / 1000000.0) / count;
+  }
+
+  /**
+   * Searched index and the last snapshots it was built from. Never modified once published.
+   */
+  private static final class State {
+    private final ComponentNameIndex index;
+    private final Map<Long, Long> snapshotIdsByRootProject;
+
+    private State(ComponentNameIndex index, Map<Long, Long> snapshotIdsByRootProject) {
+      this.index = index;
+      this.snapshotIdsByRootProject = snapshotIdsByRootProject;
+    }
+  }
+}
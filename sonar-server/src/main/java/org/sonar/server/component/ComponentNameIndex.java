@@ -0,0 +1,405 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.component;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.apache.commons.lang.StringUtils;
+import org.sonar.core.resource.ResourceIndexerDao;
+
+import javax.annotation.Nullable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory index of component names. It answers the same queries as the table RESOURCE_INDEX : a component
+ * matches if the lower-cased search text starts one of the suffixes of its lower-cased name that are at least
+ * 3 characters long, or if it equals a name of 2 characters.
+ * <p/>
+ * Components are stored in parallel arrays. Each trigram of a name is associated to the sorted list of the
+ * positions of the components in these arrays, so that a search only verifies the components of its rarest trigram.
+ * Searches of 2 characters scan all the names.
+ * <p/>
+ * This class is not thread-safe. {@link ComponentIndex} updates a copy, then replaces the searched index.
+ *
+ * @since 4.3
+ */
+public final class ComponentNameIndex {
+
+  public static final int MIN_SEARCH_SIZE = ResourceIndexerDao.SINGLE_INDEX_SIZE;
+  private static final int NGRAM_SIZE = ResourceIndexerDao.MINIMUM_KEY_SIZE;
+  private static final int FORMAT_VERSION = 1;
+
+  private long[] ids = new long[64];
+  private long[] rootIds = new long[64];
+  private String[] keys = new String[64];
+  private String[] qualifiers = new String[64];
+  private int[] nameSizes = new int[64];
+  private int size = 0;
+  private int removed = 0;
+
+  private final Map<Long, Postings> postingsByTrigram = Maps.newHashMap();
+  private final Map<String, String> internedQualifiers = Maps.newHashMap();
+
+  /**
+   * @return false if the name is too short to be searched
+   */
+  public boolean add(long id, @Nullable String name, String qualifier, long rootId) {
+    String key = toKey(name);
+    if (key.length() < NGRAM_SIZE && key.length() != MIN_SEARCH_SIZE) {
+      return false;
+    }
+    addKey(id, key, qualifier, rootId, name.length());
+    return true;
+  }
+
+  private void addKey(long id, String key, String qualifier, long rootId, int nameSize) {
+    ensureCapacity(size + 1);
+    int slot = size;
+    ids[slot] = id;
+    rootIds[slot] = rootId;
+    keys[slot] = key;
+    qualifiers[slot] = intern(qualifier);
+    nameSizes[slot] = nameSize;
+    size++;
+    for (int position = 0; position + NGRAM_SIZE <= key.length(); position++) {
+      long trigram = trigram(key, position);
+      Postings postings = postingsByTrigram.get(trigram);
+      if (postings == null) {
+        postings = new Postings();
+        postingsByTrigram.put(trigram, postings);
+      }
+      postings.add(slot);
+    }
+  }
+
+  private String intern(String qualifier) {
+    String interned = internedQualifiers.get(qualifier);
+    if (interned == null) {
+      internedQualifiers.put(qualifier, qualifier);
+      interned = qualifier;
+    }
+    return interned;
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity > ids.length) {
+      int newLength = Math.max(capacity, ids.length * 2);
+      ids = Arrays.copyOf(ids, newLength);
+      rootIds = Arrays.copyOf(rootIds, newLength);
+      keys = Arrays.copyOf(keys, newLength);
+      qualifiers = Arrays.copyOf(qualifiers, newLength);
+      nameSizes = Arrays.copyOf(nameSizes, newLength);
+    }
+  }
+
+  public void remove(long id) {
+    for (int slot = 0; slot < size; slot++) {
+      if (keys[slot] != null && ids[slot] == id) {
+        removeSlot(slot);
+      }
+    }
+    compactIfNeeded();
+  }
+
+  public void removeRootProjects(Set<Long> rootProjectIds) {
+    if (rootProjectIds.isEmpty()) {
+      return;
+    }
+    for (int slot = 0; slot < size; slot++) {
+      if (keys[slot] != null && rootProjectIds.contains(rootIds[slot])) {
+        removeSlot(slot);
+      }
+    }
+    compactIfNeeded();
+  }
+
+  /**
+   * Removed components are only marked in the arrays. They are physically removed, and postings are rebuilt,
+   * when they represent a quarter of the index.
+   */
+  private void removeSlot(int slot) {
+    keys[slot] = null;
+    qualifiers[slot] = null;
+    removed++;
+  }
+
+  private void compactIfNeeded() {
+    if (removed > 0 && removed * 4 >= size) {
+      compact();
+    }
+  }
+
+  private void compact() {
+    long[] oldIds = ids;
+    long[] oldRootIds = rootIds;
+    String[] oldKeys = keys;
+    String[] oldQualifiers = qualifiers;
+    int[] oldNameSizes = nameSizes;
+    int oldSize = size;
+
+    int capacity = Math.max(64, oldSize - removed);
+    ids = new long[capacity];
+    rootIds = new long[capacity];
+    keys = new String[capacity];
+    qualifiers = new String[capacity];
+    nameSizes = new int[capacity];
+    size = 0;
+    removed = 0;
+    postingsByTrigram.clear();
+    for (int slot = 0; slot < oldSize; slot++) {
+      if (oldKeys[slot] != null) {
+        addKey(oldIds[slot], oldKeys[slot], oldQualifiers[slot], oldRootIds[slot], oldNameSizes[slot]);
+      }
+    }
+  }
+
+  /**
+   * Copy without the removed components
+   */
+  public ComponentNameIndex copy() {
+    ComponentNameIndex copy = new ComponentNameIndex();
+    copy.ensureCapacity(size());
+    for (int slot = 0; slot < size; slot++) {
+      if (keys[slot] != null) {
+        copy.addKey(ids[slot], keys[slot], qualifiers[slot], rootIds[slot], nameSizes[slot]);
+      }
+    }
+    return copy;
+  }
+
+  public void clear() {
+    size = 0;
+    removed = 0;
+    ids = new long[64];
+    rootIds = new long[64];
+    keys = new String[64];
+    qualifiers = new String[64];
+    nameSizes = new int[64];
+    postingsByTrigram.clear();
+  }
+
+  /**
+   * @param qualifiers restrict results to these qualifiers. All qualifiers are accepted if null or empty.
+   * @return the matching components, sorted by size of name.
+   */
+  public List<Hit> search(@Nullable String text, @Nullable Collection<String> qualifiers) {
+    String searchKey = StringUtils.lowerCase(text);
+    if (searchKey == null || searchKey.length() < MIN_SEARCH_SIZE) {
+      return Collections.emptyList();
+    }
+    List<Hit> hits = Lists.newArrayList();
+    if (searchKey.length() < NGRAM_SIZE) {
+      for (int slot = 0; slot < size; slot++) {
+        collect(slot, searchKey, qualifiers, hits);
+      }
+    } else {
+      Postings candidates = rarestPostings(searchKey);
+      if (candidates != null) {
+        for (int i = 0; i < candidates.size; i++) {
+          collect(candidates.slots[i], searchKey, qualifiers, hits);
+        }
+      }
+    }
+    Collections.sort(hits, HitComparator.INSTANCE);
+    return hits;
+  }
+
+  private Postings rarestPostings(String searchKey) {
+    Postings rarest = null;
+    for (int position = 0; position + NGRAM_SIZE <= searchKey.length(); position++) {
+      Postings postings = postingsByTrigram.get(trigram(searchKey, position));
+      if (postings == null) {
+        return null;
+      }
+      if (rarest == null || postings.size < rarest.size) {
+        rarest = postings;
+      }
+    }
+    return rarest;
+  }
+
+  private void collect(int slot, String searchKey, @Nullable Collection<String> acceptedQualifiers, List<Hit> hits) {
+    String key = keys[slot];
+    if (key != null && matches(key, searchKey)
+      && (acceptedQualifiers == null || acceptedQualifiers.isEmpty() || acceptedQualifiers.contains(qualifiers[slot]))) {
+      hits.add(new Hit(ids[slot], rootIds[slot], qualifiers[slot], nameSizes[slot]));
+    }
+  }
+
+  /**
+   * Same positions as the ones inserted in RESOURCE_INDEX by {@link ResourceIndexerDao}
+   */
+  private static boolean matches(String key, String searchKey) {
+    int maxPosition = key.length() == MIN_SEARCH_SIZE ? 0 : (key.length() - NGRAM_SIZE);
+    int position = key.indexOf(searchKey);
+    return position >= 0 && position <= maxPosition;
+  }
+
+  private static String toKey(@Nullable String name) {
+    return StringUtils.lowerCase(StringUtils.trimToEmpty(name));
+  }
+
+  private static long trigram(String key, int position) {
+    return ((long) key.charAt(position) << 32) | ((long) key.charAt(position + 1) << 16) | key.charAt(position + 2);
+  }
+
+  public int size() {
+    return size - removed;
+  }
+
+  public int getTrigramCount() {
+    return postingsByTrigram.size();
+  }
+
+  /**
+   * Rough estimation of the heap used by the index, in bytes
+   */
+  public long getMemorySize() {
+    long bytes = ids.length * (8L + 8L + 4L + 4L + 4L);
+    for (int slot = 0; slot < size; slot++) {
+      if (keys[slot] != null) {
+        bytes += 40L + 2L * keys[slot].length();
+      }
+    }
+    for (Postings postings : postingsByTrigram.values()) {
+      bytes += 64L + 4L * postings.slots.length;
+    }
+    return bytes;
+  }
+
+  public void writeTo(DataOutput output) throws IOException {
+    output.writeInt(FORMAT_VERSION);
+    output.writeInt(size());
+    for (int slot = 0; slot < size; slot++) {
+      if (keys[slot] != null) {
+        output.writeLong(ids[slot]);
+        output.writeLong(rootIds[slot]);
+        output.writeUTF(qualifiers[slot]);
+        output.writeUTF(keys[slot]);
+        output.writeInt(nameSizes[slot]);
+      }
+    }
+  }
+
+  public static ComponentNameIndex readFrom(DataInput input) throws IOException {
+    int version = input.readInt();
+    if (version != FORMAT_VERSION) {
+      throw new IOException("Unsupported format of component index: " + version);
+    }
+    ComponentNameIndex index = new ComponentNameIndex();
+    int count = input.readInt();
+    index.ensureCapacity(count);
+    for (int i = 0; i < count; i++) {
+      long id = input.readLong();
+      long rootId = input.readLong();
+      String qualifier = input.readUTF();
+      String key = input.readUTF();
+      int nameSize = input.readInt();
+      index.addKey(id, key, qualifier, rootId, nameSize);
+    }
+    return index;
+  }
+
+  /**
+   * Growable list of slots, in ascending order as slots are allocated sequentially
+   */
+  private static final class Postings {
+    private int[] slots = new int[4];
+    private int size = 0;
+
+    private void add(int slot) {
+      // the same trigram can appear several times in a name
+      if (size > 0 && slots[size - 1] == slot) {
+        return;
+      }
+      if (size == slots.length) {
+        slots = Arrays.copyOf(slots, size * 2);
+      }
+      slots[size] = slot;
+      size++;
+    }
+  }
+
+  /**
+   * Component matching a search. Getters follow the columns of the table RESOURCE_INDEX, so that hits
+   * can replace rows of this table in Ruby on Rails code.
+   */
+  public static final class Hit {
+    private final long resourceId;
+    private final long rootProjectId;
+    private final String qualifier;
+    private final int nameSize;
+
+    Hit(long resourceId, long rootProjectId, String qualifier, int nameSize) {
+      this.resourceId = resourceId;
+      this.rootProjectId = rootProjectId;
+      this.qualifier = qualifier;
+      this.nameSize = nameSize;
+    }
+
+    public long getResourceId() {
+      return resourceId;
+    }
+
+    public long getRootProjectId() {
+      return rootProjectId;
+    }
+
+    public String getQualifier() {
+      return qualifier;
+    }
+
+    public int getNameSize() {
+      return nameSize;
+    }
+
+    /**
+     * Used by Ruby on Rails to check permissions
+     */
+    public long getResourceIdForAuthorization() {
+      return rootProjectId;
+    }
+  }
+
+  private enum HitComparator implements Comparator<Hit> {
+    INSTANCE;
+
+    @Override
+    public int compare(Hit left, Hit right) {
+      if (left.nameSize != right.nameSize) {
+        return left.nameSize < right.nameSize ? -1 : 1;
+      }
+      if (left.resourceId != right.resourceId) {
+        return left.resourceId < right.resourceId ? -1 : 1;
+      }
+      return 0;
+    }
+  }
+}
@@ -28,7 +28,6 @@ import org.sonar.core.component.ComponentDto;
 import org.sonar.core.component.ComponentKeys;
 import org.sonar.core.resource.ResourceDao;
 import org.sonar.core.resource.ResourceDto;
-import org.sonar.core.resource.ResourceIndexerDao;
 import org.sonar.server.exceptions.BadRequestException;
 import org.sonar.server.exceptions.NotFoundException;
 import org.sonar.server.util.RubyUtils;
@@ -42,13 +41,13 @@ public class DefaultRubyComponentService implements RubyComponentService {
 
   private final ResourceDao resourceDao;
   private final DefaultComponentFinder finder;
-  private final ResourceIndexerDao resourceIndexerDao;
+  private final ComponentIndex componentIndex;
   private final I18n i18n;
 
-  public DefaultRubyComponentService(ResourceDao resourceDao, DefaultComponentFinder finder, ResourceIndexerDao resourceIndexerDao, I18n i18n) {
+  public DefaultRubyComponentService(ResourceDao resourceDao, DefaultComponentFinder finder, ComponentIndex componentIndex, I18n i18n) {
     this.resourceDao = resourceDao;
     this.finder = finder;
-    this.resourceIndexerDao = resourceIndexerDao;
+    this.componentIndex = componentIndex;
     this.i18n = i18n;
   }
 
@@ -77,7 +76,7 @@ public class DefaultRubyComponentService implements RubyComponentService {
     if (component == null) {
       throw new BadRequestException(String.format("%s not created: %s", null, kee));
     }
-    resourceIndexerDao.indexResource(component.getId());
+    componentIndex.indexResource(component.getId());
     return component.getId();
   }
 
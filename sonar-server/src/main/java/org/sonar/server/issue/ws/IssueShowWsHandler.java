@@ -40,7 +40,7 @@ import org.sonar.api.utils.text.JsonWriter;
 import org.sonar.api.web.UserRole;
 import org.sonar.core.component.ComponentDto;
 import org.sonar.core.issue.workflow.Transition;
-import org.sonar.markdown.Markdown;
+import org.sonar.markdown.MarkdownRenderer;
 import org.sonar.server.debt.DebtModelService;
 import org.sonar.server.exceptions.NotFoundException;
 import org.sonar.server.issue.ActionService;
@@ -67,9 +67,10 @@ public class IssueShowWsHandler implements RequestHandler {
   private final DebtModelService debtModel;
   private final I18n i18n;
   private final Durations durations;
+  private final MarkdownRenderer markdownRenderer;
 
   public IssueShowWsHandler(IssueFinder issueFinder, IssueService issueService, IssueChangelogService issueChangelogService, ActionService actionService,
-                            DebtModelService debtModel, I18n i18n, Durations durations) {
+                            DebtModelService debtModel, I18n i18n, Durations durations, MarkdownRenderer markdownRenderer) {
     this.issueFinder = issueFinder;
     this.issueService = issueService;
     this.issueChangelogService = issueChangelogService;
@@ -77,6 +78,7 @@ public class IssueShowWsHandler implements RequestHandler {
     this.debtModel = debtModel;
     this.i18n = i18n;
     this.durations = durations;
+    this.markdownRenderer = markdownRenderer;
   }
 
   @Override
@@ -261,7 +263,7 @@ public class IssueShowWsHandler implements RequestHandler {
         .prop("key", comment.key())
         .prop("userName", user != null ? user.name() : null)
         .prop("raw", comment.markdownText())
-        .prop("html", Markdown.convertToHtml(comment.markdownText()))
+        .prop("html", markdownRenderer.render(comment.markdownText()))
         .prop("createdAt", DateUtils.formatDateTime(comment.createdAt()))
         .prop("fCreatedAge", formatAgeDate(comment.createdAt()))
         .prop("updatable", login != null && login.equals(userLogin))
@@ -75,7 +75,9 @@ import org.sonar.jpa.session.DatabaseSessionFactory;
 import org.sonar.jpa.session.DatabaseSessionProvider;
 import org.sonar.jpa.session.DefaultDatabaseConnector;
 import org.sonar.jpa.session.ThreadLocalDatabaseSessionFactory;
+import org.sonar.server.charts.ChartCache;
 import org.sonar.server.charts.ChartFactory;
+import org.sonar.server.component.ComponentIndex;
 import org.sonar.server.component.DefaultComponentFinder;
 import org.sonar.server.component.DefaultRubyComponentService;
 import org.sonar.server.db.EmbeddedDatabaseFactory;
@@ -113,6 +115,7 @@ import org.sonar.server.source.ws.SourcesShowWsHandler;
 import org.sonar.server.source.ws.SourcesWs;
 import org.sonar.server.startup.*;
 import org.sonar.server.text.MacroInterpreter;
+import org.sonar.server.text.MarkdownRendererProvider;
 import org.sonar.server.text.RubyTextService;
 import org.sonar.server.ui.JRubyI18n;
 import org.sonar.server.ui.JRubyProfiling;
@@ -219,7 +222,9 @@ class ServerComponents {
     pico.addSingleton(UpdateCenterClient.class);
     pico.addSingleton(UpdateCenterMatrixFactory.class);
     pico.addSingleton(PluginDownloader.class);
+    pico.addSingleton(StaticResourceCache.class);
     pico.addSingleton(ChartFactory.class);
+    pico.addSingleton(ChartCache.class);
     pico.addSingleton(Languages.class);
     pico.addSingleton(Views.class);
     pico.addSingleton(CodeColorizers.class);
@@ -312,6 +317,7 @@ class ServerComponents {
     pico.addSingleton(PermissionFinder.class);
 
     // components
+    pico.addSingleton(ComponentIndex.class);
     pico.addSingleton(DefaultComponentFinder.class);
     pico.addSingleton(DefaultRubyComponentService.class);
     pico.addSingleton(ComponentDao.class);
@@ -366,6 +372,7 @@ class ServerComponents {
 
     // text
     pico.addSingleton(MacroInterpreter.class);
+    pico.addSingleton(new MarkdownRendererProvider());
     pico.addSingleton(RubyTextService.class);
 
     // Notifications
@@ -19,12 +19,15 @@
  */
 package org.sonar.server.plugins;
 
+import com.google.common.annotations.VisibleForTesting;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.sonar.server.platform.Platform;
 import org.sonar.server.startup.GenerateBootstrapIndex;
 
+import javax.annotation.CheckForNull;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
@@ -60,27 +63,55 @@ public class BatchResourcesServlet extends HttpServlet {
         IOUtils.closeQuietly(writer);
       }
     } else {
-      InputStream in = null;
-      OutputStream out = null;
-      try {
-        in = getServletContext().getResourceAsStream("/WEB-INF/lib/" + filename);
-        if (in == null) {
-          // TODO
-        } else {
-          response.setContentType("application/java-archive");
-          out = response.getOutputStream();
-          IOUtils.copy(in, out);
-        }
-      } catch (Exception e) {
-        LOG.error("Unable to load batch resource '" + filename + "'", e);
-        response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
-      } finally {
-        IOUtils.closeQuietly(in);
-        IOUtils.closeQuietly(out);
+      CachedResource cached = getCachedLib(filename);
+      if (cached != null) {
+        serveCached(cached, filename, request, response);
+      } else {
+        copyLib(filename, response);
+      }
+    }
+  }
+
+  private void serveCached(CachedResource cached, String filename, HttpServletRequest request, HttpServletResponse response) throws IOException {
+    try {
+      cached.serve(request, response);
+    } catch (Exception e) {
+      LOG.error("Unable to load batch resource '" + filename + "'", e);
+      response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+    }
+  }
+
+  private void copyLib(String filename, HttpServletResponse response) throws IOException {
+    InputStream in = null;
+    OutputStream out = null;
+    try {
+      in = getServletContext().getResourceAsStream("/WEB-INF/lib/" + filename);
+      if (in == null) {
+        // TODO
+      } else {
+        response.setContentType("application/java-archive");
+        out = response.getOutputStream();
+        IOUtils.copy(in, out);
       }
+    } catch (Exception e) {
+      LOG.error("Unable to load batch resource '" + filename + "'", e);
+      response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+    } finally {
+      IOUtils.closeQuietly(in);
+      IOUtils.closeQuietly(out);
     }
   }
 
+  /**
+   * @return null if the library has not been cached at startup, for example when the webapp is not exploded
+   */
+  @CheckForNull
+  @VisibleForTesting
+  CachedResource getCachedLib(String filename) {
+    StaticResourceCache cache = Platform.getInstance().getContainer().getComponentByType(StaticResourceCache.class);
+    return cache != null ? cache.getBatchLib(filename) : null;
+  }
+
   /**
    * @return part of request URL after servlet path
    */
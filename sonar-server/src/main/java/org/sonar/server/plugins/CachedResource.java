@@ -0,0 +1,274 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.plugins;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.sonar.home.cache.FileHashes;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Immutable HTTP representation of a static resource : content hash used as ETag, last modification date and,
+ * depending on the size and type of the resource, the bytes to be sent (plain and gzipped) or the file to be
+ * sent from disk.
+ *
+ * @since 4.3
+ */
+public final class CachedResource {
+
+  static final String VERSION_PARAMETER = "v";
+  static final String CACHE_CONTROL_VERSIONED = "public, max-age=31536000";
+  static final String CACHE_CONTROL_REVALIDATE = "public, max-age=0, must-revalidate";
+
+  // below this size, gzip headers and CPU cost are not worth it
+  private static final int MIN_GZIP_SIZE = 1024;
+
+  // Tomcat attributes to delegate sending of a file to the connector (zero-copy)
+  private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+  private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+  private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+  private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+  private final String etag;
+  private final String gzipEtag;
+  private final long lastModified;
+  private final String contentType;
+  private final long length;
+  private final byte[] content;
+  private final byte[] gzippedContent;
+  private final File file;
+
+  private CachedResource(String hash, long lastModified, String contentType, long length,
+    @Nullable byte[] content, @Nullable byte[] gzippedContent, @Nullable File file) {
+    this.etag = '"' + hash + '"';
+    this.gzipEtag = '"' + hash + "-gz\"";
+    // HTTP dates have a precision of one second
+    this.lastModified = (lastModified / 1000L) * 1000L;
+    this.contentType = contentType;
+    this.length = length;
+    this.content = content;
+    this.gzippedContent = gzippedContent;
+    this.file = file;
+  }
+
+  /**
+   * Resource kept in memory. It is pre-gzipped if its type is compressible.
+   */
+  public static CachedResource of(byte[] content, String contentType, long lastModified) {
+    String hash = new FileHashes().of(new ByteArrayInputStream(content));
+    byte[] gzipped = null;
+    if (content.length >= MIN_GZIP_SIZE && isCompressible(contentType)) {
+      gzipped = gzip(content);
+      if (gzipped.length >= content.length) {
+        gzipped = null;
+      }
+    }
+    return new CachedResource(hash, lastModified, contentType, content.length, content, gzipped, null);
+  }
+
+  /**
+   * Resource read from disk on each request, for example a JAR file that is not worth compressing.
+   */
+  public static CachedResource of(File file, String contentType) {
+    return new CachedResource(new FileHashes().of(file), file.lastModified(), contentType, file.length(), null, null, file);
+  }
+
+  @VisibleForTesting
+  static boolean isCompressible(String contentType) {
+    return StringUtils.startsWith(contentType, "text/")
+      || StringUtils.endsWith(contentType, "json")
+      || StringUtils.endsWith(contentType, "javascript")
+      || StringUtils.endsWith(contentType, "xml");
+  }
+
+  private static byte[] gzip(byte[] content) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(content.length / 2);
+    GZIPOutputStream gzip = null;
+    try {
+      gzip = new GZIPOutputStream(bytes);
+      gzip.write(content);
+      gzip.finish();
+      return bytes.toByteArray();
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to compress resource", e);
+    } finally {
+      IOUtils.closeQuietly(gzip);
+    }
+  }
+
+  public String getEtag() {
+    return etag;
+  }
+
+  public long getLastModified() {
+    return lastModified;
+  }
+
+  public String getContentType() {
+    return contentType;
+  }
+
+  public long getLength() {
+    return length;
+  }
+
+  public boolean isGzipped() {
+    return gzippedContent != null;
+  }
+
+  @CheckForNull
+  public File getFile() {
+    return file;
+  }
+
+  /**
+   * Answers a GET request : either "304 Not Modified" if the client already has this resource, or the content of
+   * the resource, gzipped if supported by the client. Resources requested with a version parameter are cached by
+   * clients for one year, others must be revalidated.
+   */
+  public void serve(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    serve(request, response, request.getParameter(VERSION_PARAMETER) != null);
+  }
+
+  /**
+   * Same as {@link #serve(HttpServletRequest, HttpServletResponse)} for URLs that do not follow the convention
+   * of the version parameter.
+   */
+  public void serve(HttpServletRequest request, HttpServletResponse response, boolean versioned) throws IOException {
+    boolean gzip = gzippedContent != null && acceptsGzip(request);
+    String currentEtag = gzip ? gzipEtag : etag;
+
+    response.setHeader("ETag", currentEtag);
+    response.setDateHeader("Last-Modified", lastModified);
+    response.setHeader("Cache-Control", versioned ? CACHE_CONTROL_VERSIONED : CACHE_CONTROL_REVALIDATE);
+    if (gzippedContent != null) {
+      response.setHeader("Vary", "Accept-Encoding");
+    }
+
+    if (isNotModified(request)) {
+      response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+      return;
+    }
+
+    response.setContentType(contentType);
+    if (gzip) {
+      response.setHeader("Content-Encoding", "gzip");
+      write(gzippedContent, response);
+    } else if (content != null) {
+      write(content, response);
+    } else {
+      sendFile(request, response);
+    }
+  }
+
+  @VisibleForTesting
+  boolean isNotModified(HttpServletRequest request) {
+    String ifNoneMatch = request.getHeader("If-None-Match");
+    if (ifNoneMatch != null) {
+      // weak comparison, as allowed for GET requests. The two representations have the same content.
+      for (String tag : StringUtils.split(ifNoneMatch, ',')) {
+        String trimmed = StringUtils.removeStart(tag.trim(), "W/");
+        if ("*".equals(trimmed) || etag.equals(trimmed) || gzipEtag.equals(trimmed)) {
+          return true;
+        }
+      }
+      return false;
+    }
+    long ifModifiedSince = getDateHeader(request, "If-Modified-Since");
+    return ifModifiedSince >= 0 && lastModified <= ifModifiedSince;
+  }
+
+  private static long getDateHeader(HttpServletRequest request, String name) {
+    try {
+      return request.getDateHeader(name);
+    } catch (IllegalArgumentException e) {
+      // badly formatted date
+      return -1L;
+    }
+  }
+
+  @VisibleForTesting
+  static boolean acceptsGzip(HttpServletRequest request) {
+    String acceptEncoding = request.getHeader("Accept-Encoding");
+    if (acceptEncoding == null) {
+      return false;
+    }
+    for (String encoding : StringUtils.split(acceptEncoding, ',')) {
+      String[] fields = StringUtils.split(encoding, ';');
+      if (fields.length > 0 && "gzip".equalsIgnoreCase(fields[0].trim())) {
+        return fields.length == 1 || !StringUtils.deleteWhitespace(fields[1]).equals("q=0");
+      }
+    }
+    return false;
+  }
+
+  private static void write(byte[] bytes, HttpServletResponse response) throws IOException {
+    response.setContentLength(bytes.length);
+    OutputStream out = response.getOutputStream();
+    try {
+      out.write(bytes);
+    } finally {
+      IOUtils.closeQuietly(out);
+    }
+  }
+
+  private void sendFile(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    if (length <= Integer.MAX_VALUE) {
+      response.setContentLength((int) length);
+    }
+    if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+      request.setAttribute(SENDFILE_FILENAME, file.getCanonicalPath());
+      request.setAttribute(SENDFILE_START, 0L);
+      request.setAttribute(SENDFILE_END, length);
+      return;
+    }
+    FileInputStream in = new FileInputStream(file);
+    OutputStream out = response.getOutputStream();
+    try {
+      FileChannel channel = in.getChannel();
+      WritableByteChannel target = Channels.newChannel(out);
+      long position = 0L;
+      long sent = 1L;
+      while (position < length && sent > 0L) {
+        sent = channel.transferTo(position, length - position, target);
+        position += sent;
+      }
+    } finally {
+      IOUtils.closeQuietly(in);
+      IOUtils.closeQuietly(out);
+    }
+  }
+}
@@ -62,6 +62,7 @@ public final class MimeTypes {
     .put("rtf", "text/rtf")
     .put("html", "text/html")
     .put("css", "text/css")
+    .put("js", "application/javascript")
     .put("tsv", "text/tab-separated-values")
     .build();
 
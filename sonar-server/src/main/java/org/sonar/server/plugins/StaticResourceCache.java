@@ -0,0 +1,167 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.plugins;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import org.apache.commons.io.IOUtils;
+import org.picocontainer.Startable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.ServerComponent;
+import org.sonar.api.platform.PluginMetadata;
+import org.sonar.api.utils.TimeProfiler;
+import org.sonar.server.startup.GenerateBootstrapIndex;
+
+import javax.annotation.CheckForNull;
+import javax.servlet.ServletContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Computes once at startup the HTTP caching metadata (ETag, Last-Modified, gzipped variant) of the static
+ * resources of plugins and of the libraries downloaded by batch bootstrapper.
+ * Resources that are not cached are still served by the servlets, without these optimizations.
+ *
+ * @since 4.3
+ */
+public class StaticResourceCache implements ServerComponent, Startable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(StaticResourceCache.class);
+
+  private static final String STATIC_DIR = "static/";
+  private static final String JAR_CONTENT_TYPE = "application/java-archive";
+
+  // bigger plugin resources are not kept in memory
+  static final long MAX_IN_MEMORY_SIZE = 1024L * 1024L;
+
+  private final ServletContext servletContext;
+  private final ServerPluginRepository pluginRepository;
+
+  private Map<String, CachedResource> pluginResources = ImmutableMap.of();
+  private Map<String, CachedResource> batchLibs = ImmutableMap.of();
+
+  public StaticResourceCache(ServletContext servletContext, ServerPluginRepository pluginRepository) {
+    this.servletContext = servletContext;
+    this.pluginRepository = pluginRepository;
+  }
+
+  @Override
+  public void start() {
+    TimeProfiler profiler = new TimeProfiler(LOG).start("Compute HTTP cache of static resources");
+    pluginResources = loadPluginResources();
+    batchLibs = loadBatchLibs();
+    profiler.stop();
+    LOG.debug("{} plugin static resources ({} bytes in memory) and {} batch libraries cached",
+      new Object[] {pluginResources.size(), getPluginResourcesMemorySize(), batchLibs.size()});
+  }
+
+  @Override
+  public void stop() {
+    pluginResources = ImmutableMap.of();
+    batchLibs = ImmutableMap.of();
+  }
+
+  /**
+   * @param resourcePath path in the plugin JAR, for example "static/images/foo.png"
+   */
+  @CheckForNull
+  public CachedResource getPluginResource(String pluginKey, String resourcePath) {
+    return pluginResources.get(pluginKey + "/" + resourcePath);
+  }
+
+  @CheckForNull
+  public CachedResource getBatchLib(String filename) {
+    return batchLibs.get(filename);
+  }
+
+  public int getPluginResourcesCount() {
+    return pluginResources.size();
+  }
+
+  public long getPluginResourcesMemorySize() {
+    long size = 0L;
+    for (CachedResource resource : pluginResources.values()) {
+      size += resource.getLength();
+    }
+    return size;
+  }
+
+  public int getBatchLibsCount() {
+    return batchLibs.size();
+  }
+
+  private Map<String, CachedResource> loadPluginResources() {
+    Map<String, CachedResource> result = Maps.newHashMap();
+    for (PluginMetadata metadata : pluginRepository.getMetadata()) {
+      for (File jar : metadata.getDeployedFiles()) {
+        try {
+          loadPluginResources(metadata.getKey(), jar, result);
+        } catch (IOException e) {
+          LOG.warn("Fail to cache static resources of plugin " + metadata.getKey() + " from " + jar, e);
+        }
+      }
+    }
+    return ImmutableMap.copyOf(result);
+  }
+
+  private void loadPluginResources(String pluginKey, File jar, Map<String, CachedResource> result) throws IOException {
+    ZipFile zip = new ZipFile(jar);
+    try {
+      Enumeration<? extends ZipEntry> entries = zip.entries();
+      while (entries.hasMoreElements()) {
+        ZipEntry entry = entries.nextElement();
+        String key = pluginKey + "/" + entry.getName();
+        if (isCacheable(entry) && !result.containsKey(key)) {
+          InputStream input = zip.getInputStream(entry);
+          try {
+            long lastModified = entry.getTime() > 0L ? entry.getTime() : jar.lastModified();
+            result.put(key, CachedResource.of(IOUtils.toByteArray(input), MimeTypes.getByFilename(entry.getName()), lastModified));
+          } finally {
+            IOUtils.closeQuietly(input);
+          }
+        }
+      }
+    } finally {
+      zip.close();
+    }
+  }
+
+  private static boolean isCacheable(ZipEntry entry) {
+    return !entry.isDirectory() && entry.getName().startsWith(STATIC_DIR) && entry.getSize() >= 0L && entry.getSize() <= MAX_IN_MEMORY_SIZE;
+  }
+
+  private Map<String, CachedResource> loadBatchLibs() {
+    Map<String, CachedResource> result = Maps.newHashMap();
+    for (String filename : GenerateBootstrapIndex.getLibs(servletContext)) {
+      String path = servletContext.getRealPath("/WEB-INF/lib/" + filename);
+      if (path != null && new File(path).isFile()) {
+        result.put(filename, CachedResource.of(new File(path), JAR_CONTENT_TYPE));
+      }
+    }
+    return ImmutableMap.copyOf(result);
+  }
+}
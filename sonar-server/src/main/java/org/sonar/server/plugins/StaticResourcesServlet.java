@@ -26,6 +26,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.server.platform.Platform;
 
+import javax.annotation.CheckForNull;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
@@ -51,6 +52,11 @@ public class StaticResourcesServlet extends HttpServlet {
       response.sendError(HttpServletResponse.SC_NOT_FOUND);
       return;
     }
+    CachedResource cached = getCachedResource(pluginKey, resource);
+    if (cached != null) {
+      serveCached(cached, request, response, pluginKey, resource);
+      return;
+    }
     InputStream in = null;
     OutputStream out = null;
     try {
@@ -74,6 +80,26 @@ public class StaticResourcesServlet extends HttpServlet {
     }
   }
 
+  private void serveCached(CachedResource cached, HttpServletRequest request, HttpServletResponse response, String pluginKey, String resource)
+    throws IOException {
+    try {
+      cached.serve(request, response);
+    } catch (Exception e) {
+      LOG.error("Unable to load static resource '" + resource + "' from plugin '" + pluginKey + "'", e);
+      response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+    }
+  }
+
+  /**
+   * @return null if the resource has not been cached at startup, for example if it is too big
+   */
+  @CheckForNull
+  @VisibleForTesting
+  CachedResource getCachedResource(String pluginKey, String resource) {
+    StaticResourceCache cache = Platform.getInstance().getContainer().getComponentByType(StaticResourceCache.class);
+    return cache != null ? cache.getPluginResource(pluginKey, resource) : null;
+  }
+
   /**
    * @return part of request URL after servlet path
    */
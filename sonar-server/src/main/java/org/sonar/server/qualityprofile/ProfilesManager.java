@@ -31,6 +31,8 @@ import org.sonar.jpa.dao.RulesDao;
 
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
+
+import java.util.Collection;
 import java.util.List;
 
 public class ProfilesManager extends BaseDao {
@@ -125,6 +127,26 @@ public class ProfilesManager extends BaseDao {
     return activatedOrChanged(profileId, activeRuleId, userName);
   }
 
+  /**
+   * Rules were activated in bulk. Changes are propagated to child profiles like in {@link #activated(int, int, String)},
+   * but they are committed only once for all the rules.
+   *
+   * @since 4.3
+   */
+  public RuleInheritanceActions activated(int profileId, Collection<Integer> activeRuleIds, String userName) {
+    RuleInheritanceActions actions = new RuleInheritanceActions();
+    RulesProfile profile = getSession().getEntity(RulesProfile.class, profileId);
+    List<RulesProfile> children = getChildren(profile);
+    for (Integer activeRuleId : activeRuleIds) {
+      ActiveRule activeRule = getSession().getEntity(ActiveRule.class, activeRuleId);
+      ruleEnabled(profile, activeRule, userName);
+      actions.add(propagateActivatedOrChanged(activeRule, children, userName));
+    }
+    getSession().commit();
+    dryRunCache.reportGlobalModification();
+    return actions;
+  }
+
   /**
    * Rule param was changed
    */
@@ -155,18 +177,23 @@ public class ProfilesManager extends BaseDao {
    * Rule was activated/changed in parent profile.
    */
   private RuleInheritanceActions activatedOrChanged(int parentProfileId, int activeRuleId, String userName) {
-    RuleInheritanceActions actions = new RuleInheritanceActions();
     ActiveRule parentActiveRule = getSession().getEntity(ActiveRule.class, activeRuleId);
+    RuleInheritanceActions actions = propagateActivatedOrChanged(parentActiveRule, getChildren(parentProfileId), userName);
+    getSession().commit();
+    dryRunCache.reportGlobalModification();
+    return actions;
+  }
+
+  private RuleInheritanceActions propagateActivatedOrChanged(ActiveRule parentActiveRule, List<RulesProfile> children, String userName) {
+    RuleInheritanceActions actions = new RuleInheritanceActions();
     if (parentActiveRule.isInherited()) {
       parentActiveRule.setInheritance(ActiveRule.OVERRIDES);
       getSession().saveWithoutFlush(parentActiveRule);
     }
-    actions.addToIndex(activeRuleId);
-    for (RulesProfile child : getChildren(parentProfileId)) {
+    actions.addToIndex(parentActiveRule.getId());
+    for (RulesProfile child : children) {
       actions.add(activateOrChange(child, parentActiveRule, userName));
     }
-    getSession().commit();
-    dryRunCache.reportGlobalModification();
     return actions;
   }
 
@@ -174,16 +201,38 @@ public class ProfilesManager extends BaseDao {
    * Rule was deactivated in parent profile.
    */
   public RuleInheritanceActions deactivated(int parentProfileId, int deactivatedRuleId, String userName) {
+    RulesProfile profile = getSession().getEntity(RulesProfile.class, parentProfileId);
+    RuleInheritanceActions actions = propagateDeactivated(profile, deactivatedRuleId, getChildren(profile), userName);
+    getSession().commit();
+    dryRunCache.reportGlobalModification();
+    return actions;
+  }
+
+  /**
+   * Rules were deactivated in bulk in parent profile. Changes are committed only once for all the rules.
+   *
+   * @since 4.3
+   */
+  public RuleInheritanceActions deactivated(int parentProfileId, Collection<Integer> deactivatedRuleIds, String userName) {
     RuleInheritanceActions actions = new RuleInheritanceActions();
-    ActiveRule parentActiveRule = getSession().getEntity(ActiveRule.class, deactivatedRuleId);
     RulesProfile profile = getSession().getEntity(RulesProfile.class, parentProfileId);
+    List<RulesProfile> children = getChildren(profile);
+    for (Integer deactivatedRuleId : deactivatedRuleIds) {
+      actions.add(propagateDeactivated(profile, deactivatedRuleId, children, userName));
+    }
+    getSession().commit();
+    dryRunCache.reportGlobalModification();
+    return actions;
+  }
+
+  private RuleInheritanceActions propagateDeactivated(RulesProfile profile, int deactivatedRuleId, List<RulesProfile> children, String userName) {
+    RuleInheritanceActions actions = new RuleInheritanceActions();
+    ActiveRule parentActiveRule = getSession().getEntity(ActiveRule.class, deactivatedRuleId);
     ruleDisabled(profile, parentActiveRule, userName);
     actions.addToIndex(parentActiveRule.getId());
-    for (RulesProfile child : getChildren(parentProfileId)) {
+    for (RulesProfile child : children) {
       actions.add(deactivate(child, parentActiveRule.getRule(), userName));
     }
-    getSession().commit();
-    dryRunCache.reportGlobalModification();
     return actions;
   }
 
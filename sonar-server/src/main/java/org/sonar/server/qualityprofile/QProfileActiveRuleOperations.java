@@ -23,9 +23,14 @@ package org.sonar.server.qualityprofile;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Splitter;
 import com.google.common.base.Strings;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
 import org.apache.ibatis.session.SqlSession;
 import org.elasticsearch.common.base.Predicate;
 import org.elasticsearch.common.collect.Iterables;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.sonar.api.ServerComponent;
 import org.sonar.api.rule.Severity;
 import org.sonar.api.rules.RulePriority;
@@ -44,13 +49,17 @@ import org.sonar.server.util.TypeValidations;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 import static com.google.common.collect.Lists.newArrayList;
 
 public class QProfileActiveRuleOperations implements ServerComponent {
 
+  private static final Logger LOG = LoggerFactory.getLogger(QProfileActiveRuleOperations.class);
+
   private final MyBatis myBatis;
   private final ActiveRuleDao activeRuleDao;
   private final RuleDao ruleDao;
@@ -101,26 +110,28 @@ public class QProfileActiveRuleOperations implements ServerComponent {
   }
 
   private ActiveRuleDto createActiveRule(int profileId, int ruleId, String severity, UserSession userSession, SqlSession session) {
+    ActiveRuleDto activeRule = insertActiveRule(profileId, ruleId, severity, ruleDao.selectParametersByRuleId(ruleId, session), session);
+    session.commit();
+    ProfilesManager.RuleInheritanceActions actions = profilesManager.activated(profileId, activeRule.getId(), getLoggedName(userSession));
+    reindexInheritanceResult(actions, session);
+    return activeRule;
+  }
+
+  private ActiveRuleDto insertActiveRule(int profileId, int ruleId, String severity, Collection<RuleParamDto> ruleParams, SqlSession session) {
     ActiveRuleDto activeRule = new ActiveRuleDto()
       .setProfileId(profileId)
       .setRuleId(ruleId)
       .setSeverity(severity);
     activeRuleDao.insert(activeRule, session);
 
-    List<RuleParamDto> ruleParams = ruleDao.selectParametersByRuleId(ruleId, session);
-    List<ActiveRuleParamDto> activeRuleParams = newArrayList();
     for (RuleParamDto ruleParam : ruleParams) {
       ActiveRuleParamDto activeRuleParam = new ActiveRuleParamDto()
         .setActiveRuleId(activeRule.getId())
         .setRulesParameterId(ruleParam.getId())
         .setKey(ruleParam.getName())
         .setValue(ruleParam.getDefaultValue());
-      activeRuleParams.add(activeRuleParam);
       activeRuleDao.insert(activeRuleParam, session);
     }
-    session.commit();
-    ProfilesManager.RuleInheritanceActions actions = profilesManager.activated(profileId, activeRule.getId(), getLoggedName(userSession));
-    reindexInheritanceResult(actions, session);
     return activeRule;
   }
 
@@ -133,16 +144,44 @@ public class QProfileActiveRuleOperations implements ServerComponent {
     notifySeverityChanged(activeRule, newSeverity, oldSeverity, session, userSession);
   }
 
+  /**
+   * Rules and their parameters are loaded and inserted in a single transaction, then inheritance is propagated
+   * and the index is updated once for all the activated rules.
+   */
   public int activateRules(int profileId, ProfileRuleQuery query, UserSession userSession) {
     validatePermission(userSession);
 
     SqlSession session = myBatis.openSession();
     try {
       List<Integer> ruleIdsToActivate = rules.searchInactiveProfileRuleIds(query);
+      if (ruleIdsToActivate.isEmpty()) {
+        return 0;
+      }
+      long start = system.now();
+      Map<Integer, RuleDto> rulesById = Maps.newHashMap();
+      for (RuleDto rule : ruleDao.selectByIds(ruleIdsToActivate, session)) {
+        rulesById.put(rule.getId(), rule);
+      }
+      Multimap<Integer, RuleParamDto> paramsByRuleId = ArrayListMultimap.create();
+      for (RuleParamDto ruleParam : ruleDao.selectParametersByRuleIds(ruleIdsToActivate, session)) {
+        paramsByRuleId.put(ruleParam.getRuleId(), ruleParam);
+      }
+
+      List<Integer> activeRuleIds = newArrayList();
       for (Integer ruleId : ruleIdsToActivate) {
-        RuleDto rule = findRuleNotNull(ruleId, session);
-        createActiveRule(profileId, ruleId, rule.getSeverityString(), userSession, session);
+        RuleDto rule = rulesById.get(ruleId);
+        QProfileValidations.checkRuleIsNotNull(rule);
+        ActiveRuleDto activeRule = insertActiveRule(profileId, rule.getId(), rule.getSeverityString(), paramsByRuleId.get(ruleId), session);
+        activeRuleIds.add(activeRule.getId());
       }
+      session.commit();
+      long dbEnd = system.now();
+
+      ProfilesManager.RuleInheritanceActions actions = profilesManager.activated(profileId, activeRuleIds, getLoggedName(userSession));
+      long inheritanceEnd = system.now();
+
+      reindexInheritanceResult(actions, session);
+      logBulkChange("activated", activeRuleIds.size(), start, dbEnd - start, inheritanceEnd - dbEnd);
       return ruleIdsToActivate.size();
     } finally {
       MyBatis.closeQuietly(session);
@@ -175,25 +214,68 @@ public class QProfileActiveRuleOperations implements ServerComponent {
     return false;
   }
 
+  /**
+   * Inherited active rules are ignored. Others are deleted in a single transaction, then the index is updated once
+   * for all the deactivated rules.
+   */
   public int deactivateRules(ProfileRuleQuery query, UserSession userSession) {
     validatePermission(userSession);
 
     SqlSession session = myBatis.openSession();
-    int numberOfDeactivatedRules = 0;
     try {
       List<Integer> activeRuleIdsToDeactivate = rules.searchProfileRuleIds(query);
-      for (int activeRuleId : activeRuleIdsToDeactivate) {
-        ActiveRuleDto activeRule = findActiveRuleNotNull(activeRuleId, session);
-        if (deactivateRule(activeRule, userSession, session)) {
-          numberOfDeactivatedRules++;
+      if (activeRuleIdsToDeactivate.isEmpty()) {
+        return 0;
+      }
+      long start = system.now();
+      Map<Integer, ActiveRuleDto> activeRulesById = Maps.newHashMap();
+      for (ActiveRuleDto activeRule : activeRuleDao.selectByIds(activeRuleIdsToDeactivate, session)) {
+        activeRulesById.put(activeRule.getId(), activeRule);
+      }
+      Multimap<Integer, Integer> activeRuleIdsByProfileId = ArrayListMultimap.create();
+      for (Integer activeRuleId : activeRuleIdsToDeactivate) {
+        ActiveRuleDto activeRule = activeRulesById.get(activeRuleId);
+        QProfileValidations.checkActiveRuleIsNotNull(activeRule);
+        if (activeRule.getInheritance() == null) {
+          activeRuleIdsByProfileId.put(activeRule.getProfileId(), activeRule.getId());
         }
       }
-      return numberOfDeactivatedRules;
+      if (activeRuleIdsByProfileId.isEmpty()) {
+        return 0;
+      }
+
+      // inheritance must be computed while active rules still exist
+      ProfilesManager.RuleInheritanceActions actions = new ProfilesManager.RuleInheritanceActions();
+      String userName = getLoggedName(userSession);
+      for (Map.Entry<Integer, Collection<Integer>> entry : activeRuleIdsByProfileId.asMap().entrySet()) {
+        actions.add(profilesManager.deactivated(entry.getKey(), entry.getValue(), userName));
+      }
+      long inheritanceEnd = system.now();
+
+      for (Integer activeRuleId : activeRuleIdsByProfileId.values()) {
+        activeRuleDao.deleteParameters(activeRuleId, session);
+        activeRuleDao.delete(activeRuleId, session);
+        actions.addToDelete(activeRuleId);
+      }
+      session.commit();
+      long dbEnd = system.now();
+
+      reindexInheritanceResult(actions, session);
+      logBulkChange("deactivated", activeRuleIdsByProfileId.size(), start, dbEnd - inheritanceEnd, inheritanceEnd - start);
+      return activeRuleIdsByProfileId.size();
     } finally {
       MyBatis.closeQuietly(session);
     }
   }
 
+  private void logBulkChange(String change, int nbRules, long start, long dbDuration, long inheritanceDuration) {
+    if (LOG.isDebugEnabled()) {
+      long duration = system.now() - start;
+      LOG.debug("{} rules {} in {} ms (database: {} ms, inheritance: {} ms, index: {} ms)",
+        new Object[] {nbRules, change, duration, dbDuration, inheritanceDuration, duration - dbDuration - inheritanceDuration});
+    }
+  }
+
   public void updateActiveRuleParam(int activeRuleId, String key, @Nullable String value, UserSession userSession) {
     validatePermission(userSession);
 
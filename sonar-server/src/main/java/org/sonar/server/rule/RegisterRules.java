@@ -38,6 +38,8 @@ import org.sonar.api.utils.System2;
 import org.sonar.api.utils.TimeProfiler;
 import org.sonar.check.Cardinality;
 import org.sonar.core.persistence.MyBatis;
+import org.sonar.core.properties.PropertiesDao;
+import org.sonar.core.properties.PropertyDto;
 import org.sonar.core.qualityprofile.db.ActiveRuleDao;
 import org.sonar.core.rule.*;
 import org.sonar.core.technicaldebt.db.CharacteristicDao;
@@ -61,6 +63,11 @@ public class RegisterRules implements Startable {
 
   private static final Logger LOG = LoggerFactory.getLogger(RegisterRules.class);
 
+  /**
+   * Prefix of the global properties storing the fingerprints of the rule repositories registered at last startup
+   */
+  static final String FINGERPRINT_PROPERTY_PREFIX = "sonar.core.rulesFingerprint.";
+
   private final RuleDefinitionsLoader defLoader;
   private final ProfilesManager profilesManager;
   private final RuleRegistry ruleRegistry;
@@ -71,6 +78,7 @@ public class RegisterRules implements Startable {
   private final RuleTagOperations ruleTagOperations;
   private final ActiveRuleDao activeRuleDao;
   private final CharacteristicDao characteristicDao;
+  private final PropertiesDao propertiesDao;
   private final System2 system;
 
   /**
@@ -79,14 +87,16 @@ public class RegisterRules implements Startable {
   public RegisterRules(RuleDefinitionsLoader defLoader, ProfilesManager profilesManager,
                        RuleRegistry ruleRegistry, ESRuleTags esRuleTags, RuleTagOperations ruleTagOperations,
                        MyBatis myBatis, RuleDao ruleDao, RuleTagDao ruleTagDao, ActiveRuleDao activeRuleDao, CharacteristicDao characteristicDao,
-                       RegisterDebtModel registerDebtModel) {
-    this(defLoader, profilesManager, ruleRegistry, esRuleTags, ruleTagOperations, myBatis, ruleDao, ruleTagDao, activeRuleDao, characteristicDao, System2.INSTANCE);
+                       PropertiesDao propertiesDao, RegisterDebtModel registerDebtModel) {
+    this(defLoader, profilesManager, ruleRegistry, esRuleTags, ruleTagOperations, myBatis, ruleDao, ruleTagDao, activeRuleDao, characteristicDao, propertiesDao,
+      System2.INSTANCE);
   }
 
   @VisibleForTesting
   RegisterRules(RuleDefinitionsLoader defLoader, ProfilesManager profilesManager,
                 RuleRegistry ruleRegistry, ESRuleTags esRuleTags, RuleTagOperations ruleTagOperations,
-                MyBatis myBatis, RuleDao ruleDao, RuleTagDao ruleTagDao, ActiveRuleDao activeRuleDao, CharacteristicDao characteristicDao, System2 system) {
+                MyBatis myBatis, RuleDao ruleDao, RuleTagDao ruleTagDao, ActiveRuleDao activeRuleDao, CharacteristicDao characteristicDao,
+                PropertiesDao propertiesDao, System2 system) {
     this.defLoader = defLoader;
     this.profilesManager = profilesManager;
     this.ruleRegistry = ruleRegistry;
@@ -97,6 +107,7 @@ public class RegisterRules implements Startable {
     this.ruleTagDao = ruleTagDao;
     this.activeRuleDao = activeRuleDao;
     this.characteristicDao = characteristicDao;
+    this.propertiesDao = propertiesDao;
     this.system = system;
   }
 
@@ -108,11 +119,15 @@ public class RegisterRules implements Startable {
       RulesDefinition.Context context = defLoader.load();
       Buffer buffer = new Buffer(system.now());
       selectRulesFromDb(buffer, sqlSession);
-      enableRuleDefinitions(context, buffer, sqlSession);
+      Map<String, String> fingerprints = RuleRepositoryFingerprints.compute(context, buffer.characteristicsById.values());
+      Map<String, String> previousFingerprints = previousFingerprints();
+      Set<String> unchangedRepositories = unchangedRepositories(context, fingerprints, previousFingerprints, buffer);
+      enableRuleDefinitions(context, unchangedRepositories, buffer, sqlSession);
       List<RuleDto> removedRules = processRemainingDbRules(buffer, sqlSession);
       removeActiveRulesOnStillExistingRepositories(removedRules, context);
       index(buffer, sqlSession);
       ruleTagOperations.deleteUnusedTags(sqlSession);
+      saveFingerprints(fingerprints, previousFingerprints, sqlSession);
       sqlSession.commit();
 
     } finally {
@@ -145,20 +160,63 @@ public class RegisterRules implements Startable {
     }
   }
 
-  private void enableRuleDefinitions(RulesDefinition.Context context, Buffer buffer, SqlSession sqlSession) {
+  /**
+   * A repository is skipped if its fingerprint did not change since last startup and if all its rules
+   * are still enabled in database.
+   */
+  private Set<String> unchangedRepositories(RulesDefinition.Context context, Map<String, String> fingerprints, Map<String, String> previousFingerprints,
+                                            Buffer buffer) {
+    Set<String> result = Sets.newHashSet();
     for (RulesDefinition.Repository repoDef : context.repositories()) {
-      enableRepository(buffer, sqlSession, repoDef);
+      String key = repoDef.key();
+      if (fingerprints.get(key).equals(previousFingerprints.get(key)) && areEnabled(buffer, repoDef) && areEnabled(buffer, context.extendedRepositories(key))) {
+        result.add(key);
+      }
+    }
+    return result;
+  }
+
+  private static boolean areEnabled(Buffer buffer, Collection<RulesDefinition.ExtendedRepository> repoDefs) {
+    for (RulesDefinition.ExtendedRepository repoDef : repoDefs) {
+      if (!areEnabled(buffer, repoDef)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean areEnabled(Buffer buffer, RulesDefinition.ExtendedRepository repoDef) {
+    for (RulesDefinition.Rule ruleDef : repoDef.rules()) {
+      RuleDto dto = buffer.rule(RuleKey.of(ruleDef.repository().key(), ruleDef.key()));
+      if (dto == null || Rule.STATUS_REMOVED.equals(dto.getStatus())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void enableRuleDefinitions(RulesDefinition.Context context, Set<String> unchangedRepositories, Buffer buffer, SqlSession sqlSession) {
+    for (RulesDefinition.Repository repoDef : context.repositories()) {
+      enableRepository(buffer, sqlSession, repoDef, unchangedRepositories.contains(repoDef.key()));
     }
     for (RulesDefinition.ExtendedRepository extendedRepoDef : context.extendedRepositories()) {
       if (context.repository(extendedRepoDef.key()) == null) {
         LOG.warn(String.format("Extension is ignored, repository %s does not exist", extendedRepoDef.key()));
       } else {
-        enableRepository(buffer, sqlSession, extendedRepoDef);
+        enableRepository(buffer, sqlSession, extendedRepoDef, unchangedRepositories.contains(extendedRepoDef.key()));
       }
     }
   }
 
-  private void enableRepository(Buffer buffer, SqlSession sqlSession, RulesDefinition.ExtendedRepository repoDef) {
+  private void enableRepository(Buffer buffer, SqlSession sqlSession, RulesDefinition.ExtendedRepository repoDef, boolean unchanged) {
+    if (unchanged) {
+      for (RulesDefinition.Rule ruleDef : repoDef.rules()) {
+        buffer.markProcessed(buffer.rule(RuleKey.of(ruleDef.repository().key(), ruleDef.key())));
+      }
+      LOG.debug("Rules of repository {} are unchanged", repoDef.key());
+      return;
+    }
+    long start = system.now();
     int count = 0;
     for (RulesDefinition.Rule ruleDef : repoDef.rules()) {
       RuleDto dto = buffer.rule(RuleKey.of(ruleDef.repository().key(), ruleDef.key()));
@@ -174,6 +232,7 @@ public class RegisterRules implements Startable {
       }
     }
     sqlSession.commit();
+    LOG.info("Register {} rules of repository {} ({} ms)", new Object[] {count, repoDef.key(), system.now() - start});
   }
 
   private RuleDto enableAndInsert(Buffer buffer, SqlSession sqlSession, RulesDefinition.Rule ruleDef) {
@@ -202,6 +261,7 @@ public class RegisterRules implements Startable {
 
     ruleDao.insert(ruleDto, sqlSession);
     buffer.add(ruleDto);
+    buffer.markChanged(ruleDto);
 
     for (RulesDefinition.Param param : ruleDef.params()) {
       RuleParamDto paramDto = new RuleParamDto()
@@ -218,12 +278,16 @@ public class RegisterRules implements Startable {
   }
 
   private void enableAndUpdate(Buffer buffer, SqlSession sqlSession, RulesDefinition.Rule ruleDef, RuleDto dto) {
+    boolean changed = false;
     if (mergeRule(buffer, ruleDef, dto)) {
       ruleDao.update(dto, sqlSession);
+      changed = true;
+    }
+    changed = mergeParams(buffer, sqlSession, ruleDef, dto) || changed;
+    changed = mergeTags(buffer, sqlSession, ruleDef, dto) || changed;
+    if (changed) {
+      buffer.markChanged(dto);
     }
-    mergeParams(buffer, sqlSession, ruleDef, dto);
-    mergeTags(buffer, sqlSession, ruleDef, dto);
-    buffer.markProcessed(dto);
   }
 
   private boolean mergeRule(Buffer buffer, RulesDefinition.Rule def, RuleDto dto) {
@@ -306,7 +370,8 @@ public class RegisterRules implements Startable {
     return changed;
   }
 
-  private void mergeParams(Buffer buffer, SqlSession sqlSession, RulesDefinition.Rule ruleDef, RuleDto dto) {
+  private boolean mergeParams(Buffer buffer, SqlSession sqlSession, RulesDefinition.Rule ruleDef, RuleDto dto) {
+    boolean changed = false;
     Collection<RuleParamDto> paramDtos = buffer.paramsForRuleId(dto.getId());
     Set<String> persistedParamKeys = Sets.newHashSet();
     for (RuleParamDto paramDto : paramDtos) {
@@ -314,11 +379,13 @@ public class RegisterRules implements Startable {
       if (paramDef == null) {
         activeRuleDao.deleteParametersWithParamId(paramDto.getId(), sqlSession);
         ruleDao.deleteParam(paramDto, sqlSession);
+        changed = true;
       } else {
         // TODO validate that existing active rules still match constraints
         // TODO store param name
         if (mergeParam(paramDto, paramDef)) {
           ruleDao.update(paramDto, sqlSession);
+          changed = true;
         }
         persistedParamKeys.add(paramDto.getName());
       }
@@ -333,8 +400,10 @@ public class RegisterRules implements Startable {
           .setType(param.type().toString());
         ruleDao.insert(paramDto, sqlSession);
         buffer.add(paramDto);
+        changed = true;
       }
     }
+    return changed;
   }
 
   private boolean mergeParam(RuleParamDto paramDto, RulesDefinition.Param paramDef) {
@@ -354,7 +423,8 @@ public class RegisterRules implements Startable {
     return changed;
   }
 
-  private void mergeTags(Buffer buffer, SqlSession sqlSession, RulesDefinition.Rule ruleDef, RuleDto dto) {
+  private boolean mergeTags(Buffer buffer, SqlSession sqlSession, RulesDefinition.Rule ruleDef, RuleDto dto) {
+    boolean changed = false;
     Set<String> existingSystemTags = Sets.newHashSet();
 
     Collection<RuleRuleTagDto> tagDtos = ImmutableList.copyOf(buffer.tagsForRuleId(dto.getId()));
@@ -367,6 +437,7 @@ public class RegisterRules implements Startable {
           // not declared anymore
           ruleDao.deleteTag(tagDto, sqlSession);
           buffer.remove(tagDto);
+          changed = true;
         } else {
           existingSystemTags.add(tagDto.getTag());
         }
@@ -378,6 +449,7 @@ public class RegisterRules implements Startable {
           tagDto.setType(RuleTagType.SYSTEM);
           ruleDao.update(tagDto, sqlSession);
           existingSystemTags.add(tag);
+          changed = true;
         }
       }
     }
@@ -392,8 +464,10 @@ public class RegisterRules implements Startable {
           .setType(RuleTagType.SYSTEM);
         ruleDao.insert(newTagDto, sqlSession);
         buffer.add(newTagDto);
+        changed = true;
       }
     }
+    return changed;
   }
 
   private long getOrCreateReferenceTagId(Buffer buffer, String tag, SqlSession sqlSession) {
@@ -420,15 +494,11 @@ public class RegisterRules implements Startable {
         RuleDto parent = buffer.rulesById.get(ruleDto.getParentId());
         if (parent != null && !Rule.STATUS_REMOVED.equals(parent.getStatus())) {
           // TODO merge params and tags ?
-          ruleDto.setLanguage(parent.getLanguage());
-          ruleDto.setStatus(parent.getStatus());
-          ruleDto.setDefaultSubCharacteristicId(parent.getDefaultSubCharacteristicId());
-          ruleDto.setDefaultRemediationFunction(parent.getDefaultRemediationFunction());
-          ruleDto.setDefaultRemediationCoefficient(parent.getDefaultRemediationCoefficient());
-          ruleDto.setDefaultRemediationOffset(parent.getDefaultRemediationOffset());
-          ruleDto.setEffortToFixDescription(parent.getEffortToFixDescription());
-          ruleDto.setUpdatedAt(buffer.now());
-          ruleDao.update(ruleDto, sqlSession);
+          if (mergeTemplateFields(ruleDto, parent)) {
+            ruleDto.setUpdatedAt(buffer.now());
+            ruleDao.update(ruleDto, sqlSession);
+            buffer.markChanged(ruleDto);
+          }
           toBeRemoved = false;
         }
       }
@@ -441,6 +511,7 @@ public class RegisterRules implements Startable {
           ruleDao.deleteTag(removed, sqlSession);
         }
         ruleDao.update(ruleDto, sqlSession);
+        buffer.markChanged(ruleDto);
         removedRules.add(ruleDto);
         if (removedRules.size() % 100 == 0) {
           sqlSession.commit();
@@ -452,6 +523,26 @@ public class RegisterRules implements Startable {
     return removedRules;
   }
 
+  private static boolean mergeTemplateFields(RuleDto ruleDto, RuleDto template) {
+    boolean changed = !StringUtils.equals(ruleDto.getLanguage(), template.getLanguage())
+      || !StringUtils.equals(ruleDto.getStatus(), template.getStatus())
+      || !ObjectUtils.equals(ruleDto.getDefaultSubCharacteristicId(), template.getDefaultSubCharacteristicId())
+      || !StringUtils.equals(ruleDto.getDefaultRemediationFunction(), template.getDefaultRemediationFunction())
+      || !StringUtils.equals(ruleDto.getDefaultRemediationCoefficient(), template.getDefaultRemediationCoefficient())
+      || !StringUtils.equals(ruleDto.getDefaultRemediationOffset(), template.getDefaultRemediationOffset())
+      || !StringUtils.equals(ruleDto.getEffortToFixDescription(), template.getEffortToFixDescription());
+    if (changed) {
+      ruleDto.setLanguage(template.getLanguage());
+      ruleDto.setStatus(template.getStatus());
+      ruleDto.setDefaultSubCharacteristicId(template.getDefaultSubCharacteristicId());
+      ruleDto.setDefaultRemediationFunction(template.getDefaultRemediationFunction());
+      ruleDto.setDefaultRemediationCoefficient(template.getDefaultRemediationCoefficient());
+      ruleDto.setDefaultRemediationOffset(template.getDefaultRemediationOffset());
+      ruleDto.setEffortToFixDescription(template.getEffortToFixDescription());
+    }
+    return changed;
+  }
+
   /**
    * SONAR-4642
    * <p/>
@@ -481,14 +572,42 @@ public class RegisterRules implements Startable {
   }
 
   private void index(Buffer buffer, SqlSession sqlSession) {
-    String[] ids = ruleRegistry.reindex(buffer.rulesById.values(), sqlSession);
-    ruleRegistry.removeDeletedRules(ids);
+    ruleRegistry.reindexChangedRules(buffer.rulesById.values(), buffer.changedRuleIds, sqlSession);
     esRuleTags.putAllTags(buffer.referenceTagsByTagValue.values());
   }
 
+  /**
+   * @return fingerprints saved at last startup, by repository key
+   */
+  private Map<String, String> previousFingerprints() {
+    Map<String, String> previousFingerprints = Maps.newHashMap();
+    for (PropertyDto property : propertiesDao.selectGlobalProperties()) {
+      if (property.getKey().startsWith(FINGERPRINT_PROPERTY_PREFIX)) {
+        previousFingerprints.put(StringUtils.removeStart(property.getKey(), FINGERPRINT_PROPERTY_PREFIX), property.getValue());
+      }
+    }
+    return previousFingerprints;
+  }
+
+  /**
+   * Fingerprints of the repositories that are not registered anymore, for example because their plugin
+   * has been uninstalled, are deleted.
+   */
+  private void saveFingerprints(Map<String, String> fingerprints, Map<String, String> previousFingerprints, SqlSession sqlSession) {
+    for (Map.Entry<String, String> entry : fingerprints.entrySet()) {
+      if (!entry.getValue().equals(previousFingerprints.get(entry.getKey()))) {
+        propertiesDao.setProperty(new PropertyDto().setKey(FINGERPRINT_PROPERTY_PREFIX + entry.getKey()).setValue(entry.getValue()), sqlSession);
+      }
+    }
+    for (String repositoryKey : Sets.difference(previousFingerprints.keySet(), fingerprints.keySet())) {
+      propertiesDao.deleteGlobalProperty(FINGERPRINT_PROPERTY_PREFIX + repositoryKey, sqlSession);
+    }
+  }
+
   static class Buffer {
     private Date now;
-    private List<Integer> unprocessedRuleIds = newArrayList();
+    private Set<Integer> unprocessedRuleIds = Sets.newLinkedHashSet();
+    private Set<Integer> changedRuleIds = Sets.newHashSet();
     private Map<RuleKey, RuleDto> rulesByKey = Maps.newHashMap();
     private Map<Integer, RuleDto> rulesById = Maps.newHashMap();
     private Multimap<Integer, RuleParamDto> paramsByRuleId = ArrayListMultimap.create();
@@ -558,6 +677,10 @@ public class RegisterRules implements Startable {
       unprocessedRuleIds.remove(ruleDto.getId());
     }
 
+    void markChanged(RuleDto ruleDto) {
+      changedRuleIds.add(ruleDto.getId());
+    }
+
     CharacteristicDto characteristic(@Nullable String subCharacteristic, String repo, String ruleKey, @Nullable Integer overridingCharacteristicId){
       // Rule is not linked to a default characteristic or characteristic has been disabled by user
       if (subCharacteristic == null) {
@@ -33,6 +33,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
@@ -167,6 +168,35 @@ public class RuleRegistry {
     return bulkIndexRules(rules, characteristicsById, paramsByRuleId, tagsByRuleId);
   }
 
+  /**
+   * Incremental alternative to {@link #reindex(Collection, SqlSession)} followed by {@link #removeDeletedRules(String[])}.
+   * Only the changed rules and the rules missing from index are indexed. Documents of the rules that do not exist anymore are removed.
+   *
+   * @param rules all the rules expected in index
+   * @since 4.3
+   */
+  public void reindexChangedRules(Collection<RuleDto> rules, Collection<Integer> changedRuleIds, SqlSession session) {
+    List<String> indexIds = searchIndex.findDocumentIds(SearchQuery.create().index(INDEX_RULES).type(TYPE_RULE));
+    Set<String> indexedIds = newHashSet(indexIds);
+    Set<String> ruleIds = newHashSet();
+    List<RuleDto> rulesToIndex = newArrayList();
+    for (RuleDto rule : rules) {
+      String id = rule.getId().toString();
+      ruleIds.add(id);
+      if (changedRuleIds.contains(rule.getId()) || !indexedIds.contains(id)) {
+        rulesToIndex.add(rule);
+      }
+    }
+    if (!rulesToIndex.isEmpty()) {
+      reindex(rulesToIndex, session);
+    }
+    indexIds.removeAll(ruleIds);
+    if (!indexIds.isEmpty()) {
+      searchIndex.bulkDelete(INDEX_RULES, TYPE_RULE, indexIds.toArray(new String[indexIds.size()]));
+    }
+    LOG.debug("{} rules indexed, {} rule documents removed", rulesToIndex.size(), indexIds.size());
+  }
+
   /**
    * Reindex one rule
    */
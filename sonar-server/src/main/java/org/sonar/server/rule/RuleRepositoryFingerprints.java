@@ -0,0 +1,119 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.rule;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.sonar.api.server.debt.DebtRemediationFunction;
+import org.sonar.api.server.rule.RulesDefinition;
+import org.sonar.core.technicaldebt.db.CharacteristicDto;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fingerprints of the rule definitions, computed per repository. Rules of extended repositories are
+ * part of the fingerprint of the repository they extend. As the debt characteristics of rules are
+ * resolved against the debt model, the enabled characteristics, including their names, are part of all
+ * the fingerprints.
+ *
+ * @since 4.3
+ */
+class RuleRepositoryFingerprints {
+
+  private static final char SEPARATOR = '\u0000';
+
+  private RuleRepositoryFingerprints() {
+    // only static methods
+  }
+
+  /**
+   * @return fingerprints by repository key
+   */
+  static Map<String, String> compute(RulesDefinition.Context context, Collection<CharacteristicDto> characteristics) {
+    String characteristicsFingerprint = characteristics(characteristics);
+    Map<String, String> fingerprints = Maps.newHashMap();
+    for (RulesDefinition.Repository repoDef : context.repositories()) {
+      List<RulesDefinition.Rule> rules = Lists.newArrayList(repoDef.rules());
+      for (RulesDefinition.ExtendedRepository extendedRepoDef : context.extendedRepositories(repoDef.key())) {
+        rules.addAll(extendedRepoDef.rules());
+      }
+      StringBuilder sb = new StringBuilder();
+      append(sb, repoDef.key(), repoDef.language(), characteristicsFingerprint);
+      for (RulesDefinition.Rule rule : sortByKey(rules)) {
+        append(sb, rule);
+      }
+      fingerprints.put(repoDef.key(), DigestUtils.md5Hex(sb.toString()));
+    }
+    return fingerprints;
+  }
+
+  private static String characteristics(Collection<CharacteristicDto> characteristics) {
+    List<String> lines = Lists.newArrayList();
+    for (CharacteristicDto characteristic : characteristics) {
+      lines.add(characteristic.getKey() + SEPARATOR + characteristic.getId() + SEPARATOR + characteristic.getParentId() + SEPARATOR + characteristic.getName());
+    }
+    Collections.sort(lines);
+    return DigestUtils.md5Hex(lines.toString());
+  }
+
+  private static void append(StringBuilder sb, RulesDefinition.Rule rule) {
+    append(sb, rule.key(), rule.name(), rule.htmlDescription(), rule.internalKey(), rule.severity(), String.valueOf(rule.template()),
+      rule.status().name(), rule.debtSubCharacteristic(), rule.effortToFixDescription());
+    DebtRemediationFunction function = rule.debtRemediationFunction();
+    if (function != null) {
+      append(sb, function.type().name(), function.coefficient(), function.offset());
+    }
+    List<String> tags = Lists.newArrayList(rule.tags());
+    Collections.sort(tags);
+    append(sb, tags.toArray(new String[tags.size()]));
+    List<RulesDefinition.Param> params = Lists.newArrayList(rule.params());
+    Collections.sort(params, new Comparator<RulesDefinition.Param>() {
+      @Override
+      public int compare(RulesDefinition.Param p1, RulesDefinition.Param p2) {
+        return p1.key().compareTo(p2.key());
+      }
+    });
+    for (RulesDefinition.Param param : params) {
+      append(sb, param.key(), param.name(), param.description(), param.defaultValue(), param.type().toString());
+    }
+  }
+
+  private static void append(StringBuilder sb, String... values) {
+    for (String value : values) {
+      sb.append(value).append(SEPARATOR);
+    }
+    sb.append('\n');
+  }
+
+  private static List<RulesDefinition.Rule> sortByKey(List<RulesDefinition.Rule> rules) {
+    Collections.sort(rules, new Comparator<RulesDefinition.Rule>() {
+      @Override
+      public int compare(RulesDefinition.Rule r1, RulesDefinition.Rule r2) {
+        return r1.key().compareTo(r2.key());
+      }
+    });
+    return rules;
+  }
+}
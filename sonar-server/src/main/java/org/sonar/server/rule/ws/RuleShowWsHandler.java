@@ -32,7 +32,7 @@ import org.sonar.api.server.ws.RequestHandler;
 import org.sonar.api.server.ws.Response;
 import org.sonar.api.utils.DateUtils;
 import org.sonar.api.utils.text.JsonWriter;
-import org.sonar.markdown.Markdown;
+import org.sonar.markdown.MarkdownRenderer;
 import org.sonar.server.exceptions.NotFoundException;
 import org.sonar.server.rule.Rule;
 import org.sonar.server.rule.RuleNote;
@@ -52,12 +52,14 @@ public class RuleShowWsHandler implements RequestHandler {
   // Only used to get manual rules
   private final RuleFinder ruleFinder;
   private final I18n i18n;
+  private final MarkdownRenderer markdownRenderer;
 
-  public RuleShowWsHandler(Rules rules, RuleFinder ruleFinder, I18n i18n, Languages languages) {
+  public RuleShowWsHandler(Rules rules, RuleFinder ruleFinder, I18n i18n, Languages languages, MarkdownRenderer markdownRenderer) {
     this.rules = rules;
     this.ruleFinder = ruleFinder;
     this.i18n = i18n;
     this.languages = languages;
+    this.markdownRenderer = markdownRenderer;
   }
 
   @Override
@@ -126,7 +128,7 @@ public class RuleShowWsHandler implements RequestHandler {
     RuleNote ruleNote = rule.ruleNote();
     if (ruleNote != null && !Strings.isNullOrEmpty(ruleNote.data())) {
       json.prop("noteRaw", ruleNote.data())
-        .prop("noteHtml", Markdown.convertToHtml(ruleNote.data()));
+        .prop("noteHtml", markdownRenderer.render(ruleNote.data()));
     }
   }
 
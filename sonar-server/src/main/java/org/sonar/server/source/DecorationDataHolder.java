@@ -20,55 +20,103 @@
 package org.sonar.server.source;
 
 import com.google.common.collect.Lists;
+import org.sonar.core.source.HighlightingDataFormat;
 
 import java.util.Arrays;
-import java.util.Iterator;
 import java.util.List;
 
+/**
+ * Offsets of the HTML tags to be inserted in source code. Serialized data is parsed without intermediary strings
+ * into primitive arrays, which are sorted once, on first read. The opening tags that have the same offset are kept
+ * in order of loading. Both the compact format of {@link HighlightingDataFormat} and the legacy text format are
+ * supported.
+ */
 class DecorationDataHolder {
 
-  private static final String ENTITY_SEPARATOR = ";";
-  private static final String FIELD_SEPARATOR = ",";
+  private static final char ENTITY_SEPARATOR = ';';
+  private static final char FIELD_SEPARATOR = ',';
   private static final String SYMBOL_PREFIX = "sym-";
   private static final String HIGHLIGHTABLE = "sym";
 
-  private List<OpeningHtmlTag> openingTagsEntries;
+  private int[] openingTagsOffsets = new int[64];
+  private String[] openingTagsCssClasses = new String[64];
+  private int openingTagsCount = 0;
   private int openingTagsIndex;
-  private List<Integer> closingTagsOffsets;
+
+  private int[] closingTagsOffsets = new int[64];
+  private int closingTagsCount = 0;
   private int closingTagsIndex;
 
-  DecorationDataHolder() {
-    openingTagsEntries = Lists.newArrayList();
-    closingTagsOffsets = Lists.newArrayList();
-  }
+  private boolean sorted = true;
+
+  // distinct CSS classes of highlighting, shared by all the tags
+  private final List<String> cssClasses = Lists.newArrayList();
 
   void loadSymbolReferences(String symbolsReferences) {
-    String[] symbols = symbolsReferences.split(ENTITY_SEPARATOR);
-    for (String symbol : symbols) {
-      String[] symbolFields = symbol.split(FIELD_SEPARATOR);
-      int declarationStartOffset = Integer.parseInt(symbolFields[0]);
-      int declarationEndOffset = Integer.parseInt(symbolFields[1]);
+    if (HighlightingDataFormat.isCompact(symbolsReferences)) {
+      HighlightingDataFormat.readSymbols(symbolsReferences, new HighlightingDataFormat.SymbolHandler() {
+        @Override
+        public void onSymbol(int declarationStartOffset, int declarationEndOffset, int[] references) {
+          addSymbol(declarationStartOffset, declarationEndOffset, references);
+        }
+      });
+      return;
+    }
+    Parser parser = new Parser(symbolsReferences);
+    while (parser.hasNextEntity()) {
+      int declarationStartOffset = parser.nextInt();
+      int declarationEndOffset = parser.nextInt();
       int symbolLength = declarationEndOffset - declarationStartOffset;
-      String[] symbolOccurrences = Arrays.copyOfRange(symbolFields, 2, symbolFields.length);
-      loadSymbolOccurrences(declarationStartOffset, symbolLength, symbolOccurrences);
+      String cssClass = SYMBOL_PREFIX + declarationStartOffset + " " + HIGHLIGHTABLE;
+      while (parser.hasNextField()) {
+        int occurrenceStartOffset = parser.nextInt();
+        addOpeningTag(occurrenceStartOffset, cssClass);
+        addClosingTag(occurrenceStartOffset + symbolLength);
+      }
+      parser.endEntity();
     }
   }
 
   void loadSyntaxHighlightingData(String syntaxHighlightingRules) {
-    String[] rules = syntaxHighlightingRules.split(ENTITY_SEPARATOR);
-    for (String rule : rules) {
-      String[] ruleFields = rule.split(FIELD_SEPARATOR);
-      insertAndPreserveOrder(new OpeningHtmlTag(Integer.parseInt(ruleFields[0]), ruleFields[2]), openingTagsEntries);
-      insertAndPreserveOrder(Integer.parseInt(ruleFields[1]), closingTagsOffsets);
+    if (HighlightingDataFormat.isCompact(syntaxHighlightingRules)) {
+      HighlightingDataFormat.readSyntaxHighlighting(syntaxHighlightingRules, new HighlightingDataFormat.SyntaxHighlightingHandler() {
+        @Override
+        public void onRule(int startOffset, int endOffset, String textType) {
+          addOpeningTag(startOffset, textType);
+          addClosingTag(endOffset);
+        }
+      });
+      return;
+    }
+    Parser parser = new Parser(syntaxHighlightingRules);
+    while (parser.hasNextEntity()) {
+      int startOffset = parser.nextInt();
+      int endOffset = parser.nextInt();
+      addOpeningTag(startOffset, parser.nextCssClass(cssClasses));
+      addClosingTag(endOffset);
+      parser.endEntity();
     }
   }
 
   List<OpeningHtmlTag> getOpeningTagsEntries() {
-    return openingTagsEntries;
+    sort();
+    List<OpeningHtmlTag> entries = Lists.newArrayListWithCapacity(openingTagsCount);
+    for (int i = 0; i < openingTagsCount; i++) {
+      entries.add(new OpeningHtmlTag(openingTagsOffsets[i], openingTagsCssClasses[i]));
+    }
+    return entries;
+  }
+
+  /**
+   * @return the offset of the current opening tag, or -1 if all the tags have been read
+   */
+  int getCurrentOpeningTagOffset() {
+    sort();
+    return openingTagsIndex < openingTagsCount ? openingTagsOffsets[openingTagsIndex] : -1;
   }
 
-  OpeningHtmlTag getCurrentOpeningTagEntry() {
-    return openingTagsIndex < openingTagsEntries.size() ? openingTagsEntries.get(openingTagsIndex) : null;
+  String getCurrentOpeningTagCssClass() {
+    return openingTagsCssClasses[openingTagsIndex];
   }
 
   void nextOpeningTagEntry() {
@@ -76,41 +124,144 @@ class DecorationDataHolder {
   }
 
   List<Integer> getClosingTagsOffsets() {
-    return closingTagsOffsets;
+    sort();
+    List<Integer> offsets = Lists.newArrayListWithCapacity(closingTagsCount);
+    for (int i = 0; i < closingTagsCount; i++) {
+      offsets.add(closingTagsOffsets[i]);
+    }
+    return offsets;
   }
 
   int getCurrentClosingTagOffset() {
-    return closingTagsIndex < closingTagsOffsets.size() ? closingTagsOffsets.get(closingTagsIndex) : -1;
+    sort();
+    return closingTagsIndex < closingTagsCount ? closingTagsOffsets[closingTagsIndex] : -1;
   }
 
   void nextClosingTagOffset() {
     closingTagsIndex++;
   }
 
-  private void loadSymbolOccurrences(int declarationStartOffset, int symbolLength, String[] symbolOccurrences) {
-    for (String symbolOccurrence : symbolOccurrences) {
-      int occurrenceStartOffset = Integer.parseInt(symbolOccurrence);
-      int occurrenceEndOffset = occurrenceStartOffset + symbolLength;
-      insertAndPreserveOrder(new OpeningHtmlTag(occurrenceStartOffset, SYMBOL_PREFIX + declarationStartOffset + " " + HIGHLIGHTABLE), openingTagsEntries);
-      insertAndPreserveOrder(occurrenceEndOffset, closingTagsOffsets);
+  private void addSymbol(int declarationStartOffset, int declarationEndOffset, int[] references) {
+    int symbolLength = declarationEndOffset - declarationStartOffset;
+    String cssClass = SYMBOL_PREFIX + declarationStartOffset + " " + HIGHLIGHTABLE;
+    for (int occurrenceStartOffset : references) {
+      addOpeningTag(occurrenceStartOffset, cssClass);
+      addClosingTag(occurrenceStartOffset + symbolLength);
+    }
+  }
+
+  private void addOpeningTag(int offset, String cssClass) {
+    if (openingTagsCount == openingTagsOffsets.length) {
+      openingTagsOffsets = Arrays.copyOf(openingTagsOffsets, openingTagsCount * 2);
+      openingTagsCssClasses = Arrays.copyOf(openingTagsCssClasses, openingTagsCount * 2);
+    }
+    sorted &= openingTagsCount == 0 || openingTagsOffsets[openingTagsCount - 1] <= offset;
+    openingTagsOffsets[openingTagsCount] = offset;
+    openingTagsCssClasses[openingTagsCount] = cssClass;
+    openingTagsCount++;
+  }
+
+  private void addClosingTag(int offset) {
+    if (closingTagsCount == closingTagsOffsets.length) {
+      closingTagsOffsets = Arrays.copyOf(closingTagsOffsets, closingTagsCount * 2);
     }
+    sorted &= closingTagsCount == 0 || closingTagsOffsets[closingTagsCount - 1] <= offset;
+    closingTagsOffsets[closingTagsCount] = offset;
+    closingTagsCount++;
   }
 
-  private void insertAndPreserveOrder(OpeningHtmlTag newEntry, List<OpeningHtmlTag> openingHtmlTags) {
-    int insertionIndex = 0;
-    Iterator<OpeningHtmlTag> tagIterator = openingHtmlTags.iterator();
-    while (tagIterator.hasNext() && tagIterator.next().getStartOffset() <= newEntry.getStartOffset()) {
-      insertionIndex++;
+  private void sort() {
+    if (sorted) {
+      return;
     }
-    openingHtmlTags.add(insertionIndex, newEntry);
+    Arrays.sort(closingTagsOffsets, 0, closingTagsCount);
+
+    // stable sort of opening tags : the loading order is kept in the low bits of the sort keys
+    long[] keys = new long[openingTagsCount];
+    for (int i = 0; i < openingTagsCount; i++) {
+      keys[i] = ((long) openingTagsOffsets[i] << 32) | i;
+    }
+    Arrays.sort(keys);
+    String[] cssClassesByOrder = new String[openingTagsCssClasses.length];
+    for (int i = 0; i < openingTagsCount; i++) {
+      int index = (int) keys[i];
+      openingTagsOffsets[i] = (int) (keys[i] >> 32);
+      cssClassesByOrder[i] = openingTagsCssClasses[index];
+    }
+    openingTagsCssClasses = cssClassesByOrder;
+    sorted = true;
   }
 
-  private void insertAndPreserveOrder(int newOffset, List<Integer> orderedOffsets) {
-    int insertionIndex = 0;
-    Iterator<Integer> entriesIterator = orderedOffsets.iterator();
-    while (entriesIterator.hasNext() && entriesIterator.next() <= newOffset) {
-      insertionIndex++;
+  /**
+   * Reads entities of comma-separated fields, separated by semicolons
+   */
+  private static final class Parser {
+    private final String data;
+    private int position = 0;
+
+    private Parser(String data) {
+      this.data = data;
+    }
+
+    private boolean hasNextEntity() {
+      while (position < data.length() && data.charAt(position) == ENTITY_SEPARATOR) {
+        position++;
+      }
+      return position < data.length();
+    }
+
+    private boolean hasNextField() {
+      return position < data.length() && data.charAt(position) != ENTITY_SEPARATOR;
+    }
+
+    private void endEntity() {
+      while (hasNextField()) {
+        position++;
+      }
+    }
+
+    private int nextInt() {
+      int start = position;
+      boolean negative = position < data.length() && data.charAt(position) == '-';
+      if (negative) {
+        position++;
+      }
+      int value = 0;
+      while (position < data.length() && data.charAt(position) >= '0' && data.charAt(position) <= '9') {
+        value = value * 10 + data.charAt(position) - '0';
+        position++;
+      }
+      if (position == start || position == start + 1 && negative) {
+        throw new IllegalArgumentException("Invalid number at position " + start + " of decoration data: " + data);
+      }
+      skipFieldSeparator();
+      return negative ? -value : value;
+    }
+
+    /**
+     * @param knownCssClasses the CSS classes that have already been read. The new ones are added.
+     */
+    private String nextCssClass(List<String> knownCssClasses) {
+      int start = position;
+      while (hasNextField() && data.charAt(position) != FIELD_SEPARATOR) {
+        position++;
+      }
+      int length = position - start;
+      skipFieldSeparator();
+      for (String cssClass : knownCssClasses) {
+        if (cssClass.length() == length && data.regionMatches(start, cssClass, 0, length)) {
+          return cssClass;
+        }
+      }
+      String cssClass = data.substring(start, start + length);
+      knownCssClasses.add(cssClass);
+      return cssClass;
+    }
+
+    private void skipFieldSeparator() {
+      if (position < data.length() && data.charAt(position) == FIELD_SEPARATOR) {
+        position++;
+      }
     }
-    orderedOffsets.add(insertionIndex, newOffset);
   }
 }
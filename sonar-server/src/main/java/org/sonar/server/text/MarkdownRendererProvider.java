@@ -0,0 +1,41 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.text;
+
+import org.picocontainer.injectors.ProviderAdapter;
+import org.sonar.api.config.Settings;
+import org.sonar.markdown.MarkdownRenderer;
+
+/**
+ * @since 4.3
+ */
+public class MarkdownRendererProvider extends ProviderAdapter {
+
+  /**
+   * Maximum number of characters kept in the cache of rendered Markdown. Zero disables the cache.
+   */
+  public static final String PROPERTY_CACHE_SIZE = "sonar.markdown.cacheSize";
+
+  public MarkdownRenderer provide(Settings settings) {
+    long maxSize = settings.hasKey(PROPERTY_CACHE_SIZE) ? settings.getLong(PROPERTY_CACHE_SIZE) : MarkdownRenderer.DEFAULT_MAX_SIZE;
+    return new MarkdownRenderer(maxSize);
+  }
+
+}
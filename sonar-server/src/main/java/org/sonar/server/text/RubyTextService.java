@@ -21,7 +21,7 @@ package org.sonar.server.text;
 
 import org.apache.commons.lang.StringEscapeUtils;
 import org.sonar.api.ServerComponent;
-import org.sonar.markdown.Markdown;
+import org.sonar.markdown.MarkdownRenderer;
 import org.sonar.server.source.HtmlSourceDecorator;
 
 import java.util.List;
@@ -33,10 +33,12 @@ public class RubyTextService implements ServerComponent {
 
   private final MacroInterpreter macroInterpreter;
   private final HtmlSourceDecorator sourceDecorator;
+  private final MarkdownRenderer markdownRenderer;
 
-  public RubyTextService(MacroInterpreter macroInterpreter, HtmlSourceDecorator sourceDecorator) {
+  public RubyTextService(MacroInterpreter macroInterpreter, HtmlSourceDecorator sourceDecorator, MarkdownRenderer markdownRenderer) {
     this.macroInterpreter = macroInterpreter;
     this.sourceDecorator = sourceDecorator;
+    this.markdownRenderer = markdownRenderer;
   }
 
   // TODO add ruby example
@@ -47,7 +49,7 @@ public class RubyTextService implements ServerComponent {
   // TODO add ruby example
   public String markdownToHtml(String markdown) {
     // TODO move HTML escaping to sonar-markdown
-    return Markdown.convertToHtml(StringEscapeUtils.escapeHtml(markdown));
+    return markdownRenderer.render(StringEscapeUtils.escapeHtml(markdown));
   }
 
   // TODO add ruby example
@@ -40,11 +40,13 @@ import org.sonar.core.component.SnapshotPerspectives;
 import org.sonar.core.measure.MeasureFilterEngine;
 import org.sonar.core.measure.MeasureFilterResult;
 import org.sonar.core.persistence.Database;
+import org.sonar.core.persistence.profiling.PersistenceProfiling;
 import org.sonar.core.preview.PreviewCache;
 import org.sonar.core.purge.PurgeDao;
-import org.sonar.core.resource.ResourceIndexerDao;
 import org.sonar.core.resource.ResourceKeyUpdaterDao;
 import org.sonar.core.timemachine.Periods;
+import org.sonar.server.component.ComponentIndex;
+import org.sonar.server.component.ComponentNameIndex;
 import org.sonar.server.db.migrations.DatabaseMigrator;
 import org.sonar.server.platform.*;
 import org.sonar.server.plugins.*;
@@ -290,6 +292,14 @@ public final class JRubyFacade {
     }
   }
 
+  /**
+   * Logs the statistics of the SQL statements executed so far. Does nothing if SQL profiling is disabled.
+   * @since 4.3
+   */
+  public void logSqlStatistics() {
+    PersistenceProfiling.logStatistics(get(Database.class).getDataSource());
+  }
+
   public Object getCoreComponentByClassname(String className) {
     if (className == null) {
       return null;
@@ -325,16 +335,25 @@ public final class JRubyFacade {
   }
 
   public void indexProjects() {
-    get(ResourceIndexerDao.class).indexProjects();
+    get(ComponentIndex.class).rebuild();
   }
 
   public void indexResource(long resourceId) {
-    get(ResourceIndexerDao.class).indexResource(resourceId);
+    get(ComponentIndex.class).indexResource(resourceId);
+  }
+
+  public List<ComponentNameIndex.Hit> searchComponents(String text, @Nullable List<String> qualifiers) {
+    return get(ComponentIndex.class).search(text, qualifiers);
+  }
+
+  public ComponentIndex getComponentIndex() {
+    return get(ComponentIndex.class);
   }
 
   public void deleteResourceTree(long rootProjectId) {
     try {
       get(PurgeDao.class).deleteResourceTree(rootProjectId);
+      get(ComponentIndex.class).removeResourceTree(rootProjectId);
     } catch (RuntimeException e) {
       LoggerFactory.getLogger(JRubyFacade.class).error("Fail to delete resource with ID: " + rootProjectId, e);
       throw e;
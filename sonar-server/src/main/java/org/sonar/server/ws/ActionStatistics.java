@@ -0,0 +1,85 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.ws;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cumulated measures of the requests processed by a web service action.
+ *
+ * @since 4.3
+ */
+public class ActionStatistics {
+
+  private final AtomicLong requests = new AtomicLong();
+  private final AtomicLong totalMillis = new AtomicLong();
+  private final AtomicLong rawBytes = new AtomicLong();
+  private final AtomicLong sentBytes = new AtomicLong();
+
+  void add(long millis, long raw, long sent) {
+    add(millis, raw, sent, 1L);
+  }
+
+  void add(long millis, long raw, long sent, long count) {
+    requests.addAndGet(count);
+    totalMillis.addAndGet(millis);
+    rawBytes.addAndGet(raw);
+    sentBytes.addAndGet(sent);
+  }
+
+  public long requests() {
+    return requests.get();
+  }
+
+  /**
+   * Time spent to process requests and to serialize responses
+   */
+  public long totalMillis() {
+    return totalMillis.get();
+  }
+
+  /**
+   * Size of responses before compression
+   */
+  public long rawBytes() {
+    return rawBytes.get();
+  }
+
+  /**
+   * Size of responses sent to clients, after compression
+   */
+  public long sentBytes() {
+    return sentBytes.get();
+  }
+
+  /**
+   * @return sent bytes divided by raw bytes, 1.0 if responses are not compressed
+   */
+  public double compressionRatio() {
+    long raw = rawBytes.get();
+    return raw == 0L ? 1.0 : (double) sentBytes.get() / raw;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%d requests in %d ms, %d bytes sent (%.0f%% of %d bytes)",
+      requests(), totalMillis(), sentBytes(), compressionRatio() * 100.0, rawBytes());
+  }
+}
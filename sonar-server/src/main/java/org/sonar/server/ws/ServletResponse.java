@@ -19,22 +19,52 @@
  */
 package org.sonar.server.ws;
 
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
 import org.sonar.api.server.ws.Response;
 import org.sonar.api.utils.text.JsonWriter;
 import org.sonar.api.utils.text.XmlWriter;
 import org.sonar.server.plugins.MimeTypes;
 
 import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
 
 public class ServletResponse implements Response {
 
+  static final String GZIP = "gzip";
+  static final String DEFLATE = "deflate";
+
   public static class ServletStream implements Stream {
+    // below this size, compression headers and CPU cost are not worth it
+    static final int MIN_COMPRESSED_SIZE = 1024;
+
     private String mediaType;
     private int httpStatus = 200;
-    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    private final String encoding;
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final EncodingOutputStream output = new EncodingOutputStream();
+
+    public ServletStream() {
+      this(null);
+    }
+
+    /**
+     * @param encoding the content encoding accepted by client, "gzip" or "deflate", or null if response must not be compressed
+     */
+    public ServletStream(@Nullable String encoding) {
+      this.encoding = encoding;
+    }
 
     @CheckForNull
     public String mediaType() {
@@ -57,22 +87,168 @@ public class ServletResponse implements Response {
       return this;
     }
 
+    /**
+     * Data is compressed as soon as it is written, so the uncompressed response is never kept in memory.
+     */
     @Override
     public OutputStream output() {
       return output;
     }
 
+    /**
+     * Value of the header Content-Encoding, or null if the response is not compressed, for example
+     * because it is too small.
+     */
+    @CheckForNull
+    public String contentEncoding() {
+      return output.compressor == null ? null : encoding;
+    }
+
+    /**
+     * Completes the compression, if any. No more data can be written after this call.
+     */
+    public ServletStream finish() {
+      output.finish();
+      return this;
+    }
+
+    /**
+     * The bytes to be sent to client, possibly compressed.
+     */
+    public byte[] toByteArray() {
+      finish();
+      return bytes.toByteArray();
+    }
+
+    /**
+     * Data written by the web service, decompressed if needed. The stream is finished if the response
+     * is compressed.
+     */
     public String outputAsString() {
-      return output.toString();
+      if (output.compressor == null) {
+        return bytes.toString();
+      }
+      byte[] compressed = toByteArray();
+      InputStream input = new ByteArrayInputStream(compressed);
+      try {
+        return IOUtils.toString(GZIP.equals(encoding) ? new GZIPInputStream(input) : new InflaterInputStream(input));
+      } catch (IOException e) {
+        throw new IllegalStateException("Fail to decompress response", e);
+      }
+    }
+
+    /**
+     * Size of data written by the web service, before compression
+     */
+    public long rawSize() {
+      return output.rawSize;
+    }
+
+    /**
+     * Size of data sent to client, after compression. The stream must be finished.
+     */
+    public long size() {
+      return bytes.size();
     }
 
     public ServletStream reset() {
       output.reset();
       return this;
     }
+
+    private class EncodingOutputStream extends OutputStream {
+      private DeflaterOutputStream compressor;
+      private long rawSize = 0L;
+      private boolean finished = false;
+
+      @Override
+      public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+      }
+
+      @Override
+      public void write(byte[] b, int off, int len) throws IOException {
+        if (finished) {
+          throw new IllegalStateException("Response is already finished");
+        }
+        rawSize += len;
+        if (compressor != null) {
+          compressor.write(b, off, len);
+        } else {
+          bytes.write(b, off, len);
+          if (encoding != null && bytes.size() >= MIN_COMPRESSED_SIZE) {
+            startCompression();
+          }
+        }
+      }
+
+      private void startCompression() throws IOException {
+        byte[] raw = bytes.toByteArray();
+        bytes.reset();
+        compressor = GZIP.equals(encoding) ? new GZIPOutputStream(bytes) : new DeflaterOutputStream(bytes);
+        compressor.write(raw);
+      }
+
+      @Override
+      public void close() {
+        // the stream is finished by the web service engine
+      }
+
+      private void finish() {
+        if (!finished && compressor != null) {
+          try {
+            // also releases the native resources of deflater
+            compressor.close();
+          } catch (IOException e) {
+            throw new IllegalStateException("Fail to compress response", e);
+          }
+        }
+        finished = true;
+      }
+
+      private void reset() {
+        IOUtils.closeQuietly(compressor);
+        compressor = null;
+        bytes.reset();
+        rawSize = 0L;
+        finished = false;
+      }
+    }
+  }
+
+  private final ServletStream stream;
+
+  public ServletResponse() {
+    this(null);
   }
 
-  private final ServletStream stream = new ServletStream();
+  /**
+   * @param acceptEncoding value of the HTTP header Accept-Encoding. Response is not compressed if null.
+   * @since 4.3
+   */
+  public ServletResponse(@Nullable String acceptEncoding) {
+    this.stream = new ServletStream(negotiateEncoding(acceptEncoding));
+  }
+
+  /**
+   * @return "gzip", "deflate" or null if none of these encodings is accepted
+   */
+  @CheckForNull
+  static String negotiateEncoding(@Nullable String acceptEncoding) {
+    boolean deflate = false;
+    for (String value : StringUtils.split(StringUtils.defaultString(acceptEncoding), ',')) {
+      String[] fields = StringUtils.split(value, ';');
+      if (fields.length == 0 || (fields.length > 1 && StringUtils.deleteWhitespace(fields[1]).matches("q=0(\\.0*)?"))) {
+        continue;
+      }
+      String name = fields[0].trim();
+      if (GZIP.equalsIgnoreCase(name)) {
+        return GZIP;
+      }
+      deflate |= DEFLATE.equalsIgnoreCase(name);
+    }
+    return deflate ? DEFLATE : null;
+  }
 
   @Override
   public JsonWriter newJsonWriter() {
@@ -21,7 +21,9 @@ package org.sonar.server.ws;
 
 import org.apache.commons.lang.StringUtils;
 import org.elasticsearch.common.collect.Lists;
+import com.google.common.collect.Maps;
 import org.picocontainer.Startable;
+import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.ServerComponent;
 import org.sonar.api.i18n.I18n;
@@ -37,16 +39,23 @@ import javax.servlet.http.HttpServletResponse;
 
 import java.io.OutputStreamWriter;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * @since 4.2
  */
 public class WebServiceEngine implements ServerComponent, Startable {
 
+  private static final Logger LOG = LoggerFactory.getLogger(WebServiceEngine.class);
+
   private final WebService.Context context;
 
+  private final ConcurrentMap<String, ActionStatistics> statistics = Maps.newConcurrentMap();
+
   private final I18n i18n;
 
   public WebServiceEngine(WebService[] webServices, I18n i18n) {
@@ -75,10 +84,32 @@ public class WebServiceEngine implements ServerComponent, Startable {
     return context.controllers();
   }
 
+  /**
+   * Measures of the executed actions, by action path
+   * @since 4.3
+   */
+  public Map<String, ActionStatistics> statistics() {
+    return Collections.unmodifiableMap(statistics);
+  }
+
+  /**
+   * Measures of all the executed actions, displayed on the System Info page
+   */
+  @Override
+  public String toString() {
+    ActionStatistics total = new ActionStatistics();
+    for (ActionStatistics actionStatistics : statistics.values()) {
+      total.add(actionStatistics.totalMillis(), actionStatistics.rawBytes(), actionStatistics.sentBytes(), actionStatistics.requests());
+    }
+    return String.format("%d actions / %s", statistics.size(), total);
+  }
+
   public void execute(InternalRequest request, ServletResponse response,
                       String controllerPath, String actionKey) {
+    long start = System.currentTimeMillis();
+    WebService.Action action = null;
     try {
-      WebService.Action action = getAction(controllerPath, actionKey);
+      action = getAction(controllerPath, actionKey);
       request.setAction(action);
       verifyRequest(action, request);
       action.handler().handle(request, response);
@@ -98,8 +129,27 @@ public class WebServiceEngine implements ServerComponent, Startable {
 
     } catch (Exception e) {
       // TODO implement Request.toString()
-      LoggerFactory.getLogger(getClass()).error("Fail to process request " + request, e);
+      LOG.error("Fail to process request " + request, e);
       sendError(500, e.getMessage(), response);
+
+    } finally {
+      response.stream().finish();
+      if (action != null) {
+        record(action, System.currentTimeMillis() - start, response.stream());
+      }
+    }
+  }
+
+  private void record(WebService.Action action, long durationMillis, ServletResponse.ServletStream stream) {
+    ActionStatistics actionStatistics = statistics.get(action.path());
+    if (actionStatistics == null) {
+      statistics.putIfAbsent(action.path(), new ActionStatistics());
+      actionStatistics = statistics.get(action.path());
+    }
+    actionStatistics.add(durationMillis, stream.rawSize(), stream.size());
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("{} executed in {} ms, {} bytes sent ({} bytes before compression)",
+        new Object[] {action.path(), durationMillis, stream.size(), stream.rawSize()});
     }
   }
 
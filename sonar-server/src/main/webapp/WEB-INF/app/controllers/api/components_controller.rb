@@ -27,10 +27,8 @@ class Api::ComponentsController < Api::ApiController
     search = params[:s]
     bad_request("Minimum search is #{ResourceIndex::MIN_SEARCH_SIZE} characters") if search.empty? || search.to_s.size<ResourceIndex::MIN_SEARCH_SIZE
 
-    key = escape_like(search).downcase
-    results = ResourceIndex.all(:select => 'distinct(resource_id),root_project_id,qualifier,name_size', # optimization to not load unused columns like 'kee'
-                                :conditions => ['kee like ?', key + '%'],
-                                :order => 'name_size')
+    # sorted by name size
+    results = java_facade.searchComponents(search, nil).to_a
 
     results = select_authorized(:user, results)
 
@@ -62,8 +60,9 @@ class Api::ComponentsController < Api::ApiController
       qualifier_results['icon']=resource_type.getIconPath()
       qualifier_results['name']=Api::Utils.message("qualifiers.#{qualifier}")
       resource_indexes=resource_indexes_by_qualifier[qualifier]||[]
-      qualifier_results['items']=resource_indexes.map do |resource_index|
-        resource=resources_by_id[resource_index.resource_id]
+      # the component index can be late on deletions
+      resources=resource_indexes.map { |resource_index| resources_by_id[resource_index.resource_id] }.compact
+      qualifier_results['items']=resources.map do |resource|
         {
           'id' => resource.id,
           'name' => resource.name(true)
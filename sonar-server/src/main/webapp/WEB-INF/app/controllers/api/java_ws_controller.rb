@@ -22,14 +22,18 @@
 class Api::JavaWsController < Api::ApiController
   def index
     ws_request = Java::OrgSonarServerWs::ServletRequest.new(servlet_request, params.to_java)
-    ws_response = Java::OrgSonarServerWs::ServletResponse.new()
+    ws_response = Java::OrgSonarServerWs::ServletResponse.new(request.headers['Accept-Encoding'])
     engine = Java::OrgSonarServerPlatform::Platform.component(Java::OrgSonarServerWs::WebServiceEngine.java_class)
     engine.execute(ws_request, ws_response, params[:wspath], params[:wsaction])
 
-    # response is already written to HttpServletResponse
-    render :text => ws_response.stream().output().toByteArray(),
-           :status => ws_response.stream().httpStatus(),
-           :content_type => ws_response.stream().mediaType()
+    # response is already written, and possibly compressed, by the web service engine.
+    # Caches must key on Accept-Encoding even when the response is too small to be compressed.
+    stream = ws_response.stream()
+    response.headers['Vary'] = 'Accept-Encoding'
+    response.headers['Content-Encoding'] = stream.contentEncoding() if stream.contentEncoding()
+    render :text => stream.toByteArray(),
+           :status => stream.httpStatus(),
+           :content_type => stream.mediaType()
   end
 
   def redirect_to_ws_listing
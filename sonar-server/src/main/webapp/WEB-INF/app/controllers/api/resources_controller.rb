@@ -42,17 +42,8 @@ class Api::ResourcesController < Api::ApiController
     bad_request("Page index must be greater than 0") if page<=0
     bad_request("Page size must be greater than 0") if page_size<=0
 
-    key = escape_like(search_text).downcase
-    conditions=['kee like ?']
-    condition_values=[key + '%']
-
-    unless qualifiers.empty?
-      conditions<<'qualifier in (?)'
-      condition_values<<qualifiers
-    end
-    indexes = ResourceIndex.all(:select => 'distinct(resource_id),root_project_id,qualifier,name_size', # optimization to not load unused columns like 'kee'
-                                 :conditions => [conditions.join(' and ')].concat(condition_values),
-                                 :order => 'name_size')
+    # sorted by name size
+    indexes = Java::OrgSonarServerUi::JRubyFacade.getInstance().searchComponents(search_text, qualifiers.to_a).to_a
 
     indexes = select_authorized(:user, indexes)
     total = indexes.size
@@ -22,6 +22,7 @@ class SystemController < ApplicationController
 
   SECTION=Navigation::SECTION_CONFIGURATION
   before_filter :admin_required
+  verify :method => :post, :only => [:log_sql_statistics], :redirect_to => {:action => :index}
 
   def index
     @server=Server.new
@@ -34,6 +35,12 @@ class SystemController < ApplicationController
     end
   end
   
+  def log_sql_statistics
+    java_facade.logSqlStatistics()
+    flash[:notice]='SQL statistics are logged if profiling is enabled (sonar.log.profilingLevel).'
+    redirect_to :action => 'index'
+  end
+
   private
   
   def to_csv
@@ -53,6 +53,10 @@ class Server
     add_property(system_statistics, 'System Load Average (last minute)') { system_load_average() }
     add_property(system_statistics, 'Loaded Classes (currently/total/unloaded)') { "#{java.lang.management.ManagementFactory.getClassLoadingMXBean().getLoadedClassCount()} / #{java.lang.management.ManagementFactory.getClassLoadingMXBean().getTotalLoadedClassCount()} / #{java.lang.management.ManagementFactory.getClassLoadingMXBean().getUnloadedClassCount()}" }
     add_property(system_statistics, 'Start Time') { "#{format_date(java.util.Date.new(java.lang.management.ManagementFactory.getRuntimeMXBean().getStartTime()))}" }
+    add_property(system_statistics, 'Component Index') { component_index_statistics() }
+    add_property(system_statistics, 'Chart Cache') { core_component_statistics('org.sonar.server.charts.ChartCache') }
+    add_property(system_statistics, 'Markdown Cache') { core_component_statistics('org.sonar.markdown.MarkdownRenderer') }
+    add_property(system_statistics, 'Web Services') { core_component_statistics('org.sonar.server.ws.WebServiceEngine') }
     add_property(system_statistics, 'Threads (total/peak/daemon)') { "#{java.lang.management.ManagementFactory.getThreadMXBean().getThreadCount()} / #{java.lang.management.ManagementFactory.getThreadMXBean().getPeakThreadCount()} / #{java.lang.management.ManagementFactory.getThreadMXBean().getDaemonThreadCount() }" }
     system_statistics
   end
@@ -146,4 +150,15 @@ class Server
       'N/A'
     end
   end
+
+  def component_index_statistics
+    index = Java::OrgSonarServerUi::JRubyFacade.getInstance().getComponentIndex()
+    "#{index.getComponentCount()} components / #{index.getMemorySize() / 1000000} MB / rebuilt in #{index.getRebuildDurationMs()} ms / last update in #{index.getLastSyncDurationMs()} ms / #{index.getSearchCount()} searches in #{format_double(index.getAverageSearchDurationMs())} ms on average"
+  end
+
+  # caches describe their statistics in toString()
+  def core_component_statistics(classname)
+    component = Api::Utils.java_facade.getCoreComponentByClassname(classname)
+    component ? component.toString() : 'N/A'
+  end
 end
@@ -0,0 +1,183 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.charts;
+
+import org.apache.ibatis.session.SqlSession;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.sonar.core.persistence.MyBatis;
+import org.sonar.core.resource.ResourceDao;
+import org.sonar.core.resource.SnapshotDto;
+import org.sonar.server.plugins.CachedResource;
+
+import javax.servlet.http.HttpServletRequest;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ChartCacheTest {
+
+  MyBatis mybatis = mock(MyBatis.class);
+  ResourceDao resourceDao = mock(ResourceDao.class);
+  SqlSession session = mock(SqlSession.class);
+
+  @Before
+  public void before() {
+    when(mybatis.openSession()).thenReturn(session);
+  }
+
+  @Test
+  public void key_does_not_depend_on_order_of_parameters() {
+    HttpServletRequest first = request("ck", "xradar", "v", "1,2,3");
+    HttpServletRequest second = request("v", "1,2,3", "ck", "xradar");
+    HttpServletRequest other = request("ck", "xradar", "v", "1,2,4");
+
+    assertThat(ChartCache.key(first)).isEqualTo(ChartCache.key(second));
+    assertThat(ChartCache.key(first)).isNotEqualTo(ChartCache.key(other));
+  }
+
+  @Test
+  public void key_of_charts_reading_database_depends_on_last_analysis() {
+    HttpServletRequest request = request("ck", "xradar", "rid", "10");
+
+    assertThat(ChartCache.key(request, 100L)).isEqualTo(ChartCache.key(request, 100L));
+    assertThat(ChartCache.key(request, 100L)).isNotEqualTo(ChartCache.key(request, 101L));
+    assertThat(ChartCache.key(request, 100L)).isNotEqualTo(ChartCache.key(request));
+  }
+
+  @Test
+  public void key_depends_on_last_analysis_of_resource() {
+    when(resourceDao.getLastSnapshotByResourceId(10L, session)).thenReturn(new SnapshotDto().setId(100L));
+    when(resourceDao.getLastSnapshot("org.struts:struts", session)).thenReturn(new SnapshotDto().setId(200L));
+    ChartCache cache = new ChartCache(mybatis, resourceDao);
+
+    HttpServletRequest byId = request("ck", "xradar", "resource", "10");
+    assertThat(cache.lastAnalysisKey(byId)).isEqualTo(ChartCache.key(byId, 100L));
+    HttpServletRequest byKey = request("ck", "xradar", "resource", "org.struts:struts");
+    assertThat(cache.lastAnalysisKey(byKey)).isEqualTo(ChartCache.key(byKey, 200L));
+    verify(session, times(2)).close();
+  }
+
+  @Test
+  public void key_is_parameters_if_resource_is_not_analysed() {
+    ChartCache cache = new ChartCache(mybatis, resourceDao);
+
+    HttpServletRequest request = request("ck", "xradar", "resource", "10");
+
+    assertThat(cache.lastAnalysisKey(request)).isEqualTo(ChartCache.key(request));
+  }
+
+  @Test
+  public void key_is_parameters_if_no_resource() {
+    ChartCache cache = new ChartCache(mybatis, resourceDao);
+
+    HttpServletRequest request = request("ck", "xradar", "sid", "100");
+
+    assertThat(cache.lastAnalysisKey(request)).isEqualTo(ChartCache.key(request));
+    verify(mybatis, never()).openSession();
+    verify(resourceDao, never()).getLastSnapshot(anyString(), any(SqlSession.class));
+    verify(resourceDao, never()).getLastSnapshotByResourceId(anyLong(), any(SqlSession.class));
+  }
+
+  @Test
+  public void count_hits_and_misses() {
+    ChartCache cache = new ChartCache(mybatis, resourceDao);
+    assertThat(cache.get("foo")).isNull();
+
+    CachedResource image = cache.put("foo", new byte[10], 0L);
+    assertThat(image.getContentType()).isEqualTo("image/png");
+    assertThat(cache.get("foo")).isSameAs(image);
+    assertThat(cache.get("foo")).isSameAs(image);
+
+    assertThat(cache.getHits()).isEqualTo(2L);
+    assertThat(cache.getMisses()).isEqualTo(1L);
+    assertThat(cache.toString()).isEqualTo("1 images (0 KB), 2 hits, 1 misses");
+  }
+
+  @Test
+  public void evict_least_recently_used_images() {
+    ChartCache cache = new ChartCache(mybatis, resourceDao, 25L);
+    cache.put("first", new byte[10], 0L);
+    cache.put("second", new byte[10], 0L);
+    cache.get("first");
+
+    cache.put("third", new byte[10], 0L);
+
+    assertThat(cache.getCount()).isEqualTo(2);
+    assertThat(cache.getSize()).isEqualTo(20L);
+    assertThat(cache.get("second")).isNull();
+    assertThat(cache.get("first")).isNotNull();
+    assertThat(cache.get("third")).isNotNull();
+  }
+
+  @Test
+  public void do_not_keep_images_bigger_than_cache() {
+    ChartCache cache = new ChartCache(mybatis, resourceDao, 25L);
+    cache.put("first", new byte[10], 0L);
+
+    CachedResource big = cache.put("big", new byte[30], 0L);
+
+    assertThat(big.getLength()).isEqualTo(30L);
+    assertThat(cache.get("big")).isNull();
+    assertThat(cache.get("first")).isNotNull();
+  }
+
+  @Test
+  public void clear() {
+    ChartCache cache = new ChartCache(mybatis, resourceDao);
+    cache.put("foo", new byte[10], 0L);
+
+    cache.clear();
+
+    assertThat(cache.getCount()).isEqualTo(0);
+    assertThat(cache.getSize()).isEqualTo(0L);
+  }
+
+  private static HttpServletRequest request(String... keysAndValues) {
+    HttpServletRequest request = mock(HttpServletRequest.class);
+    final String[] names = new String[keysAndValues.length / 2];
+    for (int i = 0; i < keysAndValues.length; i += 2) {
+      names[i / 2] = keysAndValues[i];
+      when(request.getParameter(keysAndValues[i])).thenReturn(keysAndValues[i + 1]);
+      when(request.getParameterValues(keysAndValues[i])).thenReturn(new String[] {keysAndValues[i + 1]});
+    }
+    // a new enumeration on each call, like the servlet container
+    when(request.getParameterNames()).thenAnswer(new Answer<Enumeration>() {
+      @Override
+      public Enumeration answer(InvocationOnMock invocation) {
+        return Collections.enumeration(Arrays.asList(names));
+      }
+    });
+    return request;
+  }
+}
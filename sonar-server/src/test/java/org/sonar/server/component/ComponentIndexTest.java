@@ -0,0 +1,190 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.component;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.utils.System2;
+import org.sonar.core.resource.ResourceDao;
+import org.sonar.core.resource.ResourceDto;
+import org.sonar.core.resource.ResourceIndexerDao;
+import org.sonar.core.resource.SnapshotDto;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Matchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ComponentIndexTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  ResourceIndexerDao dao = mock(ResourceIndexerDao.class);
+  ResourceDao resourceDao = mock(ResourceDao.class);
+  System2 system = mock(System2.class);
+  File file;
+
+  @Before
+  public void setUp() throws IOException {
+    file = new File(temp.newFolder(), "component-index.dat");
+    when(system.now()).thenReturn(1000000L);
+    when(dao.selectRootProjectLastSnapshots()).thenReturn(Arrays.asList(snapshot(1L, 10L)));
+    when(dao.selectIndexableResources(1L)).thenReturn(Arrays.asList(
+      resource(1L, "Struts", "TRK", 1L),
+      resource(2L, "Struts Core", "BRC", 1L)));
+  }
+
+  @Test
+  public void rebuild_at_first_startup() {
+    ComponentIndex index = new ComponentIndex(dao, resourceDao, file, system);
+    index.start();
+
+    assertThat(index.getComponentCount()).isEqualTo(2);
+    assertThat(index.getRebuildDurationMs()).isEqualTo(0L);
+    assertThat(index.search("core", null)).hasSize(1);
+    assertThat(file).exists();
+  }
+
+  @Test
+  public void load_from_disk_at_startup() {
+    ComponentIndex index = new ComponentIndex(dao, resourceDao, file, system);
+    index.start();
+    index.stop();
+
+    ComponentIndex restarted = new ComponentIndex(dao, resourceDao, file, system);
+    restarted.start();
+
+    assertThat(restarted.getComponentCount()).isEqualTo(2);
+    assertThat(restarted.getRebuildDurationMs()).isEqualTo(-1L);
+    // project is not indexed again as it has not been analyzed since last stop
+    verify(dao, times(1)).selectIndexableResources(1L);
+  }
+
+  @Test
+  public void index_again_projects_analyzed_since_last_update() {
+    ComponentIndex index = new ComponentIndex(dao, resourceDao, file, system);
+    index.start();
+
+    when(dao.selectRootProjectLastSnapshots()).thenReturn(Arrays.asList(snapshot(1L, 20L)));
+    when(dao.selectIndexableResources(1L)).thenReturn(Arrays.asList(resource(1L, "Apache Struts", "TRK", 1L)));
+    assertThat(index.search("core", null)).hasSize(1);
+
+    index.sync();
+
+    assertThat(index.search("core", null)).isEmpty();
+    assertThat(index.search("apache", null)).hasSize(1);
+    assertThat(index.getComponentCount()).isEqualTo(1);
+    assertThat(index.getSearchCount()).isEqualTo(3L);
+  }
+
+  @Test
+  public void do_not_request_database_on_search() {
+    ComponentIndex index = new ComponentIndex(dao, resourceDao, file, system);
+    index.start();
+
+    index.search("struts", null);
+    index.search("core", null);
+
+    verify(dao, times(1)).selectRootProjectLastSnapshots();
+  }
+
+  @Test
+  public void remove_deleted_projects() {
+    ComponentIndex index = new ComponentIndex(dao, resourceDao, file, system);
+    index.start();
+
+    when(dao.selectRootProjectLastSnapshots()).thenReturn(Collections.<SnapshotDto>emptyList());
+    index.sync();
+
+    assertThat(index.search("struts", null)).isEmpty();
+    assertThat(index.getComponentCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void remove_resource_tree() {
+    ComponentIndex index = new ComponentIndex(dao, resourceDao, file, system);
+    index.start();
+
+    index.removeResourceTree(1L);
+
+    assertThat(index.search("struts", null)).isEmpty();
+    assertThat(index.getComponentCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void index_provisioned_project() {
+    ComponentIndex index = new ComponentIndex(dao, resourceDao, file, system);
+    index.start();
+    when(dao.selectResourceToIndex(5L)).thenReturn(resource(5L, "Sonar", "TRK", 5L));
+
+    index.indexResource(5L);
+
+    assertThat(index.search("sonar", null)).hasSize(1);
+    // project without analysis is not removed by update
+    index.sync();
+    assertThat(index.search("sonar", null)).hasSize(1);
+
+    index.removeResourceTree(5L);
+    assertThat(index.search("sonar", null)).isEmpty();
+  }
+
+  @Test
+  public void keep_provisioned_projects_on_rebuild() {
+    when(resourceDao.selectProvisionedProjects(anyCollection())).thenReturn(Arrays.asList(new ResourceDto().setId(5L).setName("Sonar").setQualifier("TRK")));
+    ComponentIndex index = new ComponentIndex(dao, resourceDao, file, system);
+    index.start();
+
+    index.rebuild();
+
+    assertThat(index.search("sonar", null)).hasSize(1);
+    assertThat(index.search("sonar", null).get(0).getRootProjectId()).isEqualTo(5L);
+    assertThat(index.getComponentCount()).isEqualTo(3);
+  }
+
+  @Test
+  public void rebuild_if_file_is_corrupted() throws IOException {
+    FileUtils.write(file, "not an index");
+
+    ComponentIndex index = new ComponentIndex(dao, resourceDao, file, system);
+    index.start();
+
+    assertThat(index.getComponentCount()).isEqualTo(2);
+    assertThat(index.getRebuildDurationMs()).isEqualTo(0L);
+  }
+
+  private static SnapshotDto snapshot(long rootProjectId, long id) {
+    return new SnapshotDto().setId(id).setRootProjectId(rootProjectId);
+  }
+
+  private static ResourceDto resource(long id, String name, String qualifier, long rootId) {
+    return new ResourceDto().setId(id).setName(name).setQualifier(qualifier).setRootId(rootId);
+  }
+}
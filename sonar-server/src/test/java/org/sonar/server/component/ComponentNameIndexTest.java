@@ -0,0 +1,164 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.component;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ComponentNameIndexTest {
+
+  ComponentNameIndex index = new ComponentNameIndex();
+
+  @Test
+  public void search_by_suffix_of_name() {
+    index.add(1L, "Apache Struts", "TRK", 1L);
+    index.add(2L, "Struts Core", "BRC", 1L);
+    index.add(3L, "RequestContext", "CLA", 1L);
+
+    assertThat(ids(index.search("struts", null))).containsExactly(2L, 1L);
+    assertThat(ids(index.search("STRU", null))).containsExactly(2L, 1L);
+    assertThat(ids(index.search("context", null))).containsExactly(3L);
+    assertThat(ids(index.search("ext", null))).containsExactly(3L);
+    assertThat(ids(index.search("unknown", null))).isEmpty();
+  }
+
+  @Test
+  public void search_same_positions_as_resource_index_table() {
+    index.add(1L, "Struts", "TRK", 1L);
+
+    // last suffix of RESOURCE_INDEX is "uts"
+    assertThat(ids(index.search("uts", null))).containsExactly(1L);
+    assertThat(ids(index.search("ts", null))).isEmpty();
+    assertThat(ids(index.search("ut", null))).containsExactly(1L);
+  }
+
+  @Test
+  public void search_two_letters_names() {
+    assertThat(index.add(1L, "AB", "TRK", 1L)).isTrue();
+    assertThat(index.add(2L, "A", "TRK", 2L)).isFalse();
+    assertThat(index.add(3L, null, "TRK", 3L)).isFalse();
+
+    assertThat(ids(index.search("ab", null))).containsExactly(1L);
+    assertThat(ids(index.search("abc", null))).isEmpty();
+    assertThat(ids(index.search("a", null))).isEmpty();
+    assertThat(index.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void filter_by_qualifiers() {
+    index.add(1L, "Struts", "TRK", 1L);
+    index.add(2L, "Struts Core", "BRC", 1L);
+
+    assertThat(ids(index.search("struts", Arrays.asList("BRC")))).containsExactly(2L);
+    assertThat(ids(index.search("struts", Arrays.<String>asList()))).containsExactly(1L, 2L);
+  }
+
+  @Test
+  public void hit_has_columns_of_resource_index() {
+    index.add(2L, "Struts Core", "BRC", 1L);
+
+    ComponentNameIndex.Hit hit = index.search("core", null).get(0);
+    assertThat(hit.getResourceId()).isEqualTo(2L);
+    assertThat(hit.getRootProjectId()).isEqualTo(1L);
+    assertThat(hit.getResourceIdForAuthorization()).isEqualTo(1L);
+    assertThat(hit.getQualifier()).isEqualTo("BRC");
+    assertThat(hit.getNameSize()).isEqualTo(11);
+  }
+
+  @Test
+  public void remove_components() {
+    index.add(1L, "Struts", "TRK", 1L);
+    index.add(2L, "Struts Core", "BRC", 1L);
+    index.add(3L, "Struts Sandbox", "TRK", 3L);
+    index.add(4L, "Sonar", "TRK", 4L);
+
+    index.remove(4L);
+    assertThat(index.size()).isEqualTo(3);
+    assertThat(ids(index.search("sonar", null))).isEmpty();
+
+    index.removeRootProjects(Sets.newHashSet(1L));
+    assertThat(index.size()).isEqualTo(1);
+    assertThat(ids(index.search("struts", null))).containsExactly(3L);
+
+    // index is still usable after compaction
+    index.add(1L, "Struts", "TRK", 1L);
+    assertThat(ids(index.search("struts", null))).containsExactly(1L, 3L);
+  }
+
+  @Test
+  public void write_and_read() throws IOException {
+    index.add(1L, "Struts", "TRK", 1L);
+    index.add(2L, "Struts Core", "BRC", 1L);
+    index.add(3L, "Sonar", "TRK", 3L);
+    index.remove(3L);
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    index.writeTo(new DataOutputStream(bytes));
+    ComponentNameIndex copy = ComponentNameIndex.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+    assertThat(copy.size()).isEqualTo(2);
+    assertThat(ids(copy.search("struts", null))).containsExactly(1L, 2L);
+    assertThat(copy.search("core", null).get(0).getNameSize()).isEqualTo(11);
+  }
+
+  @Test
+  public void copy_is_independent() {
+    index.add(1L, "Struts", "TRK", 1L);
+    index.add(2L, "Struts Core", "BRC", 1L);
+    index.add(3L, "Sonar", "TRK", 3L);
+    index.remove(3L);
+
+    ComponentNameIndex copy = index.copy();
+    copy.remove(2L);
+    copy.add(4L, "Struts Sandbox", "TRK", 4L);
+
+    assertThat(ids(index.search("struts", null))).containsExactly(1L, 2L);
+    assertThat(ids(copy.search("struts", null))).containsExactly(1L, 4L);
+    assertThat(copy.size()).isEqualTo(2);
+  }
+
+  @Test
+  public void estimate_memory_size() {
+    long emptySize = index.getMemorySize();
+    index.add(1L, "Struts", "TRK", 1L);
+
+    assertThat(index.getMemorySize()).isGreaterThan(emptySize);
+    assertThat(index.getTrigramCount()).isEqualTo(4);
+  }
+
+  private static List<Long> ids(List<ComponentNameIndex.Hit> hits) {
+    List<Long> ids = Lists.newArrayList();
+    for (ComponentNameIndex.Hit hit : hits) {
+      ids.add(hit.getResourceId());
+    }
+    return ids;
+  }
+}
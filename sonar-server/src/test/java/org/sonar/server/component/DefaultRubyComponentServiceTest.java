@@ -30,7 +30,6 @@ import org.sonar.api.resources.Scopes;
 import org.sonar.core.component.ComponentDto;
 import org.sonar.core.resource.ResourceDao;
 import org.sonar.core.resource.ResourceDto;
-import org.sonar.core.resource.ResourceIndexerDao;
 import org.sonar.server.exceptions.BadRequestException;
 import org.sonar.server.exceptions.NotFoundException;
 
@@ -51,7 +50,7 @@ public class DefaultRubyComponentServiceTest {
 
   private ResourceDao resourceDao;
   private DefaultComponentFinder finder;
-  private ResourceIndexerDao resourceIndexerDao;
+  private ComponentIndex componentIndex;
   private I18n i18n;
   private DefaultRubyComponentService componentService;
 
@@ -59,9 +58,9 @@ public class DefaultRubyComponentServiceTest {
   public void before() {
     resourceDao = mock(ResourceDao.class);
     finder = mock(DefaultComponentFinder.class);
-    resourceIndexerDao = mock(ResourceIndexerDao.class);
+    componentIndex = mock(ComponentIndex.class);
     i18n = mock(I18n.class);
-    componentService = new DefaultRubyComponentService(resourceDao, finder, resourceIndexerDao, i18n);
+    componentService = new DefaultRubyComponentService(resourceDao, finder, componentIndex, i18n);
   }
 
   @Test
@@ -93,7 +92,7 @@ public class DefaultRubyComponentServiceTest {
     assertThat(created.getScope()).isEqualTo(Scopes.PROJECT);
     assertThat(created.getQualifier()).isEqualTo(qualifier);
     verify(resourceDao, times(2)).findByKey(componentKey);
-    verify(resourceIndexerDao).indexResource(componentId);
+    verify(componentIndex).indexResource(componentId);
   }
 
   @Test(expected = BadRequestException.class)
@@ -0,0 +1,208 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.plugins;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CachedResourceTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  HttpServletRequest request = mock(HttpServletRequest.class);
+  HttpServletResponse response = mock(HttpServletResponse.class);
+  ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+  @Before
+  public void setUp() throws IOException {
+    when(request.getDateHeader(anyString())).thenReturn(-1L);
+    when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+      @Override
+      public void write(int b) {
+        output.write(b);
+      }
+    });
+  }
+
+  @Test
+  public void etag_is_content_hash() {
+    CachedResource first = CachedResource.of("foo".getBytes(), "text/css", 0L);
+    CachedResource second = CachedResource.of("foo".getBytes(), "text/css", 123456L);
+    CachedResource third = CachedResource.of("bar".getBytes(), "text/css", 0L);
+
+    assertThat(first.getEtag()).isEqualTo(second.getEtag()).startsWith("\"").endsWith("\"");
+    assertThat(first.getEtag()).isNotEqualTo(third.getEtag());
+  }
+
+  @Test
+  public void serve_content() throws IOException {
+    CachedResource resource = CachedResource.of("foo".getBytes(), "image/png", 1234567L);
+
+    resource.serve(request, response);
+
+    assertThat(output.toString()).isEqualTo("foo");
+    verify(response).setContentType("image/png");
+    verify(response).setContentLength(3);
+    verify(response).setHeader("ETag", resource.getEtag());
+    verify(response).setDateHeader("Last-Modified", 1234000L);
+    verify(response).setHeader("Cache-Control", CachedResource.CACHE_CONTROL_REVALIDATE);
+  }
+
+  @Test
+  public void versioned_resources_are_cached_for_a_long_time() throws IOException {
+    when(request.getParameter("v")).thenReturn("4.3");
+
+    CachedResource.of("foo".getBytes(), "image/png", 0L).serve(request, response);
+
+    verify(response).setHeader("Cache-Control", CachedResource.CACHE_CONTROL_VERSIONED);
+  }
+
+  @Test
+  public void version_parameter_can_be_ignored() throws IOException {
+    when(request.getParameter("v")).thenReturn("1,2,3");
+
+    CachedResource.of("foo".getBytes(), "image/png", 0L).serve(request, response, false);
+
+    verify(response).setHeader("Cache-Control", CachedResource.CACHE_CONTROL_REVALIDATE);
+  }
+
+  @Test
+  public void not_modified_if_etag_matches() throws IOException {
+    CachedResource resource = CachedResource.of("foo".getBytes(), "image/png", 0L);
+    when(request.getHeader("If-None-Match")).thenReturn("\"other\", " + resource.getEtag());
+
+    resource.serve(request, response);
+
+    verify(response).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+    verify(response, never()).getOutputStream();
+  }
+
+  @Test
+  public void modified_if_etag_does_not_match() throws IOException {
+    CachedResource resource = CachedResource.of("foo".getBytes(), "image/png", 0L);
+    when(request.getHeader("If-None-Match")).thenReturn("\"other\"");
+    // ignored as If-None-Match has priority
+    when(request.getDateHeader("If-Modified-Since")).thenReturn(Long.MAX_VALUE);
+
+    assertThat(resource.isNotModified(request)).isFalse();
+  }
+
+  @Test
+  public void not_modified_since_date() {
+    CachedResource resource = CachedResource.of("foo".getBytes(), "image/png", 5000L);
+
+    when(request.getDateHeader("If-Modified-Since")).thenReturn(5000L);
+    assertThat(resource.isNotModified(request)).isTrue();
+
+    when(request.getDateHeader("If-Modified-Since")).thenReturn(4000L);
+    assertThat(resource.isNotModified(request)).isFalse();
+
+    when(request.getDateHeader("If-Modified-Since")).thenThrow(new IllegalArgumentException());
+    assertThat(resource.isNotModified(request)).isFalse();
+  }
+
+  @Test
+  public void serve_gzipped_content_if_accepted() throws IOException {
+    String css = StringUtils.repeat(".foo { color: red; }\n", 200);
+    CachedResource resource = CachedResource.of(css.getBytes(), "text/css", 0L);
+    assertThat(resource.isGzipped()).isTrue();
+    when(request.getHeader("Accept-Encoding")).thenReturn("deflate, gzip;q=1.0");
+
+    resource.serve(request, response);
+
+    verify(response).setHeader("Content-Encoding", "gzip");
+    verify(response).setHeader("Vary", "Accept-Encoding");
+    assertThat(output.size()).isLessThan(css.length());
+    GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(output.toByteArray()));
+    assertThat(IOUtils.toString(gzip)).isEqualTo(css);
+  }
+
+  @Test
+  public void do_not_compress_small_or_binary_resources() {
+    assertThat(CachedResource.of("foo".getBytes(), "text/css", 0L).isGzipped()).isFalse();
+    assertThat(CachedResource.of(new byte[4096], "image/png", 0L).isGzipped()).isFalse();
+    assertThat(CachedResource.of(new byte[4096], "application/javascript", 0L).isGzipped()).isTrue();
+  }
+
+  @Test
+  public void accepts_gzip() {
+    assertThat(CachedResource.acceptsGzip(request)).isFalse();
+
+    when(request.getHeader("Accept-Encoding")).thenReturn("gzip,deflate,sdch");
+    assertThat(CachedResource.acceptsGzip(request)).isTrue();
+
+    when(request.getHeader("Accept-Encoding")).thenReturn("deflate, gzip; q=0");
+    assertThat(CachedResource.acceptsGzip(request)).isFalse();
+
+    when(request.getHeader("Accept-Encoding")).thenReturn("identity");
+    assertThat(CachedResource.acceptsGzip(request)).isFalse();
+  }
+
+  @Test
+  public void serve_file() throws IOException {
+    File file = temp.newFile("sonar-core.jar");
+    FileUtils.write(file, "binary content");
+    CachedResource resource = CachedResource.of(file, "application/java-archive");
+
+    resource.serve(request, response);
+
+    assertThat(output.toString()).isEqualTo("binary content");
+    verify(response).setContentLength(14);
+    verify(response).setContentType("application/java-archive");
+  }
+
+  @Test
+  public void delegate_file_sending_to_tomcat() throws IOException {
+    File file = temp.newFile("sonar-core.jar");
+    FileUtils.write(file, "binary content");
+    when(request.getAttribute("org.apache.tomcat.sendfile.support")).thenReturn(Boolean.TRUE);
+    CachedResource resource = CachedResource.of(file, "application/java-archive");
+
+    resource.serve(request, response);
+
+    assertThat(output.size()).isEqualTo(0);
+    verify(request).setAttribute("org.apache.tomcat.sendfile.filename", file.getCanonicalPath());
+    verify(request).setAttribute("org.apache.tomcat.sendfile.start", 0L);
+    verify(request).setAttribute("org.apache.tomcat.sendfile.end", 14L);
+  }
+}
@@ -34,5 +34,6 @@ public class MimeTypesTest {
   public void getByFilename() {
     assertThat(MimeTypes.getByFilename("static/sqale/sqale.css")).isEqualTo("text/css");
     assertThat(MimeTypes.getByFilename("sqale.css")).isEqualTo("text/css");
+    assertThat(MimeTypes.getByFilename("static/sqale/sqale.js")).isEqualTo("application/javascript");
   }
 }
@@ -0,0 +1,125 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.plugins;
+
+import com.google.common.collect.Sets;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.platform.PluginMetadata;
+
+import javax.servlet.ServletContext;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class StaticResourceCacheTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  ServletContext servletContext = mock(ServletContext.class);
+  ServerPluginRepository pluginRepository = mock(ServerPluginRepository.class);
+  StaticResourceCache cache;
+
+  @Before
+  public void setUp() throws IOException {
+    File pluginJar = temp.newFile("sonar-foo-plugin.jar");
+    ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(pluginJar));
+    addEntry(zip, "org/sonar/Foo.class", new byte[10]);
+    addEntry(zip, "static/foo.css", ".foo { color: red; }".getBytes());
+    addEntry(zip, "static/big.png", new byte[(int) StaticResourceCache.MAX_IN_MEMORY_SIZE + 1]);
+    zip.close();
+
+    PluginMetadata metadata = mock(PluginMetadata.class);
+    when(metadata.getKey()).thenReturn("foo");
+    when(metadata.getDeployedFiles()).thenReturn(Arrays.asList(pluginJar));
+    when(pluginRepository.getMetadata()).thenReturn(Collections.singletonList(metadata));
+
+    File lib = temp.newFile("sonar-core-4.3.jar");
+    FileUtils.write(lib, "binary");
+    when(servletContext.getResourcePaths("/WEB-INF/lib/")).thenReturn(Sets.newHashSet("/WEB-INF/lib/sonar-core-4.3.jar", "/WEB-INF/lib/other.jar"));
+    when(servletContext.getRealPath("/WEB-INF/lib/sonar-core-4.3.jar")).thenReturn(lib.getAbsolutePath());
+
+    cache = new StaticResourceCache(servletContext, pluginRepository);
+  }
+
+  private static void addEntry(ZipOutputStream zip, String name, byte[] content) throws IOException {
+    zip.putNextEntry(new ZipEntry(name));
+    zip.write(content);
+    zip.closeEntry();
+  }
+
+  @Test
+  public void cache_plugin_static_resources() {
+    cache.start();
+
+    CachedResource css = cache.getPluginResource("foo", "static/foo.css");
+    assertThat(css).isNotNull();
+    assertThat(css.getContentType()).isEqualTo("text/css");
+    assertThat(css.getLength()).isEqualTo(20L);
+
+    assertThat(cache.getPluginResource("foo", "org/sonar/Foo.class")).isNull();
+    assertThat(cache.getPluginResource("foo", "static/unknown.css")).isNull();
+    assertThat(cache.getPluginResource("bar", "static/foo.css")).isNull();
+    assertThat(cache.getPluginResourcesCount()).isEqualTo(1);
+    assertThat(cache.getPluginResourcesMemorySize()).isEqualTo(20L);
+  }
+
+  @Test
+  public void do_not_keep_big_resources_in_memory() {
+    cache.start();
+
+    assertThat(cache.getPluginResource("foo", "static/big.png")).isNull();
+  }
+
+  @Test
+  public void cache_batch_libs_available_on_disk() {
+    cache.start();
+
+    CachedResource lib = cache.getBatchLib("sonar-core-4.3.jar");
+    assertThat(lib).isNotNull();
+    assertThat(lib.getFile()).isNotNull();
+    assertThat(lib.getContentType()).isEqualTo("application/java-archive");
+    // not exploded
+    assertThat(cache.getBatchLib("other.jar")).isNull();
+    assertThat(cache.getBatchLibsCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void clear_on_stop() {
+    cache.start();
+    cache.stop();
+
+    assertThat(cache.getPluginResourcesCount()).isEqualTo(0);
+    assertThat(cache.getBatchLibsCount()).isEqualTo(0);
+  }
+}
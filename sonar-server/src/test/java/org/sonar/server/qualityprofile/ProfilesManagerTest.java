@@ -23,12 +23,15 @@ import org.junit.Before;
 import org.junit.Test;
 import org.sonar.api.profiles.RulesProfile;
 import org.sonar.api.rules.ActiveRule;
+import org.sonar.api.rules.ActiveRuleChange;
 import org.sonar.api.rules.Rule;
 import org.sonar.api.rules.RulePriority;
 import org.sonar.core.preview.PreviewCache;
 import org.sonar.jpa.test.AbstractDbUnitTestCase;
 import org.sonar.server.qualityprofile.ProfilesManager;
 
+import java.util.Arrays;
+
 import static org.fest.assertions.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
 
@@ -58,4 +61,38 @@ public class ProfilesManagerTest extends AbstractDbUnitTestCase {
     assertThat(getHQLCount(ActiveRule.class)).isEqualTo(0);
   }
 
+  @Test
+  public void propagate_bulk_activation_and_deactivation_to_child_profiles() {
+    Rule rule1 = Rule.create("repo", "key1");
+    Rule rule2 = Rule.create("repo", "key2");
+
+    RulesProfile parent = RulesProfile.create("parent", "xoo");
+    ActiveRule activeRule1 = new ActiveRule(parent, rule1, RulePriority.BLOCKER);
+    ActiveRule activeRule2 = new ActiveRule(parent, rule2, RulePriority.MINOR);
+    parent.getActiveRules().add(activeRule1);
+    parent.getActiveRules().add(activeRule2);
+
+    RulesProfile child = RulesProfile.create("child", "xoo");
+    child.setParentName("parent");
+
+    getSession().save(rule1, rule2, parent, activeRule1, activeRule2, child);
+
+    ProfilesManager.RuleInheritanceActions actions = manager.activated(parent.getId(), Arrays.asList(activeRule1.getId(), activeRule2.getId()), "admin");
+
+    assertThat(actions.idsToIndex()).hasSize(4);
+    assertThat(actions.idsToDelete()).isEmpty();
+    assertThat(child.getActiveRules()).hasSize(2);
+    assertThat(child.getActiveRule(rule1).isInherited()).isTrue();
+    assertThat(child.getActiveRule(rule2).getSeverity()).isEqualTo(RulePriority.MINOR);
+    assertThat(getHQLCount(ActiveRuleChange.class)).isEqualTo(4);
+
+    actions = manager.deactivated(parent.getId(), Arrays.asList(activeRule1.getId(), activeRule2.getId()), "admin");
+
+    assertThat(actions.idsToIndex()).containsOnly(activeRule1.getId(), activeRule2.getId());
+    assertThat(actions.idsToDelete()).hasSize(2);
+    // session is cleared on commit
+    child = getSession().getSingleResult(RulesProfile.class, "name", "child", "language", "xoo");
+    assertThat(child.getActiveRules()).isEmpty();
+  }
+
 }
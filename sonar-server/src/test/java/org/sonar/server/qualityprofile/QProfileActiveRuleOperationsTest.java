@@ -43,6 +43,7 @@ import org.sonar.core.rule.RuleDto;
 import org.sonar.core.rule.RuleParamDto;
 import org.sonar.server.exceptions.BadRequestException;
 import org.sonar.server.exceptions.ForbiddenException;
+import org.sonar.server.exceptions.NotFoundException;
 import org.sonar.server.user.MockUserSession;
 import org.sonar.server.user.UserSession;
 import org.sonar.server.util.TypeValidations;
@@ -199,36 +200,57 @@ public class QProfileActiveRuleOperationsTest {
   @Test
   public void activate_rules() throws Exception {
     when(profileDao.selectById(1, session)).thenReturn(new QualityProfileDto().setId(1).setName("Default").setLanguage("java"));
-    when(ruleDao.selectById(10, session)).thenReturn(new RuleDto().setId(10).setSeverity(Severity.CRITICAL));
     ProfileRuleQuery query = ProfileRuleQuery.create(1);
-    when(rules.searchInactiveProfileRuleIds(query)).thenReturn(newArrayList(10));
+    when(rules.searchInactiveProfileRuleIds(query)).thenReturn(newArrayList(10, 11));
+    when(ruleDao.selectByIds(newArrayList(10, 11), session)).thenReturn(newArrayList(
+      new RuleDto().setId(10).setSeverity(Severity.CRITICAL), new RuleDto().setId(11).setSeverity(Severity.MINOR)));
+    when(ruleDao.selectParametersByRuleIds(newArrayList(10, 11), session)).thenReturn(newArrayList(
+      new RuleParamDto().setId(20).setRuleId(10).setName("max").setDefaultValue("10")));
 
-    when(ruleDao.selectParametersByRuleId(eq(10), eq(session))).thenReturn(newArrayList(new RuleParamDto().setId(20).setName("max").setDefaultValue("10")));
     final int idActiveRuleToUpdate = 42;
     final int idActiveRuleToDelete = 24;
     ProfilesManager.RuleInheritanceActions inheritanceActions = new ProfilesManager.RuleInheritanceActions()
       .addToIndex(idActiveRuleToUpdate)
       .addToDelete(idActiveRuleToDelete);
-    when(profilesManager.activated(eq(1), anyInt(), eq("Nicolas"))).thenReturn(inheritanceActions);
+    when(profilesManager.activated(eq(1), anyListOf(Integer.class), eq("Nicolas"))).thenReturn(inheritanceActions);
 
-    operations.activateRules(1, query, authorizedUserSession);
+    int result = operations.activateRules(1, query, authorizedUserSession);
 
+    assertThat(result).isEqualTo(2);
     ArgumentCaptor<ActiveRuleDto> activeRuleArgument = ArgumentCaptor.forClass(ActiveRuleDto.class);
-    verify(activeRuleDao).insert(activeRuleArgument.capture(), eq(session));
-    assertThat(activeRuleArgument.getValue().getRulId()).isEqualTo(10);
-    assertThat(activeRuleArgument.getValue().getSeverityString()).isEqualTo(Severity.CRITICAL);
+    verify(activeRuleDao, times(2)).insert(activeRuleArgument.capture(), eq(session));
+    assertThat(activeRuleArgument.getAllValues().get(0).getRulId()).isEqualTo(10);
+    assertThat(activeRuleArgument.getAllValues().get(0).getSeverityString()).isEqualTo(Severity.CRITICAL);
+    assertThat(activeRuleArgument.getAllValues().get(1).getRulId()).isEqualTo(11);
+    assertThat(activeRuleArgument.getAllValues().get(1).getSeverityString()).isEqualTo(Severity.MINOR);
 
     ArgumentCaptor<ActiveRuleParamDto> activeRuleParamArgument = ArgumentCaptor.forClass(ActiveRuleParamDto.class);
     verify(activeRuleDao).insert(activeRuleParamArgument.capture(), eq(session));
     assertThat(activeRuleParamArgument.getValue().getKey()).isEqualTo("max");
     assertThat(activeRuleParamArgument.getValue().getValue()).isEqualTo("10");
 
-    verify(session).commit();
-    verify(profilesManager).activated(eq(1), anyInt(), eq("Nicolas"));
+    // one transaction, one propagation of inheritance and one indexation for all the rules
+    verify(session, times(1)).commit();
+    verify(profilesManager).activated(1, newArrayList(1, 2), "Nicolas");
     verify(esActiveRule).deleteActiveRules(eq(newArrayList(idActiveRuleToDelete)));
     verify(esActiveRule).bulkIndexActiveRuleIds(eq(newArrayList(idActiveRuleToUpdate)), eq(session));
   }
 
+  @Test
+  public void fail_to_activate_rules_if_rule_not_found() throws Exception {
+    ProfileRuleQuery query = ProfileRuleQuery.create(1);
+    when(rules.searchInactiveProfileRuleIds(query)).thenReturn(newArrayList(10));
+
+    try {
+      operations.activateRules(1, query, authorizedUserSession);
+      fail();
+    } catch (Exception e) {
+      assertThat(e).isInstanceOf(NotFoundException.class);
+    }
+    verify(session, never()).commit();
+    verifyZeroInteractions(profilesManager);
+  }
+
   @Test
   public void deactivate_rule() throws Exception {
     when(profileDao.selectById(1, session)).thenReturn(new QualityProfileDto().setId(1).setName("Default").setLanguage("java"));
@@ -268,22 +290,26 @@ public class QProfileActiveRuleOperationsTest {
 
   @Test
   public void deactivate_rules() throws Exception {
-    when(ruleDao.selectById(10, session)).thenReturn(new RuleDto().setId(10));
     ActiveRuleDto activeRule = new ActiveRuleDto().setId(5).setProfileId(1).setRuleId(10).setSeverity(Severity.MINOR);
-    when(activeRuleDao.selectById(5, session)).thenReturn(activeRule);
-    when(profilesManager.deactivated(eq(1), anyInt(), eq("Nicolas"))).thenReturn(new ProfilesManager.RuleInheritanceActions());
+    ActiveRuleDto inheritedActiveRule = new ActiveRuleDto().setId(6).setProfileId(1).setRuleId(11).setSeverity(Severity.MINOR).setInheritance(ActiveRuleDto.INHERITED);
+    ActiveRuleDto otherActiveRule = new ActiveRuleDto().setId(7).setProfileId(1).setRuleId(12).setSeverity(Severity.MAJOR);
+    when(activeRuleDao.selectByIds(newArrayList(5, 6, 7), session)).thenReturn(newArrayList(activeRule, inheritedActiveRule, otherActiveRule));
+    when(profilesManager.deactivated(eq(1), anyListOf(Integer.class), eq("Nicolas"))).thenReturn(new ProfilesManager.RuleInheritanceActions().addToIndex(5).addToIndex(7));
     ProfileRuleQuery query = ProfileRuleQuery.create(1);
-    when(rules.searchProfileRuleIds(query)).thenReturn(newArrayList(5));
+    when(rules.searchProfileRuleIds(query)).thenReturn(newArrayList(5, 6, 7));
 
     int result = operations.deactivateRules(query, authorizedUserSession);
 
-    assertThat(result).isEqualTo(1);
+    assertThat(result).isEqualTo(2);
     verify(activeRuleDao).delete(eq(5), eq(session));
     verify(activeRuleDao).deleteParameters(eq(5), eq(session));
-    verify(session).commit();
-    verify(profilesManager).deactivated(eq(1), anyInt(), eq("Nicolas"));
-    verify(esActiveRule).deleteActiveRules(anyListOf(Integer.class));
-    verify(esActiveRule).bulkIndexActiveRuleIds(anyListOf(Integer.class), eq(session));
+    verify(activeRuleDao).delete(eq(7), eq(session));
+    verify(activeRuleDao).deleteParameters(eq(7), eq(session));
+    verify(activeRuleDao, never()).delete(eq(6), eq(session));
+    verify(session, times(1)).commit();
+    verify(profilesManager).deactivated(eq(1), eq(newArrayList(5, 7)), eq("Nicolas"));
+    verify(esActiveRule).deleteActiveRules(newArrayList(5, 7));
+    verify(esActiveRule).bulkIndexActiveRuleIds(newArrayList(5, 7), session);
   }
 
   @Test
@@ -36,6 +36,8 @@ import org.sonar.api.utils.MessageException;
 import org.sonar.api.utils.System2;
 import org.sonar.core.persistence.AbstractDaoTestCase;
 import org.sonar.core.persistence.MyBatis;
+import org.sonar.core.properties.PropertiesDao;
+import org.sonar.core.properties.PropertyDto;
 import org.sonar.core.qualityprofile.db.ActiveRuleDao;
 import org.sonar.core.rule.RuleDao;
 import org.sonar.core.rule.RuleDto;
@@ -75,6 +77,9 @@ public class RegisterRulesTest extends AbstractDaoTestCase {
   @Captor
   ArgumentCaptor<Collection<RuleDto>> rulesCaptor;
 
+  @Captor
+  ArgumentCaptor<Collection<Integer>> changedRuleIdsCaptor;
+
   @Captor
   ArgumentCaptor<Collection<RuleTagDto>> ruleTagsCaptor;
 
@@ -84,6 +89,7 @@ public class RegisterRulesTest extends AbstractDaoTestCase {
   RuleTagDao ruleTagDao;
   ActiveRuleDao activeRuleDao;
   CharacteristicDao characteristicDao;
+  PropertiesDao propertiesDao;
   System2 system;
   Date date = DateUtils.parseDateTime("2014-03-17T19:10:03+0100");
 
@@ -97,8 +103,9 @@ public class RegisterRulesTest extends AbstractDaoTestCase {
     activeRuleDao = new ActiveRuleDao(myBatis);
     ruleTagOperations = new RuleTagOperations(ruleTagDao, esRuleTags);
     characteristicDao = new CharacteristicDao(myBatis);
+    propertiesDao = new PropertiesDao(myBatis);
     task = new RegisterRules(new RuleDefinitionsLoader(mock(RuleRepositories.class), new RulesDefinition[]{new FakeRepository()}),
-      profilesManager, ruleRegistry, esRuleTags, ruleTagOperations, myBatis, ruleDao, ruleTagDao, activeRuleDao, characteristicDao, system);
+      profilesManager, ruleRegistry, esRuleTags, ruleTagOperations, myBatis, ruleDao, ruleTagDao, activeRuleDao, characteristicDao, propertiesDao, system);
   }
 
   @Test
@@ -106,9 +113,9 @@ public class RegisterRulesTest extends AbstractDaoTestCase {
     setupData("shared");
     task.start();
 
-    verify(ruleRegistry).reindex(rulesCaptor.capture(), any(SqlSession.class));
+    verify(ruleRegistry).reindexChangedRules(rulesCaptor.capture(), changedRuleIdsCaptor.capture(), any(SqlSession.class));
     assertThat(rulesCaptor.getValue()).hasSize(3);
-    verify(ruleRegistry).removeDeletedRules(any(String[].class));
+    assertThat(changedRuleIdsCaptor.getValue()).hasSize(3);
 
     verify(esRuleTags).putAllTags(ruleTagsCaptor.capture());
     assertThat(ruleTagsCaptor.getValue()).hasSize(3);
@@ -116,6 +123,46 @@ public class RegisterRulesTest extends AbstractDaoTestCase {
     checkTables("insert_new_rules", EXCLUDED_COLUMN_NAMES, "rules", "rules_parameters", "rules_rule_tags", "rule_tags");
   }
 
+  @Test
+  public void skip_unchanged_repositories() {
+    setupData("shared");
+    task.start();
+    assertThat(propertiesDao.selectGlobalProperty(RegisterRules.FINGERPRINT_PROPERTY_PREFIX + "fake")).isNotNull();
+
+    task.start();
+
+    verify(ruleRegistry, times(2)).reindexChangedRules(rulesCaptor.capture(), changedRuleIdsCaptor.capture(), any(SqlSession.class));
+    assertThat(rulesCaptor.getValue()).hasSize(3);
+    assertThat(changedRuleIdsCaptor.getValue()).isEmpty();
+    checkTables("insert_new_rules", EXCLUDED_COLUMN_NAMES, "rules", "rules_parameters", "rules_rule_tags", "rule_tags");
+  }
+
+  @Test
+  public void delete_fingerprints_of_unregistered_repositories() {
+    setupData("shared");
+    propertiesDao.setProperty(new PropertyDto().setKey(RegisterRules.FINGERPRINT_PROPERTY_PREFIX + "uninstalled").setValue("abcd"));
+
+    task.start();
+
+    assertThat(propertiesDao.selectGlobalProperty(RegisterRules.FINGERPRINT_PROPERTY_PREFIX + "uninstalled")).isNull();
+    assertThat(propertiesDao.selectGlobalProperty(RegisterRules.FINGERPRINT_PROPERTY_PREFIX + "fake")).isNotNull();
+  }
+
+  @Test
+  public void register_repository_again_if_its_rules_have_been_disabled() {
+    setupData("shared");
+    task.start();
+    RuleDto rule = ruleDao.selectByName("One");
+    rule.setStatus("REMOVED");
+    ruleDao.update(rule);
+
+    task.start();
+
+    verify(ruleRegistry, times(2)).reindexChangedRules(anyCollectionOf(RuleDto.class), changedRuleIdsCaptor.capture(), any(SqlSession.class));
+    assertThat(changedRuleIdsCaptor.getValue()).containsOnly(rule.getId());
+    assertThat(ruleDao.selectByName("One").getStatus()).isEqualTo(RuleStatus.READY.name());
+  }
+
   @Test
   public void update_template_rule_language() {
     setupData("update_template_rule_language");
@@ -282,7 +329,7 @@ public class RegisterRulesTest extends AbstractDaoTestCase {
   @Test
   public void test_high_number_of_rules() {
     task = new RegisterRules(new RuleDefinitionsLoader(mock(RuleRepositories.class), new RulesDefinition[]{new BigRepository()}),
-      profilesManager, ruleRegistry, esRuleTags, ruleTagOperations, myBatis, ruleDao, ruleTagDao, activeRuleDao, characteristicDao, mock(RegisterDebtModel.class));
+      profilesManager, ruleRegistry, esRuleTags, ruleTagOperations, myBatis, ruleDao, ruleTagDao, activeRuleDao, characteristicDao, propertiesDao, mock(RegisterDebtModel.class));
 
     setupData("shared");
     task.start();
@@ -297,7 +344,7 @@ public class RegisterRulesTest extends AbstractDaoTestCase {
   public void insert_extended_repositories() {
     task = new RegisterRules(new RuleDefinitionsLoader(mock(RuleRepositories.class), new RulesDefinition[]{
       new FindbugsRepository(), new FbContribRepository()}),
-      profilesManager, ruleRegistry, esRuleTags, ruleTagOperations, myBatis, ruleDao, ruleTagDao, activeRuleDao, characteristicDao, mock(RegisterDebtModel.class)
+      profilesManager, ruleRegistry, esRuleTags, ruleTagOperations, myBatis, ruleDao, ruleTagDao, activeRuleDao, characteristicDao, propertiesDao, mock(RegisterDebtModel.class)
     );
 
     setupData("empty");
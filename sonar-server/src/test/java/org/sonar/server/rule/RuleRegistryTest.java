@@ -364,6 +364,20 @@ public class RuleRegistryTest {
     assertThat(esSetup.exists("rules", "rule", "3")).isFalse();
   }
 
+  @Test
+  public void reindex_only_changed_or_missing_rules_and_forget_deleted_rules() {
+    RuleDto changedRule = new RuleDto().setId(1).setRepositoryKey("xoo").setRuleKey("key1").setSeverity(Severity.MAJOR);
+    RuleDto unchangedRule = new RuleDto().setId(2).setRepositoryKey("xoo").setRuleKey("key2").setSeverity(Severity.BLOCKER);
+    RuleDto missingRule = new RuleDto().setId(4).setRepositoryKey("xoo").setRuleKey("key4").setSeverity(Severity.MINOR);
+
+    registry.reindexChangedRules(newArrayList(changedRule, unchangedRule, missingRule), newArrayList(1), session);
+
+    assertThat(esSetup.client().prepareGet("rules", "rule", "1").execute().actionGet().getSourceAsMap().get(RuleDocument.FIELD_SEVERITY)).isEqualTo("MAJOR");
+    assertThat(esSetup.client().prepareGet("rules", "rule", "2").execute().actionGet().getSourceAsMap().get(RuleDocument.FIELD_SEVERITY)).isEqualTo("MINOR");
+    assertThat(esSetup.exists("rules", "rule", "4")).isTrue();
+    assertThat(esSetup.exists("rules", "rule", "3")).isFalse();
+  }
+
   @Test
   public void filter_removed_rules() {
     assertThat(registry.findIds(new HashMap<String, String>())).containsOnly(1, 2);
@@ -0,0 +1,78 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.source;
+
+import org.sonar.test.Benchmark;
+
+/**
+ * Measures the parsing of syntax highlighting and symbol data and the decoration of a source file of 10'000 lines.
+ * Highlighting rules are serialized out of order, as nested rules are. Not executed by the build, run it manually :
+ * <pre>java -cp ... org.sonar.server.source.DecorationDataHolderBenchmark</pre>
+ */
+public class DecorationDataHolderBenchmark {
+
+  private static final int LINES = 10000;
+  private static final int WARMUP_ITERATIONS = 50;
+  private static final int ITERATIONS = 50;
+  private static final String LINE = "  public int foo(int bar) { return bar < 0 ? -bar : bar; } // comment";
+
+  private final String source;
+  private final String highlighting;
+  private final String symbols;
+  private long checksum = 0L;
+
+  DecorationDataHolderBenchmark() {
+    StringBuilder sourceBuilder = new StringBuilder();
+    StringBuilder highlightingBuilder = new StringBuilder();
+    StringBuilder symbolsBuilder = new StringBuilder();
+    for (int line = 0; line < LINES; line++) {
+      int offset = sourceBuilder.length();
+      sourceBuilder.append(LINE).append('\n');
+      // comment is declared before the keywords it follows
+      highlightingBuilder.append(offset + 60).append(',').append(offset + 70).append(",cd;");
+      highlightingBuilder.append(offset + 2).append(',').append(offset + 8).append(",k;");
+      highlightingBuilder.append(offset + 9).append(',').append(offset + 12).append(",k;");
+      highlightingBuilder.append(offset + 17).append(',').append(offset + 20).append(",k;");
+      highlightingBuilder.append(offset + 29).append(',').append(offset + 35).append(",k;");
+      symbolsBuilder.append(offset + 21).append(',').append(offset + 24).append(',').append(offset + 21).append(',')
+        .append(offset + 36).append(',').append(offset + 46).append(',').append(offset + 54).append(';');
+    }
+    source = sourceBuilder.toString();
+    highlighting = highlightingBuilder.toString();
+    symbols = symbolsBuilder.toString();
+  }
+
+  void decorate() {
+    DecorationDataHolder dataHolder = new DecorationDataHolder();
+    dataHolder.loadSyntaxHighlightingData(highlighting);
+    dataHolder.loadSymbolReferences(symbols);
+    checksum += new HtmlTextDecorator().decorateTextWithHtml(source, dataHolder).size();
+  }
+
+  public static void main(String[] args) {
+    final DecorationDataHolderBenchmark benchmark = new DecorationDataHolderBenchmark();
+    new Benchmark(WARMUP_ITERATIONS, ITERATIONS).run("decoration", new Runnable() {
+      public void run() {
+        benchmark.decorate();
+      }
+    });
+    System.out.println("checksum: " + benchmark.checksum);
+  }
+}
@@ -22,6 +22,7 @@ package org.sonar.server.source;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.sonar.core.source.HighlightingDataFormat;
 
 import java.util.List;
 
@@ -72,4 +73,63 @@ public class DecorationDataHolderTest {
     assertThat(offsets.get(7)).isEqualTo(130);
     assertThat(offsets.get(8)).isEqualTo(145);
   }
+
+  @Test
+  public void should_sort_rules_loaded_out_of_order() throws Exception {
+    DecorationDataHolder dataHolder = new DecorationDataHolder();
+    dataHolder.loadSyntaxHighlightingData("20,30,k;0,50,cd;0,10,a;");
+
+    assertThat(dataHolder.getOpeningTagsEntries()).containsExactly(new OpeningHtmlTag(0, "cd"), new OpeningHtmlTag(0, "a"), new OpeningHtmlTag(20, "k"));
+    assertThat(dataHolder.getClosingTagsOffsets()).containsExactly(10, 30, 50);
+  }
+
+  @Test
+  public void should_iterate_over_tags() throws Exception {
+    assertThat(decorationDataHolder.getCurrentOpeningTagOffset()).isEqualTo(0);
+    assertThat(decorationDataHolder.getCurrentOpeningTagCssClass()).isEqualTo("k");
+    decorationDataHolder.nextOpeningTagEntry();
+    assertThat(decorationDataHolder.getCurrentOpeningTagCssClass()).isEqualTo("cppd");
+    for (int i = 1; i < 9; i++) {
+      decorationDataHolder.nextOpeningTagEntry();
+    }
+    assertThat(decorationDataHolder.getCurrentOpeningTagOffset()).isEqualTo(-1);
+
+    assertThat(decorationDataHolder.getCurrentClosingTagOffset()).isEqualTo(8);
+    decorationDataHolder.nextClosingTagOffset();
+    assertThat(decorationDataHolder.getCurrentClosingTagOffset()).isEqualTo(52);
+  }
+
+  @Test
+  public void should_share_css_classes() throws Exception {
+    List<OpeningHtmlTag> openingTagsEntries = decorationDataHolder.getOpeningTagsEntries();
+
+    assertThat(openingTagsEntries.get(0).getCssClass()).isSameAs(openingTagsEntries.get(3).getCssClass());
+    assertThat(openingTagsEntries.get(4).getCssClass()).isSameAs(openingTagsEntries.get(8).getCssClass());
+  }
+
+  @Test
+  public void should_ignore_empty_data() throws Exception {
+    DecorationDataHolder dataHolder = new DecorationDataHolder();
+    dataHolder.loadSyntaxHighlightingData("");
+    dataHolder.loadSymbolReferences(";");
+
+    assertThat(dataHolder.getOpeningTagsEntries()).isEmpty();
+    assertThat(dataHolder.getCurrentClosingTagOffset()).isEqualTo(-1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void should_fail_on_invalid_data() throws Exception {
+    new DecorationDataHolder().loadSyntaxHighlightingData("0,a,k;");
+  }
+
+  @Test
+  public void should_load_compact_format() throws Exception {
+    DecorationDataHolder dataHolder = new DecorationDataHolder();
+    dataHolder.loadSyntaxHighlightingData(HighlightingDataFormat.writeSyntaxHighlighting(
+      new int[] {0, 0, 54, 69, 106, 114}, new int[] {8, 52, 67, 75, 130, 130}, new String[] {"k", "cppd", "a", "k", "cppd", "k"}));
+    dataHolder.loadSymbolReferences(HighlightingDataFormat.writeSymbols(new int[][] {{80, 85, 80, 90, 140}}));
+
+    assertThat(dataHolder.getOpeningTagsEntries()).isEqualTo(decorationDataHolder.getOpeningTagsEntries());
+    assertThat(dataHolder.getClosingTagsOffsets()).isEqualTo(decorationDataHolder.getClosingTagsOffsets());
+  }
 }
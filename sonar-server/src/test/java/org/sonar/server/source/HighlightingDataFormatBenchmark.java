@@ -0,0 +1,176 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.source;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.apache.commons.io.FileUtils;
+import org.sonar.core.source.HighlightingDataFormat;
+import org.sonar.test.Benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compares the size and the parsing time of the legacy text format and of {@link HighlightingDataFormat} on the
+ * Java files of a directory, by default the sources of this module. Highlighting is computed by a simplified lexer
+ * (comments, strings, keywords and annotations) and every identifier is considered as a symbol declared at its
+ * first occurrence. Not executed by the build, run it manually :
+ * <pre>java -cp ... org.sonar.server.source.HighlightingDataFormatBenchmark [directory]</pre>
+ */
+public class HighlightingDataFormatBenchmark {
+
+  private static final int WARMUP_ITERATIONS = 20;
+  private static final int ITERATIONS = 20;
+  private static final Set<String> KEYWORDS = ImmutableSet.of("package", "import", "public", "protected", "private", "static", "final",
+    "abstract", "class", "interface", "enum", "extends", "implements", "void", "int", "long", "boolean", "char", "byte", "double",
+    "float", "short", "new", "return", "if", "else", "for", "while", "do", "switch", "case", "default", "break", "continue", "try",
+    "catch", "finally", "throw", "throws", "this", "super", "null", "true", "false", "instanceof", "synchronized");
+
+  private final List<String> textHighlightings = Lists.newArrayList();
+  private final List<String> textSymbols = Lists.newArrayList();
+  private final List<String> compactHighlightings = Lists.newArrayList();
+  private final List<String> compactSymbols = Lists.newArrayList();
+  private long checksum = 0L;
+
+  HighlightingDataFormatBenchmark(File dir) throws IOException {
+    Collection<File> files = FileUtils.listFiles(dir, new String[] {"java"}, true);
+    for (File file : files) {
+      analyze(FileUtils.readFileToString(file, Charsets.UTF_8.name()));
+    }
+    System.out.println(String.format("%d files, syntax highlighting: %d -> %d chars, symbols: %d -> %d chars", files.size(),
+      length(textHighlightings), length(compactHighlightings), length(textSymbols), length(compactSymbols)));
+  }
+
+  private void analyze(String source) {
+    List<int[]> rules = Lists.newArrayList();
+    List<String> types = Lists.newArrayList();
+    Map<String, List<Integer>> occurrencesByIdentifier = Maps.newLinkedHashMap();
+    int i = 0;
+    while (i < source.length()) {
+      char c = source.charAt(i);
+      int end = i + 1;
+      String type = null;
+      if (source.startsWith("/*", i)) {
+        end = source.indexOf("*/", i + 2) < 0 ? source.length() : source.indexOf("*/", i + 2) + 2;
+        type = "cppd";
+      } else if (source.startsWith("//", i)) {
+        end = source.indexOf('\n', i) < 0 ? source.length() : source.indexOf('\n', i);
+        type = "cd";
+      } else if (c == '"') {
+        while (end < source.length() && source.charAt(end) != '"' && source.charAt(end) != '\n') {
+          end += source.charAt(end) == '\\' ? 2 : 1;
+        }
+        end = Math.min(end + 1, source.length());
+        type = "s";
+      } else if (Character.isJavaIdentifierStart(c) || c == '@') {
+        while (end < source.length() && Character.isJavaIdentifierPart(source.charAt(end))) {
+          end++;
+        }
+        String word = source.substring(i, end);
+        if (c == '@') {
+          type = "a";
+        } else if (KEYWORDS.contains(word)) {
+          type = "k";
+        } else {
+          if (!occurrencesByIdentifier.containsKey(word)) {
+            occurrencesByIdentifier.put(word, Lists.<Integer>newArrayList());
+          }
+          occurrencesByIdentifier.get(word).add(i);
+        }
+      }
+      if (type != null) {
+        rules.add(new int[] {i, end});
+        types.add(type);
+      }
+      i = end;
+    }
+
+    StringBuilder text = new StringBuilder();
+    int[] starts = new int[rules.size()];
+    int[] ends = new int[rules.size()];
+    for (int r = 0; r < rules.size(); r++) {
+      starts[r] = rules.get(r)[0];
+      ends[r] = rules.get(r)[1];
+      text.append(starts[r]).append(',').append(ends[r]).append(',').append(types.get(r)).append(';');
+    }
+    textHighlightings.add(text.toString());
+    compactHighlightings.add(HighlightingDataFormat.writeSyntaxHighlighting(starts, ends, types.toArray(new String[types.size()])));
+
+    text = new StringBuilder();
+    List<int[]> symbols = Lists.newArrayList();
+    for (Map.Entry<String, List<Integer>> entry : occurrencesByIdentifier.entrySet()) {
+      List<Integer> occurrences = entry.getValue();
+      int[] symbol = new int[2 + occurrences.size()];
+      symbol[0] = occurrences.get(0);
+      symbol[1] = occurrences.get(0) + entry.getKey().length();
+      text.append(symbol[0]).append(',').append(symbol[1]);
+      for (int o = 0; o < occurrences.size(); o++) {
+        symbol[2 + o] = occurrences.get(o);
+        text.append(',').append(occurrences.get(o));
+      }
+      text.append(';');
+      symbols.add(symbol);
+    }
+    textSymbols.add(text.toString());
+    compactSymbols.add(HighlightingDataFormat.writeSymbols(symbols.toArray(new int[symbols.size()][])));
+  }
+
+  private static long length(List<String> data) {
+    long length = 0L;
+    for (String s : data) {
+      length += s.length();
+    }
+    return length;
+  }
+
+  void parse(List<String> highlightings, List<String> symbols) {
+    for (int i = 0; i < highlightings.size(); i++) {
+      DecorationDataHolder dataHolder = new DecorationDataHolder();
+      if (!highlightings.get(i).isEmpty()) {
+        dataHolder.loadSyntaxHighlightingData(highlightings.get(i));
+      }
+      if (!symbols.get(i).isEmpty()) {
+        dataHolder.loadSymbolReferences(symbols.get(i));
+      }
+      checksum += dataHolder.getCurrentOpeningTagOffset() + dataHolder.getCurrentClosingTagOffset();
+    }
+  }
+
+  public static void main(String[] args) throws IOException {
+    final HighlightingDataFormatBenchmark benchmark = new HighlightingDataFormatBenchmark(new File(args.length > 0 ? args[0] : "src/main/java"));
+    new Benchmark(WARMUP_ITERATIONS, ITERATIONS).run("text", new Runnable() {
+      public void run() {
+        benchmark.parse(benchmark.textHighlightings, benchmark.textSymbols);
+      }
+    }).run("compact", new Runnable() {
+      public void run() {
+        benchmark.parse(benchmark.compactHighlightings, benchmark.compactSymbols);
+      }
+    });
+    System.out.println("checksum: " + benchmark.checksum);
+  }
+}
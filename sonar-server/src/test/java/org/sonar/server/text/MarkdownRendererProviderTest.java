@@ -17,37 +17,31 @@
  * along with this program; if not, write to the Free Software Foundation,
  * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
  */
-package org.sonar.plugins.core.batch;
+package org.sonar.server.text;
 
 import org.junit.Test;
-import org.sonar.api.resources.Project;
-import org.sonar.core.resource.ResourceIndexerDao;
+import org.sonar.api.config.Settings;
+import org.sonar.markdown.MarkdownRenderer;
 
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.verify;
-import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.fest.assertions.Assertions.assertThat;
 
-public class IndexProjectPostJobTest {
-  @Test
-  public void shouldIndexProject() {
-    ResourceIndexerDao indexer = mock(ResourceIndexerDao.class);
-    IndexProjectPostJob job = new IndexProjectPostJob(indexer);
-    Project project = new Project("foo");
-    project.setId(123);
+public class MarkdownRendererProviderTest {
 
-    job.executeOn(project, null);
+  @Test
+  public void use_default_cache_size() throws Exception {
+    MarkdownRenderer renderer = new MarkdownRendererProvider().provide(new Settings());
 
-    verify(indexer).indexProject(123);
+    renderer.render("*one*");
+    assertThat(renderer.getCount()).isEqualTo(1);
   }
 
   @Test
-  public void shouldNotIndexProjectIfMissingId() {
-    ResourceIndexerDao indexer = mock(ResourceIndexerDao.class);
-    IndexProjectPostJob job = new IndexProjectPostJob(indexer);
+  public void read_cache_size_from_settings() throws Exception {
+    Settings settings = new Settings();
+    settings.setProperty(MarkdownRendererProvider.PROPERTY_CACHE_SIZE, 0L);
+    MarkdownRenderer renderer = new MarkdownRendererProvider().provide(settings);
 
-    job.executeOn(new Project("foo"), null);
-
-    verifyZeroInteractions(indexer);
+    renderer.render("*one*");
+    assertThat(renderer.getCount()).isEqualTo(0);
   }
-
 }
@@ -20,6 +20,7 @@
 package org.sonar.server.text;
 
 import org.junit.Test;
+import org.sonar.markdown.MarkdownRenderer;
 import org.sonar.server.source.HtmlSourceDecorator;
 
 import static org.fest.assertions.Assertions.assertThat;
@@ -29,7 +30,7 @@ public class RubyTextServiceTest {
 
   MacroInterpreter macroInterpreter = mock(MacroInterpreter.class);
   HtmlSourceDecorator sourceDecorator = mock(HtmlSourceDecorator.class);
-  RubyTextService text = new RubyTextService(macroInterpreter, sourceDecorator);
+  RubyTextService text = new RubyTextService(macroInterpreter, sourceDecorator, new MarkdownRenderer());
 
   @Test
   public void interpretMacros() throws Exception {
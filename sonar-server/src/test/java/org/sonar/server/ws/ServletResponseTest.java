@@ -0,0 +1,130 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.ws;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+import org.sonar.api.utils.text.JsonWriter;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ServletResponseTest {
+
+  @Test
+  public void negotiate_encoding() {
+    assertThat(ServletResponse.negotiateEncoding(null)).isNull();
+    assertThat(ServletResponse.negotiateEncoding("identity")).isNull();
+    assertThat(ServletResponse.negotiateEncoding("gzip,deflate,sdch")).isEqualTo("gzip");
+    assertThat(ServletResponse.negotiateEncoding("deflate, gzip;q=1.0")).isEqualTo("gzip");
+    assertThat(ServletResponse.negotiateEncoding("deflate, gzip; q=0")).isEqualTo("deflate");
+    assertThat(ServletResponse.negotiateEncoding("gzip;q=0.0, deflate;q=0")).isNull();
+  }
+
+  @Test
+  public void do_not_compress_if_not_accepted() {
+    ServletResponse response = new ServletResponse();
+    writeJson(response, 1000);
+
+    ServletResponse.ServletStream stream = response.stream().finish();
+    assertThat(stream.contentEncoding()).isNull();
+    assertThat(stream.size()).isEqualTo(stream.rawSize());
+    assertThat(stream.outputAsString()).startsWith("{\"values\":[");
+  }
+
+  @Test
+  public void do_not_compress_small_responses() {
+    ServletResponse response = new ServletResponse("gzip");
+    writeJson(response, 1);
+
+    assertThat(response.stream().finish().contentEncoding()).isNull();
+    assertThat(response.stream().outputAsString()).isEqualTo("{\"values\":[\"value 0\"]}");
+  }
+
+  @Test
+  public void gzip_response() throws IOException {
+    ServletResponse response = new ServletResponse("gzip, deflate");
+    String json = writeJson(response, 1000);
+
+    ServletResponse.ServletStream stream = response.stream();
+    byte[] bytes = stream.toByteArray();
+    assertThat(stream.contentEncoding()).isEqualTo("gzip");
+    assertThat(stream.rawSize()).isEqualTo(json.length());
+    assertThat(stream.size()).isEqualTo(bytes.length).isLessThan(json.length());
+    assertThat(IOUtils.toString(new GZIPInputStream(new ByteArrayInputStream(bytes)))).isEqualTo(json);
+    assertThat(stream.outputAsString()).isEqualTo(json);
+  }
+
+  @Test
+  public void deflate_response() throws IOException {
+    ServletResponse response = new ServletResponse("deflate");
+    String json = writeJson(response, 1000);
+
+    byte[] bytes = response.stream().toByteArray();
+    assertThat(response.stream().contentEncoding()).isEqualTo("deflate");
+    assertThat(IOUtils.toString(new InflaterInputStream(new ByteArrayInputStream(bytes)))).isEqualTo(json);
+    assertThat(response.stream().outputAsString()).isEqualTo(json);
+  }
+
+  @Test
+  public void decompress_output_as_string() {
+    ServletResponse response = new ServletResponse("gzip");
+    String json = writeJson(response, 1000);
+
+    assertThat(response.stream().outputAsString()).isEqualTo(json);
+    assertThat(response.stream().contentEncoding()).isEqualTo("gzip");
+  }
+
+  @Test
+  public void reset_compressed_response() {
+    ServletResponse response = new ServletResponse("gzip");
+    writeJson(response, 1000);
+
+    response.stream().reset();
+    writeJson(response, 1);
+
+    assertThat(response.stream().finish().contentEncoding()).isNull();
+    assertThat(response.stream().outputAsString()).isEqualTo("{\"values\":[\"value 0\"]}");
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void fail_to_write_finished_response() throws IOException {
+    ServletResponse response = new ServletResponse();
+    response.stream().finish();
+
+    response.stream().output().write(1);
+  }
+
+  private static String writeJson(ServletResponse response, int values) {
+    JsonWriter json = response.newJsonWriter();
+    json.beginObject().name("values").beginArray();
+    StringBuilder expected = new StringBuilder("{\"values\":[");
+    for (int i = 0; i < values; i++) {
+      json.value("value " + i);
+      expected.append(i > 0 ? "," : "").append("\"value ").append(i).append('"');
+    }
+    json.endArray().endObject().close();
+    return expected.append("]}").toString();
+  }
+}
@@ -109,6 +109,21 @@ public class WebServiceEngineTest {
     assertThat(response.stream().outputAsString()).isEqualTo("good");
   }
 
+  @Test
+  public void measure_executed_actions() throws Exception {
+    engine.execute(new SimpleRequest(), new ServletResponse(), "api/system", "health");
+    engine.execute(new SimpleRequest(), new ServletResponse(), "api/system", "health");
+    engine.execute(new SimpleRequest(), new ServletResponse(), "api/system", "xxx");
+
+    assertThat(engine.statistics()).hasSize(1);
+    ActionStatistics statistics = engine.statistics().get("api/system/health");
+    assertThat(statistics.requests()).isEqualTo(2L);
+    assertThat(statistics.rawBytes()).isEqualTo(8L);
+    assertThat(statistics.sentBytes()).isEqualTo(8L);
+    assertThat(statistics.compressionRatio()).isEqualTo(1.0);
+    assertThat(engine.toString()).startsWith("1 actions / 2 requests in ");
+  }
+
   @Test
   public void no_content() throws Exception {
     InternalRequest request = new SimpleRequest();
@@ -0,0 +1,83 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.test;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+
+/**
+ * Minimal harness for the micro-benchmarks that are not executed by the build but launched manually from
+ * a main method. Each task is executed a number of times to warm up the JVM, then measured. The average
+ * duration and the average memory allocated by the current thread are printed for each task.
+ * <p/>
+ * Tasks should accumulate their results, for example in a checksum printed at the end, so that the JIT
+ * compiler can not eliminate them.
+ *
+ * @since 4.3
+ */
+public final class Benchmark {
+
+  private final int warmupIterations;
+  private final int iterations;
+  private final PrintStream output;
+
+  public Benchmark(int warmupIterations, int iterations) {
+    this(warmupIterations, iterations, System.out);
+  }
+
+  public Benchmark(int warmupIterations, int iterations, PrintStream output) {
+    this.warmupIterations = warmupIterations;
+    this.iterations = iterations;
+    this.output = output;
+  }
+
+  public Benchmark run(String name, Runnable task) {
+    for (int i = 0; i < warmupIterations; i++) {
+      task.run();
+    }
+    ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    long allocatedBefore = allocatedBytes(threads);
+    long start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      task.run();
+    }
+    long durationNs = System.nanoTime() - start;
+    long allocated = allocatedBytes(threads) - allocatedBefore;
+    output.println(String.format("%-16s %8.2f ms/iteration %10d KB/iteration", name,
+      durationNs / 1000000.0 / iterations, allocated / 1024L / iterations));
+    return this;
+  }
+
+  /**
+   * com.sun.management.ThreadMXBean is specific to HotSpot and is not part of the Java 6 API checked by the build,
+   * so it is called by reflection.
+   */
+  private static long allocatedBytes(ThreadMXBean threads) {
+    try {
+      Method method = Class.forName("com.sun.management.ThreadMXBean").getMethod("getThreadAllocatedBytes", long.class);
+      return (Long) method.invoke(threads, Thread.currentThread().getId());
+    } catch (Exception e) {
+      // not supported by the JVM
+      return 0L;
+    }
+  }
+}
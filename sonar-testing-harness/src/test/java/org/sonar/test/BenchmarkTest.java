@@ -0,0 +1,46 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.test;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class BenchmarkTest {
+
+  @Test
+  public void should_warm_up_then_measure_task() {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    final AtomicInteger executions = new AtomicInteger();
+
+    new Benchmark(3, 5, new PrintStream(output)).run("increment", new Runnable() {
+      public void run() {
+        executions.incrementAndGet();
+      }
+    });
+
+    assertThat(executions.get()).isEqualTo(8);
+    assertThat(output.toString()).startsWith("increment").contains("ms/iteration").contains("KB/iteration");
+  }
+}
@@ -20,9 +20,14 @@
 package org.sonar.wsclient.internal;
 
 import com.github.kevinsawicki.http.HttpRequest;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
 import org.sonar.wsclient.base.HttpException;
 
 import javax.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.Reader;
 import java.util.Arrays;
 import java.util.Map;
 
@@ -126,6 +131,37 @@ public class HttpRequestFactory {
     return execute(request);
   }
 
+  /**
+   * Same as {@link #get(String, Map)} but the JSON response is parsed while being read, so that
+   * the body is never loaded as a string.
+   *
+   * @return the JSON tree, as returned by {@link JSONParser#parse(Reader)}
+   * @since 4.3
+   */
+  public Object getJson(String wsUrl, Map<String, Object> queryParams) {
+    HttpRequest request = prepare(HttpRequest.get(baseUrl + wsUrl, queryParams, true));
+    try {
+      if (!isSuccess(request)) {
+        throw new HttpException(request.url().toString(), request.code());
+      }
+      Reader reader = request.bufferedReader(HttpRequest.CHARSET_UTF8);
+      try {
+        Object json = new JSONParser().parse(reader);
+        consume(reader);
+        return json;
+      } finally {
+        closeQuietly(reader);
+      }
+
+    } catch (HttpRequest.HttpRequestException e) {
+      throw new IllegalStateException("Fail to request " + request.url(), e.getCause());
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to request " + request.url(), e);
+    } catch (ParseException e) {
+      throw new IllegalStateException("Fail to parse response of " + request.url(), e);
+    }
+  }
+
   public String post(String wsUrl, Map<String, Object> queryParams) {
     HttpRequest request = prepare(HttpRequest.post(baseUrl + wsUrl, true)).form(queryParams, HttpRequest.CHARSET_UTF8);
     return execute(request);
@@ -144,6 +180,24 @@ public class HttpRequestFactory {
     }
   }
 
+  /**
+   * The connection can be reused by next requests (keep-alive) only if the response is fully read
+   */
+  private static void consume(Reader reader) throws IOException {
+    char[] buffer = new char[1024];
+    while (reader.read(buffer) != -1) {
+      // skip trailing characters
+    }
+  }
+
+  private static void closeQuietly(Reader reader) {
+    try {
+      reader.close();
+    } catch (IOException e) {
+      // ignore
+    }
+  }
+
   private boolean isSuccess(HttpRequest request) {
     return Arrays.binarySearch(RESPONSE_SUCCESS, request.code()) >= 0;
   }
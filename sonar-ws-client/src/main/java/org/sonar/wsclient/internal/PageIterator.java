@@ -0,0 +1,164 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.wsclient.internal;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Not an API. Please do not use this class, except maybe for unit tests.
+ * <p/>
+ * Lazy iterator over the pages returned by a web service. The first page is requested on the first call to
+ * {@link #hasNext()}. Each following page is requested in background as soon as the previous one is returned, so
+ * that its download overlaps with the processing of the previous page. At most one page is pending.
+ * <p/>
+ * Background requests are executed by at most {@value #MAX_THREADS} daemon threads shared by all the iterators.
+ * They are released after one minute of inactivity. When the iteration is stopped before the last page,
+ * {@link #close()} cancels the pending request. Otherwise it completes in background and its result is dropped.
+ *
+ * @since 4.3
+ */
+public abstract class PageIterator<T> implements Iterator<T>, Closeable {
+
+  static final String THREAD_NAME_PREFIX = "sonar-ws-client-pages-";
+  static final int MAX_THREADS = 4;
+  private static final ExecutorService EXECUTOR = newExecutor();
+
+  private int nextPageIndex;
+  private boolean started = false;
+  private FutureTask<T> nextPage;
+
+  protected PageIterator(int firstPageIndex) {
+    this.nextPageIndex = firstPageIndex;
+  }
+
+  /**
+   * Requests a page. Called from a background thread, except for the first page.
+   */
+  protected abstract T loadPage(int pageIndex);
+
+  /**
+   * @return true if the page is followed by another page
+   */
+  protected abstract boolean hasNextPage(T page, int pageIndex);
+
+  @Override
+  public boolean hasNext() {
+    if (!started) {
+      started = true;
+      FutureTask<T> firstPage = newTask(nextPageIndex);
+      firstPage.run();
+      // propagates the error of the first request, if any. The iteration is then over.
+      get(firstPage);
+      nextPage = firstPage;
+    }
+    return nextPage != null;
+  }
+
+  @Override
+  public T next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    FutureTask<T> task = nextPage;
+    // the iteration is over if the page can not be loaded
+    nextPage = null;
+    T page = get(task);
+    int pageIndex = nextPageIndex;
+    nextPageIndex++;
+    if (hasNextPage(page, pageIndex)) {
+      nextPage = newTask(nextPageIndex);
+      EXECUTOR.execute(nextPage);
+    }
+    return page;
+  }
+
+  /**
+   * Cancels the download of the next page, if any. The iteration is then over.
+   */
+  @Override
+  public void close() {
+    started = true;
+    if (nextPage != null) {
+      nextPage.cancel(true);
+      nextPage = null;
+    }
+  }
+
+  @Override
+  public void remove() {
+    throw new UnsupportedOperationException();
+  }
+
+  private FutureTask<T> newTask(final int pageIndex) {
+    return new FutureTask<T>(new Callable<T>() {
+      @Override
+      public T call() {
+        return loadPage(pageIndex);
+      }
+    });
+  }
+
+  private static <T> T get(FutureTask<T> task) {
+    try {
+      return task.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for next page", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IllegalStateException("Fail to load next page", cause);
+    }
+  }
+
+  private static ExecutorService newExecutor() {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, 60L, TimeUnit.SECONDS,
+      new LinkedBlockingQueue<Runnable>(), new DaemonThreadFactory());
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  private static class DaemonThreadFactory implements ThreadFactory {
+    private final AtomicInteger counter = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, THREAD_NAME_PREFIX + counter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
@@ -35,6 +35,17 @@ public interface IssueClient {
    */
   Issues find(IssueQuery query);
 
+  /**
+   * Iterates over all the pages of issues matching the query, starting from the page index of the query
+   * (the first page by default). Pages are requested lazily. The next page is downloaded in background
+   * while the current page is being processed. Each call to {@link Iterable#iterator()} starts a new search.
+   * The iterators implement {@link java.io.Closeable}. If the iteration is stopped before the last page, closing the
+   * iterator cancels the download of the next page. Otherwise this page is dropped once downloaded.
+   *
+   * @since 4.3
+   */
+  Iterable<Issues> findPages(IssueQuery query);
+
   /**
    * Assign an existing issue to a user. A null assignee removes the assignee.
    *
@@ -22,10 +22,13 @@ package org.sonar.wsclient.issue.internal;
 import org.json.simple.JSONValue;
 import org.sonar.wsclient.internal.EncodingUtils;
 import org.sonar.wsclient.internal.HttpRequestFactory;
+import org.sonar.wsclient.internal.PageIterator;
 import org.sonar.wsclient.issue.*;
 
 import javax.annotation.Nullable;
 
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -36,6 +39,7 @@ public class DefaultIssueClient implements IssueClient {
 
   private static final String SEARCH_URL = "/api/issues/search";
   private static final String ASSIGN_URL = "/api/issues/assign";
+  private static final String PAGE_INDEX = "pageIndex";
 
   private final HttpRequestFactory requestFactory;
   private final IssueJsonParser parser;
@@ -46,8 +50,39 @@ public class DefaultIssueClient implements IssueClient {
   }
 
   public Issues find(IssueQuery query) {
-    String json = requestFactory.get(SEARCH_URL, query.urlParams());
-    return parser.parseIssues(json);
+    return find(query.urlParams());
+  }
+
+  private Issues find(Map<String, Object> params) {
+    Map jsonRoot = (Map) requestFactory.getJson(SEARCH_URL, params);
+    return parser.parseIssues(jsonRoot);
+  }
+
+  @Override
+  public Iterable<Issues> findPages(IssueQuery query) {
+    // copy, so that the query can be changed by caller during iteration
+    final Map<String, Object> params = new HashMap<String, Object>(query.urlParams());
+    Object pageIndex = params.get(PAGE_INDEX);
+    final int firstPageIndex = pageIndex == null ? 1 : Integer.parseInt(pageIndex.toString());
+    return new Iterable<Issues>() {
+      @Override
+      public Iterator<Issues> iterator() {
+        return new PageIterator<Issues>(firstPageIndex) {
+          @Override
+          protected Issues loadPage(int index) {
+            Map<String, Object> pageParams = new HashMap<String, Object>(params);
+            pageParams.put(PAGE_INDEX, index);
+            return find(pageParams);
+          }
+
+          @Override
+          protected boolean hasNextPage(Issues page, int index) {
+            Integer pages = page.paging().pages();
+            return !page.list().isEmpty() && pages != null && index < pages;
+          }
+        };
+      }
+    };
   }
 
   @Override
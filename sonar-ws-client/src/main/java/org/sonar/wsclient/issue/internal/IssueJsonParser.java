@@ -43,8 +43,14 @@ public class IssueJsonParser {
   private static final String TOTAL = "total";
 
   public Issues parseIssues(String json) {
+    return parseIssues((Map) JSONValue.parse(json));
+  }
+
+  /**
+   * @since 4.3
+   */
+  public Issues parseIssues(Map jsonRoot) {
     DefaultIssues result = new DefaultIssues();
-    Map jsonRoot = (Map) JSONValue.parse(json);
     List<Map> jsonIssues = (List<Map>) jsonRoot.get(ISSUES);
     if (jsonIssues != null) {
       for (Map jsonIssue : jsonIssues) {
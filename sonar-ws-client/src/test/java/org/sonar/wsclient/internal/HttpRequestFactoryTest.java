@@ -22,6 +22,7 @@ package org.sonar.wsclient.internal;
 import org.junit.Rule;
 import org.junit.Test;
 import org.sonar.wsclient.MockHttpServerInterceptor;
+import org.sonar.wsclient.base.HttpException;
 import org.sonar.wsclient.issue.IssueClient;
 import org.sonar.wsclient.issue.IssueQuery;
 import org.sonar.wsclient.issue.internal.DefaultIssueClient;
@@ -31,6 +32,7 @@ import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Collections;
 import java.util.Date;
+import java.util.Map;
 
 import static org.fest.assertions.Assertions.assertThat;
 import static org.fest.assertions.Fail.fail;
@@ -50,6 +52,43 @@ public class HttpRequestFactoryTest {
     assertThat(httpServer.requestedPath()).isEqualTo("/api/issues");
   }
 
+  @Test
+  public void test_get_json() {
+    httpServer.stubStatusCode(200).stubResponseBody("{\"issues\": [{\"key\": \"ABCDE\"}]}  \n");
+
+    HttpRequestFactory factory = new HttpRequestFactory(httpServer.url());
+    Map json = (Map) factory.getJson("/api/issues", Collections.<String, Object>singletonMap("issues", "ABCDE"));
+
+    assertThat(json.keySet()).containsOnly("issues");
+    assertThat(httpServer.requestedPath()).isEqualTo("/api/issues?issues=ABCDE");
+  }
+
+  @Test
+  public void fail_to_get_json_if_error_status() {
+    httpServer.stubStatusCode(500);
+
+    HttpRequestFactory factory = new HttpRequestFactory(httpServer.url());
+    try {
+      factory.getJson("/api/issues", Collections.<String, Object>emptyMap());
+      fail();
+    } catch (HttpException e) {
+      assertThat(e.status()).isEqualTo(500);
+    }
+  }
+
+  @Test
+  public void fail_to_get_json_if_invalid_response() {
+    httpServer.stubStatusCode(200).stubResponseBody("{\"issues\": [");
+
+    HttpRequestFactory factory = new HttpRequestFactory(httpServer.url());
+    try {
+      factory.getJson("/api/issues", Collections.<String, Object>emptyMap());
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e.getMessage()).startsWith("Fail to parse response of http://localhost");
+    }
+  }
+
   @Test
   public void should_throw_illegal_state_exc_if_connect_exception() {
     HttpRequestFactory factory = new HttpRequestFactory("http://localhost:1");
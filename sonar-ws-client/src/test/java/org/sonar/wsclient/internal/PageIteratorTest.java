@@ -0,0 +1,189 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.wsclient.internal;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.fest.assertions.Fail.fail;
+
+public class PageIteratorTest {
+
+  @Test
+  public void iterate_over_pages() {
+    StringPages pages = new StringPages(1, 3);
+
+    List<String> result = new ArrayList<String>();
+    while (pages.hasNext()) {
+      result.add(pages.next());
+    }
+
+    assertThat(result).containsExactly("page 1", "page 2", "page 3");
+    assertThat(pages.loadedPages).containsExactly(1, 2, 3);
+  }
+
+  @Test
+  public void do_not_request_before_first_call() {
+    StringPages pages = new StringPages(1, 3);
+
+    assertThat(pages.loadedPages).isEmpty();
+    assertThat(pages.hasNext()).isTrue();
+    assertThat(pages.hasNext()).isTrue();
+    assertThat(pages.loadedPages).containsExactly(1);
+  }
+
+  @Test
+  public void start_from_given_page() {
+    StringPages pages = new StringPages(3, 3);
+
+    assertThat(pages.next()).isEqualTo("page 3");
+    assertThat(pages.hasNext()).isFalse();
+  }
+
+  @Test
+  public void load_next_pages_in_background() {
+    StringPages pages = new StringPages(1, 2);
+
+    pages.next();
+    assertThat(pages.next()).isEqualTo("page 2");
+
+    assertThat(pages.threads).hasSize(2);
+    assertThat(pages.threads.get(0)).isEqualTo(Thread.currentThread().getName());
+    assertThat(pages.threads.get(1)).startsWith(PageIterator.THREAD_NAME_PREFIX);
+  }
+
+  @Test
+  public void propagate_error_of_first_request() {
+    StringPages pages = new StringPages(1, 3);
+    pages.failingPage = 1;
+
+    try {
+      pages.hasNext();
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessage("Fail to load page 1");
+    }
+    assertThat(pages.hasNext()).isFalse();
+  }
+
+  @Test
+  public void propagate_error_of_background_request() {
+    StringPages pages = new StringPages(1, 3);
+    pages.failingPage = 2;
+
+    pages.next();
+    try {
+      pages.next();
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessage("Fail to load page 2");
+    }
+    assertThat(pages.hasNext()).isFalse();
+    assertThat(pages.loadedPages).containsExactly(1, 2);
+  }
+
+  @Test
+  public void cancel_pending_request_on_close() throws Exception {
+    StringPages pages = new StringPages(1, 3);
+    pages.blockingPage = 2;
+
+    pages.next();
+    pages.blockingPageStarted.await();
+    pages.close();
+
+    assertThat(pages.blockingPageInterrupted.await(10, TimeUnit.SECONDS)).isTrue();
+    assertThat(pages.hasNext()).isFalse();
+    assertThat(pages.loadedPages).containsExactly(1, 2);
+  }
+
+  @Test
+  public void close_before_first_request() {
+    StringPages pages = new StringPages(1, 3);
+
+    pages.close();
+
+    assertThat(pages.hasNext()).isFalse();
+    assertThat(pages.loadedPages).isEmpty();
+  }
+
+  @Test
+  public void fail_if_no_more_pages() {
+    StringPages pages = new StringPages(1, 1);
+    pages.next();
+
+    try {
+      pages.next();
+      fail();
+    } catch (NoSuchElementException e) {
+      // expected
+    }
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void remove_is_not_supported() {
+    new StringPages(1, 1).remove();
+  }
+
+  private static class StringPages extends PageIterator<String> {
+    private final int lastPage;
+    private int failingPage = -1;
+    private int blockingPage = -1;
+    private final CountDownLatch blockingPageStarted = new CountDownLatch(1);
+    private final CountDownLatch blockingPageInterrupted = new CountDownLatch(1);
+    private final List<Integer> loadedPages = new ArrayList<Integer>();
+    private final List<String> threads = new ArrayList<String>();
+
+    StringPages(int firstPage, int lastPage) {
+      super(firstPage);
+      this.lastPage = lastPage;
+    }
+
+    @Override
+    protected String loadPage(int pageIndex) {
+      synchronized (this) {
+        loadedPages.add(pageIndex);
+        threads.add(Thread.currentThread().getName());
+      }
+      if (pageIndex == blockingPage) {
+        blockingPageStarted.countDown();
+        try {
+          new CountDownLatch(1).await();
+        } catch (InterruptedException e) {
+          blockingPageInterrupted.countDown();
+        }
+      }
+      if (pageIndex == failingPage) {
+        throw new IllegalStateException("Fail to load page " + pageIndex);
+      }
+      return "page " + pageIndex;
+    }
+
+    @Override
+    protected boolean hasNextPage(String page, int pageIndex) {
+      return pageIndex < lastPage;
+    }
+  }
+}
@@ -27,6 +27,7 @@ import org.sonar.wsclient.base.HttpException;
 import org.sonar.wsclient.internal.HttpRequestFactory;
 import org.sonar.wsclient.issue.*;
 
+import java.util.Iterator;
 import java.util.List;
 
 import static org.fest.assertions.Assertions.assertThat;
@@ -68,6 +69,53 @@ public class DefaultIssueClientTest {
     }
   }
 
+  @Test
+  public void should_iterate_over_pages_of_issues() {
+    HttpRequestFactory requestFactory = new HttpRequestFactory(httpServer.url());
+    httpServer.stubResponseBody("{\"issues\": [{\"key\": \"ABCDE\"}], \"paging\": {\"pageIndex\": 1, \"pageSize\": 1, \"total\": 2, \"pages\": 2}}");
+
+    IssueClient client = new DefaultIssueClient(requestFactory);
+    Iterator<Issues> pages = client.findPages(IssueQuery.create().pageSize(1)).iterator();
+
+    assertThat(pages.hasNext()).isTrue();
+    assertThat(httpServer.requestedPath()).startsWith("/api/issues/search?").contains("pageIndex=1").contains("pageSize=1");
+    assertThat(pages.next().list().get(0).key()).isEqualTo("ABCDE");
+    assertThat(pages.hasNext()).isTrue();
+    assertThat(pages.next().list()).hasSize(1);
+    assertThat(httpServer.requestedPath()).contains("pageIndex=2");
+    assertThat(pages.hasNext()).isFalse();
+  }
+
+  @Test
+  public void should_iterate_from_page_index_of_query() {
+    HttpRequestFactory requestFactory = new HttpRequestFactory(httpServer.url());
+    httpServer.stubResponseBody("{\"issues\": [{\"key\": \"ABCDE\"}], \"paging\": {\"pageIndex\": 3, \"pageSize\": 1, \"total\": 3, \"pages\": 3}}");
+
+    IssueClient client = new DefaultIssueClient(requestFactory);
+    int count = 0;
+    for (Issues page : client.findPages(IssueQuery.create().pageSize(1).pageIndex(3))) {
+      assertThat(page.size()).isEqualTo(1);
+      count++;
+    }
+
+    assertThat(count).isEqualTo(1);
+    assertThat(httpServer.requestedPath()).contains("pageIndex=3");
+  }
+
+  @Test
+  public void should_fail_to_iterate_over_pages_of_issues() {
+    HttpRequestFactory requestFactory = new HttpRequestFactory(httpServer.url());
+    httpServer.stubStatusCode(500);
+
+    IssueClient client = new DefaultIssueClient(requestFactory);
+    try {
+      client.findPages(IssueQuery.create()).iterator().hasNext();
+      fail();
+    } catch (HttpException e) {
+      assertThat(e.status()).isEqualTo(500);
+    }
+  }
+
   @Test
   public void should_set_severity() {
     HttpRequestFactory requestFactory = new HttpRequestFactory(httpServer.url());